@@ -0,0 +1,229 @@
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+
+import components.map.Map;
+import components.program.Program;
+import components.statement.Statement;
+
+/**
+ * Read-only view of one program of a {@code ProgramArchive}, whose instruction
+ * bodies and main body are decoded from the archive only when they are first
+ * asked for. Creating the view reads just the name table and the directory of
+ * instruction names; each body is then decoded at most once, into a statement
+ * of the type produced by the archive's prototype {@code Program}, and kept
+ * for later calls. Views are not safe for use by concurrent threads.
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public final class ArchivedProgram {
+
+    /**
+     * Reader of the encoding of this program.
+     */
+    private final BLBinaryReader reader;
+
+    /**
+     * The encoding of this program.
+     */
+    private final ByteBuffer encoding;
+
+    /**
+     * Program whose {@code newBody} supplies empty statements.
+     */
+    private final Program prototype;
+
+    /**
+     * The program name.
+     */
+    private final String name;
+
+    /**
+     * Position in the encoding of the body of each instruction.
+     */
+    private final HashMap<String, Integer> positions;
+
+    /**
+     * Position in the encoding of the main body.
+     */
+    private final int bodyPosition;
+
+    /**
+     * Instruction bodies decoded so far.
+     */
+    private final HashMap<String, Statement> decoded;
+
+    /**
+     * The main body, or null if it has not been decoded yet.
+     */
+    private Statement body;
+
+    /**
+     * Constructor.
+     *
+     * @param encoding
+     *            the {@code BLBinaryWriter} encoding of the program, between
+     *            its position and limit
+     * @param prototype
+     *            program whose {@code newBody} supplies empty statements
+     * @throws IllegalArgumentException
+     *             if the names or the directory are malformed, as
+     *             {@code BLBinaryReader.read} would report them
+     */
+    ArchivedProgram(ByteBuffer encoding, Program prototype) {
+        this.encoding = encoding;
+        this.prototype = prototype;
+        this.reader = BLBinaryReader.ofProgram(encoding);
+        this.name = this.reader.nextIdentifier();
+        int count = this.reader.nextCount();
+        this.positions = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            String instruction = this.reader.nextInstruction();
+            if (this.positions.containsKey(instruction)) {
+                throw BLBinaryReader.definedTwice(instruction);
+            }
+            this.positions.put(instruction, this.reader.skipBody());
+        }
+        this.bodyPosition = this.reader.skipBody();
+        this.decoded = new HashMap<>();
+        this.body = null;
+    }
+
+    /**
+     * Reports the name of this program.
+     *
+     * @return the name of this program
+     */
+    public String name() {
+        return this.name;
+    }
+
+    /**
+     * Reports the number of instructions in the context of this program.
+     *
+     * @return the number of instructions
+     */
+    public int instructionCount() {
+        return this.positions.size();
+    }
+
+    /**
+     * Reports whether the context of this program defines instruction
+     * {@code instruction}.
+     *
+     * @param instruction
+     *            the instruction name
+     * @return true iff {@code instruction} is defined
+     */
+    public boolean hasInstruction(String instruction) {
+        assert instruction != null : "Violation of: instruction is not null";
+
+        return this.positions.containsKey(instruction);
+    }
+
+    /**
+     * Returns the body of instruction {@code instruction}, decoding it if
+     * this is the first time it is asked for.
+     *
+     * @param instruction
+     *            the instruction name
+     * @return the instruction body
+     * @aliases reference returned by instructionBody
+     * @requires hasInstruction(instruction)
+     * @ensures instructionBody = [the body of instruction in the context]
+     */
+    public Statement instructionBody(String instruction) {
+        assert instruction != null : "Violation of: instruction is not null";
+        assert this.hasInstruction(instruction) : ""
+                + "Violation of: hasInstruction(instruction)";
+
+        Statement result = this.decoded.get(instruction);
+        if (result == null) {
+            result = this.prototype.newBody();
+            this.reader.readBodyAt(this.positions.get(instruction), result);
+            this.decoded.put(instruction, result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the main body of this program, decoding it if this is the
+     * first time it is asked for.
+     *
+     * @return the main body
+     * @aliases reference returned by body
+     * @ensures body = [the main body of this program]
+     */
+    public Statement body() {
+        if (this.body == null) {
+            this.body = this.prototype.newBody();
+            this.reader.readBodyAt(this.bodyPosition, this.body);
+        }
+        return this.body;
+    }
+
+    /**
+     * Reports the number of bodies, counting the main body, decoded so far.
+     *
+     * @return the number of decoded bodies
+     */
+    public int decodedCount() {
+        int result = this.decoded.size();
+        if (this.body != null) {
+            result++;
+        }
+        return result;
+    }
+
+    /**
+     * Replaces {@code p} with a complete copy of this program, decoding every
+     * body again rather than sharing the ones decoded for this view.
+     *
+     * @param p
+     *            the program to replace
+     * @replaces p
+     * @ensures p = [this program]
+     */
+    public void copyTo(Program p) {
+        assert p != null : "Violation of: p is not null";
+
+        BLBinaryReader.read(p, this.encoding.duplicate());
+    }
+
+    /**
+     * Replaces the context of {@code p} with the instructions of this
+     * program, decoding only the bodies named in {@code instructions}; other
+     * entries are left out. This builds just the context entries a caller
+     * such as a simulation actually needs.
+     *
+     * @param p
+     *            the program whose context is replaced
+     * @param instructions
+     *            the names of the instructions to include
+     * @updates p
+     * @requires [every name in instructions satisfies hasInstruction]
+     * @ensures <pre>
+     * p.name = [name of this program] and
+     * p.context = [the entries of the context of this program whose names
+     *   are in instructions] and p.body = #p.body
+     * </pre>
+     */
+    public void copyInstructionsTo(Program p, String... instructions) {
+        assert p != null : "Violation of: p is not null";
+        assert instructions != null : "Violation of: instructions is not null";
+
+        Map<String, Statement> context = p.newContext();
+        for (String instruction : instructions) {
+            assert this.hasInstruction(instruction) : ""
+                    + "Violation of: hasInstruction(instruction)";
+            if (!context.hasKey(instruction)) {
+                Statement copy = p.newBody();
+                this.reader.readBodyAt(this.positions.get(instruction), copy);
+                context.add(instruction, copy);
+            }
+        }
+        p.setName(this.name);
+        p.swapContext(context);
+    }
+
+}
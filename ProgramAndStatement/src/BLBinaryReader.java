@@ -0,0 +1,704 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import components.map.Map;
+import components.program.Program;
+import components.statement.Statement;
+import components.statement.StatementKernel.Condition;
+import components.statement.StatementKernel.Kind;
+import components.utilities.Tokenizer;
+
+/**
+ * Reader of the binary encoding of BL programs and statements written by
+ * {@code BLBinaryWriter}, which documents the layout. Values are built through
+ * the kernel methods of the given {@code Program} and {@code Statement}
+ * objects, and every CALL to the same instruction shares the one
+ * {@code String} of the name table. Malformed or truncated encodings, and
+ * encodings of another version, are reported by throwing
+ * {@code IllegalArgumentException}.
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public final class BLBinaryReader {
+
+    /**
+     * Kinds, indexed by ordinal.
+     */
+    private static final Kind[] KINDS = Kind.values();
+
+    /**
+     * Conditions, indexed by ordinal.
+     */
+    private static final Condition[] CONDITIONS = Condition.values();
+
+    /**
+     * Low seven bits of a varint byte.
+     */
+    private static final int VARINT_MASK = 0x7F;
+
+    /**
+     * Continuation bit of a varint byte.
+     */
+    private static final int VARINT_MORE = 0x80;
+
+    /**
+     * Largest shift of a varint group that still fits in an int.
+     */
+    private static final int VARINT_MAX_SHIFT = 28;
+
+    /**
+     * Mask of a byte value.
+     */
+    private static final int BYTE_MASK = 0xFF;
+
+    /**
+     * Initial capacity of the node arrays decoded for a {@code Statement3}.
+     */
+    private static final int INITIAL_NODES = 64;
+
+    /**
+     * The input.
+     */
+    private final ByteBuffer in;
+
+    /**
+     * The name table.
+     */
+    private String[] names;
+
+    /**
+     * Reusable empty statements, one per nesting depth.
+     */
+    private final ArrayList<Statement> scratch;
+
+    /**
+     * SymbolTable id of each name in the name table, or -1 if not yet
+     * interned.
+     */
+    private int[] nameIds;
+
+    /**
+     * Kind ordinals of the nodes decoded for a {@code Statement3}.
+     */
+    private int[] nodeKinds;
+
+    /**
+     * Condition ordinals of the nodes decoded for a {@code Statement3}.
+     */
+    private int[] nodeConditions;
+
+    /**
+     * Instruction name ids of the nodes decoded for a {@code Statement3}.
+     */
+    private int[] nodeInstructions;
+
+    /**
+     * Subtree sizes of the nodes decoded for a {@code Statement3}.
+     */
+    private int[] nodeExtents;
+
+    /**
+     * Number of nodes decoded for a {@code Statement3}.
+     */
+    private int nodeCount;
+
+    /**
+     * Constructor.
+     *
+     * @param in
+     *            the input
+     */
+    private BLBinaryReader(ByteBuffer in) {
+        this.in = in;
+        this.names = new String[0];
+        this.scratch = new ArrayList<>();
+        this.nameIds = new int[0];
+        this.nodeKinds = new int[INITIAL_NODES];
+        this.nodeConditions = new int[INITIAL_NODES];
+        this.nodeInstructions = new int[INITIAL_NODES];
+        this.nodeExtents = new int[INITIAL_NODES];
+        this.nodeCount = 0;
+    }
+
+    /**
+     * Returns an exception reporting a malformed encoding.
+     *
+     * @param problem
+     *            description of the problem
+     * @return the exception to throw
+     */
+    private static IllegalArgumentException malformed(String problem) {
+        return new IllegalArgumentException(
+                "malformed BL binary encoding: " + problem);
+    }
+
+    /**
+     * Reads a varint.
+     *
+     * @return the value read
+     */
+    private int getVarint() {
+        int result = 0;
+        int shift = 0;
+        int b = this.in.get();
+        while ((b & VARINT_MORE) != 0) {
+            if (shift == VARINT_MAX_SHIFT) {
+                throw malformed("varint too long");
+            }
+            result |= (b & VARINT_MASK) << shift;
+            shift += 7;
+            b = this.in.get();
+        }
+        result |= (b & VARINT_MASK) << shift;
+        if (result < 0) {
+            throw malformed("varint out of range");
+        }
+        return result;
+    }
+
+    /**
+     * Reads a name table index.
+     *
+     * @return the index
+     */
+    private int getNameIndex() {
+        int index = this.getVarint();
+        if (index >= this.names.length) {
+            throw malformed("name index " + index + " out of range");
+        }
+        return index;
+    }
+
+    /**
+     * Reads a name table index and returns the name.
+     *
+     * @return the name
+     */
+    private String getName() {
+        return this.names[this.getNameIndex()];
+    }
+
+    /**
+     * Reads a name table index and returns the name, checking that it is an
+     * IDENTIFIER.
+     *
+     * @return the name
+     */
+    private String getIdentifier() {
+        String name = this.getName();
+        if (!Tokenizer.isIdentifier(name)) {
+            throw malformed("\"" + name + "\" is not an IDENTIFIER");
+        }
+        return name;
+    }
+
+    /**
+     * Reads a name table index and returns the name, checking that it is an
+     * IDENTIFIER that may name a user-defined instruction.
+     *
+     * @return the name
+     */
+    private String getInstruction() {
+        String instruction = this.getIdentifier();
+        if (SymbolTable.isPrimitive(SymbolTable.idOf(instruction))) {
+            throw malformed("instruction \"" + instruction + "\" is primitive");
+        }
+        return instruction;
+    }
+
+    /**
+     * Returns an exception reporting an instruction defined twice in the
+     * context of a program.
+     *
+     * @param instruction
+     *            the instruction name
+     * @return the exception to throw
+     */
+    static IllegalArgumentException definedTwice(String instruction) {
+        return malformed("instruction \"" + instruction + "\" defined twice");
+    }
+
+    /**
+     * Checks that a node at nesting depth {@code depth} may be read.
+     *
+     * @param depth
+     *            the nesting depth of the node
+     */
+    private static void checkDepth(int depth) {
+        if (depth > BLBinaryWriter.MAX_DEPTH) {
+            throw malformed("nodes nested more than "
+                    + BLBinaryWriter.MAX_DEPTH + " deep");
+        }
+    }
+
+    /**
+     * Returns an empty statement of the dynamic type of {@code s} for use as
+     * a child at nesting depth {@code depth}, reusing the one returned for
+     * that depth before if it has that type; kernel assemble methods clear
+     * their arguments, so each is empty again once its node has been
+     * assembled.
+     *
+     * @param s
+     *            a statement of the required dynamic type
+     * @param depth
+     *            the nesting depth
+     * @return the empty statement
+     */
+    private Statement scratch(Statement s, int depth) {
+        if (depth == this.scratch.size()) {
+            this.scratch.add(s.newInstance());
+        } else if (this.scratch.get(depth).getClass() != s.getClass()) {
+            this.scratch.set(depth, s.newInstance());
+        }
+        return this.scratch.get(depth);
+    }
+
+    /**
+     * Reads the header and the name table, and checks that the encoding has
+     * type {@code type}.
+     *
+     * @param type
+     *            the expected type byte
+     */
+    private void getHeader(int type) {
+        if (this.in.getInt() != BLBinaryWriter.MAGIC) {
+            throw malformed("bad magic number");
+        }
+        int version = this.in.get() & BYTE_MASK;
+        if (version != BLBinaryWriter.VERSION) {
+            throw new IllegalArgumentException(
+                    "unsupported BL binary encoding version " + version);
+        }
+        if ((this.in.get() & BYTE_MASK) != type) {
+            throw malformed("wrong encoding type");
+        }
+        int count = this.getVarint();
+        this.names = new String[count];
+        for (int i = 0; i < count; i++) {
+            int length = this.getVarint();
+            if (length > this.in.remaining()) {
+                throw malformed("name too long");
+            }
+            byte[] utf8 = new byte[length];
+            this.in.get(utf8);
+            this.names[i] = new String(utf8, StandardCharsets.UTF_8);
+        }
+        this.nameIds = new int[count];
+        Arrays.fill(this.nameIds, -1);
+    }
+
+    /**
+     * Reads a node tag, checking that it is valid and that it is the tag of a
+     * BLOCK iff {@code block} is true.
+     *
+     * @param block
+     *            whether the node must be a BLOCK
+     * @return the tag
+     */
+    private int getTag(boolean block) {
+        int tag = this.in.get() & BYTE_MASK;
+        int kind = tag / BLBinaryWriter.KIND_SHIFT;
+        if (kind >= KINDS.length
+                || tag % BLBinaryWriter.KIND_SHIFT >= CONDITIONS.length) {
+            throw malformed("bad node tag " + tag);
+        }
+        if ((kind == Kind.BLOCK.ordinal()) != block) {
+            throw malformed("unexpected " + KINDS[kind] + " node");
+        }
+        return tag;
+    }
+
+    /**
+     * Reads a node at nesting depth {@code depth} and appends its preorder
+     * listing to the node arrays, checking that it is a BLOCK iff
+     * {@code block} is true.
+     *
+     * @param block
+     *            whether the node must be a BLOCK
+     * @param depth
+     *            the nesting depth of the node
+     */
+    private void getNodes(boolean block, int depth) {
+        checkDepth(depth);
+        int tag = this.getTag(block);
+        int node = this.nodeCount;
+        if (node == this.nodeKinds.length) {
+            int length = 2 * node;
+            this.nodeKinds = Arrays.copyOf(this.nodeKinds, length);
+            this.nodeConditions = Arrays.copyOf(this.nodeConditions, length);
+            this.nodeInstructions = Arrays.copyOf(this.nodeInstructions,
+                    length);
+            this.nodeExtents = Arrays.copyOf(this.nodeExtents, length);
+        }
+        int kind = tag / BLBinaryWriter.KIND_SHIFT;
+        this.nodeKinds[node] = kind;
+        this.nodeConditions[node] = tag % BLBinaryWriter.KIND_SHIFT;
+        this.nodeCount++;
+        switch (KINDS[kind]) {
+            case BLOCK: {
+                int n = this.getVarint();
+                for (int i = 0; i < n; i++) {
+                    this.getNodes(false, depth + 1);
+                }
+                break;
+            }
+            case IF_ELSE: {
+                this.getNodes(true, depth + 1);
+                this.getNodes(true, depth + 1);
+                break;
+            }
+            case CALL: {
+                int index = this.getNameIndex();
+                if (this.nameIds[index] < 0) {
+                    String name = this.names[index];
+                    if (!Tokenizer.isIdentifier(name)) {
+                        throw malformed("\"" + name
+                                + "\" is not an IDENTIFIER");
+                    }
+                    this.nameIds[index] = SymbolTable.intern(name);
+                }
+                this.nodeInstructions[node] = this.nameIds[index];
+                break;
+            }
+            default: {
+                this.getNodes(true, depth + 1);
+                break;
+            }
+        }
+        this.nodeExtents[node] = this.nodeCount - node;
+    }
+
+    /**
+     * Reads a node at nesting depth {@code depth} into {@code s}, checking
+     * that it is a BLOCK iff {@code block} is true.
+     *
+     * @param s
+     *            the statement to replace
+     * @param block
+     *            whether the node must be a BLOCK
+     * @param depth
+     *            the nesting depth of the node
+     * @replaces s
+     */
+    private void getNode(Statement s, boolean block, int depth) {
+        if (s instanceof Statement3) {
+            this.nodeCount = 0;
+            this.getNodes(block, depth);
+            ((Statement3) s).setPreorder(this.nodeKinds, this.nodeConditions,
+                    this.nodeInstructions, this.nodeExtents, 0,
+                    this.nodeCount);
+            return;
+        }
+        checkDepth(depth);
+        int tag = this.getTag(block);
+        Condition c = CONDITIONS[tag % BLBinaryWriter.KIND_SHIFT];
+        switch (KINDS[tag / BLBinaryWriter.KIND_SHIFT]) {
+            case BLOCK: {
+                int n = this.getVarint();
+                s.clear();
+                Statement child = this.scratch(s, depth);
+                for (int i = 0; i < n; i++) {
+                    this.getNode(child, false, depth + 1);
+                    s.addToBlock(i, child);
+                }
+                break;
+            }
+            case IF: {
+                Statement thenBlock = this.scratch(s, depth);
+                this.getNode(thenBlock, true, depth + 1);
+                s.assembleIf(c, thenBlock);
+                break;
+            }
+            case IF_ELSE: {
+                Statement thenBlock = this.scratch(s, depth);
+                Statement elseBlock = s.newInstance();
+                this.getNode(thenBlock, true, depth + 1);
+                this.getNode(elseBlock, true, depth + 1);
+                s.assembleIfElse(c, thenBlock, elseBlock);
+                break;
+            }
+            case WHILE: {
+                Statement body = this.scratch(s, depth);
+                this.getNode(body, true, depth + 1);
+                s.assembleWhile(c, body);
+                break;
+            }
+            default: {
+                s.assembleCall(this.getIdentifier());
+                break;
+            }
+        }
+    }
+
+    /**
+     * Reads a length-prefixed BLOCK into {@code s}.
+     *
+     * @param s
+     *            the statement to replace
+     * @replaces s
+     */
+    private void getBody(Statement s) {
+        int length = this.in.getInt();
+        int end = this.in.position() + length;
+        this.getNode(s, true, 0);
+        if (this.in.position() != end) {
+            throw malformed("body length mismatch");
+        }
+    }
+
+    /**
+     * Reads the program section into {@code p}.
+     *
+     * @param p
+     *            the program to replace
+     * @replaces p
+     */
+    private void getProgram(Program p) {
+        String name = this.getIdentifier();
+        Map<String, Statement> context = p.newContext();
+        int count = this.getVarint();
+        for (int i = 0; i < count; i++) {
+            String instruction = this.getInstruction();
+            if (context.hasKey(instruction)) {
+                throw definedTwice(instruction);
+            }
+            Statement body = p.newBody();
+            this.getBody(body);
+            context.add(instruction, body);
+        }
+        Statement body = p.newBody();
+        this.getBody(body);
+
+        p.setName(name);
+        p.swapContext(context);
+        p.swapBody(body);
+    }
+
+    /**
+     * Reads the program encoded in {@code in}, from its position, into
+     * {@code p}.
+     *
+     * @param p
+     *            the program to replace
+     * @param in
+     *            the input buffer
+     * @updates in
+     * @replaces p
+     * @ensures <pre>
+     * [the bytes of #in from its position begin with BLBinaryWriter.toBytes(p)]
+     * and [in.position is just past that encoding]
+     * </pre>
+     */
+    public static void read(Program p, ByteBuffer in) {
+        assert p != null : "Violation of: p is not null";
+        assert in != null : "Violation of: in is not null";
+
+        BLBinaryReader reader = new BLBinaryReader(in);
+        try {
+            reader.getHeader(BLBinaryWriter.PROGRAM);
+            reader.getProgram(p);
+        } catch (BufferUnderflowException e) {
+            throw malformed("unexpected end of input");
+        }
+    }
+
+    /**
+     * Reads the program encoded in {@code bytes} into {@code p}.
+     *
+     * @param p
+     *            the program to replace
+     * @param bytes
+     *            the encoding
+     * @replaces p
+     * @ensures BLBinaryWriter.toBytes(p) = bytes
+     */
+    public static void read(Program p, byte[] bytes) {
+        assert p != null : "Violation of: p is not null";
+        assert bytes != null : "Violation of: bytes is not null";
+
+        read(p, ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Reads the program encoded in the rest of {@code in} into {@code p}.
+     *
+     * @param p
+     *            the program to replace
+     * @param in
+     *            the input channel
+     * @throws IOException
+     *             if reading from {@code in} fails
+     * @replaces p
+     * @ensures <pre>
+     * BLBinaryWriter.toBytes(p) = [the rest of #in] and
+     * [in has been read to its end]
+     * </pre>
+     */
+    public static void read(Program p, ReadableByteChannel in)
+            throws IOException {
+        assert p != null : "Violation of: p is not null";
+        assert in != null : "Violation of: in is not null";
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Channels.newInputStream(in).transferTo(bytes);
+        read(p, bytes.toByteArray());
+    }
+
+    /**
+     * Reads the statement encoded in {@code bytes} into {@code s}.
+     *
+     * @param s
+     *            the statement to replace
+     * @param bytes
+     *            the encoding
+     * @replaces s
+     * @ensures BLBinaryWriter.toBytes(s) = bytes
+     */
+    public static void readStatement(Statement s, byte[] bytes) {
+        assert s != null : "Violation of: s is not null";
+        assert bytes != null : "Violation of: bytes is not null";
+
+        BLBinaryReader reader = new BLBinaryReader(ByteBuffer.wrap(bytes));
+        try {
+            reader.getHeader(BLBinaryWriter.STATEMENT);
+            if (!reader.in.hasRemaining()) {
+                throw malformed("missing statement");
+            }
+            int tag = reader.in.get(reader.in.position()) & BYTE_MASK;
+            reader.getNode(s,
+                    tag / BLBinaryWriter.KIND_SHIFT == Kind.BLOCK.ordinal(), 0);
+        } catch (BufferUnderflowException e) {
+            throw malformed("unexpected end of input");
+        }
+    }
+
+    /*
+     * Lazy access ------------------------------------------------------------
+     */
+
+    /**
+     * Returns a reader of the program encoded in {@code in} from its
+     * position, with the header and the name table read and the reader
+     * positioned at the program name. The remaining methods of this section
+     * then walk the program section one field at a time, so callers such as
+     * {@code ArchivedProgram} can index the instruction bodies without
+     * decoding them. A reader is not safe for use by concurrent threads.
+     *
+     * @param in
+     *            the input buffer, which must not be changed while the reader
+     *            is in use
+     * @return the reader
+     * @ensures [the reader is positioned at the program name]
+     */
+    public static BLBinaryReader ofProgram(ByteBuffer in) {
+        assert in != null : "Violation of: in is not null";
+
+        BLBinaryReader reader = new BLBinaryReader(in.duplicate());
+        try {
+            reader.getHeader(BLBinaryWriter.PROGRAM);
+        } catch (BufferUnderflowException e) {
+            throw malformed("unexpected end of input");
+        }
+        return reader;
+    }
+
+    /**
+     * Reads the program name, checking it as {@code read} does.
+     *
+     * @return the name
+     * @requires [the reader is positioned at the program name]
+     */
+    public String nextIdentifier() {
+        try {
+            return this.getIdentifier();
+        } catch (BufferUnderflowException e) {
+            throw malformed("unexpected end of input");
+        }
+    }
+
+    /**
+     * Reads an instruction name, checking that it is an IDENTIFIER and not a
+     * primitive instruction. Rejecting a name defined twice is left to the
+     * caller, which throws {@code definedTwice(name)}.
+     *
+     * @return the name
+     * @requires [the reader is positioned at an instruction name]
+     */
+    public String nextInstruction() {
+        try {
+            return this.getInstruction();
+        } catch (BufferUnderflowException e) {
+            throw malformed("unexpected end of input");
+        }
+    }
+
+    /**
+     * Reads a count, such as the number of instructions in the context.
+     *
+     * @return the count
+     * @requires [the reader is positioned at a count]
+     */
+    public int nextCount() {
+        try {
+            return this.getVarint();
+        } catch (BufferUnderflowException e) {
+            throw malformed("unexpected end of input");
+        }
+    }
+
+    /**
+     * Moves past a length-prefixed body without decoding it, and returns its
+     * position for a later {@code readBodyAt}.
+     *
+     * @return the position of the body
+     * @requires [the reader is positioned at a body]
+     */
+    public int skipBody() {
+        int position = this.in.position();
+        try {
+            int length = this.in.getInt();
+            if (length < 0 || length > this.in.remaining()) {
+                throw malformed("body length out of range");
+            }
+            this.in.position(this.in.position() + length);
+        } catch (BufferUnderflowException e) {
+            throw malformed("unexpected end of input");
+        }
+        return position;
+    }
+
+    /**
+     * Decodes the body at {@code position}, as returned by {@code skipBody},
+     * into {@code s}, leaving the position of the reader unchanged.
+     *
+     * @param position
+     *            the position of the body
+     * @param s
+     *            the statement to replace
+     * @replaces s
+     * @requires [position was returned by skipBody of this reader]
+     * @ensures s = [the body at position]
+     */
+    public void readBodyAt(int position, Statement s) {
+        assert s != null : "Violation of: s is not null";
+
+        int saved = this.in.position();
+        this.in.position(position);
+        try {
+            this.getBody(s);
+        } catch (BufferUnderflowException e) {
+            throw malformed("unexpected end of input");
+        } finally {
+            this.in.position(saved);
+        }
+    }
+
+}
@@ -0,0 +1,435 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import components.map.Map;
+import components.program.Program;
+import components.statement.Statement;
+import components.statement.StatementKernel.Condition;
+import components.statement.StatementKernel.Kind;
+
+/**
+ * Writer of the versioned binary encoding of BL programs and statements read
+ * back by {@code BLBinaryReader}. An encoding is laid out as follows, with
+ * multi-byte integers big-endian and "varint" denoting an unsigned LEB128
+ * integer:
+ *
+ * <pre>
+ * encoding  = MAGIC:int32 VERSION:u8 type:u8 names (program | node)
+ * type      = PROGRAM | STATEMENT
+ * names     = count:varint { length:varint [UTF-8 bytes] }
+ * program   = name:varint count:varint { name:varint body } body
+ * body      = length:int32 node
+ * node      = tag:u8 (BLOCK:     count:varint node*
+ *                   | IF, WHILE: node
+ *                   | IF_ELSE:   node node
+ *                   | CALL:      name:varint)
+ * tag       = [Kind ordinal] * 16 + [Condition ordinal, or 0]
+ * </pre>
+ *
+ * Names are indices into the name table, so every distinct name is stored
+ * once, and each instruction body is preceded by its length in bytes so a
+ * reader can skip it without decoding it. Nodes may be nested at most
+ * {@code MAX_DEPTH} deep, so that whatever is written can be read back.
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public final class BLBinaryWriter {
+
+    /**
+     * First four bytes of every encoding ("BLBI").
+     */
+    public static final int MAGIC = 0x424C4249;
+
+    /**
+     * Version of the encoding written by this class.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Type byte of an encoded program.
+     */
+    public static final int PROGRAM = 0;
+
+    /**
+     * Type byte of an encoded statement.
+     */
+    public static final int STATEMENT = 1;
+
+    /**
+     * Multiplier of the Kind ordinal in a node tag.
+     */
+    public static final int KIND_SHIFT = 16;
+
+    /**
+     * Deepest nesting of nodes, counting the root of a body or statement as
+     * depth 0, that may be encoded; {@code BLBinaryReader} rejects deeper
+     * encodings rather than overflowing the stack of its recursive decoder.
+     */
+    public static final int MAX_DEPTH = 1024;
+
+    /**
+     * Initial capacity of the output buffer.
+     */
+    private static final int INITIAL_CAPACITY = 256;
+
+    /**
+     * Low seven bits of a varint byte.
+     */
+    private static final int VARINT_MASK = 0x7F;
+
+    /**
+     * Continuation bit of a varint byte.
+     */
+    private static final int VARINT_MORE = 0x80;
+
+    /**
+     * Bytes in an int32.
+     */
+    private static final int INT_BYTES = 4;
+
+    /**
+     * The name table, in order of first use.
+     */
+    private final ArrayList<String> names;
+
+    /**
+     * Index of each name in {@code names}.
+     */
+    private final HashMap<String, Integer> nameIndex;
+
+    /**
+     * The bytes written so far.
+     */
+    private byte[] bytes;
+
+    /**
+     * The number of bytes written so far.
+     */
+    private int length;
+
+    /**
+     * Whether a node nested deeper than {@code MAX_DEPTH} has been met.
+     */
+    private boolean tooDeep;
+
+    /**
+     * No-argument constructor.
+     */
+    private BLBinaryWriter() {
+        this.names = new ArrayList<>();
+        this.nameIndex = new HashMap<>();
+        this.bytes = new byte[INITIAL_CAPACITY];
+        this.length = 0;
+        this.tooDeep = false;
+    }
+
+    /**
+     * Makes room for {@code n} more bytes.
+     *
+     * @param n
+     *            the number of bytes about to be written
+     */
+    private void reserve(int n) {
+        if (this.length + n > this.bytes.length) {
+            this.bytes = Arrays.copyOf(this.bytes,
+                    Math.max(this.length + n, 2 * this.bytes.length));
+        }
+    }
+
+    /**
+     * Writes the low byte of {@code b}.
+     *
+     * @param b
+     *            the byte to write
+     */
+    private void putByte(int b) {
+        this.reserve(1);
+        this.bytes[this.length] = (byte) b;
+        this.length++;
+    }
+
+    /**
+     * Writes {@code n} as a big-endian int32 at position {@code pos}.
+     *
+     * @param pos
+     *            the position of the first byte
+     * @param n
+     *            the value to write
+     * @requires 0 <= pos and pos + 4 <= this.length
+     */
+    private void setInt(int pos, int n) {
+        final int bitsPerByte = 8;
+        for (int i = 0; i < INT_BYTES; i++) {
+            this.bytes[pos + i] = (byte) (n >>> ((INT_BYTES - 1 - i)
+                    * bitsPerByte));
+        }
+    }
+
+    /**
+     * Writes {@code n} as a big-endian int32.
+     *
+     * @param n
+     *            the value to write
+     */
+    private void putInt(int n) {
+        this.reserve(INT_BYTES);
+        this.length += INT_BYTES;
+        this.setInt(this.length - INT_BYTES, n);
+    }
+
+    /**
+     * Writes {@code n} as a varint.
+     *
+     * @param n
+     *            the value to write
+     * @requires n >= 0
+     */
+    private void putVarint(int n) {
+        int rest = n;
+        while (rest > VARINT_MASK) {
+            this.putByte((rest & VARINT_MASK) | VARINT_MORE);
+            rest >>>= 7;
+        }
+        this.putByte(rest);
+    }
+
+    /**
+     * Writes the index of {@code name} in the name table, adding it to the
+     * table if it is not there yet.
+     *
+     * @param name
+     *            the name to write
+     */
+    private void putName(String name) {
+        Integer index = this.nameIndex.get(name);
+        if (index == null) {
+            index = this.names.size();
+            this.names.add(name);
+            this.nameIndex.put(name, index);
+        }
+        this.putVarint(index);
+    }
+
+    /**
+     * Writes the tag of a node.
+     *
+     * @param k
+     *            the kind of the node
+     * @param c
+     *            the condition of the node, or null if it has none
+     */
+    private void putTag(Kind k, Condition c) {
+        int tag = k.ordinal() * KIND_SHIFT;
+        if (c != null) {
+            tag += c.ordinal();
+        }
+        this.putByte(tag);
+    }
+
+    /**
+     * Writes the node stream of {@code s}, whose root is at nesting depth
+     * {@code depth}. A node deeper than {@code MAX_DEPTH} is not written;
+     * {@code tooDeep} is set instead, and the rest of the stream is still
+     * walked so that {@code s} is restored.
+     *
+     * @param s
+     *            the statement to write
+     * @param depth
+     *            the nesting depth of the root of {@code s}
+     * @restores s
+     */
+    private void putStatement(Statement s, int depth) {
+        if (depth > MAX_DEPTH) {
+            this.tooDeep = true;
+            return;
+        }
+        switch (s.kind()) {
+            case BLOCK: {
+                int n = s.lengthOfBlock();
+                this.putTag(Kind.BLOCK, null);
+                this.putVarint(n);
+                for (int i = 0; i < n; i++) {
+                    Statement child = s.removeFromBlock(i);
+                    this.putStatement(child, depth + 1);
+                    s.addToBlock(i, child);
+                }
+                break;
+            }
+            case IF: {
+                Statement block = s.newInstance();
+                Condition c = s.disassembleIf(block);
+                this.putTag(Kind.IF, c);
+                this.putStatement(block, depth + 1);
+                s.assembleIf(c, block);
+                break;
+            }
+            case IF_ELSE: {
+                Statement block1 = s.newInstance();
+                Statement block2 = s.newInstance();
+                Condition c = s.disassembleIfElse(block1, block2);
+                this.putTag(Kind.IF_ELSE, c);
+                this.putStatement(block1, depth + 1);
+                this.putStatement(block2, depth + 1);
+                s.assembleIfElse(c, block1, block2);
+                break;
+            }
+            case WHILE: {
+                Statement block = s.newInstance();
+                Condition c = s.disassembleWhile(block);
+                this.putTag(Kind.WHILE, c);
+                this.putStatement(block, depth + 1);
+                s.assembleWhile(c, block);
+                break;
+            }
+            default: {
+                String instruction = s.disassembleCall();
+                this.putTag(Kind.CALL, null);
+                this.putName(instruction);
+                s.assembleCall(instruction);
+                break;
+            }
+        }
+    }
+
+    /**
+     * Writes {@code s} preceded by its length in bytes.
+     *
+     * @param s
+     *            the statement to write
+     * @restores s
+     */
+    private void putBody(Statement s) {
+        int start = this.length;
+        this.putInt(0);
+        this.putStatement(s, 0);
+        this.setInt(start, this.length - start - INT_BYTES);
+    }
+
+    /**
+     * Writes the program section of the encoding of {@code p}.
+     *
+     * @param p
+     *            the program to write
+     * @restores p
+     */
+    private void putProgram(Program p) {
+        this.putName(p.name());
+        Map<String, Statement> context = p.newContext();
+        p.swapContext(context);
+        this.putVarint(context.size());
+        for (Map.Pair<String, Statement> instruction : context) {
+            this.putName(instruction.key());
+            this.putBody(instruction.value());
+        }
+        p.swapContext(context);
+        Statement body = p.newBody();
+        p.swapBody(body);
+        this.putBody(body);
+        p.swapBody(body);
+    }
+
+    /**
+     * Returns the complete encoding with type {@code type}, whose program or
+     * node section has been written to this.
+     *
+     * @param type
+     *            the type byte
+     * @return the encoding
+     */
+    private byte[] finish(int type) {
+        if (this.tooDeep) {
+            throw new IllegalArgumentException(
+                    "nodes nested more than " + MAX_DEPTH
+                            + " deep cannot be encoded");
+        }
+        BLBinaryWriter header = new BLBinaryWriter();
+        header.putInt(MAGIC);
+        header.putByte(VERSION);
+        header.putByte(type);
+        header.putVarint(this.names.size());
+        for (String name : this.names) {
+            byte[] utf8 = name.getBytes(StandardCharsets.UTF_8);
+            header.putVarint(utf8.length);
+            header.reserve(utf8.length);
+            System.arraycopy(utf8, 0, header.bytes, header.length,
+                    utf8.length);
+            header.length += utf8.length;
+        }
+        byte[] result = Arrays.copyOf(header.bytes,
+                header.length + this.length);
+        System.arraycopy(this.bytes, 0, result, header.length, this.length);
+        return result;
+    }
+
+    /**
+     * Returns the binary encoding of {@code p}.
+     *
+     * @param p
+     *            the program to encode
+     * @return the encoding
+     * @throws IllegalArgumentException
+     *             if a body of {@code p} nests nodes more than
+     *             {@code MAX_DEPTH} deep
+     * @restores p
+     * @ensures BLBinaryReader.read(toBytes(p)) = p
+     */
+    public static byte[] toBytes(Program p) {
+        assert p != null : "Violation of: p is not null";
+
+        BLBinaryWriter w = new BLBinaryWriter();
+        w.putProgram(p);
+        return w.finish(PROGRAM);
+    }
+
+    /**
+     * Returns the binary encoding of {@code s}.
+     *
+     * @param s
+     *            the statement to encode
+     * @return the encoding
+     * @throws IllegalArgumentException
+     *             if {@code s} nests nodes more than {@code MAX_DEPTH} deep
+     * @restores s
+     * @ensures BLBinaryReader.readStatement(toBytes(s)) = s
+     */
+    public static byte[] toBytes(Statement s) {
+        assert s != null : "Violation of: s is not null";
+
+        BLBinaryWriter w = new BLBinaryWriter();
+        w.putStatement(s, 0);
+        return w.finish(STATEMENT);
+    }
+
+    /**
+     * Writes the binary encoding of {@code p} to {@code out}.
+     *
+     * @param p
+     *            the program to encode
+     * @param out
+     *            the output channel
+     * @throws IOException
+     *             if writing to {@code out} fails
+     * @throws IllegalArgumentException
+     *             if a body of {@code p} nests nodes more than
+     *             {@code MAX_DEPTH} deep, in which case nothing is written
+     * @restores p
+     * @ensures out = #out * toBytes(p)
+     */
+    public static void write(Program p, WritableByteChannel out)
+            throws IOException {
+        assert p != null : "Violation of: p is not null";
+        assert out != null : "Violation of: out is not null";
+
+        ByteBuffer buffer = ByteBuffer.wrap(toBytes(p));
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+}
@@ -0,0 +1,391 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import components.map.Map;
+import components.program.Program;
+import components.statement.Statement;
+import components.statement.StatementKernel.Condition;
+
+/**
+ * Recursive-descent BL parser reading tokens from a {@code BLTokenizer}, so
+ * programs can be parsed straight from a channel or a memory-mapped file
+ * without going through {@code SimpleReader} lines and a {@code Queue} of
+ * token strings. It accepts the same programs as {@code Program.parse} and
+ * builds the same values, through the kernel methods of the given
+ * {@code Program} and {@code Statement} objects; syntax errors are reported
+ * by throwing {@code IllegalArgumentException} with the offending line.
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public final class BLParser {
+
+    /**
+     * Names of the primitive instructions, which cannot be redefined.
+     */
+    private static final String[] PRIMITIVES = { "move", "turnleft",
+            "turnright", "infect", "skip" };
+
+    /**
+     * The token source.
+     */
+    private final BLTokenizer tokens;
+
+    /**
+     * Constructor.
+     *
+     * @param tokens
+     *            the token source
+     */
+    private BLParser(BLTokenizer tokens) {
+        this.tokens = tokens;
+    }
+
+    /**
+     * Parses a BL program from {@code in} into {@code p}.
+     *
+     * @param p
+     *            the program to replace
+     * @param in
+     *            the input channel
+     * @throws IOException
+     *             if reading from {@code in} fails
+     * @replaces p
+     * @requires [in is in blocking mode]
+     * @ensures <pre>
+     * p = [the program read from in] and
+     * [in has been read to its end]
+     * </pre>
+     */
+    public static void parse(Program p, ReadableByteChannel in)
+            throws IOException {
+        assert p != null : "Violation of: p is not null";
+        assert in != null : "Violation of: in is not null";
+
+        new BLParser(new BLTokenizer(in)).parseProgram(p);
+    }
+
+    /**
+     * Parses a BL program from the bytes of {@code in} between its position
+     * and limit into {@code p}.
+     *
+     * @param p
+     *            the program to replace
+     * @param in
+     *            the input buffer
+     * @throws IOException
+     *             never; declared because the tokenizer may read channels
+     * @replaces p
+     * @ensures p = [the program read from in]
+     */
+    public static void parse(Program p, ByteBuffer in) throws IOException {
+        assert p != null : "Violation of: p is not null";
+        assert in != null : "Violation of: in is not null";
+
+        new BLParser(new BLTokenizer(in)).parseProgram(p);
+    }
+
+    /**
+     * Parses the BL program in file {@code file} into {@code p}, mapping the
+     * file into memory when it is small enough to map in one piece.
+     *
+     * @param p
+     *            the program to replace
+     * @param file
+     *            the file to read
+     * @throws IOException
+     *             if the file cannot be read
+     * @replaces p
+     * @ensures p = [the program read from file]
+     */
+    public static void parse(Program p, Path file) throws IOException {
+        assert p != null : "Violation of: p is not null";
+        assert file != null : "Violation of: file is not null";
+
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size <= Integer.MAX_VALUE) {
+                MappedByteBuffer mapped = channel
+                        .map(FileChannel.MapMode.READ_ONLY, 0, size);
+                parse(p, mapped);
+            } else {
+                parse(p, (ReadableByteChannel) channel);
+            }
+        }
+    }
+
+    /**
+     * Parses a sequence of BL statements from the bytes of {@code in} between
+     * its position and limit into the BLOCK {@code s}.
+     *
+     * @param s
+     *            the statement to replace
+     * @param in
+     *            the input buffer
+     * @throws IOException
+     *             never; declared because the tokenizer may read channels
+     * @replaces s
+     * @ensures s = [the BLOCK of the statements read from in]
+     */
+    public static void parseBlock(Statement s, ByteBuffer in)
+            throws IOException {
+        assert s != null : "Violation of: s is not null";
+        assert in != null : "Violation of: in is not null";
+
+        BLParser parser = new BLParser(new BLTokenizer(in));
+        parser.parseBlock(s);
+        parser.expect(BLTokenizer.Token.END_OF_INPUT);
+    }
+
+    /**
+     * Parses one new instruction, from INSTRUCTION to the closing name, from
+     * the bytes of {@code in} between its position and limit into
+     * {@code body}, and returns the instruction name.
+     *
+     * @param body
+     *            the statement to replace
+     * @param in
+     *            the input buffer
+     * @return the instruction name
+     * @throws IOException
+     *             never; declared because the tokenizer may read channels
+     * @replaces body
+     * @ensures <pre>
+     * parseInstruction = [the name of the instruction read from in] and
+     * body = [the body of the instruction read from in]
+     * </pre>
+     */
+    public static String parseInstruction(Statement body, ByteBuffer in)
+            throws IOException {
+        assert body != null : "Violation of: body is not null";
+        assert in != null : "Violation of: in is not null";
+
+        BLParser parser = new BLParser(new BLTokenizer(in));
+        String name = parser.parseInstruction(body);
+        parser.expect(BLTokenizer.Token.END_OF_INPUT);
+        return name;
+    }
+
+    /**
+     * Reports a syntax error at the current token.
+     *
+     * @param expected
+     *            description of what was expected
+     * @return the exception to throw
+     */
+    private IllegalArgumentException error(String expected) {
+        return new IllegalArgumentException("line " + this.tokens.line()
+                + ": expected " + expected + " but found \""
+                + this.tokens.text() + "\"");
+    }
+
+    /**
+     * Checks that the current token is {@code t} and moves past it.
+     *
+     * @param t
+     *            the expected token
+     * @throws IOException
+     *             if reading the input fails
+     */
+    private void expect(BLTokenizer.Token t) throws IOException {
+        if (this.tokens.token() != t) {
+            String expected = t.toString();
+            if (t == BLTokenizer.Token.END_OF_INPUT) {
+                expected = "end of input";
+            }
+            throw this.error(expected);
+        }
+        if (t != BLTokenizer.Token.END_OF_INPUT) {
+            this.tokens.advance();
+        }
+    }
+
+    /**
+     * Checks that the current token is an IDENTIFIER, moves past it and
+     * returns it.
+     *
+     * @param what
+     *            description of the identifier's role, for error messages
+     * @return the identifier
+     * @throws IOException
+     *             if reading the input fails
+     */
+    private String expectIdentifier(String what) throws IOException {
+        if (this.tokens.token() != BLTokenizer.Token.IDENTIFIER) {
+            throw this.error(what);
+        }
+        String id = this.tokens.identifier();
+        this.tokens.advance();
+        return id;
+    }
+
+    /**
+     * Checks that the current token is a condition, moves past it and returns
+     * it.
+     *
+     * @return the condition
+     * @throws IOException
+     *             if reading the input fails
+     */
+    private Condition expectCondition() throws IOException {
+        if (this.tokens.token() != BLTokenizer.Token.CONDITION) {
+            throw this.error("a condition");
+        }
+        Condition c = this.tokens.condition();
+        this.tokens.advance();
+        return c;
+    }
+
+    /**
+     * Checks that the current token is the IDENTIFIER {@code name} closing a
+     * construct, and moves past it.
+     *
+     * @param name
+     *            the expected name
+     * @throws IOException
+     *             if reading the input fails
+     */
+    private void expectName(String name) throws IOException {
+        if (this.tokens.token() != BLTokenizer.Token.IDENTIFIER
+                || !this.tokens.identifier().equals(name)) {
+            throw this.error("\"" + name + "\"");
+        }
+        this.tokens.advance();
+    }
+
+    /**
+     * Parses a whole program into {@code p}.
+     *
+     * @param p
+     *            the program to replace
+     * @throws IOException
+     *             if reading the input fails
+     */
+    private void parseProgram(Program p) throws IOException {
+        this.expect(BLTokenizer.Token.PROGRAM);
+        String name = this.expectIdentifier("the program name");
+        this.expect(BLTokenizer.Token.IS);
+
+        Map<String, Statement> context = p.newContext();
+        while (this.tokens.token() == BLTokenizer.Token.INSTRUCTION) {
+            int line = this.tokens.line();
+            Statement body = p.newBody();
+            String instruction = this.parseInstruction(body);
+            if (context.hasKey(instruction)) {
+                throw new IllegalArgumentException("line " + line
+                        + ": instruction \"" + instruction
+                        + "\" is already defined");
+            }
+            context.add(instruction, body);
+        }
+
+        this.expect(BLTokenizer.Token.BEGIN);
+        Statement body = p.newBody();
+        this.parseBlock(body);
+        this.expect(BLTokenizer.Token.END);
+        this.expectName(name);
+        this.expect(BLTokenizer.Token.END_OF_INPUT);
+
+        p.setName(name);
+        p.swapContext(context);
+        p.swapBody(body);
+    }
+
+    /**
+     * Parses one new instruction into {@code body} and returns its name.
+     *
+     * @param body
+     *            the statement to replace
+     * @return the instruction name
+     * @throws IOException
+     *             if reading the input fails
+     */
+    private String parseInstruction(Statement body) throws IOException {
+        int line = this.tokens.line();
+        this.expect(BLTokenizer.Token.INSTRUCTION);
+        String instruction = this.expectIdentifier("an instruction name");
+        for (String primitive : PRIMITIVES) {
+            if (primitive.equals(instruction)) {
+                throw new IllegalArgumentException("line " + line
+                        + ": primitive instruction \"" + instruction
+                        + "\" cannot be redefined");
+            }
+        }
+        this.expect(BLTokenizer.Token.IS);
+        this.parseBlock(body);
+        this.expect(BLTokenizer.Token.END);
+        this.expectName(instruction);
+        return instruction;
+    }
+
+    /**
+     * Parses a possibly empty sequence of statements into the BLOCK
+     * {@code block}.
+     *
+     * @param block
+     *            the statement to replace
+     * @throws IOException
+     *             if reading the input fails
+     */
+    private void parseBlock(Statement block) throws IOException {
+        block.clear();
+        Statement s = block.newInstance();
+        int length = 0;
+        BLTokenizer.Token t = this.tokens.token();
+        while (t == BLTokenizer.Token.IF || t == BLTokenizer.Token.WHILE
+                || t == BLTokenizer.Token.IDENTIFIER) {
+            this.parseStatement(s);
+            block.addToBlock(length, s);
+            length++;
+            t = this.tokens.token();
+        }
+    }
+
+    /**
+     * Parses one IF, IF_ELSE, WHILE or CALL statement into {@code s}.
+     *
+     * @param s
+     *            the statement to replace
+     * @throws IOException
+     *             if reading the input fails
+     */
+    private void parseStatement(Statement s) throws IOException {
+        if (this.tokens.token() == BLTokenizer.Token.IF) {
+            this.tokens.advance();
+            Condition c = this.expectCondition();
+            this.expect(BLTokenizer.Token.THEN);
+            Statement thenBlock = s.newInstance();
+            this.parseBlock(thenBlock);
+            if (this.tokens.token() == BLTokenizer.Token.ELSE) {
+                this.tokens.advance();
+                Statement elseBlock = s.newInstance();
+                this.parseBlock(elseBlock);
+                this.expect(BLTokenizer.Token.END);
+                this.expect(BLTokenizer.Token.IF);
+                s.assembleIfElse(c, thenBlock, elseBlock);
+            } else {
+                this.expect(BLTokenizer.Token.END);
+                this.expect(BLTokenizer.Token.IF);
+                s.assembleIf(c, thenBlock);
+            }
+        } else if (this.tokens.token() == BLTokenizer.Token.WHILE) {
+            this.tokens.advance();
+            Condition c = this.expectCondition();
+            this.expect(BLTokenizer.Token.DO);
+            Statement body = s.newInstance();
+            this.parseBlock(body);
+            this.expect(BLTokenizer.Token.END);
+            this.expect(BLTokenizer.Token.WHILE);
+            s.assembleWhile(c, body);
+        } else {
+            s.assembleCall(this.expectIdentifier("a statement"));
+        }
+    }
+
+}
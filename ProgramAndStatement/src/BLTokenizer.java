@@ -0,0 +1,577 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import components.statement.StatementKernel.Condition;
+
+/**
+ * Streaming tokenizer for BL text read straight from a {@code ByteBuffer} or
+ * a {@code ReadableByteChannel}. Tokens are maximal runs of non-whitespace
+ * characters. Keywords and conditions are recognized byte by byte, and
+ * identifiers are looked up in a per-tokenizer cache, so the only strings
+ * allocated are the first occurrence of each distinct identifier.
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public final class BLTokenizer {
+
+    /**
+     * Kinds of token; the ten keywords are spelled as their names.
+     */
+    public enum Token {
+        /**
+         * Keyword PROGRAM.
+         */
+        PROGRAM,
+        /**
+         * Keyword IS.
+         */
+        IS,
+        /**
+         * Keyword BEGIN.
+         */
+        BEGIN,
+        /**
+         * Keyword END.
+         */
+        END,
+        /**
+         * Keyword INSTRUCTION.
+         */
+        INSTRUCTION,
+        /**
+         * Keyword IF.
+         */
+        IF,
+        /**
+         * Keyword THEN.
+         */
+        THEN,
+        /**
+         * Keyword ELSE.
+         */
+        ELSE,
+        /**
+         * Keyword WHILE.
+         */
+        WHILE,
+        /**
+         * Keyword DO.
+         */
+        DO,
+        /**
+         * One of the BL conditions.
+         */
+        CONDITION,
+        /**
+         * An IDENTIFIER.
+         */
+        IDENTIFIER,
+        /**
+         * Anything else.
+         */
+        ERROR,
+        /**
+         * End of the input.
+         */
+        END_OF_INPUT
+    }
+
+    /**
+     * Size of the buffer used when reading from a channel.
+     */
+    private static final int CHANNEL_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Initial capacity of the token and identifier-cache arrays.
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * Number of keyword tokens; they come first in {@code Token}.
+     */
+    private static final int KEYWORD_COUNT = Token.DO.ordinal() + 1;
+
+    /**
+     * Cached {@code Token.values()}, indexed by ordinal.
+     */
+    private static final Token[] TOKENS = Token.values();
+
+    /**
+     * Cached {@code Condition.values()}, indexed by ordinal.
+     */
+    private static final Condition[] CONDITIONS = Condition.values();
+
+    /**
+     * Spelling of each keyword, indexed by {@code Token} ordinal.
+     */
+    private static final byte[][] KEYWORD_BYTES = new byte[KEYWORD_COUNT][];
+
+    /**
+     * Spelling of each condition, indexed by {@code Condition} ordinal.
+     */
+    private static final byte[][] CONDITION_BYTES =
+            new byte[CONDITIONS.length][];
+
+    static {
+        for (int i = 0; i < KEYWORD_COUNT; i++) {
+            KEYWORD_BYTES[i] = ascii(TOKENS[i].name());
+        }
+        for (Condition c : CONDITIONS) {
+            CONDITION_BYTES[c.ordinal()] = ascii(
+                    c.name().toLowerCase().replace('_', '-'));
+        }
+    }
+
+    /**
+     * The input buffer; bytes {@code position} through {@code limit - 1} have
+     * not been tokenized yet.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * The channel refilling {@code buffer}, or null if {@code buffer} holds
+     * the whole input.
+     */
+    private final ReadableByteChannel channel;
+
+    /**
+     * Position in {@code buffer} of the next byte to examine.
+     */
+    private int position;
+
+    /**
+     * Number of valid bytes in {@code buffer}.
+     */
+    private int limit;
+
+    /**
+     * Offset in the input of {@code buffer}'s first byte.
+     */
+    private long base;
+
+    /**
+     * Current line number, starting at 1.
+     */
+    private int line = 1;
+
+    /**
+     * The current token.
+     */
+    private Token token;
+
+    /**
+     * Condition of the current token, if it is a CONDITION.
+     */
+    private Condition condition;
+
+    /**
+     * Text of the current token, if it is an IDENTIFIER.
+     */
+    private String identifier;
+
+    /**
+     * Offset in the input of the current token's first byte.
+     */
+    private long tokenStart;
+
+    /**
+     * Offset in the input just past the current token's last byte.
+     */
+    private long tokenEnd;
+
+    /**
+     * Line on which the current token appears.
+     */
+    private int tokenLine;
+
+    /**
+     * Bytes of the current token.
+     */
+    private byte[] text = new byte[INITIAL_CAPACITY];
+
+    /**
+     * Length of the current token.
+     */
+    private int length;
+
+    /**
+     * Open-addressing cache of the identifiers seen so far.
+     */
+    private String[] identifiers = new String[INITIAL_CAPACITY];
+
+    /**
+     * Number of identifiers in the cache.
+     */
+    private int identifierCount;
+
+    /**
+     * Constructor from a buffer holding the whole input, for instance a
+     * memory-mapped file; reads from the buffer's position to its limit.
+     *
+     * @param input
+     *            the input buffer
+     * @throws IOException
+     *             never, but declared for symmetry with the channel
+     *             constructor
+     */
+    public BLTokenizer(ByteBuffer input) throws IOException {
+        this.buffer = input;
+        this.channel = null;
+        this.position = input.position();
+        this.limit = input.limit();
+        this.base = -input.position();
+        this.advance();
+    }
+
+    /**
+     * Constructor from a channel, read in fixed-size chunks. The channel must
+     * block until data is available: the tokenizer does not wait on a
+     * selector.
+     *
+     * @param input
+     *            the input channel
+     * @throws IOException
+     *             if reading from {@code input} fails, or if it returns no
+     *             data without being at its end
+     * @requires [input is in blocking mode]
+     */
+    public BLTokenizer(ReadableByteChannel input) throws IOException {
+        assert input != null : "Violation of: input is not null";
+        assert !(input instanceof SelectableChannel)
+                || ((SelectableChannel) input).isBlocking() : ""
+                        + "Violation of: input is in blocking mode";
+
+        this.buffer = ByteBuffer.allocate(CHANNEL_BUFFER_SIZE);
+        this.channel = input;
+        this.position = 0;
+        this.limit = 0;
+        this.base = 0;
+        this.advance();
+    }
+
+    /**
+     * Returns the ASCII bytes of {@code s}.
+     *
+     * @param s
+     *            the string
+     * @return its bytes
+     */
+    private static byte[] ascii(String s) {
+        byte[] result = new byte[s.length()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = (byte) s.charAt(i);
+        }
+        return result;
+    }
+
+    /**
+     * Reports whether {@code b} is a whitespace byte.
+     *
+     * @param b
+     *            the byte
+     * @return true iff {@code b} is a space, tab, carriage return, form feed
+     *         or newline
+     */
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\t' || b == '\r' || b == '\f';
+    }
+
+    /**
+     * Reports whether {@code b} is an ASCII letter.
+     *
+     * @param b
+     *            the byte
+     * @return true iff {@code b} is a letter
+     */
+    private static boolean isLetter(byte b) {
+        return ('a' <= b && b <= 'z') || ('A' <= b && b <= 'Z');
+    }
+
+    /**
+     * Reads more input into the buffer once it has been used up.
+     *
+     * @return false iff the end of the input has been reached
+     * @throws IOException
+     *             if reading from the channel fails, or if it returns no
+     *             data without being at its end
+     */
+    private boolean refill() throws IOException {
+        boolean more = false;
+        if (this.channel != null) {
+            this.base += this.limit;
+            this.buffer.clear();
+            /*
+             * A blocking channel reads at least one byte into an empty buffer
+             * unless it is at its end, so 0 means it is not blocking
+             */
+            int n = this.channel.read(this.buffer);
+            if (n == 0) {
+                throw new IOException("channel returned no data;"
+                        + " it must be in blocking mode");
+            }
+            this.position = 0;
+            this.limit = Math.max(n, 0);
+            more = n > 0;
+        }
+        return more;
+    }
+
+    /**
+     * Reports whether the current token is spelled {@code word}.
+     *
+     * @param word
+     *            the spelling to compare with
+     * @return true iff the token's bytes equal {@code word}
+     */
+    private boolean textEquals(byte[] word) {
+        boolean equal = this.length == word.length;
+        for (int i = 0; equal && i < this.length; i++) {
+            equal = this.text[i] == word[i];
+        }
+        return equal;
+    }
+
+    /**
+     * Reports whether the current token is an IDENTIFIER, assuming it is not
+     * a keyword or condition.
+     *
+     * @return true iff the token is a letter followed by letters, digits and
+     *         hyphens
+     */
+    private boolean textIsIdentifier() {
+        boolean valid = isLetter(this.text[0]);
+        for (int i = 1; valid && i < this.length; i++) {
+            byte b = this.text[i];
+            valid = isLetter(b) || ('0' <= b && b <= '9') || b == '-';
+        }
+        return valid;
+    }
+
+    /**
+     * Returns the cached string spelled like the current token, adding it to
+     * the cache if needed.
+     *
+     * @return the identifier
+     */
+    private String cachedIdentifier() {
+        int hash = 0;
+        for (int i = 0; i < this.length; i++) {
+            hash = 31 * hash + this.text[i];
+        }
+        int mask = this.identifiers.length - 1;
+        int slot = hash & mask;
+        String found = this.identifiers[slot];
+        while (found != null && !this.spells(found)) {
+            slot = (slot + 1) & mask;
+            found = this.identifiers[slot];
+        }
+        if (found == null) {
+            found = new String(this.text, 0, this.length,
+                    StandardCharsets.US_ASCII);
+            this.identifiers[slot] = found;
+            this.identifierCount++;
+            if (2 * this.identifierCount > this.identifiers.length) {
+                this.growIdentifierCache();
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Reports whether the current token is spelled {@code s}.
+     *
+     * @param s
+     *            the string to compare with
+     * @return true iff the token's bytes spell {@code s}
+     */
+    private boolean spells(String s) {
+        boolean equal = s.length() == this.length;
+        for (int i = 0; equal && i < this.length; i++) {
+            equal = s.charAt(i) == this.text[i];
+        }
+        return equal;
+    }
+
+    /**
+     * Doubles the capacity of the identifier cache.
+     */
+    private void growIdentifierCache() {
+        String[] old = this.identifiers;
+        this.identifiers = new String[2 * old.length];
+        int mask = this.identifiers.length - 1;
+        for (String s : old) {
+            if (s != null) {
+                int slot = s.hashCode() & mask;
+                while (this.identifiers[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                this.identifiers[slot] = s;
+            }
+        }
+    }
+
+    /**
+     * Classifies the bytes of the current token.
+     */
+    private void classify() {
+        this.token = null;
+        for (int i = 0; this.token == null && i < KEYWORD_COUNT; i++) {
+            if (this.textEquals(KEYWORD_BYTES[i])) {
+                this.token = TOKENS[i];
+            }
+        }
+        for (int i = 0; this.token == null && i < CONDITIONS.length; i++) {
+            if (this.textEquals(CONDITION_BYTES[i])) {
+                this.token = Token.CONDITION;
+                this.condition = CONDITIONS[i];
+            }
+        }
+        if (this.token == null) {
+            if (this.textIsIdentifier()) {
+                this.token = Token.IDENTIFIER;
+                this.identifier = this.cachedIdentifier();
+            } else {
+                this.token = Token.ERROR;
+            }
+        }
+    }
+
+    /**
+     * Moves to the next token.
+     *
+     * @throws IOException
+     *             if reading from the channel fails
+     */
+    public void advance() throws IOException {
+        boolean more = true;
+        boolean skipping = true;
+        while (skipping) {
+            if (this.position == this.limit) {
+                more = this.refill();
+            }
+            if (!more) {
+                skipping = false;
+            } else {
+                byte b = this.buffer.get(this.position);
+                skipping = isWhitespace(b);
+                if (skipping) {
+                    if (b == '\n') {
+                        this.line++;
+                    }
+                    this.position++;
+                }
+            }
+        }
+        this.tokenStart = this.base + this.position;
+        this.tokenLine = this.line;
+        this.length = 0;
+        boolean scanning = more;
+        while (scanning) {
+            byte b = this.buffer.get(this.position);
+            if (isWhitespace(b)) {
+                scanning = false;
+            } else {
+                if (this.length == this.text.length) {
+                    this.text = Arrays.copyOf(this.text,
+                            2 * this.length);
+                }
+                this.text[this.length] = b;
+                this.length++;
+                this.position++;
+                if (this.position == this.limit) {
+                    scanning = this.refill();
+                }
+            }
+        }
+        this.tokenEnd = this.tokenStart + this.length;
+        if (this.length == 0) {
+            this.token = Token.END_OF_INPUT;
+        } else {
+            this.classify();
+        }
+    }
+
+    /**
+     * Returns the kind of the current token.
+     *
+     * @return the current token
+     */
+    public Token token() {
+        return this.token;
+    }
+
+    /**
+     * Returns the condition spelled by the current token.
+     *
+     * @return the condition
+     * @requires token() = CONDITION
+     */
+    public Condition condition() {
+        assert this.token == Token.CONDITION : ""
+                + "Violation of: token() = CONDITION";
+
+        return this.condition;
+    }
+
+    /**
+     * Returns the identifier spelled by the current token; equal identifiers
+     * are returned as the same string.
+     *
+     * @return the identifier
+     * @requires token() = IDENTIFIER
+     */
+    public String identifier() {
+        assert this.token == Token.IDENTIFIER : ""
+                + "Violation of: token() = IDENTIFIER";
+
+        return this.identifier;
+    }
+
+    /**
+     * Returns the text of the current token, for error messages.
+     *
+     * @return the token text, or a description of the end of the input
+     */
+    public String text() {
+        String result = "end of input";
+        if (this.token != Token.END_OF_INPUT) {
+            result = new String(this.text, 0, this.length,
+                    StandardCharsets.US_ASCII);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the line on which the current token appears.
+     *
+     * @return the line number, starting at 1
+     */
+    public int line() {
+        return this.tokenLine;
+    }
+
+    /**
+     * Returns the offset in the input of the current token's first byte.
+     *
+     * @return the start offset
+     */
+    public long start() {
+        return this.tokenStart;
+    }
+
+    /**
+     * Returns the offset in the input just past the current token's last
+     * byte.
+     *
+     * @return the end offset
+     */
+    public long end() {
+        return this.tokenEnd;
+    }
+
+}
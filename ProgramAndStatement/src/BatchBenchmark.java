@@ -0,0 +1,105 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+
+/**
+ * Measures the throughput of {@code BatchParser} on a directory of synthetic
+ * BL files, one in every hundred of them malformed, with pools of 1, 2, 4,
+ * ... threads up to the number of available processors.
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public final class BatchBenchmark {
+
+    /**
+     * Number of files parsed.
+     */
+    private static final int FILES = 2_000;
+
+    /**
+     * Minimum size of each file, in bytes.
+     */
+    private static final int FILE_SIZE = 16 * 1024;
+
+    /**
+     * One in this many files is malformed.
+     */
+    private static final int MALFORMED_ONE_IN = 100;
+
+    /**
+     * Number of measurements with each pool; the first is a warm-up.
+     */
+    private static final int ROUNDS = 3;
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private BatchBenchmark() {
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments
+     * @throws IOException
+     *             if the scratch files cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        SimpleWriter out = new SimpleWriter1L();
+        Path directory = Files.createTempDirectory("batch-benchmark");
+        for (int i = 0; i < FILES; i++) {
+            Path file = directory.resolve("program-" + i + ".bl");
+            if (i % MALFORMED_ONE_IN == 0) {
+                Files.write(file, "PROGRAM Broken IS BEGIN move"
+                        .getBytes(StandardCharsets.US_ASCII));
+            } else {
+                Benchmark.writeProgram(file, FILE_SIZE);
+            }
+        }
+        List<Path> files = BatchParser.listFiles(directory);
+
+        int processors = Runtime.getRuntime().availableProcessors();
+        double baseline = 0;
+        for (int threads = 1; threads <= processors; threads *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            for (int round = 0; round < ROUNDS; round++) {
+                long start = System.nanoTime();
+                BatchParser.Result[] results = BatchParser.parse(files,
+                        new Program2(), pool);
+                long nanos = System.nanoTime() - start;
+                int errors = 0;
+                for (BatchParser.Result r : results) {
+                    if (!r.succeeded()) {
+                        errors++;
+                    }
+                }
+                double filesPerSecond = results.length * 1e9 / nanos;
+                if (threads == 1) {
+                    baseline = filesPerSecond;
+                }
+                if (round > 0) {
+                    out.println(threads + " threads: "
+                            + (long) filesPerSecond + " files/s ("
+                            + String.format("%.2f", filesPerSecond / baseline)
+                            + "x), " + errors + " errors");
+                }
+            }
+            pool.shutdown();
+        }
+
+        for (Path file : files) {
+            Files.delete(file);
+        }
+        Files.delete(directory);
+        out.close();
+    }
+
+}
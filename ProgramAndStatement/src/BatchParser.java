@@ -0,0 +1,325 @@
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import components.program.Program;
+
+/**
+ * Parses many BL files at once with {@code BLParser}, spreading the files
+ * over the worker threads of a {@code ForkJoinPool}. Each file is parsed
+ * into its own new instance of a given {@code Program} implementation; a
+ * file that cannot be read, does not hold a valid BL program, or makes the
+ * parser fail in any other way, such as by nesting statements too deeply for
+ * the stack, is reported in its result, and does not stop the other files
+ * from being parsed.
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public final class BatchParser {
+
+    /**
+     * Outcome of parsing one file: the program if it was parsed, and the
+     * throwable that stopped it otherwise.
+     */
+    public static final class Result {
+
+        /**
+         * The file.
+         */
+        private final Path file;
+
+        /**
+         * The program, or null.
+         */
+        private final Program program;
+
+        /**
+         * The error, or null.
+         */
+        private final Throwable error;
+
+        /**
+         * Constructor.
+         *
+         * @param file
+         *            the file
+         * @param program
+         *            the program, or null
+         * @param error
+         *            the error, or null
+         */
+        private Result(Path file, Program program, Throwable error) {
+            this.file = file;
+            this.program = program;
+            this.error = error;
+        }
+
+        /**
+         * Reports the file parsed.
+         *
+         * @return the file
+         */
+        public Path file() {
+            return this.file;
+        }
+
+        /**
+         * Reports whether the file was parsed.
+         *
+         * @return true iff the file holds a valid BL program
+         */
+        public boolean succeeded() {
+            return this.error == null;
+        }
+
+        /**
+         * Reports the program parsed.
+         *
+         * @return the program
+         * @requires succeeded()
+         */
+        public Program program() {
+            assert this.succeeded() : "Violation of: succeeded()";
+
+            return this.program;
+        }
+
+        /**
+         * Reports why the file could not be parsed: an {@code IOException}
+         * if it could not be read, an {@code IllegalArgumentException}
+         * describing the first syntax error if it is not a valid BL program,
+         * and whatever other {@code RuntimeException},
+         * {@code StackOverflowError} or {@code AssertionError} the parser
+         * threw otherwise.
+         *
+         * @return the error
+         * @requires not succeeded()
+         */
+        public Throwable error() {
+            assert !this.succeeded() : "Violation of: not succeeded()";
+
+            return this.error;
+        }
+
+        @Override
+        public String toString() {
+            String result = this.file + ": ok";
+            if (!this.succeeded()) {
+                String message = this.error.getMessage();
+                if (message == null) {
+                    message = this.error.toString();
+                }
+                result = this.file + ": " + message;
+            }
+            return result;
+        }
+
+    }
+
+    /**
+     * Number of files below which a task parses its files itself instead of
+     * splitting them.
+     */
+    private static final int SEQUENTIAL_THRESHOLD = 4;
+
+    /**
+     * Task parsing a range of the files.
+     */
+    private static final class ParseTask extends RecursiveAction {
+
+        /**
+         * Serialization version.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * All the files.
+         */
+        private final List<Path> files;
+
+        /**
+         * Where to store the result of each file.
+         */
+        private final Result[] results;
+
+        /**
+         * Program of the implementation to parse into.
+         */
+        private final Program prototype;
+
+        /**
+         * First file of the range.
+         */
+        private final int from;
+
+        /**
+         * One past the last file of the range.
+         */
+        private final int to;
+
+        /**
+         * Constructor.
+         *
+         * @param files
+         *            all the files
+         * @param results
+         *            where to store the result of each file
+         * @param prototype
+         *            program of the implementation to parse into
+         * @param from
+         *            first file of the range
+         * @param to
+         *            one past the last file of the range
+         */
+        ParseTask(List<Path> files, Result[] results, Program prototype,
+                int from, int to) {
+            this.files = files;
+            this.results = results;
+            this.prototype = prototype;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from <= SEQUENTIAL_THRESHOLD) {
+                for (int i = this.from; i < this.to; i++) {
+                    this.results[i] = parseFile(this.files.get(i),
+                            this.prototype);
+                }
+            } else {
+                int middle = (this.from + this.to) >>> 1;
+                invokeAll(
+                        new ParseTask(this.files, this.results,
+                                this.prototype, this.from, middle),
+                        new ParseTask(this.files, this.results,
+                                this.prototype, middle, this.to));
+            }
+        }
+
+    }
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private BatchParser() {
+    }
+
+    /**
+     * Parses {@code file} into a new instance of the implementation of
+     * {@code prototype}.
+     *
+     * @param file
+     *            the file
+     * @param prototype
+     *            program of the implementation to parse into
+     * @return the result
+     */
+    private static Result parseFile(Path file, Program prototype) {
+        Program p = prototype.newInstance();
+        Result result;
+        try {
+            BLParser.parse(p, file);
+            result = new Result(file, p, null);
+        } catch (IOException | RuntimeException | StackOverflowError
+                | AssertionError e) {
+            /*
+             * Anything thrown out of here would escape pool.invoke and lose
+             * the results of every other file, so only errors the JVM cannot
+             * recover from, such as OutOfMemoryError, are let through
+             */
+            result = new Result(file, null, e);
+        }
+        return result;
+    }
+
+    /**
+     * Parses each of {@code files} into a new instance of the implementation
+     * of {@code prototype}, using the threads of {@code pool}.
+     *
+     * @param files
+     *            the files
+     * @param prototype
+     *            program of the implementation to parse into
+     * @param pool
+     *            the pool whose threads parse the files
+     * @return the result of each file, in the order of {@code files}
+     * @ensures <pre>
+     * |parse| = |files|  and
+     * [parse[i] is the outcome of parsing files[i]]
+     * </pre>
+     */
+    public static Result[] parse(List<Path> files, Program prototype,
+            ForkJoinPool pool) {
+        assert files != null : "Violation of: files is not null";
+        assert prototype != null : "Violation of: prototype is not null";
+        assert pool != null : "Violation of: pool is not null";
+
+        Result[] results = new Result[files.size()];
+        pool.invoke(new ParseTask(files, results, prototype, 0, files.size()));
+        return results;
+    }
+
+    /**
+     * Parses each of {@code files} into a new {@code Program2}, using the
+     * common pool.
+     *
+     * @param files
+     *            the files
+     * @return the result of each file, in the order of {@code files}
+     * @ensures <pre>
+     * |parse| = |files|  and
+     * [parse[i] is the outcome of parsing files[i]]
+     * </pre>
+     */
+    public static Result[] parse(List<Path> files) {
+        return parse(files, new Program2(), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Returns the {@code .bl} files of {@code directory}, sorted by name.
+     *
+     * @param directory
+     *            the directory
+     * @return the files
+     * @throws IOException
+     *             if the directory cannot be listed
+     */
+    public static List<Path> listFiles(Path directory) throws IOException {
+        assert directory != null : "Violation of: directory is not null";
+
+        List<Path> result = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files
+                .newDirectoryStream(directory, "*.bl")) {
+            for (Path entry : entries) {
+                if (Files.isRegularFile(entry)) {
+                    result.add(entry);
+                }
+            }
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    /**
+     * Parses each {@code .bl} file of {@code directory} into a new
+     * {@code Program2}, using the common pool.
+     *
+     * @param directory
+     *            the directory
+     * @return the result of each file, sorted by file name
+     * @throws IOException
+     *             if the directory cannot be listed
+     */
+    public static Result[] parseDirectory(Path directory) throws IOException {
+        return parse(listFiles(directory));
+    }
+
+}
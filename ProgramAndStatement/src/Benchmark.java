@@ -0,0 +1,194 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import components.statement.Statement;
+import components.statement.StatementKernel.Condition;
+
+/**
+ * Timing, heap-measurement and workload-generation helpers shared by the
+ * benchmark drivers.
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public final class Benchmark {
+
+    /**
+     * Number of garbage collections requested before sampling the heap.
+     */
+    private static final int GC_ROUNDS = 5;
+
+    /**
+     * Primitive instruction names cycled through by the synthetic workloads.
+     */
+    private static final String[] PRIMITIVES = { "move", "turnleft",
+            "turnright", "infect", "skip" };
+
+    /**
+     * Conditions cycled through by the synthetic workloads.
+     */
+    private static final Condition[] CONDITIONS = Condition.values();
+
+    /**
+     * Number of statements in each instruction body of synthetic programs.
+     */
+    private static final int PROGRAM_BODY_WIDTH = 20;
+
+    /**
+     * Sink for benchmark results so the JIT cannot discard the measured work.
+     */
+    private static volatile long sink;
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private Benchmark() {
+    }
+
+    /**
+     * Returns the number of bytes of heap in use after requesting garbage
+     * collection.
+     *
+     * @return the used heap, in bytes
+     */
+    public static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < GC_ROUNDS; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Runs {@code op} {@code warmups} times untimed and then {@code runs}
+     * times timed, and returns the mean time per run.
+     *
+     * @param op
+     *            the operation to time
+     * @param warmups
+     *            the number of untimed runs
+     * @param runs
+     *            the number of timed runs
+     * @return the mean time per timed run, in nanoseconds
+     * @requires runs > 0
+     */
+    public static double nanosPerOp(Runnable op, int warmups, int runs) {
+        assert runs > 0 : "Violation of: runs > 0";
+
+        for (int i = 0; i < warmups; i++) {
+            op.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < runs; i++) {
+            op.run();
+        }
+        return (double) (System.nanoTime() - start) / runs;
+    }
+
+    /**
+     * Records {@code value} so the computation producing it is not eliminated
+     * as dead code.
+     *
+     * @param value
+     *            the value to record
+     */
+    public static void consume(long value) {
+        sink += value;
+    }
+
+    /**
+     * Replaces {@code s} with a synthetic BLOCK of {@code width} statements
+     * nested {@code depth} levels deep; statements at depth zero are CALLs of
+     * primitive instructions and the others cycle through IF, WHILE and
+     * IF_ELSE.
+     *
+     * @param s
+     *            the statement to fill
+     * @param width
+     *            the number of statements in each block
+     * @param depth
+     *            the nesting depth
+     * @updates s
+     * @requires width >= 0 and depth >= 0
+     * @ensures s = [a BLOCK of width statements nested depth levels deep]
+     */
+    public static void fillBlock(Statement s, int width, int depth) {
+        assert width >= 0 : "Violation of: width >= 0";
+        assert depth >= 0 : "Violation of: depth >= 0";
+
+        s.clear();
+        Statement child = s.newInstance();
+        for (int i = 0; i < width; i++) {
+            Condition c = CONDITIONS[i % CONDITIONS.length];
+            if (depth == 0) {
+                child.assembleCall(PRIMITIVES[i % PRIMITIVES.length]);
+            } else if (i % 3 == 0) {
+                Statement block = s.newInstance();
+                fillBlock(block, width, depth - 1);
+                child.assembleIf(c, block);
+            } else if (i % 3 == 1) {
+                Statement block = s.newInstance();
+                fillBlock(block, width, depth - 1);
+                child.assembleWhile(c, block);
+            } else {
+                Statement block1 = s.newInstance();
+                Statement block2 = s.newInstance();
+                fillBlock(block1, width, depth - 1);
+                fillBlock(block2, 1, 0);
+                child.assembleIfElse(c, block1, block2);
+            }
+            s.addToBlock(i, child);
+        }
+    }
+
+    /**
+     * Writes a synthetic BL program of at least {@code bytes} bytes to
+     * {@code file}.
+     *
+     * @param file
+     *            the file to write
+     * @param bytes
+     *            the minimum size of the program
+     * @throws IOException
+     *             if the file cannot be written
+     */
+    public static void writeProgram(Path file, long bytes) throws IOException {
+        try (BufferedWriter w = Files.newBufferedWriter(file,
+                StandardCharsets.US_ASCII)) {
+            w.write("PROGRAM Synthetic IS\n\n");
+            long written = 0;
+            int n = 0;
+            while (written < bytes) {
+                StringBuilder sb = new StringBuilder();
+                sb.append("  INSTRUCTION instruction-").append(n)
+                        .append(" IS\n");
+                for (int i = 0; i < PROGRAM_BODY_WIDTH; i++) {
+                    if (i % 4 == 0) {
+                        sb.append("    WHILE next-is-empty DO\n")
+                                .append("      move\n")
+                                .append("    END WHILE\n");
+                    } else if (i % 4 == 1) {
+                        sb.append("    IF next-is-enemy THEN\n")
+                                .append("      infect\n    ELSE\n")
+                                .append("      turnleft\n    END IF\n");
+                    } else if (i % 4 == 2 && n > 0) {
+                        sb.append("    instruction-").append(n - 1)
+                                .append('\n');
+                    } else {
+                        sb.append("    turnright\n");
+                    }
+                }
+                sb.append("  END instruction-").append(n).append("\n\n");
+                w.write(sb.toString());
+                written += sb.length();
+                n++;
+            }
+            w.write("BEGIN\n  WHILE true DO\n    instruction-" + (n - 1)
+                    + "\n  END WHILE\nEND Synthetic\n");
+        }
+    }
+
+}
@@ -0,0 +1,110 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import components.program.Program;
+import components.program.Program1;
+import components.simplereader.SimpleReader;
+import components.simplereader.SimpleReader1L;
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+
+/**
+ * Compares loading a synthetic BL program from its binary encoding with
+ * parsing it from text, both through the library and through
+ * {@code BLParser}. The first command-line argument, if any, is the size in
+ * megabytes of the program text (default 10).
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public final class BinaryBenchmark {
+
+    /**
+     * Bytes per megabyte.
+     */
+    private static final long MEGABYTE = 1L << 20;
+
+    /**
+     * Default size of the program text, in megabytes.
+     */
+    private static final int DEFAULT_SIZE_MB = 10;
+
+    /**
+     * Number of timed loads of each kind.
+     */
+    private static final int RUNS = 5;
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private BinaryBenchmark() {
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments
+     * @throws IOException
+     *             if the scratch file cannot be written or read
+     */
+    public static void main(String[] args) throws IOException {
+        SimpleWriter out = new SimpleWriter1L();
+        int sizeMb = DEFAULT_SIZE_MB;
+        if (args.length > 0) {
+            sizeMb = Integer.parseInt(args[0]);
+        }
+
+        File text = File.createTempFile("binary-benchmark", ".bl");
+        text.deleteOnExit();
+        Benchmark.writeProgram(text.toPath(), sizeMb * MEGABYTE);
+
+        Program ref = new Program1();
+        SimpleReader in = new SimpleReader1L(text.getPath());
+        ref.parse(in);
+        in.close();
+        byte[] bytes = BLBinaryWriter.toBytes(ref);
+        out.println("text " + Files.size(text.toPath()) + " bytes, binary "
+                + bytes.length + " bytes");
+
+        double library = Benchmark.nanosPerOp(() -> {
+            SimpleReader file = new SimpleReader1L(text.getPath());
+            new Program1().parse(file);
+            file.close();
+        }, 1, RUNS);
+        out.println("SimpleReader1L + Program1.parse: "
+                + (long) library / 1_000_000 + " ms");
+
+        double streaming = Benchmark.nanosPerOp(() -> {
+            try {
+                BLParser.parse(new Program2(), text.toPath());
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }, 1, RUNS);
+        out.println("BLParser into Program2: " + (long) streaming / 1_000_000
+                + " ms");
+
+        double binary2 = Benchmark.nanosPerOp(
+                () -> BLBinaryReader.read(new Program2(), bytes), 1, RUNS);
+        out.println("BLBinaryReader into Program2: "
+                + (long) binary2 / 1_000_000 + " ms ("
+                + String.format("%.1f", library / binary2)
+                + "x faster than Program1.parse)");
+
+        double binary3 = Benchmark.nanosPerOp(
+                () -> BLBinaryReader.read(new Program3(), bytes), 1, RUNS);
+        out.println("BLBinaryReader into Program3: "
+                + (long) binary3 / 1_000_000 + " ms ("
+                + String.format("%.1f", library / binary3)
+                + "x faster than Program1.parse)");
+
+        Program test = new Program3();
+        BLBinaryReader.read(test, bytes);
+        out.println("round trip equal: " + test.equals(ref));
+
+        out.close();
+    }
+
+}
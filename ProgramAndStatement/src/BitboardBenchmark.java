@@ -0,0 +1,218 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+
+import components.program.Program;
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+
+/**
+ * Compares computing the sensor masks of all bugs of a {@code BitboardWorld}
+ * in bulk, with {@code sense}, against reading the cell in front of each bug,
+ * with {@code senseEach}, at several densities of bugs on a large grid with
+ * scattered walls. Also compares the throughput of whole rounds with that of
+ * a {@code BugWorld} set up the same way, and checks that both worlds end in
+ * the same state.
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public final class BitboardBenchmark {
+
+    /**
+     * Side of the grid.
+     */
+    private static final int SIDE = 1024;
+
+    /**
+     * Numbers of bugs, densest first: the rounds measured first shape the
+     * code the JIT compiles, and on sparse grids BitboardWorld does not use
+     * its bulk path.
+     */
+    private static final int[] BUG_COUNTS = { 900_000, 850_000, 600_000,
+            400_000, 100_000 };
+
+    /**
+     * Number of walls.
+     */
+    private static final int WALLS = SIDE * SIDE / 10;
+
+    /**
+     * Number of times the masks are computed per measurement.
+     */
+    private static final int REPEATS = 50;
+
+    /**
+     * Number of rounds run per measurement.
+     */
+    private static final int ROUNDS = 100;
+
+    /**
+     * Number of measurements; the first is a warm-up.
+     */
+    private static final int MEASUREMENTS = 4;
+
+    /**
+     * The names of files containing BL programs.
+     */
+    private static final String[] FILE_NAMES = { "data/program-sample.bl",
+            "data/program-test1.bl", "data/program-test2.bl" };
+
+    /**
+     * A program that wanders around, infecting enemies.
+     */
+    private static final String WANDERER = "PROGRAM Wanderer IS BEGIN"
+            + " WHILE true DO"
+            + "   IF next-is-empty THEN move"
+            + "   ELSE IF next-is-enemy THEN infect"
+            + "   ELSE IF random THEN turnleft ELSE turnright END IF"
+            + "   END IF END IF"
+            + " END WHILE END Wanderer";
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private BitboardBenchmark() {
+    }
+
+    /**
+     * Fills {@code world} and {@code reference} the same way with
+     * {@code bugs} bugs, one species per data program and one running the
+     * wanderer, and scattered walls.
+     *
+     * @param world
+     *            the bitboard world
+     * @param reference
+     *            the world it is compared with
+     * @param bugs
+     *            the number of bugs
+     * @throws IOException
+     *             if a program cannot be read
+     * @updates world, reference
+     */
+    private static void fill(BitboardWorld world, BugWorld reference,
+            int bugs) throws IOException {
+        for (String name : FILE_NAMES) {
+            Program p = new Program2();
+            BLParser.parse(p, Paths.get(name));
+            world.addSpecies(p.generatedCode());
+            reference.addSpecies(p.generatedCode());
+        }
+        Program wanderer = new Program2();
+        BLParser.parse(wanderer,
+                ByteBuffer.wrap(WANDERER.getBytes(StandardCharsets.US_ASCII)));
+        world.addSpecies(wanderer.generatedCode());
+        int species = reference.addSpecies(wanderer.generatedCode()) + 1;
+
+        Random random = new Random(0);
+        for (int i = 0; i < WALLS; i++) {
+            int x = random.nextInt(SIDE), y = random.nextInt(SIDE);
+            if (!world.isWall(x, y)) {
+                world.addWall(x, y);
+                reference.addWall(x, y);
+            }
+        }
+        while (world.bugCount() < bugs) {
+            int x = random.nextInt(SIDE), y = random.nextInt(SIDE);
+            if (!world.isWall(x, y) && world.bugAt(x, y) < 0) {
+                int d = random.nextInt(BugWorld.WEST + 1);
+                int s = world.bugCount() % species;
+                world.addBug(x, y, d, s);
+                reference.addBug(x, y, d, s);
+            }
+        }
+    }
+
+    /**
+     * Reports whether every bug of {@code world} is where, facing the way and
+     * of the species it is in {@code reference}.
+     *
+     * @param world
+     *            the bitboard world
+     * @param reference
+     *            the world it is compared with
+     * @return true iff the bugs of both worlds agree
+     */
+    private static boolean same(BitboardWorld world, BugWorld reference) {
+        boolean result = world.bugCount() == reference.bugCount();
+        for (int b = 0; result && b < world.bugCount(); b++) {
+            result = world.x(b) == reference.x(b)
+                    && world.y(b) == reference.y(b)
+                    && world.direction(b) == reference.direction(b)
+                    && world.species(b) == reference.species(b);
+        }
+        return result;
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments
+     * @throws IOException
+     *             if a program cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        SimpleWriter out = new SimpleWriter1L();
+        for (int bugs : BUG_COUNTS) {
+            BitboardWorld world = new BitboardWorld(SIDE, SIDE, bugs, 0);
+            BugWorld reference = new BugWorld(SIDE, SIDE, bugs, 0);
+            fill(world, reference, bugs);
+            int[] bulk = new int[bugs];
+            int[] scalar = new int[bugs];
+            for (int m = 0; m < MEASUREMENTS; m++) {
+                long start = System.nanoTime();
+                for (int i = 0; i < REPEATS; i++) {
+                    world.sense(bulk);
+                }
+                long bulkNanos = System.nanoTime() - start;
+                start = System.nanoTime();
+                for (int i = 0; i < REPEATS; i++) {
+                    world.senseEach(scalar);
+                }
+                long scalarNanos = System.nanoTime() - start;
+                if (!Arrays.equals(bulk, scalar)) {
+                    out.println("masks differ with " + bugs + " bugs");
+                }
+                if (m > 0) {
+                    long ops = (long) bugs * REPEATS;
+                    out.println(bugs + " bugs: bulk "
+                            + String.format("%.2f", (double) bulkNanos / ops)
+                            + " ns/bug, scalar "
+                            + String.format("%.2f",
+                                    (double) scalarNanos / ops)
+                            + " ns/bug, speedup " + String.format("%.2f",
+                                    (double) scalarNanos / bulkNanos));
+                }
+                world.run(1);
+                reference.run(1);
+            }
+            for (int m = 0; m < MEASUREMENTS; m++) {
+                long start = System.nanoTime();
+                world.run(ROUNDS);
+                long nanos = System.nanoTime() - start;
+                start = System.nanoTime();
+                reference.run(ROUNDS);
+                long referenceNanos = System.nanoTime() - start;
+                if (m > 0) {
+                    out.println(bugs + " bugs on " + SIDE + "x" + SIDE
+                            + ": BitboardWorld "
+                            + ((long) bugs * ROUNDS * 1_000 / nanos)
+                            + " M bug-turns/s, BugWorld "
+                            + ((long) bugs * ROUNDS * 1_000 / referenceNanos)
+                            + " M bug-turns/s, speedup " + String.format(
+                                    "%.2f", (double) referenceNanos / nanos));
+                }
+            }
+            if (!same(world, reference)) {
+                out.println("worlds differ with " + bugs + " bugs");
+            }
+        }
+
+        out.close();
+    }
+
+}
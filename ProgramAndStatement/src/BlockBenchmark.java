@@ -0,0 +1,87 @@
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+import components.statement.Statement;
+
+/**
+ * Measures addToBlock and removeFromBlock on large blocks for the
+ * tree-based Statement2 and the array-based Statement3.
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public final class BlockBenchmark {
+
+    /**
+     * Block lengths to measure.
+     */
+    private static final int[] LENGTHS = { 10_000, 100_000, 1_000_000 };
+
+    /**
+     * Number of insertions and removals done in the middle of a full block.
+     */
+    private static final int MIDDLE_EDITS = 1_000;
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private BlockBenchmark() {
+    }
+
+    /**
+     * Measures one implementation on a block of {@code n} statements and
+     * reports the results.
+     *
+     * @param label
+     *            the name of the implementation
+     * @param block
+     *            an empty statement of the implementation
+     * @param n
+     *            the block length
+     * @param out
+     *            the output stream
+     */
+    private static void measure(String label, Statement block, int n,
+            SimpleWriter out) {
+        Statement call = block.newInstance();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < n; i++) {
+            call.assembleCall("move");
+            block.addToBlock(i, call);
+        }
+        long append = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < MIDDLE_EDITS; i++) {
+            Statement removed = block.removeFromBlock(n / 2);
+            block.addToBlock(n / 2, removed);
+        }
+        long middle = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = n - 1; i >= 0; i--) {
+            Benchmark.consume(block.removeFromBlock(i).kind().ordinal());
+        }
+        long removeLast = System.nanoTime() - start;
+
+        out.println(label + " n=" + n + ": append " + append / n
+                + " ns/op, middle remove+insert " + middle / MIDDLE_EDITS
+                + " ns/op, remove last " + removeLast / n + " ns/op");
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments
+     */
+    public static void main(String[] args) {
+        SimpleWriter out = new SimpleWriter1L();
+        for (int n : LENGTHS) {
+            measure("Statement2", new Statement2(), n, out);
+            measure("Statement3", new Statement3(), n, out);
+        }
+        out.close();
+    }
+
+}
@@ -0,0 +1,506 @@
+/**
+ * BugsWorld simulation over the bytecode produced by
+ * {@code Program.generatedCode()}. The grid and the bugs' positions and
+ * directions are kept in primitive arrays, and the bugs' species and program
+ * counters in {@code ExecutionContexts}, so a round of turns allocates
+ * nothing. Each turn resumes the bug's program until its next primitive
+ * instruction and applies it; the cell in front of the bug is read once, into
+ * a sensor mask, and the program runs by {@code TransitionTable} lookup. A
+ * bug's number is its context number, and a species' number its program
+ * number.
+ *
+ * <p>
+ * The grid is surrounded by walls, so every bug always has a cell in front of
+ * it. Directions are numbered clockwise from north. Bugs take their turns in
+ * the order in which they were added; a bug infected by another takes on the
+ * other's species and starts its new program from the beginning. RANDOM is
+ * answered from a seeded xorshift stream, so a world is deterministic.
+ * </p>
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public final class BugWorld implements WorldSensor {
+
+    /**
+     * Direction north.
+     */
+    public static final int NORTH = 0;
+
+    /**
+     * Direction east.
+     */
+    public static final int EAST = 1;
+
+    /**
+     * Direction south.
+     */
+    public static final int SOUTH = 2;
+
+    /**
+     * Direction west.
+     */
+    public static final int WEST = 3;
+
+    /**
+     * Maximum number of instructions executed in one turn; a turn that
+     * reaches it without reaching a primitive instruction does nothing.
+     */
+    public static final int STEP_LIMIT = 1_000;
+
+    /**
+     * Content of an empty cell.
+     */
+    private static final int EMPTY = 0;
+
+    /**
+     * Content of a wall cell; any other positive content is the number of
+     * the bug in the cell plus one.
+     */
+    private static final int WALL = -1;
+
+    /**
+     * Conditions of the sensor, as the ordinal of {@code Condition} halved:
+     * NEXT_IS_EMPTY and NEXT_IS_NOT_EMPTY, and so on; odd ordinals are the
+     * negations, and RANDOM, whose ordinal is even, comes last.
+     */
+    private static final int EMPTY_TEST = 0, WALL_TEST = 1, FRIEND_TEST = 2,
+            ENEMY_TEST = 3;
+
+    /**
+     * Width and height of the grid, not counting the surrounding walls.
+     */
+    private final int width, height;
+
+    /**
+     * Distance between the indices of vertically adjacent cells.
+     */
+    private final int stride;
+
+    /**
+     * Offsets of the cell in front of a bug, indexed by direction.
+     */
+    private final int[] ahead;
+
+    /**
+     * The cells, row by row, including the surrounding walls.
+     */
+    private final int[] cells;
+
+    /**
+     * Index of the cell of each bug.
+     */
+    private final int[] position;
+
+    /**
+     * Direction of each bug.
+     */
+    private final int[] direction;
+
+    /**
+     * Species, program counter and turn counters of each bug.
+     */
+    private final ExecutionContexts contexts;
+
+    /**
+     * Number of rounds run.
+     */
+    private long rounds;
+
+    /**
+     * The random stream state.
+     */
+    private long state;
+
+    /**
+     * Species and cell in front of the bug taking its turn.
+     */
+    private int currentSpecies, currentAhead;
+
+    /**
+     * Constructor.
+     *
+     * @param width
+     *            the width of the grid
+     * @param height
+     *            the height of the grid
+     * @param capacity
+     *            the maximum number of bugs
+     * @param seed
+     *            the seed of the random stream
+     * @requires width > 0 and height > 0 and capacity >= 0
+     * @ensures <pre>
+     * [this is an empty width by height grid surrounded by walls, with room
+     *  for capacity bugs and no species]
+     * </pre>
+     */
+    public BugWorld(int width, int height, int capacity, long seed) {
+        assert width > 0 : "Violation of: width > 0";
+        assert height > 0 : "Violation of: height > 0";
+        assert capacity >= 0 : "Violation of: capacity >= 0";
+
+        this.width = width;
+        this.height = height;
+        this.stride = width + 2;
+        this.ahead = new int[] { -this.stride, 1, this.stride, -1 };
+        this.cells = new int[this.stride * (height + 2)];
+        for (int c = 0; c < this.stride; c++) {
+            this.cells[c] = WALL;
+            this.cells[this.cells.length - 1 - c] = WALL;
+        }
+        for (int r = 1; r <= height; r++) {
+            this.cells[r * this.stride] = WALL;
+            this.cells[r * this.stride + width + 1] = WALL;
+        }
+        this.position = new int[capacity];
+        this.direction = new int[capacity];
+        this.contexts = new ExecutionContexts(capacity);
+        this.state = seed * 0x9E3779B97F4A7C15L + 1;
+    }
+
+    /**
+     * Returns the index of the cell at ({@code x}, {@code y}).
+     *
+     * @param x
+     *            the column
+     * @param y
+     *            the row
+     * @return the index of the cell
+     */
+    private int cell(int x, int y) {
+        assert 0 <= x && x < this.width : "Violation of: 0 <= x < width";
+        assert 0 <= y && y < this.height : "Violation of: 0 <= y < height";
+
+        return (y + 1) * this.stride + x + 1;
+    }
+
+    /**
+     * Returns the next value of the random stream.
+     *
+     * @return the next value
+     */
+    private long nextBits() {
+        this.state ^= this.state << 13;
+        this.state ^= this.state >>> 7;
+        this.state ^= this.state << 17;
+        return this.state;
+    }
+
+    /**
+     * Adds a species running {@code code} and returns its number.
+     *
+     * @param code
+     *            the program of the species
+     * @return the number of the species
+     * @aliases reference code
+     * @requires [code is a valid generatedCode() program]
+     * @ensures addSpecies = [number of species before the call]
+     */
+    public int addSpecies(int[] code) {
+        assert code != null : "Violation of: code is not null";
+
+        return this.contexts.addProgram(code);
+    }
+
+    /**
+     * Sets the cell at ({@code x}, {@code y}) to a wall.
+     *
+     * @param x
+     *            the column
+     * @param y
+     *            the row
+     * @requires <pre>
+     * 0 <= x < width and 0 <= y < height and
+     * [the cell at (x, y) is empty]
+     * </pre>
+     * @ensures [the cell at (x, y) is a wall]
+     */
+    public void addWall(int x, int y) {
+        int c = this.cell(x, y);
+        assert this.cells[c] == EMPTY : "Violation of: the cell is empty";
+
+        this.cells[c] = WALL;
+    }
+
+    /**
+     * Adds a bug of species {@code s} at ({@code x}, {@code y}) facing
+     * {@code d}, at the start of its program, and returns its number.
+     *
+     * @param x
+     *            the column
+     * @param y
+     *            the row
+     * @param d
+     *            the direction
+     * @param s
+     *            the species
+     * @return the number of the bug
+     * @requires <pre>
+     * 0 <= x < width and 0 <= y < height and
+     * [the cell at (x, y) is empty] and 0 <= d < 4 and
+     * 0 <= s < [number of species] and bugCount() < capacity
+     * </pre>
+     * @ensures addBug = [number of bugs before the call]
+     */
+    public int addBug(int x, int y, int d, int s) {
+        int c = this.cell(x, y);
+        assert this.cells[c] == EMPTY : "Violation of: the cell is empty";
+        assert 0 <= d && d < this.ahead.length : "Violation of: 0 <= d < 4";
+        assert 0 <= s && s < this.contexts.programCount() : ""
+                + "Violation of: 0 <= s < [number of species]";
+        assert this.contexts.size() < this.position.length : ""
+                + "Violation of: bugCount() < capacity";
+
+        int b = this.contexts.add(s);
+        this.cells[c] = b + 1;
+        this.position[b] = c;
+        this.direction[b] = d;
+        return b;
+    }
+
+    @Override
+    public boolean test(int condition) {
+        boolean result;
+        int next = this.cells[this.currentAhead];
+        switch (condition >> 1) {
+            case EMPTY_TEST:
+                result = next == EMPTY;
+                break;
+            case WALL_TEST:
+                result = next == WALL;
+                break;
+            case FRIEND_TEST:
+                result = next > 0 && this.contexts
+                        .program(next - 1) == this.currentSpecies;
+                break;
+            case ENEMY_TEST:
+                result = next > 0 && this.contexts
+                        .program(next - 1) != this.currentSpecies;
+                break;
+            default:
+                result = this.nextBits() < 0;
+                break;
+        }
+        return result ^ ((condition & 1) != 0);
+    }
+
+    /**
+     * Runs the turn of bug {@code b}.
+     *
+     * @param b
+     *            the bug
+     */
+    private void turn(int b) {
+        int at = this.position[b];
+        int d = this.direction[b];
+        int s = this.contexts.program(b);
+        int a = at + this.ahead[d];
+        int next = this.cells[a];
+        int mask;
+        if (next == EMPTY) {
+            mask = TransitionTable.EMPTY;
+        } else if (next == WALL) {
+            mask = TransitionTable.WALL;
+        } else if (this.contexts.program(next - 1) == s) {
+            mask = TransitionTable.FRIEND;
+        } else {
+            mask = TransitionTable.ENEMY;
+        }
+        this.currentSpecies = s;
+        this.currentAhead = a;
+        int action = this.contexts.resume(b, mask, this, STEP_LIMIT);
+        switch (action) {
+            case BytecodeVM.MOVE:
+                if (next == EMPTY) {
+                    this.cells[a] = b + 1;
+                    this.cells[at] = EMPTY;
+                    this.position[b] = a;
+                }
+                break;
+            case BytecodeVM.TURNLEFT:
+                this.direction[b] = (d + WEST) & WEST;
+                break;
+            case BytecodeVM.TURNRIGHT:
+                this.direction[b] = (d + 1) & WEST;
+                break;
+            case BytecodeVM.INFECT:
+                if (next > 0 && this.contexts.program(next - 1) != s) {
+                    this.contexts.setProgram(next - 1, s);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Runs one round: every bug takes one turn, in order.
+     *
+     * @updates this
+     * @ensures [this is the world after one more round]
+     */
+    public void step() {
+        int bugs = this.contexts.size();
+        for (int b = 0; b < bugs; b++) {
+            this.turn(b);
+        }
+        this.rounds++;
+    }
+
+    /**
+     * Runs {@code n} rounds.
+     *
+     * @param n
+     *            the number of rounds
+     * @updates this
+     * @requires n >= 0
+     * @ensures [this is the world after n more rounds]
+     */
+    public void run(int n) {
+        assert n >= 0 : "Violation of: n >= 0";
+
+        for (int i = 0; i < n; i++) {
+            this.step();
+        }
+    }
+
+    /**
+     * Returns the width of the grid.
+     *
+     * @return the width
+     */
+    public int width() {
+        return this.width;
+    }
+
+    /**
+     * Returns the height of the grid.
+     *
+     * @return the height
+     */
+    public int height() {
+        return this.height;
+    }
+
+    /**
+     * Returns the number of bugs.
+     *
+     * @return the number of bugs
+     */
+    public int bugCount() {
+        return this.contexts.size();
+    }
+
+    /**
+     * Returns the number of rounds run.
+     *
+     * @return the number of rounds
+     */
+    public long rounds() {
+        return this.rounds;
+    }
+
+    /**
+     * Reports whether the cell at ({@code x}, {@code y}) is a wall.
+     *
+     * @param x
+     *            the column
+     * @param y
+     *            the row
+     * @return true iff the cell is a wall
+     * @requires 0 <= x < width and 0 <= y < height
+     */
+    public boolean isWall(int x, int y) {
+        return this.cells[this.cell(x, y)] == WALL;
+    }
+
+    /**
+     * Returns the number of the bug at ({@code x}, {@code y}), or -1 if there
+     * is none.
+     *
+     * @param x
+     *            the column
+     * @param y
+     *            the row
+     * @return the bug, or -1
+     * @requires 0 <= x < width and 0 <= y < height
+     */
+    public int bugAt(int x, int y) {
+        int next = this.cells[this.cell(x, y)];
+        int result = -1;
+        if (next > 0) {
+            result = next - 1;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the column of bug {@code b}.
+     *
+     * @param b
+     *            the bug
+     * @return the column
+     * @requires 0 <= b < bugCount()
+     */
+    public int x(int b) {
+        assert 0 <= b && b < this.contexts.size() : ""
+                + "Violation of: 0 <= b < bugCount()";
+
+        return this.position[b] % this.stride - 1;
+    }
+
+    /**
+     * Returns the row of bug {@code b}.
+     *
+     * @param b
+     *            the bug
+     * @return the row
+     * @requires 0 <= b < bugCount()
+     */
+    public int y(int b) {
+        assert 0 <= b && b < this.contexts.size() : ""
+                + "Violation of: 0 <= b < bugCount()";
+
+        return this.position[b] / this.stride - 1;
+    }
+
+    /**
+     * Returns the direction of bug {@code b}.
+     *
+     * @param b
+     *            the bug
+     * @return the direction
+     * @requires 0 <= b < bugCount()
+     */
+    public int direction(int b) {
+        assert 0 <= b && b < this.contexts.size() : ""
+                + "Violation of: 0 <= b < bugCount()";
+
+        return this.direction[b];
+    }
+
+    /**
+     * Returns the species of bug {@code b}.
+     *
+     * @param b
+     *            the bug
+     * @return the species
+     * @requires 0 <= b < bugCount()
+     */
+    public int species(int b) {
+        return this.contexts.program(b);
+    }
+
+    /**
+     * Returns the number of turns bug {@code b} has taken.
+     *
+     * @param b
+     *            the bug
+     * @return the number of turns
+     * @requires 0 <= b < bugCount()
+     */
+    public int turns(int b) {
+        return this.contexts.turns(b);
+    }
+
+}
@@ -0,0 +1,221 @@
+/**
+ * Interpreter for the BugsWorld bytecode produced by
+ * {@code Program.generatedCode()}. A bug's turn runs from its program counter
+ * through jumps and conditional jumps until it reaches a primitive
+ * instruction, which is the bug's action for the turn. The interpreter keeps
+ * no state of its own and allocates nothing: the program counter is passed in
+ * and handed back, packed with the result into a {@code long}, so callers can
+ * keep the state of any number of bugs in plain arrays.
+ *
+ * <p>
+ * The opcodes are the values of {@code Program.Instruction.byteCode()}. A
+ * conditional jump {@code JUMP_IF_NOT_<c>} has opcode
+ * {@code JUMP_IF_NOT_BASE + c.ordinal()} and is followed by its target
+ * address, as is {@code JUMP}.
+ * </p>
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public final class BytecodeVM {
+
+    /**
+     * Opcode of {@code Instruction.BLOCKED}; also the result of a turn that
+     * reached its step limit without reaching a primitive instruction.
+     */
+    public static final int BLOCKED = 0;
+
+    /**
+     * Opcode of {@code Instruction.MOVE}.
+     */
+    public static final int MOVE = 1;
+
+    /**
+     * Opcode of {@code Instruction.TURNLEFT}.
+     */
+    public static final int TURNLEFT = 2;
+
+    /**
+     * Opcode of {@code Instruction.TURNRIGHT}.
+     */
+    public static final int TURNRIGHT = 3;
+
+    /**
+     * Opcode of {@code Instruction.INFECT}.
+     */
+    public static final int INFECT = 4;
+
+    /**
+     * Opcode of {@code Instruction.SKIP}.
+     */
+    public static final int SKIP = 5;
+
+    /**
+     * Opcode of {@code Instruction.HALT}.
+     */
+    public static final int HALT = 6;
+
+    /**
+     * Opcode of {@code Instruction.JUMP}.
+     */
+    public static final int JUMP = 7;
+
+    /**
+     * Opcode of {@code Instruction.JUMP_IF_NOT_NEXT_IS_EMPTY}, the first
+     * conditional jump.
+     */
+    public static final int JUMP_IF_NOT_BASE = 8;
+
+    /**
+     * Opcode of {@code Instruction.JUMP_IF_NOT_TRUE}, the last conditional
+     * jump.
+     */
+    public static final int JUMP_IF_NOT_TRUE = 17;
+
+    /**
+     * Largest step limit that fits in a result.
+     */
+    public static final int MAX_STEP_LIMIT = (1 << 24) - 1;
+
+    /**
+     * Bits of a result holding the instruction.
+     */
+    private static final int INSTRUCTION_MASK = 0xFF;
+
+    /**
+     * Position of the step count in a result.
+     */
+    private static final int STEPS_SHIFT = 8;
+
+    /**
+     * Position of the program counter in a result.
+     */
+    private static final int PC_SHIFT = 32;
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private BytecodeVM() {
+    }
+
+    /**
+     * Packs the result of a turn.
+     *
+     * @param pc
+     *            the program counter at which the next turn starts
+     * @param steps
+     *            the number of instructions executed
+     * @param instruction
+     *            the opcode of the primitive instruction reached
+     * @return the packed result
+     */
+    private static long result(int pc, int steps, int instruction) {
+        return ((long) pc << PC_SHIFT) | ((long) steps << STEPS_SHIFT)
+                | instruction;
+    }
+
+    /**
+     * Runs one turn of a bug whose program is {@code code}, starting at
+     * {@code pc}, and returns the packed result, whose parts are extracted by
+     * {@code nextPc}, {@code instruction} and {@code steps}. The turn ends at
+     * the first primitive instruction (MOVE, TURNLEFT, TURNRIGHT, INFECT or
+     * SKIP), which is the bug's action and after which the next turn starts;
+     * at HALT, where the next turn starts again; or, with result BLOCKED,
+     * after {@code stepLimit} instructions without reaching either.
+     *
+     * @param code
+     *            the program, as returned by {@code generatedCode()}
+     * @param pc
+     *            the program counter
+     * @param sensor
+     *            the source of the answers to the conditions tested
+     * @param stepLimit
+     *            the maximum number of instructions to execute
+     * @return the packed result
+     * @requires <pre>
+     * [code is a valid generatedCode() program] and 0 <= pc < |code| and
+     * [pc is the address of an instruction] and
+     * 0 < stepLimit <= MAX_STEP_LIMIT
+     * </pre>
+     * @ensures <pre>
+     * [run = the packed result of the turn of the bug running code from pc,
+     *  with conditions answered by sensor]
+     * </pre>
+     */
+    public static long run(int[] code, int pc, WorldSensor sensor,
+            int stepLimit) {
+        assert code != null : "Violation of: code is not null";
+        assert sensor != null : "Violation of: sensor is not null";
+        assert 0 <= pc && pc < code.length : "Violation of: 0 <= pc < |code|";
+        assert 0 < stepLimit && stepLimit <= MAX_STEP_LIMIT : ""
+                + "Violation of: 0 < stepLimit <= MAX_STEP_LIMIT";
+
+        int at = pc;
+        int steps = 0;
+        while (steps < stepLimit) {
+            int op = code[at];
+            steps++;
+            switch (op) {
+                case MOVE:
+                case TURNLEFT:
+                case TURNRIGHT:
+                case INFECT:
+                case SKIP:
+                    return result(at + 1, steps, op);
+                case HALT:
+                    return result(at, steps, HALT);
+                case JUMP:
+                    at = code[at + 1];
+                    break;
+                case JUMP_IF_NOT_TRUE:
+                    at += 2;
+                    break;
+                case BLOCKED:
+                    return result(at, steps, BLOCKED);
+                default:
+                    if (sensor.test(op - JUMP_IF_NOT_BASE)) {
+                        at += 2;
+                    } else {
+                        at = code[at + 1];
+                    }
+                    break;
+            }
+        }
+        return result(at, steps, BLOCKED);
+    }
+
+    /**
+     * Returns the program counter at which the next turn starts.
+     *
+     * @param result
+     *            a result returned by {@code run}
+     * @return the program counter
+     */
+    public static int nextPc(long result) {
+        return (int) (result >>> PC_SHIFT);
+    }
+
+    /**
+     * Returns the opcode of the instruction that ended the turn: a primitive
+     * instruction, HALT or BLOCKED.
+     *
+     * @param result
+     *            a result returned by {@code run}
+     * @return the opcode
+     */
+    public static int instruction(long result) {
+        return (int) result & INSTRUCTION_MASK;
+    }
+
+    /**
+     * Returns the number of instructions executed in the turn.
+     *
+     * @param result
+     *            a result returned by {@code run}
+     * @return the number of instructions executed
+     */
+    public static int steps(long result) {
+        return (int) (result >>> STEPS_SHIFT) & MAX_STEP_LIMIT;
+    }
+
+}
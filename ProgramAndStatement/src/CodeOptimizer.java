@@ -0,0 +1,393 @@
+import java.util.Arrays;
+
+/**
+ * Optimizer for the BugsWorld bytecode produced by
+ * {@code Program.generatedCode()}. It repeats the following rewrites until
+ * none applies:
+ * <ul>
+ * <li>{@code JUMP_IF_NOT_TRUE}, which never jumps, is removed, so
+ * {@code IF true} and {@code WHILE true} test nothing at run time;</li>
+ * <li>jumps to jumps are threaded straight to their final targets, and
+ * unconditional jumps to the next instruction are removed;</li>
+ * <li>instructions that cannot be reached from address 0 are removed.</li>
+ * </ul>
+ * These rewrites keep the sequence of actions and of sensor tests of every
+ * bug; only the number of jumps executed per turn goes down, so a turn that
+ * ran out of its step limit before may now reach its action.
+ *
+ * <p>
+ * Optionally, runs of TURNLEFT and TURNRIGHT that no jump enters in the
+ * middle are also folded into their net rotation (none, one TURNLEFT, two
+ * TURNLEFTs or one TURNRIGHT). This keeps the direction a bug faces whenever
+ * it tests a condition or takes any other action, but not the number of
+ * turns it spends turning, so it is off unless asked for.
+ * </p>
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public final class CodeOptimizer {
+
+    /**
+     * Number of quarter turns in a full turn.
+     */
+    private static final int QUARTERS = 4;
+
+    /**
+     * Opcode of each instruction, indexed by instruction number.
+     */
+    private final int[] ops;
+
+    /**
+     * Target instruction number of each jump, or -1.
+     */
+    private final int[] targets;
+
+    /**
+     * Whether each instruction has been removed.
+     */
+    private final boolean[] removed;
+
+    /**
+     * Number of instructions.
+     */
+    private final int count;
+
+    /**
+     * Constructor, decoding {@code code} into instructions.
+     *
+     * @param code
+     *            the code to optimize
+     */
+    private CodeOptimizer(int[] code) {
+        int[] numbers = new int[code.length];
+        int n = 0;
+        int pc = 0;
+        while (pc < code.length) {
+            numbers[pc] = n;
+            n++;
+            pc += length(code[pc]);
+        }
+        this.count = n;
+        this.ops = new int[n];
+        this.targets = new int[n];
+        this.removed = new boolean[n];
+        pc = 0;
+        for (int i = 0; i < n; i++) {
+            this.ops[i] = code[pc];
+            this.targets[i] = -1;
+            if (isJump(code[pc])) {
+                this.targets[i] = numbers[code[pc + 1]];
+            }
+            pc += length(code[pc]);
+        }
+    }
+
+    /**
+     * Reports whether {@code op} is a jump, which is followed by its target.
+     *
+     * @param op
+     *            the opcode
+     * @return true iff {@code op} is JUMP or a conditional jump
+     */
+    private static boolean isJump(int op) {
+        return op >= BytecodeVM.JUMP;
+    }
+
+    /**
+     * Reports the number of ints taken by an instruction with opcode
+     * {@code op}.
+     *
+     * @param op
+     *            the opcode
+     * @return the length of the instruction
+     */
+    private static int length(int op) {
+        int result = 1;
+        if (isJump(op)) {
+            result = 2;
+        }
+        return result;
+    }
+
+    /**
+     * Reports whether {@code op} is a turn.
+     *
+     * @param op
+     *            the opcode
+     * @return true iff {@code op} is TURNLEFT or TURNRIGHT
+     */
+    private static boolean isTurn(int op) {
+        return op == BytecodeVM.TURNLEFT || op == BytecodeVM.TURNRIGHT;
+    }
+
+    /**
+     * Returns the first instruction at or after {@code i} that has not been
+     * removed, or {@code count} if there is none.
+     *
+     * @param i
+     *            the instruction number
+     * @return the first live instruction at or after {@code i}
+     */
+    private int live(int i) {
+        int result = i;
+        while (result < this.count && this.removed[result]) {
+            result++;
+        }
+        return result;
+    }
+
+    /**
+     * Returns where control really goes when it goes to instruction
+     * {@code i}: past removed instructions and through unconditional jumps.
+     *
+     * @param i
+     *            the instruction number
+     * @return the final destination
+     */
+    private int destination(int i) {
+        int result = this.live(i);
+        int hops = 0;
+        while (result < this.count && this.ops[result] == BytecodeVM.JUMP
+                && hops < this.count) {
+            result = this.live(this.targets[result]);
+            hops++;
+        }
+        return result;
+    }
+
+    /**
+     * Removes JUMP_IF_NOT_TRUE instructions, threads jumps and removes jumps
+     * to the next instruction.
+     *
+     * @return true iff anything changed
+     */
+    private boolean threadJumps() {
+        boolean changed = false;
+        for (int i = 0; i < this.count; i++) {
+            if (!this.removed[i]
+                    && this.ops[i] == BytecodeVM.JUMP_IF_NOT_TRUE) {
+                this.removed[i] = true;
+                changed = true;
+            }
+        }
+        for (int i = 0; i < this.count; i++) {
+            if (!this.removed[i] && isJump(this.ops[i])) {
+                int target = this.destination(this.targets[i]);
+                if (target != this.targets[i]) {
+                    this.targets[i] = target;
+                    changed = true;
+                }
+                if (this.ops[i] == BytecodeVM.JUMP
+                        && target == this.live(i + 1)) {
+                    this.removed[i] = true;
+                    changed = true;
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Removes instructions that cannot be reached from the first one.
+     *
+     * @return true iff anything changed
+     */
+    private boolean removeUnreachable() {
+        boolean[] reached = new boolean[this.count];
+        int[] work = new int[this.count + 1];
+        int top = 0;
+        int first = this.live(0);
+        if (first < this.count) {
+            work[top] = first;
+            top++;
+        }
+        while (top > 0) {
+            top--;
+            int i = work[top];
+            if (i < this.count && !reached[i]) {
+                reached[i] = true;
+                int op = this.ops[i];
+                if (isJump(op)) {
+                    work[top] = this.live(this.targets[i]);
+                    top++;
+                }
+                if (op != BytecodeVM.JUMP && op != BytecodeVM.HALT
+                        && op != BytecodeVM.BLOCKED) {
+                    work[top] = this.live(i + 1);
+                    top++;
+                }
+            }
+        }
+        boolean changed = false;
+        for (int i = 0; i < this.count; i++) {
+            if (!this.removed[i] && !reached[i]) {
+                this.removed[i] = true;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Folds runs of turns into their net rotation.
+     *
+     * @return true iff anything changed
+     */
+    private boolean foldTurns() {
+        boolean[] entered = new boolean[this.count];
+        for (int i = 0; i < this.count; i++) {
+            if (!this.removed[i] && isJump(this.ops[i])) {
+                int target = this.live(this.targets[i]);
+                if (target < this.count) {
+                    entered[target] = true;
+                }
+            }
+        }
+        boolean changed = false;
+        int i = this.live(0);
+        while (i < this.count) {
+            if (!isTurn(this.ops[i])) {
+                i = this.live(i + 1);
+            } else {
+                /*
+                 * Collect the run starting at i: consecutive live turns, none
+                 * of which but the first is a jump target.
+                 */
+                int[] run = new int[QUARTERS * 2];
+                int length = 0;
+                int quarters = 0;
+                int j = i;
+                while (j < this.count && isTurn(this.ops[j])
+                        && (j == i || !entered[j])) {
+                    if (length == run.length) {
+                        run = Arrays.copyOf(run, 2 * length);
+                    }
+                    run[length] = j;
+                    length++;
+                    if (this.ops[j] == BytecodeVM.TURNLEFT) {
+                        quarters++;
+                    } else {
+                        quarters += QUARTERS - 1;
+                    }
+                    j = this.live(j + 1);
+                }
+                quarters %= QUARTERS;
+                int[] folded = { BytecodeVM.TURNLEFT, BytecodeVM.TURNLEFT };
+                int keep = quarters;
+                if (quarters == QUARTERS - 1) {
+                    folded[0] = BytecodeVM.TURNRIGHT;
+                    keep = 1;
+                }
+                boolean same = keep == length;
+                for (int k = 0; same && k < keep; k++) {
+                    same = this.ops[run[k]] == folded[k];
+                }
+                if (!same) {
+                    for (int k = 0; k < length; k++) {
+                        if (k < keep) {
+                            this.ops[run[k]] = folded[k];
+                        } else {
+                            this.removed[run[k]] = true;
+                        }
+                    }
+                    changed = true;
+                }
+                i = j;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Encodes the live instructions.
+     *
+     * @return the code
+     */
+    private int[] encode() {
+        int[] addresses = new int[this.count + 1];
+        int pc = 0;
+        for (int i = 0; i < this.count; i++) {
+            addresses[i] = pc;
+            if (!this.removed[i]) {
+                pc += length(this.ops[i]);
+            }
+        }
+        addresses[this.count] = pc;
+        /*
+         * A jump past the last live instruction (which cannot happen for
+         * code ending in a reachable HALT) lands on an added HALT.
+         */
+        boolean pastEnd = false;
+        for (int i = 0; i < this.count; i++) {
+            if (!this.removed[i] && isJump(this.ops[i])
+                    && this.live(this.targets[i]) == this.count) {
+                pastEnd = true;
+            }
+        }
+        int size = pc;
+        if (pastEnd || size == 0) {
+            size++;
+        }
+        int[] result = new int[size];
+        for (int i = 0; i < this.count; i++) {
+            if (!this.removed[i]) {
+                result[addresses[i]] = this.ops[i];
+                if (isJump(this.ops[i])) {
+                    result[addresses[i] + 1] = addresses[this
+                            .live(this.targets[i])];
+                }
+            }
+        }
+        if (size > pc) {
+            result[pc] = BytecodeVM.HALT;
+        }
+        return result;
+    }
+
+    /**
+     * Returns an optimized copy of {@code code}, without turn folding.
+     *
+     * @param code
+     *            the code to optimize
+     * @return the optimized code
+     * @requires [code is a valid generatedCode() program]
+     * @ensures <pre>
+     * [optimize runs with the same actions and sensor tests as code]
+     * </pre>
+     */
+    public static int[] optimize(int[] code) {
+        return optimize(code, false);
+    }
+
+    /**
+     * Returns an optimized copy of {@code code}, folding runs of turns iff
+     * {@code foldTurns} is true.
+     *
+     * @param code
+     *            the code to optimize
+     * @param foldTurns
+     *            whether to fold runs of turns
+     * @return the optimized code
+     * @requires [code is a valid generatedCode() program]
+     * @ensures <pre>
+     * [optimize runs with the same actions and sensor tests as code, apart
+     *  from the turns folded if foldTurns]
+     * </pre>
+     */
+    public static int[] optimize(int[] code, boolean foldTurns) {
+        assert code != null : "Violation of: code is not null";
+
+        CodeOptimizer optimizer = new CodeOptimizer(code);
+        boolean changed = true;
+        while (changed) {
+            changed = optimizer.threadJumps();
+            changed |= optimizer.removeUnreachable();
+            if (foldTurns) {
+                changed |= optimizer.foldTurns();
+            }
+        }
+        return optimizer.encode();
+    }
+
+}
@@ -0,0 +1,33 @@
+/**
+ * A BL program compiled by {@code ProgramCompiler}, running turns exactly as
+ * {@code BytecodeVM.run} runs them on the program's {@code generatedCode()}.
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public interface CompiledProgram {
+
+    /**
+     * Runs one turn of a bug starting at {@code pc}, and returns the packed
+     * result, whose parts are extracted by {@code BytecodeVM.nextPc},
+     * {@code BytecodeVM.instruction} and {@code BytecodeVM.steps}.
+     *
+     * @param pc
+     *            the program counter, an address in the generated code
+     * @param sensor
+     *            the source of the answers to the conditions tested
+     * @param stepLimit
+     *            the maximum number of instructions to execute
+     * @return the packed result
+     * @requires <pre>
+     * 0 <= pc < |generated code| and
+     * [pc is the address of an instruction] and
+     * 0 < stepLimit <= MAX_STEP_LIMIT
+     * </pre>
+     * @ensures <pre>
+     * run = BytecodeVM.run([generated code], pc, sensor, stepLimit)
+     * </pre>
+     */
+    long run(int pc, WorldSensor sensor, int stepLimit);
+
+}
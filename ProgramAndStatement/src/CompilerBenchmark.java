@@ -0,0 +1,181 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import components.program.Program;
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+import components.statement.Statement;
+import components.statement.StatementKernel.Condition;
+
+/**
+ * Compares the turn throughput of {@code BytecodeVM} with that of programs
+ * compiled by {@code ProgramCompiler}, on the data programs and on synthetic
+ * programs of growing size repeating a synthetic block forever, with a sensor
+ * answering from a pseudo-random bit stream.
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public final class CompilerBenchmark {
+
+    /**
+     * Number of turns run per measurement.
+     */
+    private static final int TURNS = 20_000_000;
+
+    /**
+     * Number of measurements of each program; the first is a warm-up.
+     */
+    private static final int ROUNDS = 4;
+
+    /**
+     * Step limit of each turn.
+     */
+    private static final int STEP_LIMIT = 1_000;
+
+    /**
+     * The names of files containing BL programs.
+     */
+    private static final String[] FILE_NAMES = { "data/program-sample.bl",
+            "data/program-test1.bl", "data/program-test2.bl" };
+
+    /**
+     * Block widths and nesting depths of the synthetic programs, in pairs.
+     */
+    private static final int[][] SHAPES = { { 2, 2 }, { 2, 3 }, { 3, 2 },
+            { 4, 2 }, { 4, 3 }, { 6, 3 } };
+
+    /**
+     * Sensor answering every test with the next bit of an xorshift stream.
+     */
+    private static final class RandomSensor implements WorldSensor {
+
+        /**
+         * The generator state.
+         */
+        private long state = 0x9E3779B97F4A7C15L;
+
+        @Override
+        public boolean test(int condition) {
+            this.state ^= this.state << 13;
+            this.state ^= this.state >>> 7;
+            this.state ^= this.state << 17;
+            return this.state < 0;
+        }
+
+    }
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private CompilerBenchmark() {
+    }
+
+    /**
+     * Returns the best time of {@code TURNS} turns of {@code code} through
+     * {@code BytecodeVM}, in nanoseconds.
+     *
+     * @param code
+     *            the program
+     * @return the time
+     */
+    private static long interpreted(int[] code) {
+        WorldSensor sensor = new RandomSensor();
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            int pc = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < TURNS; i++) {
+                pc = BytecodeVM.nextPc(
+                        BytecodeVM.run(code, pc, sensor, STEP_LIMIT));
+            }
+            long nanos = System.nanoTime() - start;
+            Benchmark.consume(pc);
+            if (round > 0) {
+                best = Math.min(best, nanos);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the best time of {@code TURNS} turns of {@code program}, in
+     * nanoseconds.
+     *
+     * @param program
+     *            the compiled program
+     * @return the time
+     */
+    private static long compiled(CompiledProgram program) {
+        WorldSensor sensor = new RandomSensor();
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            int pc = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < TURNS; i++) {
+                pc = BytecodeVM.nextPc(program.run(pc, sensor, STEP_LIMIT));
+            }
+            long nanos = System.nanoTime() - start;
+            Benchmark.consume(pc);
+            if (round > 0) {
+                best = Math.min(best, nanos);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Measures {@code p} both ways and reports the throughputs.
+     *
+     * @param label
+     *            the name of the program
+     * @param p
+     *            the program
+     * @param out
+     *            the output stream
+     */
+    private static void measure(String label, Program p, SimpleWriter out) {
+        int[] code = p.generatedCode();
+        CompiledProgram program = ProgramCompiler.compile(code);
+        long vm = interpreted(code);
+        long jvm = compiled(program);
+        String how = "compiled";
+        if (!ProgramCompiler.isCompiled(program)) {
+            how = "too large, interpreted";
+        }
+        out.println(label + " (" + code.length + " ints): BytecodeVM "
+                + (TURNS * 1_000L / vm) + " M turns/s, " + how + " "
+                + (TURNS * 1_000L / jvm) + " M turns/s, speedup "
+                + String.format("%.2f", (double) vm / jvm));
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments
+     * @throws IOException
+     *             if a program cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        SimpleWriter out = new SimpleWriter1L();
+        for (String name : FILE_NAMES) {
+            Program p = new Program2();
+            BLParser.parse(p, Paths.get(name));
+            measure(name, p, out);
+        }
+        for (int[] shape : SHAPES) {
+            Program p = new Program2();
+            Statement block = p.newBody();
+            Benchmark.fillBlock(block, shape[0], shape[1]);
+            Statement loop = block.newInstance();
+            loop.assembleWhile(Condition.TRUE, block);
+            Statement body = p.newBody();
+            body.addToBlock(0, loop);
+            p.swapBody(body);
+            measure("synthetic w" + shape[0] + " d" + shape[1], p, out);
+        }
+        out.close();
+    }
+
+}
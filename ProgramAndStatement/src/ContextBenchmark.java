@@ -0,0 +1,259 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import components.program.Program;
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+
+/**
+ * Compares {@code ExecutionContexts} with one object per bug holding the same
+ * state, for a million bugs running the data programs: heap per bug, time of
+ * a full garbage collection with the contexts live, and turn throughput with
+ * a sensor answering from a pseudo-random bit stream.
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public final class ContextBenchmark {
+
+    /**
+     * Number of bugs.
+     */
+    private static final int BUGS = 1_000_000;
+
+    /**
+     * Number of rounds run per measurement.
+     */
+    private static final int ROUNDS = 20;
+
+    /**
+     * Number of measurements; the first is a warm-up.
+     */
+    private static final int MEASUREMENTS = 4;
+
+    /**
+     * Step limit of each turn.
+     */
+    private static final int STEP_LIMIT = 1_000;
+
+    /**
+     * The names of files containing BL programs.
+     */
+    private static final String[] FILE_NAMES = { "data/program-sample.bl",
+            "data/program-test1.bl", "data/program-test2.bl" };
+
+    /**
+     * Execution context of one bug, as an object.
+     */
+    private static final class BugContext {
+
+        /**
+         * The program.
+         */
+        private final int[] code;
+
+        /**
+         * The program counter.
+         */
+        private int pc;
+
+        /**
+         * The number of turns taken.
+         */
+        private int turns;
+
+        /**
+         * The number of idle turns taken.
+         */
+        private int idle;
+
+        /**
+         * Constructor.
+         *
+         * @param code
+         *            the program
+         */
+        BugContext(int[] code) {
+            this.code = code;
+        }
+
+        /**
+         * Runs one turn.
+         *
+         * @param sensor
+         *            the source of the answers to the conditions tested
+         * @return the opcode of the instruction that ended the turn
+         */
+        int resume(WorldSensor sensor) {
+            long r = BytecodeVM.run(this.code, this.pc, sensor, STEP_LIMIT);
+            int instruction = BytecodeVM.instruction(r);
+            this.pc = BytecodeVM.nextPc(r);
+            this.turns++;
+            if (instruction == BytecodeVM.HALT
+                    || instruction == BytecodeVM.BLOCKED) {
+                this.idle++;
+            }
+            return instruction;
+        }
+
+    }
+
+    /**
+     * Sensor answering every test with the next bit of an xorshift stream.
+     */
+    private static final class RandomSensor implements WorldSensor {
+
+        /**
+         * The generator state.
+         */
+        private long state = 0x9E3779B97F4A7C15L;
+
+        @Override
+        public boolean test(int condition) {
+            this.state ^= this.state << 13;
+            this.state ^= this.state >>> 7;
+            this.state ^= this.state << 17;
+            return this.state < 0;
+        }
+
+    }
+
+    /**
+     * A round of turns of every bug.
+     */
+    private interface Round {
+
+        /**
+         * Runs the round and returns a checksum of the actions taken.
+         *
+         * @return the checksum
+         */
+        long run();
+
+    }
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private ContextBenchmark() {
+    }
+
+    /**
+     * Reports the heap per bug, the full collection time and the turn
+     * throughput of {@code round}, whose contexts take {@code heap} bytes.
+     *
+     * @param label
+     *            the name of the representation
+     * @param heap
+     *            the heap taken by the contexts, in bytes
+     * @param round
+     *            a round of turns
+     * @param out
+     *            the output stream
+     */
+    private static void measure(String label, long heap, Round round,
+            SimpleWriter out) {
+        long start = System.nanoTime();
+        System.gc();
+        long gc = System.nanoTime() - start;
+        double turns = 0;
+        for (int m = 0; m < MEASUREMENTS; m++) {
+            long sum = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < ROUNDS; i++) {
+                sum += round.run();
+            }
+            long nanos = System.nanoTime() - start;
+            Benchmark.consume(sum);
+            if (m > 0) {
+                turns = Math.max(turns,
+                        (double) BUGS * ROUNDS * 1_000 / nanos);
+            }
+        }
+        out.println(label + ": " + (heap / BUGS) + " bytes per bug, full GC "
+                + String.format("%.1f", gc / 1e6) + " ms, "
+                + String.format("%.0f", turns) + " M turns/s");
+    }
+
+    /**
+     * Measures one object per bug running {@code codes}.
+     *
+     * @param codes
+     *            the programs
+     * @param sensor
+     *            the sensor
+     * @param out
+     *            the output stream
+     */
+    private static void measureObjects(int[][] codes, WorldSensor sensor,
+            SimpleWriter out) {
+        long before = Benchmark.usedHeap();
+        BugContext[] objects = new BugContext[BUGS];
+        for (int b = 0; b < BUGS; b++) {
+            objects[b] = new BugContext(codes[b % codes.length]);
+        }
+        long heap = Benchmark.usedHeap() - before;
+        measure("object per bug", heap, () -> {
+            long sum = 0;
+            for (BugContext c : objects) {
+                sum += c.resume(sensor);
+            }
+            return sum;
+        }, out);
+        Benchmark.consume(objects[BUGS - 1].turns + objects[0].idle);
+    }
+
+    /**
+     * Measures {@code ExecutionContexts} running {@code codes}.
+     *
+     * @param codes
+     *            the programs
+     * @param sensor
+     *            the sensor
+     * @param out
+     *            the output stream
+     */
+    private static void measureContexts(int[][] codes, WorldSensor sensor,
+            SimpleWriter out) {
+        long before = Benchmark.usedHeap();
+        ExecutionContexts contexts = new ExecutionContexts(BUGS);
+        for (int[] code : codes) {
+            contexts.addProgram(code);
+        }
+        for (int b = 0; b < BUGS; b++) {
+            contexts.add(b % codes.length);
+        }
+        long heap = Benchmark.usedHeap() - before;
+        measure("ExecutionContexts", heap, () -> {
+            long sum = 0;
+            for (int c = 0; c < BUGS; c++) {
+                sum += contexts.resume(c, sensor, STEP_LIMIT);
+            }
+            return sum;
+        }, out);
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments
+     * @throws IOException
+     *             if a program cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        SimpleWriter out = new SimpleWriter1L();
+        int[][] codes = new int[FILE_NAMES.length][];
+        for (int i = 0; i < codes.length; i++) {
+            Program p = new Program2();
+            BLParser.parse(p, Paths.get(FILE_NAMES[i]));
+            codes[i] = p.generatedCode();
+        }
+        WorldSensor sensor = new RandomSensor();
+        measureObjects(codes, sensor, out);
+        measureContexts(codes, sensor, out);
+
+        out.close();
+    }
+
+}
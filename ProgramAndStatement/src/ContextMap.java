@@ -0,0 +1,301 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import components.map.Map;
+import components.map.MapSecondary;
+import components.statement.Statement;
+import components.statement.StatementKernel.Kind;
+import components.utilities.Tokenizer;
+
+/**
+ * {@code Map<String, Statement>} for program contexts, represented as a
+ * {@code java.util.LinkedHashMap} together with a record of the keys that
+ * violate the CONTEXT conditions, kept up to date as entries are added and
+ * removed. Lookups and {@code removeAny} take constant expected time, and so
+ * do the checks on names made by {@code Program3.swapContext}. The values are
+ * aliased and may change after being added, so whether they are all BLOCK
+ * statements is checked on the values themselves.
+ *
+ * @convention <pre>
+ * [$this.rep has no null keys or values] and
+ * $this.nonIdentifiers = [number of keys of $this.rep that are not
+ *   IDENTIFIERs] and
+ * $this.primitives = [number of keys of $this.rep that are names of
+ *   primitive instructions]
+ * </pre>
+ * @correspondence this = [the set of pairs in $this.rep]
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public class ContextMap extends MapSecondary<String, Statement> {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Simple immutable pair.
+     */
+    private static final class SimplePair
+            implements Map.Pair<String, Statement> {
+
+        /**
+         * The key.
+         */
+        private final String key;
+
+        /**
+         * The value.
+         */
+        private final Statement value;
+
+        /**
+         * Constructor.
+         *
+         * @param k
+         *            the key
+         * @param v
+         *            the value
+         */
+        private SimplePair(String k, Statement v) {
+            this.key = k;
+            this.value = v;
+        }
+
+        @Override
+        public String key() {
+            return this.key;
+        }
+
+        @Override
+        public Statement value() {
+            return this.value;
+        }
+
+    }
+
+    /**
+     * The map representation field.
+     */
+    private LinkedHashMap<String, Statement> rep;
+
+    /**
+     * Number of keys that are not IDENTIFIERs.
+     */
+    private int nonIdentifiers;
+
+    /**
+     * Number of keys that are names of primitive instructions.
+     */
+    private int primitives;
+
+    /**
+     * Creator of initial representation.
+     */
+    private void createNewRep() {
+        this.rep = new LinkedHashMap<>();
+        this.nonIdentifiers = 0;
+        this.primitives = 0;
+    }
+
+    /**
+     * Updates the violation record for the addition ({@code delta} = 1) or
+     * removal ({@code delta} = -1) of {@code key}.
+     *
+     * @param key
+     *            the key
+     * @param delta
+     *            1 when {@code key} is added, -1 when it is removed
+     */
+    private void account(String key, int delta) {
+        if (!Tokenizer.isIdentifier(key)) {
+            this.nonIdentifiers += delta;
+        }
+        /*
+         * The primitive instructions are always interned, so idOf finds them
+         * without adding anything to the SymbolTable
+         */
+        if (SymbolTable.isPrimitive(SymbolTable.idOf(key))) {
+            this.primitives += delta;
+        }
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public ContextMap() {
+        this.createNewRep();
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @Override
+    public final ContextMap newInstance() {
+        return InstanceFactory.newInstanceOf(this.getClass());
+    }
+
+    @Override
+    public final void clear() {
+        this.createNewRep();
+    }
+
+    @Override
+    public final void transferFrom(Map<String, Statement> source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof ContextMap : ""
+                + "Violation of: source is of dynamic type ContextMap";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case: source must be of dynamic type ContextMap.
+         */
+        ContextMap localSource = (ContextMap) source;
+        this.rep = localSource.rep;
+        this.nonIdentifiers = localSource.nonIdentifiers;
+        this.primitives = localSource.primitives;
+        localSource.createNewRep();
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final void add(String key, Statement value) {
+        assert key != null : "Violation of: key is not null";
+        assert value != null : "Violation of: value is not null";
+        assert !this.hasKey(key) : "Violation of: key is not in DOMAIN(this)";
+
+        this.rep.put(key, value);
+        this.account(key, 1);
+    }
+
+    @Override
+    public final Map.Pair<String, Statement> remove(String key) {
+        assert key != null : "Violation of: key is not null";
+        assert this.hasKey(key) : "Violation of: key is in DOMAIN(this)";
+
+        Statement value = this.rep.remove(key);
+        this.account(key, -1);
+        return new SimplePair(key, value);
+    }
+
+    @Override
+    public final Map.Pair<String, Statement> removeAny() {
+        assert this.size() > 0 : "Violation of: this /= empty_set";
+
+        /*
+         * The first key in insertion order is the head of the linked entries,
+         * so this does not scan the buckets
+         */
+        return this.remove(this.rep.keySet().iterator().next());
+    }
+
+    @Override
+    public final Statement value(String key) {
+        assert key != null : "Violation of: key is not null";
+        assert this.hasKey(key) : "Violation of: key is in DOMAIN(this)";
+
+        return this.rep.get(key);
+    }
+
+    @Override
+    public final boolean hasKey(String key) {
+        assert key != null : "Violation of: key is not null";
+
+        return this.rep.containsKey(key);
+    }
+
+    @Override
+    public final int size() {
+        return this.rep.size();
+    }
+
+    @Override
+    public final Iterator<Map.Pair<String, Statement>> iterator() {
+        return new ContextMapIterator();
+    }
+
+    /**
+     * Implementation of {@code Iterator} interface for {@code ContextMap}.
+     */
+    private final class ContextMapIterator
+            implements Iterator<Map.Pair<String, Statement>> {
+
+        /**
+         * Iterator over the entries of the representation.
+         */
+        private final Iterator<java.util.Map.Entry<String, Statement>> entries;
+
+        /**
+         * No-argument constructor.
+         */
+        private ContextMapIterator() {
+            this.entries = ContextMap.this.rep.entrySet().iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.entries.hasNext();
+        }
+
+        @Override
+        public Map.Pair<String, Statement> next() {
+            java.util.Map.Entry<String, Statement> entry = this.entries.next();
+            return new SimplePair(entry.getKey(), entry.getValue());
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException(
+                    "remove operation not supported");
+        }
+
+    }
+
+    /*
+     * Other methods ----------------------------------------------------------
+     */
+
+    /**
+     * Reports whether all the keys of this are valid IDENTIFIERs.
+     *
+     * @return true iff all keys are IDENTIFIERs
+     */
+    public final boolean allIdentifiers() {
+        return this.nonIdentifiers == 0;
+    }
+
+    /**
+     * Reports whether no key of this is the name of a primitive instruction.
+     *
+     * @return true iff no key names a primitive instruction
+     */
+    public final boolean noPrimitiveInstructions() {
+        return this.primitives == 0;
+    }
+
+    /**
+     * Reports whether all the values of this are BLOCK statements. Unlike the
+     * checks on keys, this looks at every value, since a value may have been
+     * changed through an alias since it was added.
+     *
+     * @return true iff all values are BLOCK statements
+     */
+    public final boolean allBlocks() {
+        for (Statement value : this.rep.values()) {
+            if (value.kind() != Kind.BLOCK) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
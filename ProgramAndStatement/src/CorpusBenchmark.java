@@ -0,0 +1,186 @@
+import java.util.Random;
+
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+import components.statement.Statement;
+import components.statement.StatementKernel.Condition;
+
+/**
+ * Compares the retained heap of a corpus of program bodies built as
+ * Statement2, Statement3 and the hash-consed Statement4. The corpus imitates
+ * the output of a genetic search: most statements of each body are drawn
+ * from a small pool of recurring subtrees ("genes"), the rest are fresh.
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public final class CorpusBenchmark {
+
+    /**
+     * Number of program bodies in the corpus.
+     */
+    private static final int PROGRAMS = 10_000;
+
+    /**
+     * Number of statements in each body.
+     */
+    private static final int WIDTH = 20;
+
+    /**
+     * Number of distinct recurring subtrees.
+     */
+    private static final int GENES = 200;
+
+    /**
+     * One in this many statements of a body is fresh rather than a gene.
+     */
+    private static final int FRESH_ONE_IN = 10;
+
+    /**
+     * Nesting depth of the statements of a body.
+     */
+    private static final int DEPTH = 3;
+
+    /**
+     * Primitive instruction names.
+     */
+    private static final String[] PRIMITIVES = { "move", "turnleft",
+            "turnright", "infect", "skip" };
+
+    /**
+     * The conditions, indexed by ordinal.
+     */
+    private static final Condition[] CONDITIONS = Condition.values();
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private CorpusBenchmark() {
+    }
+
+    /**
+     * Replaces {@code s} with a random non-BLOCK statement nested at most
+     * {@code depth} levels deep.
+     *
+     * @param s
+     *            the statement
+     * @param r
+     *            the source of randomness
+     * @param depth
+     *            the maximum nesting depth
+     * @updates s
+     */
+    private static void randomStatement(Statement s, Random r, int depth) {
+        int choice = 0;
+        if (depth > 0) {
+            choice = r.nextInt(4);
+        }
+        Condition c = CONDITIONS[r.nextInt(CONDITIONS.length)];
+        if (choice == 0) {
+            s.assembleCall(PRIMITIVES[r.nextInt(PRIMITIVES.length)]);
+        } else if (choice == 1) {
+            Statement block = s.newInstance();
+            randomBlock(block, r, depth - 1);
+            s.assembleIf(c, block);
+        } else if (choice == 2) {
+            Statement block1 = s.newInstance();
+            Statement block2 = s.newInstance();
+            randomBlock(block1, r, depth - 1);
+            randomBlock(block2, r, depth - 1);
+            s.assembleIfElse(c, block1, block2);
+        } else {
+            Statement block = s.newInstance();
+            randomBlock(block, r, depth - 1);
+            s.assembleWhile(c, block);
+        }
+    }
+
+    /**
+     * Replaces {@code block} with a BLOCK of one to three random statements
+     * nested at most {@code depth} levels deep.
+     *
+     * @param block
+     *            the BLOCK
+     * @param r
+     *            the source of randomness
+     * @param depth
+     *            the maximum nesting depth
+     * @updates block
+     */
+    private static void randomBlock(Statement block, Random r, int depth) {
+        block.clear();
+        int length = 1 + r.nextInt(3);
+        for (int i = 0; i < length; i++) {
+            Statement child = block.newInstance();
+            randomStatement(child, r, depth);
+            block.addToBlock(i, child);
+        }
+    }
+
+    /**
+     * Returns the corpus built from statements of the type of
+     * {@code prototype}; the same corpus is built for every type.
+     *
+     * @param prototype
+     *            a statement of the implementation to build
+     * @return the program bodies
+     */
+    private static Statement[] corpus(Statement prototype) {
+        Statement[] result = new Statement[PROGRAMS];
+        Random programs = new Random(1);
+        for (int p = 0; p < PROGRAMS; p++) {
+            Statement body = prototype.newInstance();
+            for (int i = 0; i < WIDTH; i++) {
+                Statement child = body.newInstance();
+                if (programs.nextInt(FRESH_ONE_IN) == 0) {
+                    randomStatement(child, programs, DEPTH);
+                } else {
+                    randomStatement(child,
+                            new Random(programs.nextInt(GENES)), DEPTH);
+                }
+                body.addToBlock(i, child);
+            }
+            result[p] = body;
+        }
+        return result;
+    }
+
+    /**
+     * Builds the corpus with one implementation and reports its retained
+     * heap and build time.
+     *
+     * @param label
+     *            the name of the implementation
+     * @param prototype
+     *            a statement of the implementation
+     * @param out
+     *            the output stream
+     */
+    private static void measure(String label, Statement prototype,
+            SimpleWriter out) {
+        long before = Benchmark.usedHeap();
+        long start = System.nanoTime();
+        Statement[] bodies = corpus(prototype);
+        long nanos = System.nanoTime() - start;
+        long retained = Benchmark.usedHeap() - before;
+        Benchmark.consume(bodies.length);
+        out.println(label + ": retained " + retained / 1024 + " KiB, built in "
+                + nanos / 1_000_000 + " ms");
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments
+     */
+    public static void main(String[] args) {
+        SimpleWriter out = new SimpleWriter1L();
+        measure("Statement2", new Statement2(), out);
+        measure("Statement3", new Statement3(), out);
+        measure("Statement4", new Statement4(), out);
+        out.println("Statement4 pool: " + Statement4.poolSize() + " nodes");
+        out.close();
+    }
+
+}
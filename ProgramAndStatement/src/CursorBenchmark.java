@@ -0,0 +1,106 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+
+import components.program.Program;
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+
+/**
+ * Measures the turn throughput of {@code TreeCursor} on the sample program,
+ * and the bytes it allocates per turn as reported by the JVM's per-thread
+ * allocation counter.
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public final class CursorBenchmark {
+
+    /**
+     * Number of turns run per measurement.
+     */
+    private static final int TURNS = 20_000_000;
+
+    /**
+     * Number of measurements; the first is a warm-up.
+     */
+    private static final int ROUNDS = 4;
+
+    /**
+     * Step limit of each turn.
+     */
+    private static final int STEP_LIMIT = 1_000;
+
+    /**
+     * Sensor answering every test with the next bit of an xorshift stream.
+     */
+    private static final class RandomSensor implements WorldSensor {
+
+        /**
+         * The generator state.
+         */
+        private long state = 0x9E3779B97F4A7C15L;
+
+        @Override
+        public boolean test(int condition) {
+            this.state ^= this.state << 13;
+            this.state ^= this.state >>> 7;
+            this.state ^= this.state << 17;
+            return this.state < 0;
+        }
+
+    }
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private CursorBenchmark() {
+    }
+
+    /**
+     * Returns the number of bytes allocated so far by the current thread.
+     *
+     * @return the allocated bytes
+     */
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory
+                        .getThreadMXBean();
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments
+     * @throws IOException
+     *             if the sample program cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        SimpleWriter out = new SimpleWriter1L();
+        Program p = new Program2();
+        BLParser.parse(p, Paths.get("data/program-sample.bl"));
+        TreeCursor cursor = new TreeCursor(new ProgramImage(p));
+        WorldSensor sensor = new RandomSensor();
+
+        for (int round = 0; round < ROUNDS; round++) {
+            long bytes = allocatedBytes();
+            long start = System.nanoTime();
+            long actions = 0;
+            for (int i = 0; i < TURNS; i++) {
+                actions += cursor.nextAction(sensor, STEP_LIMIT);
+            }
+            long nanos = System.nanoTime() - start;
+            bytes = allocatedBytes() - bytes;
+            Benchmark.consume(actions);
+            if (round > 0) {
+                out.println("TreeCursor: " + (TURNS * 1_000L / nanos)
+                        + " M turns/s, " + ((double) bytes / TURNS)
+                        + " bytes allocated per turn");
+            }
+        }
+        out.close();
+    }
+
+}
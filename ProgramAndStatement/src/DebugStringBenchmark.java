@@ -0,0 +1,157 @@
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+import components.statement.Statement;
+import components.statement.StatementKernel.Condition;
+
+/**
+ * Compares {@code Statement2.debugString} with rendering the same text the
+ * way a recursive {@code toString} of the representation tree does, by
+ * building each label's text and concatenating the texts of the subtrees, on
+ * deep synthetic statements. The debug string is timed both rebuilt, after
+ * an edit of the root BLOCK, and cached.
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public final class DebugStringBenchmark {
+
+    /**
+     * Block widths and nesting depths of the synthetic statements, in pairs.
+     */
+    private static final int[][] SHAPES = { { 2, 12 }, { 3, 8 }, { 8, 4 } };
+
+    /**
+     * Number of untimed runs.
+     */
+    private static final int WARMUPS = 10;
+
+    /**
+     * Number of timed runs.
+     */
+    private static final int RUNS = 20;
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private DebugStringBenchmark() {
+    }
+
+    /**
+     * Returns the text of the label of {@code s}, rebuilt.
+     *
+     * @param kind
+     *            the kind
+     * @param condition
+     *            the condition, or null
+     * @param instruction
+     *            the instruction, or null
+     * @return the label text
+     */
+    private static String label(Statement.Kind kind, Condition condition,
+            String instruction) {
+        String c = "?", i = "?";
+        if (condition != null) {
+            c = condition.toString();
+        }
+        if (instruction != null) {
+            i = instruction;
+        }
+        return "(" + kind + "," + c + "," + i + ")";
+    }
+
+    /**
+     * Returns the debug text of {@code s} built by concatenation.
+     *
+     * @param s
+     *            the statement
+     * @return the text
+     * @restores s
+     */
+    private static String concatenated(Statement s) {
+        String result;
+        switch (s.kind()) {
+            case BLOCK: {
+                result = label(Statement.Kind.BLOCK, null, null);
+                int n = s.lengthOfBlock();
+                for (int i = 0; i < n; i++) {
+                    Statement child = s.removeFromBlock(i);
+                    result += (i == 0 ? "(" : ",") + concatenated(child);
+                    s.addToBlock(i, child);
+                }
+                if (n > 0) {
+                    result += ")";
+                }
+                break;
+            }
+            case IF: {
+                Statement block = s.newInstance();
+                Condition c = s.disassembleIf(block);
+                result = label(Statement.Kind.IF, c, null) + "("
+                        + concatenated(block) + ")";
+                s.assembleIf(c, block);
+                break;
+            }
+            case IF_ELSE: {
+                Statement block = s.newInstance();
+                Statement elseBlock = s.newInstance();
+                Condition c = s.disassembleIfElse(block, elseBlock);
+                result = label(Statement.Kind.IF_ELSE, c, null) + "("
+                        + concatenated(block) + ","
+                        + concatenated(elseBlock) + ")";
+                s.assembleIfElse(c, block, elseBlock);
+                break;
+            }
+            case WHILE: {
+                Statement block = s.newInstance();
+                Condition c = s.disassembleWhile(block);
+                result = label(Statement.Kind.WHILE, c, null) + "("
+                        + concatenated(block) + ")";
+                s.assembleWhile(c, block);
+                break;
+            }
+            default: {
+                String instruction = s.disassembleCall();
+                result = label(Statement.Kind.CALL, null, instruction);
+                s.assembleCall(instruction);
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments
+     */
+    public static void main(String[] args) {
+        SimpleWriter out = new SimpleWriter1L();
+        for (int[] shape : SHAPES) {
+            Statement2 s = new Statement2();
+            Benchmark.fillBlock(s, shape[0], shape[1]);
+            if (!concatenated(s).equals(s.debugString())) {
+                throw new AssertionError("renderings differ");
+            }
+            double concatenated = Benchmark.nanosPerOp(() -> {
+                Benchmark.consume(concatenated(s).length());
+            }, WARMUPS, RUNS);
+            double rebuilt = Benchmark.nanosPerOp(() -> {
+                s.addToBlock(0, s.removeFromBlock(0));
+                Benchmark.consume(s.debugString().length());
+            }, WARMUPS, RUNS);
+            double cached = Benchmark.nanosPerOp(() -> {
+                Benchmark.consume(s.debugString().length());
+            }, WARMUPS, RUNS);
+            out.println("w" + shape[0] + " d" + shape[1] + " ("
+                    + s.debugString().length() + " chars): concatenated "
+                    + String.format("%.2f", concatenated / 1e6)
+                    + " ms, debugString rebuilt "
+                    + String.format("%.2f", rebuilt / 1e6)
+                    + " ms, debugString cached "
+                    + String.format("%.0f", cached) + " ns");
+        }
+        out.close();
+    }
+
+}
@@ -0,0 +1,335 @@
+import java.util.Arrays;
+
+/**
+ * Resumable execution contexts of any number of bugs, stored as parallel int
+ * arrays: for each bug, the program it runs, its program counter, the number
+ * of turns it has taken and how many of them were idle (ended at HALT or at
+ * the step limit). There is no object per bug, so a million bugs cost a few
+ * arrays and nothing for the garbage collector to trace, and resuming a bug
+ * with {@code BytecodeVM} allocates nothing.
+ *
+ * <p>
+ * Programs are registered once, as returned by {@code generatedCode()}, and
+ * referred to by number. Each has a {@code TransitionTable}, so a bug whose
+ * sensor readings are given as a mask resumes by table lookup instead.
+ * </p>
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public final class ExecutionContexts {
+
+    /**
+     * Default initial capacity.
+     */
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * Code of each program.
+     */
+    private int[][] programs = new int[0][];
+
+    /**
+     * Transition table of each program.
+     */
+    private TransitionTable[] tables = new TransitionTable[0];
+
+    /**
+     * Number of programs.
+     */
+    private int programCount;
+
+    /**
+     * Program of each context.
+     */
+    private int[] program;
+
+    /**
+     * Program counter of each context.
+     */
+    private int[] pc;
+
+    /**
+     * Number of turns taken by each context.
+     */
+    private int[] turns;
+
+    /**
+     * Number of idle turns taken by each context.
+     */
+    private int[] idle;
+
+    /**
+     * Number of contexts.
+     */
+    private int size;
+
+    /**
+     * No-argument constructor.
+     */
+    public ExecutionContexts() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor with room for {@code capacity} contexts before the arrays
+     * grow.
+     *
+     * @param capacity
+     *            the initial capacity
+     * @requires capacity >= 0
+     * @ensures [this has no programs and no contexts]
+     */
+    public ExecutionContexts(int capacity) {
+        assert capacity >= 0 : "Violation of: capacity >= 0";
+
+        this.program = new int[capacity];
+        this.pc = new int[capacity];
+        this.turns = new int[capacity];
+        this.idle = new int[capacity];
+    }
+
+    /**
+     * Registers {@code code} and returns its program number.
+     *
+     * @param code
+     *            the program
+     * @return the program number
+     * @aliases reference code
+     * @requires [code is a valid generatedCode() program]
+     * @ensures addProgram = [number of programs before the call]
+     */
+    public int addProgram(int[] code) {
+        assert code != null : "Violation of: code is not null";
+
+        int p = this.programCount;
+        if (p == this.programs.length) {
+            int capacity = Math.max(DEFAULT_CAPACITY, 2 * p);
+            this.programs = Arrays.copyOf(this.programs, capacity);
+            this.tables = Arrays.copyOf(this.tables, capacity);
+        }
+        this.programs[p] = code;
+        this.tables[p] = new TransitionTable(code);
+        this.programCount++;
+        return p;
+    }
+
+    /**
+     * Returns the number of programs.
+     *
+     * @return the number of programs
+     */
+    public int programCount() {
+        return this.programCount;
+    }
+
+    /**
+     * Returns the code of program {@code p}.
+     *
+     * @param p
+     *            the program number
+     * @return the code
+     * @aliases reference returned value
+     * @requires 0 <= p < programCount()
+     */
+    public int[] code(int p) {
+        assert 0 <= p && p < this.programCount : ""
+                + "Violation of: 0 <= p < programCount()";
+
+        return this.programs[p];
+    }
+
+    /**
+     * Adds a context running program {@code p} from its beginning and returns
+     * its number.
+     *
+     * @param p
+     *            the program number
+     * @return the context number
+     * @requires 0 <= p < programCount()
+     * @ensures add = [number of contexts before the call]
+     */
+    public int add(int p) {
+        assert 0 <= p && p < this.programCount : ""
+                + "Violation of: 0 <= p < programCount()";
+
+        int c = this.size;
+        if (c == this.pc.length) {
+            int capacity = Math.max(DEFAULT_CAPACITY, 2 * c);
+            this.program = Arrays.copyOf(this.program, capacity);
+            this.pc = Arrays.copyOf(this.pc, capacity);
+            this.turns = Arrays.copyOf(this.turns, capacity);
+            this.idle = Arrays.copyOf(this.idle, capacity);
+        }
+        this.program[c] = p;
+        this.pc[c] = 0;
+        this.turns[c] = 0;
+        this.idle[c] = 0;
+        this.size++;
+        return c;
+    }
+
+    /**
+     * Returns the number of contexts.
+     *
+     * @return the number of contexts
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Runs one turn of context {@code c} from where it stopped and returns
+     * the opcode of the instruction that ended it: a primitive instruction,
+     * HALT or BLOCKED, as in {@code BytecodeVM.run}.
+     *
+     * @param c
+     *            the context number
+     * @param sensor
+     *            the source of the answers to the conditions tested
+     * @param stepLimit
+     *            the maximum number of instructions to execute
+     * @return the opcode of the instruction that ended the turn
+     * @updates this
+     * @requires 0 <= c < size() and 0 < stepLimit <= MAX_STEP_LIMIT
+     * @ensures <pre>
+     * [context c has taken one more turn of its program, with conditions
+     *  answered by sensor, and resume = the instruction that ended it]
+     * </pre>
+     */
+    public int resume(int c, WorldSensor sensor, int stepLimit) {
+        assert 0 <= c && c < this.size : "Violation of: 0 <= c < size()";
+
+        long r = BytecodeVM.run(this.programs[this.program[c]], this.pc[c],
+                sensor, stepLimit);
+        int instruction = BytecodeVM.instruction(r);
+        this.pc[c] = BytecodeVM.nextPc(r);
+        this.turns[c]++;
+        if (instruction == BytecodeVM.HALT
+                || instruction == BytecodeVM.BLOCKED) {
+            this.idle[c]++;
+        }
+        return instruction;
+    }
+
+    /**
+     * Runs one turn of context {@code c} from where it stopped, with the
+     * cell in front of the bug described by {@code mask}, and returns the
+     * opcode of the instruction that ended it, as {@code resume} with a
+     * sensor answering from mask would. The turn is run with the transition
+     * table of the context's program.
+     *
+     * @param c
+     *            the context number
+     * @param mask
+     *            the sensor mask, as in {@code TransitionTable}
+     * @param sensor
+     *            the source of the answers to the RANDOM tests
+     * @param stepLimit
+     *            the maximum number of instructions to execute
+     * @return the opcode of the instruction that ended the turn
+     * @updates this
+     * @requires <pre>
+     * 0 <= c < size() and 0 <= mask < TransitionTable.MASKS and
+     * 0 < stepLimit <= MAX_STEP_LIMIT
+     * </pre>
+     * @ensures <pre>
+     * [context c has taken one more turn of its program, with the NEXT_IS_
+     *  conditions answered by mask and RANDOM by sensor, and
+     *  resume = the instruction that ended it]
+     * </pre>
+     */
+    public int resume(int c, int mask, WorldSensor sensor, int stepLimit) {
+        assert 0 <= c && c < this.size : "Violation of: 0 <= c < size()";
+
+        long r = this.tables[this.program[c]].run(this.pc[c], mask, sensor,
+                stepLimit);
+        int instruction = BytecodeVM.instruction(r);
+        this.pc[c] = BytecodeVM.nextPc(r);
+        this.turns[c]++;
+        if (instruction == BytecodeVM.HALT
+                || instruction == BytecodeVM.BLOCKED) {
+            this.idle[c]++;
+        }
+        return instruction;
+    }
+
+    /**
+     * Returns the program of context {@code c}.
+     *
+     * @param c
+     *            the context number
+     * @return the program number
+     * @requires 0 <= c < size()
+     */
+    public int program(int c) {
+        assert 0 <= c && c < this.size : "Violation of: 0 <= c < size()";
+
+        return this.program[c];
+    }
+
+    /**
+     * Makes context {@code c} run program {@code p} from its beginning; its
+     * turn counters are kept.
+     *
+     * @param c
+     *            the context number
+     * @param p
+     *            the program number
+     * @updates this
+     * @requires 0 <= c < size() and 0 <= p < programCount()
+     * @ensures [context c runs program p from its beginning]
+     */
+    public void setProgram(int c, int p) {
+        assert 0 <= c && c < this.size : "Violation of: 0 <= c < size()";
+        assert 0 <= p && p < this.programCount : ""
+                + "Violation of: 0 <= p < programCount()";
+
+        this.program[c] = p;
+        this.pc[c] = 0;
+    }
+
+    /**
+     * Returns the program counter at which context {@code c} resumes.
+     *
+     * @param c
+     *            the context number
+     * @return the program counter
+     * @requires 0 <= c < size()
+     */
+    public int pc(int c) {
+        assert 0 <= c && c < this.size : "Violation of: 0 <= c < size()";
+
+        return this.pc[c];
+    }
+
+    /**
+     * Returns the number of turns context {@code c} has taken.
+     *
+     * @param c
+     *            the context number
+     * @return the number of turns
+     * @requires 0 <= c < size()
+     */
+    public int turns(int c) {
+        assert 0 <= c && c < this.size : "Violation of: 0 <= c < size()";
+
+        return this.turns[c];
+    }
+
+    /**
+     * Returns the number of turns context {@code c} has taken that ended at
+     * HALT or at the step limit.
+     *
+     * @param c
+     *            the context number
+     * @return the number of idle turns
+     * @requires 0 <= c < size()
+     */
+    public int idleTurns(int c) {
+        assert 0 <= c && c < this.size : "Violation of: 0 <= c < size()";
+
+        return this.idle[c];
+    }
+
+}
@@ -0,0 +1,167 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+
+/**
+ * Measures the keystroke-to-program latency of {@code IncrementalParser} on
+ * a synthetic program of more than 10,000 lines, compared with reparsing the
+ * whole text: each keystroke types a letter at the end of a randomly chosen
+ * CALL, or deletes it again.
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public final class IncrementalBenchmark {
+
+    /**
+     * Minimum size of the synthetic program, in bytes; this gives about
+     * 16,000 lines.
+     */
+    private static final int PROGRAM_SIZE = 256 * 1024;
+
+    /**
+     * Number of untimed keystrokes.
+     */
+    private static final int WARMUPS = 20_000;
+
+    /**
+     * Number of timed keystrokes.
+     */
+    private static final int KEYSTROKES = 20_000;
+
+    /**
+     * Number of timed full reparses.
+     */
+    private static final int FULL_PARSES = 50;
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private IncrementalBenchmark() {
+    }
+
+    /**
+     * Returns the offsets just past the CALLs of primitive instructions in
+     * {@code source}, one per line.
+     *
+     * @param source
+     *            the program text
+     * @return the offsets
+     */
+    private static int[] callEnds(String source) {
+        List<Integer> ends = new ArrayList<>();
+        int lineStart = 0;
+        while (lineStart < source.length()) {
+            int lineEnd = source.indexOf('\n', lineStart);
+            String word = source.substring(lineStart, lineEnd).trim();
+            if (word.equals("move") || word.equals("turnleft")
+                    || word.equals("turnright") || word.equals("infect")) {
+                ends.add(lineEnd);
+            }
+            lineStart = lineEnd + 1;
+        }
+        int[] result = new int[ends.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = ends.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Types and deletes letters at the ends of random CALLs, recording the
+     * time of each keystroke in {@code times}.
+     *
+     * @param parser
+     *            the incremental parser
+     * @param ends
+     *            the offsets just past the CALLs
+     * @param times
+     *            the keystroke times, in nanoseconds; of even length
+     * @param random
+     *            the source of randomness
+     * @replaces times
+     */
+    private static void type(IncrementalParser parser, int[] ends,
+            long[] times, Random random) {
+        for (int i = 0; i < times.length; i += 2) {
+            int offset = ends[random.nextInt(ends.length)];
+            long start = System.nanoTime();
+            parser.edit(offset, 0, "x");
+            long typed = System.nanoTime();
+            parser.edit(offset, 1, "");
+            times[i] = typed - start;
+            times[i + 1] = System.nanoTime() - typed;
+        }
+    }
+
+    /**
+     * Formats {@code nanos} in microseconds.
+     *
+     * @param nanos
+     *            the time, in nanoseconds
+     * @return the formatted time
+     */
+    private static String micros(double nanos) {
+        return String.format("%.1f", nanos / 1000) + " us";
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments
+     * @throws IOException
+     *             if the scratch file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        SimpleWriter out = new SimpleWriter1L();
+        File file = File.createTempFile("incremental-benchmark", ".bl");
+        file.deleteOnExit();
+        Benchmark.writeProgram(file.toPath(), PROGRAM_SIZE);
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        String source = new String(bytes, StandardCharsets.US_ASCII);
+        int lines = source.split("\n").length;
+        int[] ends = callEnds(source);
+
+        double full = Benchmark.nanosPerOp(() -> {
+            try {
+                BLParser.parse(new Program2(), ByteBuffer.wrap(bytes));
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        }, FULL_PARSES, FULL_PARSES);
+
+        IncrementalParser parser = new IncrementalParser(new Program2(),
+                source);
+        Random random = new Random(0);
+        type(parser, ends, new long[WARMUPS], random);
+        long[] times = new long[KEYSTROKES];
+        type(parser, ends, times, random);
+        Benchmark.consume(parser.text().length());
+        long total = 0;
+        for (long t : times) {
+            total += t;
+        }
+        Arrays.sort(times);
+
+        out.println(lines + " lines, " + bytes.length + " bytes");
+        out.println("full reparse: " + micros(full));
+        out.println("keystroke, incremental: mean "
+                + micros((double) total / KEYSTROKES) + ", median "
+                + micros(times[KEYSTROKES / 2]) + ", 99th percentile "
+                + micros(times[KEYSTROKES - KEYSTROKES / 100]) + ", max "
+                + micros(times[KEYSTROKES - 1]));
+
+        out.close();
+    }
+
+}
@@ -0,0 +1,691 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import components.map.Map;
+import components.program.Program;
+import components.statement.Statement;
+import components.statement.StatementKernel.Condition;
+
+/**
+ * Keeps a {@code Program} in step with the BL source text it was parsed from
+ * while the text is being edited, reparsing only the part of the text an
+ * edit touches. Alongside the text it keeps an index of where each
+ * instruction, BLOCK and statement of the program lies. Each edit is handled
+ * at the smallest of the following scopes that holds it:
+ * <ol>
+ * <li>the statements of the innermost BLOCK that the edit touches, which are
+ * replaced through {@code removeFromBlock} and {@code addToBlock};</li>
+ * <li>the enclosing instruction, which is replaced through
+ * {@code swapContext};</li>
+ * <li>the whole program.</li>
+ * </ol>
+ * If the reparsed text is not valid at one scope, the next one is tried. If
+ * the whole text is not a valid BL program, the program is left as it was
+ * and the edit throws {@code IllegalArgumentException}; the text keeps the
+ * edit, and the next edit reparses the whole program.
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public final class IncrementalParser {
+
+    /**
+     * The part of the text reparsed by an edit.
+     */
+    public enum Scope {
+
+        /**
+         * Statements of one BLOCK.
+         */
+        STATEMENTS,
+
+        /**
+         * One instruction.
+         */
+        INSTRUCTION,
+
+        /**
+         * The whole program.
+         */
+        PROGRAM
+    }
+
+    /**
+     * Kind of a region of the text.
+     */
+    private enum Kind {
+
+        /**
+         * The whole program.
+         */
+        PROGRAM,
+
+        /**
+         * An instruction, from INSTRUCTION to its closing name.
+         */
+        INSTRUCTION,
+
+        /**
+         * The statements of a BLOCK, between the keywords around them.
+         */
+        BLOCK,
+
+        /**
+         * An IF, IF_ELSE, WHILE or CALL statement.
+         */
+        STATEMENT
+    }
+
+    /**
+     * A region of the text, with the regions nested in it.
+     */
+    private static final class Region {
+
+        /**
+         * The kind of the region.
+         */
+        private final Kind kind;
+
+        /**
+         * Offset of the region's first byte.
+         */
+        private int start;
+
+        /**
+         * Offset just past the region's last byte.
+         */
+        private int end;
+
+        /**
+         * The name of an INSTRUCTION region.
+         */
+        private String name;
+
+        /**
+         * The enclosing region, or null.
+         */
+        private Region parent;
+
+        /**
+         * The nested regions, in text order: the instructions and the main
+         * BLOCK of the program, the BLOCK of an instruction, the statements
+         * of a BLOCK, and the BLOCKs of an IF, IF_ELSE or WHILE.
+         */
+        private final List<Region> children = new ArrayList<>();
+
+        /**
+         * Constructor.
+         *
+         * @param kind
+         *            the kind of the region
+         * @param start
+         *            offset of the region's first byte
+         */
+        Region(Kind kind, int start) {
+            this.kind = kind;
+            this.start = start;
+        }
+
+        /**
+         * Adds {@code child} as the nested region at {@code pos}.
+         *
+         * @param pos
+         *            the position
+         * @param child
+         *            the region
+         */
+        void add(int pos, Region child) {
+            child.parent = this;
+            this.children.add(pos, child);
+        }
+
+    }
+
+    /**
+     * The program.
+     */
+    private final Program program;
+
+    /**
+     * The text; bytes 0 through {@code length - 1} are valid.
+     */
+    private byte[] text;
+
+    /**
+     * Length of the text.
+     */
+    private int length;
+
+    /**
+     * Index of the text, or null if the text is not a valid program.
+     */
+    private Region root;
+
+    /**
+     * Constructor; parses {@code source} into {@code p}.
+     *
+     * @param p
+     *            the program to keep in step with the text
+     * @param source
+     *            the BL source text
+     * @throws IllegalArgumentException
+     *             if {@code source} is not a valid BL program
+     * @replaces p
+     * @ensures p = [the program read from source]
+     */
+    public IncrementalParser(Program p, String source) {
+        assert p != null : "Violation of: p is not null";
+        assert source != null : "Violation of: source is not null";
+
+        this.program = p;
+        this.text = source.getBytes(StandardCharsets.US_ASCII);
+        this.length = this.text.length;
+        this.reparseProgram();
+    }
+
+    /**
+     * Wraps bytes {@code from} through {@code to - 1} of the text.
+     *
+     * @param from
+     *            offset of the first byte
+     * @param to
+     *            offset just past the last byte
+     * @return the buffer
+     */
+    private ByteBuffer slice(int from, int to) {
+        return ByteBuffer.wrap(this.text, from, to - from);
+    }
+
+    /**
+     * Returns a tokenizer reading bytes {@code from} through {@code to - 1}
+     * of the text; its token offsets are relative to {@code from}.
+     *
+     * @param from
+     *            offset of the first byte
+     * @param to
+     *            offset just past the last byte
+     * @return the tokenizer
+     */
+    private BLTokenizer tokenizer(int from, int to) {
+        try {
+            return new BLTokenizer(this.slice(from, to));
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Moves {@code tokens} to the next token.
+     *
+     * @param tokens
+     *            the tokenizer
+     */
+    private static void advance(BLTokenizer tokens) {
+        try {
+            tokens.advance();
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /*
+     * Indexing: these methods read text that BLParser has accepted, so they
+     * follow the grammar without checking it.
+     */
+
+    /**
+     * Indexes the whole program.
+     *
+     * @return the PROGRAM region
+     */
+    private Region indexProgram() {
+        BLTokenizer tokens = this.tokenizer(0, this.length);
+        Region result = new Region(Kind.PROGRAM, 0);
+        result.end = this.length;
+        // PROGRAM name IS
+        advance(tokens);
+        advance(tokens);
+        advance(tokens);
+        while (tokens.token() == BLTokenizer.Token.INSTRUCTION) {
+            result.add(result.children.size(), indexInstruction(tokens, 0));
+        }
+        Region block = new Region(Kind.BLOCK, (int) tokens.end());
+        advance(tokens);
+        indexStatements(tokens, 0, block);
+        block.end = (int) tokens.start();
+        result.add(result.children.size(), block);
+        return result;
+    }
+
+    /**
+     * Indexes the instruction at the current token of {@code tokens}.
+     *
+     * @param tokens
+     *            the tokenizer, at INSTRUCTION
+     * @param base
+     *            offset in the text of the tokenizer's input
+     * @return the INSTRUCTION region
+     */
+    private static Region indexInstruction(BLTokenizer tokens, int base) {
+        Region result = new Region(Kind.INSTRUCTION,
+                base + (int) tokens.start());
+        advance(tokens);
+        result.name = tokens.identifier();
+        advance(tokens);
+        Region block = new Region(Kind.BLOCK, base + (int) tokens.end());
+        advance(tokens);
+        indexStatements(tokens, base, block);
+        block.end = base + (int) tokens.start();
+        result.add(0, block);
+        // END name
+        advance(tokens);
+        result.end = base + (int) tokens.end();
+        advance(tokens);
+        return result;
+    }
+
+    /**
+     * Indexes the statements from the current token of {@code tokens} to
+     * the end of their BLOCK, adding them to the end of {@code block}.
+     *
+     * @param tokens
+     *            the tokenizer
+     * @param base
+     *            offset in the text of the tokenizer's input
+     * @param block
+     *            the BLOCK region
+     */
+    private static void indexStatements(BLTokenizer tokens, int base,
+            Region block) {
+        int pos = block.children.size();
+        BLTokenizer.Token t = tokens.token();
+        while (t == BLTokenizer.Token.IF || t == BLTokenizer.Token.WHILE
+                || t == BLTokenizer.Token.IDENTIFIER) {
+            Region s = new Region(Kind.STATEMENT, base + (int) tokens.start());
+            if (t == BLTokenizer.Token.IDENTIFIER) {
+                s.end = base + (int) tokens.end();
+                advance(tokens);
+            } else {
+                // IF/WHILE condition THEN/DO
+                advance(tokens);
+                advance(tokens);
+                while (tokens.token() != BLTokenizer.Token.END) {
+                    Region inner = new Region(Kind.BLOCK,
+                            base + (int) tokens.end());
+                    advance(tokens);
+                    indexStatements(tokens, base, inner);
+                    inner.end = base + (int) tokens.start();
+                    s.add(s.children.size(), inner);
+                }
+                // END IF/WHILE
+                advance(tokens);
+                s.end = base + (int) tokens.end();
+                advance(tokens);
+            }
+            block.add(pos, s);
+            pos++;
+            t = tokens.token();
+        }
+    }
+
+    /*
+     * Splicing
+     */
+
+    /**
+     * Adds {@code delta} to every offset at or past {@code at} in
+     * {@code r} and the regions nested in it.
+     *
+     * @param r
+     *            the region
+     * @param at
+     *            the first offset moved
+     * @param delta
+     *            the distance moved
+     */
+    private static void shift(Region r, int at, int delta) {
+        if (r.start >= at) {
+            r.start += delta;
+        }
+        if (r.end >= at) {
+            r.end += delta;
+            for (Region child : r.children) {
+                shift(child, at, delta);
+            }
+        }
+    }
+
+    /**
+     * Replaces {@code count} statements of the BLOCK {@code block}, starting
+     * at {@code pos}, with the statements of the BLOCK {@code statements},
+     * where {@code path} locates {@code block} in the statement {@code s}:
+     * each pair of entries, from {@code level} on, is the position of a
+     * statement in a BLOCK and the number of one of its BLOCKs.
+     *
+     * @param s
+     *            the BLOCK holding {@code block}
+     * @param path
+     *            the location of {@code block} in {@code s}
+     * @param level
+     *            the first entry of {@code path} to follow
+     * @param pos
+     *            the position of the first statement replaced
+     * @param count
+     *            the number of statements replaced
+     * @param statements
+     *            the new statements
+     * @updates s
+     * @clears statements
+     */
+    private static void splice(Statement s, int[] path, int level, int pos,
+            int count, Statement statements) {
+        if (level == path.length) {
+            for (int i = 0; i < count; i++) {
+                s.removeFromBlock(pos);
+            }
+            for (int i = statements.lengthOfBlock() - 1; i >= 0; i--) {
+                s.addToBlock(pos, statements.removeFromBlock(i));
+            }
+        } else {
+            Statement child = s.removeFromBlock(path[level]);
+            Statement first = s.newInstance();
+            Statement second = s.newInstance();
+            Statement inner = first;
+            if (path[level + 1] == 1) {
+                inner = second;
+            }
+            switch (child.kind()) {
+                case IF: {
+                    Condition c = child.disassembleIf(first);
+                    splice(inner, path, level + 2, pos, count, statements);
+                    child.assembleIf(c, first);
+                    break;
+                }
+                case IF_ELSE: {
+                    Condition c = child.disassembleIfElse(first,
+                            second);
+                    splice(inner, path, level + 2, pos, count, statements);
+                    child.assembleIfElse(c, first, second);
+                    break;
+                }
+                default: {
+                    Condition c = child.disassembleWhile(first);
+                    splice(inner, path, level + 2, pos, count, statements);
+                    child.assembleWhile(c, first);
+                    break;
+                }
+            }
+            s.addToBlock(path[level], child);
+        }
+    }
+
+    /**
+     * Replaces {@code count} statements of the program's BLOCK indexed by
+     * {@code block}, starting at {@code pos}, with the statements of the
+     * BLOCK {@code statements}.
+     *
+     * @param block
+     *            the BLOCK region
+     * @param pos
+     *            the position of the first statement replaced
+     * @param count
+     *            the number of statements replaced
+     * @param statements
+     *            the new statements
+     * @clears statements
+     */
+    private void splice(Region block, int pos, int count,
+            Statement statements) {
+        int depth = 0;
+        Region r = block;
+        while (r.parent.kind == Kind.STATEMENT) {
+            depth++;
+            r = r.parent.parent;
+        }
+        int[] path = new int[2 * depth];
+        r = block;
+        for (int i = depth - 1; i >= 0; i--) {
+            Region statement = r.parent;
+            path[2 * i] = statement.parent.children.indexOf(statement);
+            path[2 * i + 1] = statement.children.indexOf(r);
+            r = statement.parent;
+        }
+
+        if (r.parent.kind == Kind.INSTRUCTION) {
+            Map<String, Statement> context = this.program.newContext();
+            this.program.swapContext(context);
+            splice(context.value(r.parent.name), path, 0, pos, count,
+                    statements);
+            this.program.swapContext(context);
+        } else {
+            Statement body = this.program.newBody();
+            this.program.swapBody(body);
+            splice(body, path, 0, pos, count, statements);
+            this.program.swapBody(body);
+        }
+    }
+
+    /*
+     * Reparsing
+     */
+
+    /**
+     * Reparses the statements of {@code block} that the edit of old bytes
+     * {@code from} through {@code to - 1} touches.
+     *
+     * @param block
+     *            the innermost BLOCK region holding the edit
+     * @param from
+     *            old offset of the first byte replaced
+     * @param to
+     *            old offset just past the last byte replaced
+     * @param delta
+     *            the change in length of the text
+     * @return true iff the new text of the statements is valid
+     */
+    private boolean reparseStatements(Region block, int from, int to,
+            int delta) {
+        List<Region> children = block.children;
+        int first = 0;
+        while (first < children.size() && children.get(first).end < from) {
+            first++;
+        }
+        int last = first;
+        while (last < children.size() && children.get(last).start <= to) {
+            last++;
+        }
+        int start = from;
+        int end = to;
+        if (first < last) {
+            start = Math.min(start, children.get(first).start);
+            end = Math.max(end, children.get(last - 1).end);
+        }
+
+        Statement statements = this.program.newBody();
+        boolean valid = true;
+        try {
+            BLParser.parseBlock(statements, this.slice(start, end + delta));
+        } catch (IllegalArgumentException e) {
+            valid = false;
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        if (valid) {
+            this.splice(block, first, last - first, statements);
+            children.subList(first, last).clear();
+            shift(this.root, end, delta);
+            Region index = new Region(Kind.BLOCK, start);
+            BLTokenizer tokens = this.tokenizer(start, end + delta);
+            indexStatements(tokens, start, index);
+            for (int i = 0; i < index.children.size(); i++) {
+                block.add(first + i, index.children.get(i));
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * Reparses the instruction indexed by {@code instruction}, whose text
+     * the edit changed in length by {@code delta}.
+     *
+     * @param instruction
+     *            the INSTRUCTION region holding the edit
+     * @param delta
+     *            the change in length of the text
+     * @return true iff the new text of the instruction is valid
+     */
+    private boolean reparseInstruction(Region instruction, int delta) {
+        int start = instruction.start;
+        int end = instruction.end;
+        Statement body = this.program.newBody();
+        String name = null;
+        try {
+            name = BLParser.parseInstruction(body,
+                    this.slice(start, end + delta));
+        } catch (IllegalArgumentException e) {
+            name = null;
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        boolean valid = name != null;
+        if (valid) {
+            Map<String, Statement> context = this.program.newContext();
+            this.program.swapContext(context);
+            Map.Pair<String, Statement> old = context
+                    .remove(instruction.name);
+            valid = !context.hasKey(name);
+            if (valid) {
+                context.add(name, body);
+            } else {
+                context.add(old.key(), old.value());
+            }
+            this.program.swapContext(context);
+        }
+        if (valid) {
+            Region parent = instruction.parent;
+            int pos = parent.children.indexOf(instruction);
+            parent.children.remove(pos);
+            shift(this.root, end, delta);
+            BLTokenizer tokens = this.tokenizer(start, end + delta);
+            parent.add(pos, indexInstruction(tokens, start));
+        }
+        return valid;
+    }
+
+    /**
+     * Reparses the whole text into the program and indexes it; if the text
+     * is not a valid program, leaves the program as it was, discards the
+     * index and throws.
+     */
+    private void reparseProgram() {
+        this.root = null;
+        try {
+            BLParser.parse(this.program, this.slice(0, this.length));
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        this.root = this.indexProgram();
+    }
+
+    /**
+     * Replaces {@code removed} bytes of the text, starting at
+     * {@code offset}, with {@code inserted}, and updates the program to
+     * match, reparsing as little of the text as it can.
+     *
+     * @param offset
+     *            offset of the first byte replaced
+     * @param removed
+     *            number of bytes replaced
+     * @param inserted
+     *            the new text
+     * @return the part of the text reparsed
+     * @throws IllegalArgumentException
+     *             if the new text is not a valid BL program; the text keeps
+     *             the edit, and the program is left as it was
+     * @requires <pre>
+     * 0 <= offset  and  0 <= removed  and
+     * offset + removed <= [length of the text]
+     * </pre>
+     * @ensures <pre>
+     * text = #text[0, offset) * inserted * #text[offset + removed, |#text|)
+     *   and  program = [the program read from text]
+     * </pre>
+     */
+    public Scope edit(int offset, int removed, String inserted) {
+        assert inserted != null : "Violation of: inserted is not null";
+        assert 0 <= offset : "Violation of: 0 <= offset";
+        assert 0 <= removed : "Violation of: 0 <= removed";
+        assert offset + removed <= this.length : ""
+                + "Violation of: offset + removed <= [length of the text]";
+
+        int from = offset;
+        int to = offset + removed;
+        int delta = inserted.length() - removed;
+        if (this.length + delta > this.text.length) {
+            this.text = Arrays.copyOf(this.text,
+                    Math.max(this.length + delta, 2 * this.text.length));
+        }
+        System.arraycopy(this.text, to, this.text, to + delta,
+                this.length - to);
+        for (int i = 0; i < inserted.length(); i++) {
+            this.text[from + i] = (byte) inserted.charAt(i);
+        }
+        this.length += delta;
+
+        Scope result = Scope.PROGRAM;
+        Region instruction = null;
+        Region block = null;
+        Region r = this.root;
+        while (r != null) {
+            Region next = null;
+            for (Region child : r.children) {
+                if (child.kind == Kind.BLOCK && child.start < from
+                        && to < child.end) {
+                    block = child;
+                    next = child;
+                } else if (child.kind != Kind.BLOCK && child.start <= from
+                        && to <= child.end) {
+                    if (child.kind == Kind.INSTRUCTION) {
+                        instruction = child;
+                    }
+                    next = child;
+                }
+            }
+            r = next;
+        }
+        if (block != null && this.reparseStatements(block, from, to, delta)) {
+            result = Scope.STATEMENTS;
+        } else if (instruction != null
+                && this.reparseInstruction(instruction, delta)) {
+            result = Scope.INSTRUCTION;
+        } else {
+            this.reparseProgram();
+        }
+        return result;
+    }
+
+    /**
+     * Reports the program kept in step with the text.
+     *
+     * @return the program
+     * @aliases reference returned by program
+     */
+    public Program program() {
+        return this.program;
+    }
+
+    /**
+     * Reports the current text.
+     *
+     * @return the text
+     */
+    public String text() {
+        return new String(this.text, 0, this.length,
+                StandardCharsets.US_ASCII);
+    }
+
+}
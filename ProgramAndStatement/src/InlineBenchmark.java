@@ -0,0 +1,141 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import components.program.Program;
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+
+/**
+ * Reports, for the data programs and a loop-heavy hand-written program, how
+ * {@code Inliner} with several budgets changes the size of the program (the
+ * number of statements in its body and context, which is the number of
+ * entries of its {@code ProgramImage}) and the number of entries
+ * {@code TreeCursor} visits per turn, with a sensor answering from a
+ * pseudo-random bit stream.
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public final class InlineBenchmark {
+
+    /**
+     * Number of turns run per measurement.
+     */
+    private static final int TURNS = 10_000_000;
+
+    /**
+     * Step limit of each turn.
+     */
+    private static final int STEP_LIMIT = 1_000;
+
+    /**
+     * Budgets measured.
+     */
+    private static final int[] BUDGETS = { 0, 2, Inliner.DEFAULT_BUDGET,
+            Integer.MAX_VALUE };
+
+    /**
+     * The names of files containing BL programs.
+     */
+    private static final String[] FILE_NAMES = { "data/program-sample.bl",
+            "data/program-test1.bl", "data/program-test2.bl" };
+
+    /**
+     * Hand-written program whose main loop goes through small instructions.
+     */
+    private static final String LOOP = "PROGRAM Loop IS"
+            + " INSTRUCTION turn IS IF random THEN turnleft ELSE turnright"
+            + "  END IF END turn"
+            + " INSTRUCTION fight IS IF next-is-enemy THEN infect"
+            + "  ELSE turn END IF END fight"
+            + " INSTRUCTION step IS IF next-is-empty THEN move"
+            + "  ELSE fight END IF END step"
+            + " BEGIN WHILE true DO step END WHILE END Loop";
+
+    /**
+     * Sensor answering every test with the next bit of an xorshift stream.
+     */
+    private static final class RandomSensor implements WorldSensor {
+
+        /**
+         * The generator state.
+         */
+        private long state = 0x9E3779B97F4A7C15L;
+
+        @Override
+        public boolean test(int condition) {
+            this.state ^= this.state << 13;
+            this.state ^= this.state >>> 7;
+            this.state ^= this.state << 17;
+            return this.state < 0;
+        }
+
+    }
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private InlineBenchmark() {
+    }
+
+    /**
+     * Inlines {@code source} with each budget and reports the results.
+     *
+     * @param label
+     *            the name of the program
+     * @param source
+     *            the BL source of the program
+     * @param out
+     *            the output stream
+     * @throws IOException
+     *             never
+     */
+    private static void measure(String label, byte[] source, SimpleWriter out)
+            throws IOException {
+        for (int budget : BUDGETS) {
+            Program p = new Program2();
+            BLParser.parse(p, ByteBuffer.wrap(source));
+            int calls = Inliner.inline(p, budget);
+            ProgramImage image = new ProgramImage(p);
+            TreeCursor cursor = new TreeCursor(image);
+            WorldSensor sensor = new RandomSensor();
+            long steps = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < TURNS; i++) {
+                cursor.nextAction(sensor, STEP_LIMIT);
+                steps += cursor.steps();
+            }
+            long nanos = System.nanoTime() - start;
+            String name = Integer.toString(budget);
+            if (budget == Integer.MAX_VALUE) {
+                name = "unlimited";
+            }
+            out.println(label + ", budget " + name + ": " + calls
+                    + " CALLs inlined, " + image.size() + " statements, "
+                    + p.generatedCode().length + " ints of code, "
+                    + ((double) steps / TURNS) + " steps/turn, "
+                    + (TURNS * 1_000L / nanos) + " M turns/s");
+        }
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments
+     * @throws IOException
+     *             if a data program cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        SimpleWriter out = new SimpleWriter1L();
+        for (String filename : FILE_NAMES) {
+            measure(filename, Files.readAllBytes(Paths.get(filename)), out);
+        }
+        measure("Loop", LOOP.getBytes(StandardCharsets.US_ASCII), out);
+        out.close();
+    }
+
+}
@@ -0,0 +1,425 @@
+import java.util.Arrays;
+import java.util.HashMap;
+
+import components.map.Map;
+import components.program.Program;
+import components.statement.Statement;
+import components.statement.StatementKernel.Condition;
+import components.statement.StatementKernel.Kind;
+
+/**
+ * Inlining pass over the statement trees of a program: every CALL of a
+ * user-defined instruction that is not recursive and whose body has at most
+ * a given number of statements is replaced by a copy of the statements of
+ * that body. Instruction bodies are inlined into before they are copied, so
+ * chains of small instructions collapse completely. Recursive instructions
+ * (those that call themselves directly or indirectly) and undefined
+ * instructions are never inlined, and the context is left with the same
+ * instructions, so CALLs that are not inlined behave as before.
+ *
+ * <p>
+ * Since {@code generatedCode} inlines every CALL anyway, the pass leaves the
+ * generated code unchanged; what it saves is the CALL and return executed at
+ * run time by tree-walking interpreters such as {@code TreeCursor}, at the
+ * cost of a larger tree.
+ * </p>
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public final class Inliner {
+
+    /**
+     * Default maximum number of statements of an inlined body.
+     */
+    public static final int DEFAULT_BUDGET = 12;
+
+    /**
+     * The context of the program, taken out of it during the pass.
+     */
+    private final Map<String, Statement> context;
+
+    /**
+     * Maximum number of statements of an inlined body.
+     */
+    private final int budget;
+
+    /**
+     * Names of the instructions of the context.
+     */
+    private final String[] names;
+
+    /**
+     * Index in {@code names} of the name of each instruction of the context.
+     */
+    private final HashMap<String, Integer> indices;
+
+    /**
+     * Whether each instruction is recursive.
+     */
+    private final boolean[] recursive;
+
+    /**
+     * Number of statements of the body of each instruction once inlined into,
+     * or -1 if it has not been inlined into yet.
+     */
+    private final int[] sizes;
+
+    /**
+     * Number of CALLs replaced so far.
+     */
+    private int inlined;
+
+    /**
+     * Constructor.
+     *
+     * @param context
+     *            the context of the program
+     * @param budget
+     *            the maximum number of statements of an inlined body
+     */
+    private Inliner(Map<String, Statement> context, int budget) {
+        this.context = context;
+        this.budget = budget;
+        this.names = new String[context.size()];
+        int k = 0;
+        for (Map.Pair<String, Statement> instruction : context) {
+            this.names[k] = instruction.key();
+            k++;
+        }
+        this.indices = new HashMap<>();
+        for (k = 0; k < this.names.length; k++) {
+            this.indices.put(this.names[k], k);
+        }
+        this.sizes = new int[this.names.length];
+        Arrays.fill(this.sizes, -1);
+        this.recursive = this.findRecursive();
+    }
+
+    /**
+     * Returns the index in {@code names} of the instruction called by CALL
+     * statement {@code call}, or -1 if it is primitive or not defined.
+     *
+     * @param call
+     *            the CALL statement
+     * @return the index of the called instruction, or -1
+     * @restores call
+     */
+    private int calledIndex(Statement call) {
+        String instruction = call.disassembleCall();
+        call.assembleCall(instruction);
+        Integer index = this.indices.get(instruction);
+        int result = -1;
+        if (index != null) {
+            result = index;
+        }
+        return result;
+    }
+
+    /**
+     * Adds to {@code calls} whether each instruction is called in
+     * {@code s}.
+     *
+     * @param s
+     *            the statement
+     * @param calls
+     *            for each instruction, whether it is called
+     * @restores s
+     */
+    private void findCalls(Statement s, boolean[] calls) {
+        switch (s.kind()) {
+            case BLOCK: {
+                for (int i = 0; i < s.lengthOfBlock(); i++) {
+                    Statement child = s.removeFromBlock(i);
+                    this.findCalls(child, calls);
+                    s.addToBlock(i, child);
+                }
+                break;
+            }
+            case IF: {
+                Statement block = s.newInstance();
+                Condition c = s.disassembleIf(block);
+                this.findCalls(block, calls);
+                s.assembleIf(c, block);
+                break;
+            }
+            case IF_ELSE: {
+                Statement block1 = s.newInstance();
+                Statement block2 = s.newInstance();
+                Condition c = s.disassembleIfElse(block1, block2);
+                this.findCalls(block1, calls);
+                this.findCalls(block2, calls);
+                s.assembleIfElse(c, block1, block2);
+                break;
+            }
+            case WHILE: {
+                Statement block = s.newInstance();
+                Condition c = s.disassembleWhile(block);
+                this.findCalls(block, calls);
+                s.assembleWhile(c, block);
+                break;
+            }
+            default: {
+                int k = this.calledIndex(s);
+                if (k >= 0) {
+                    calls[k] = true;
+                }
+                break;
+            }
+        }
+    }
+
+    /**
+     * Returns, for each instruction, whether it calls itself directly or
+     * indirectly.
+     *
+     * @return whether each instruction is recursive
+     */
+    private boolean[] findRecursive() {
+        int n = this.names.length;
+        boolean[][] calls = new boolean[n][n];
+        for (int k = 0; k < n; k++) {
+            this.findCalls(this.context.value(this.names[k]), calls[k]);
+        }
+        boolean[] result = new boolean[n];
+        int[] work = new int[n + 1];
+        for (int k = 0; k < n; k++) {
+            /*
+             * Depth-first search of the instructions reached from k.
+             */
+            boolean[] reached = new boolean[n];
+            int top = 0;
+            work[top] = k;
+            top++;
+            while (top > 0 && !result[k]) {
+                top--;
+                int from = work[top];
+                for (int to = 0; to < n; to++) {
+                    if (calls[from][to] && !reached[to]) {
+                        reached[to] = true;
+                        result[k] |= to == k;
+                        work[top] = to;
+                        top++;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the index of the instruction called by {@code s} if {@code s}
+     * is a CALL to be inlined, and -1 otherwise.
+     *
+     * @param s
+     *            the statement
+     * @return the index of the instruction to inline, or -1
+     * @restores s
+     */
+    private int inlinable(Statement s) {
+        int result = -1;
+        if (s.kind() == Kind.CALL) {
+            int k = this.calledIndex(s);
+            if (k >= 0 && !this.recursive[k]
+                    && this.inlineInto(k) <= this.budget) {
+                result = k;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Inlines into the body of instruction {@code k} if that has not been
+     * done yet, and returns its number of statements.
+     *
+     * @param k
+     *            the index of the instruction
+     * @return the number of statements of its body
+     */
+    private int inlineInto(int k) {
+        if (this.sizes[k] < 0) {
+            this.sizes[k] = this.inlineBlock(this.context.value(this.names[k]));
+        }
+        return this.sizes[k];
+    }
+
+    /**
+     * Inlines into BLOCK {@code block} and returns its number of statements,
+     * not counting {@code block} itself.
+     *
+     * @param block
+     *            the BLOCK
+     * @return the number of statements in {@code block}
+     * @updates block
+     */
+    private int inlineBlock(Statement block) {
+        int size = 0;
+        int i = 0;
+        while (i < block.lengthOfBlock()) {
+            Statement child = block.removeFromBlock(i);
+            int k = this.inlinable(child);
+            if (k >= 0) {
+                Statement copy = copyOf(this.context.value(this.names[k]));
+                int length = copy.lengthOfBlock();
+                for (int j = 0; j < length; j++) {
+                    block.addToBlock(i + j, copy.removeFromBlock(0));
+                }
+                i += length;
+                size += this.sizes[k];
+                this.inlined++;
+            } else {
+                size += this.inlineStatement(child);
+                block.addToBlock(i, child);
+                i++;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Inlines into the blocks of non-BLOCK statement {@code s} and returns
+     * its number of statements, counting {@code s} itself.
+     *
+     * @param s
+     *            the statement
+     * @return the number of statements in {@code s}
+     * @updates s
+     */
+    private int inlineStatement(Statement s) {
+        int size = 1;
+        switch (s.kind()) {
+            case IF: {
+                Statement block = s.newInstance();
+                Condition c = s.disassembleIf(block);
+                size += this.inlineBlock(block);
+                s.assembleIf(c, block);
+                break;
+            }
+            case IF_ELSE: {
+                Statement block1 = s.newInstance();
+                Statement block2 = s.newInstance();
+                Condition c = s.disassembleIfElse(block1, block2);
+                size += this.inlineBlock(block1);
+                size += this.inlineBlock(block2);
+                s.assembleIfElse(c, block1, block2);
+                break;
+            }
+            case WHILE: {
+                Statement block = s.newInstance();
+                Condition c = s.disassembleWhile(block);
+                size += this.inlineBlock(block);
+                s.assembleWhile(c, block);
+                break;
+            }
+            default: {
+                break;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Returns a copy of {@code s}.
+     *
+     * @param s
+     *            the statement
+     * @return the copy
+     * @restores s
+     * @ensures copyOf = s
+     */
+    private static Statement copyOf(Statement s) {
+        Statement result = s.newInstance();
+        switch (s.kind()) {
+            case BLOCK: {
+                for (int i = 0; i < s.lengthOfBlock(); i++) {
+                    Statement child = s.removeFromBlock(i);
+                    result.addToBlock(i, copyOf(child));
+                    s.addToBlock(i, child);
+                }
+                break;
+            }
+            case IF: {
+                Statement block = s.newInstance();
+                Condition c = s.disassembleIf(block);
+                result.assembleIf(c, copyOf(block));
+                s.assembleIf(c, block);
+                break;
+            }
+            case IF_ELSE: {
+                Statement block1 = s.newInstance();
+                Statement block2 = s.newInstance();
+                Condition c = s.disassembleIfElse(block1, block2);
+                result.assembleIfElse(c, copyOf(block1), copyOf(block2));
+                s.assembleIfElse(c, block1, block2);
+                break;
+            }
+            case WHILE: {
+                Statement block = s.newInstance();
+                Condition c = s.disassembleWhile(block);
+                result.assembleWhile(c, copyOf(block));
+                s.assembleWhile(c, block);
+                break;
+            }
+            default: {
+                String instruction = s.disassembleCall();
+                result.assembleCall(instruction);
+                s.assembleCall(instruction);
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Inlines, with the default budget, every CALL in {@code p} of a
+     * non-recursive instruction whose body has at most
+     * {@code DEFAULT_BUDGET} statements.
+     *
+     * @param p
+     *            the program
+     * @return the number of CALLs replaced
+     * @updates p
+     * @ensures <pre>
+     * p.name = #p.name  and  p.context has the same instructions as #p.context
+     *  and  [p behaves as #p]
+     * </pre>
+     */
+    public static int inline(Program p) {
+        return inline(p, DEFAULT_BUDGET);
+    }
+
+    /**
+     * Inlines every CALL in {@code p} of a non-recursive instruction whose
+     * body, once inlined into, has at most {@code budget} statements.
+     *
+     * @param p
+     *            the program
+     * @param budget
+     *            the maximum number of statements of an inlined body
+     * @return the number of CALLs replaced
+     * @updates p
+     * @requires budget >= 0
+     * @ensures <pre>
+     * p.name = #p.name  and  p.context has the same instructions as #p.context
+     *  and  [p behaves as #p]
+     * </pre>
+     */
+    public static int inline(Program p, int budget) {
+        assert p != null : "Violation of: p is not null";
+        assert budget >= 0 : "Violation of: budget >= 0";
+
+        Map<String, Statement> context = p.newContext();
+        p.swapContext(context);
+        Inliner inliner = new Inliner(context, budget);
+        for (int k = 0; k < inliner.names.length; k++) {
+            inliner.inlineInto(k);
+        }
+        Statement body = p.newBody();
+        p.swapBody(body);
+        inliner.inlineBlock(body);
+        p.swapBody(body);
+        p.swapContext(context);
+        return inliner.inlined;
+    }
+
+}
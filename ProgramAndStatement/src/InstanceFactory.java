@@ -0,0 +1,66 @@
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Creates objects through cached no-argument constructor handles, so the
+ * kernel {@code newInstance} methods pay for the reflective constructor lookup
+ * once per class instead of once per call.
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public final class InstanceFactory {
+
+    /**
+     * No-argument constructor handle of each class, typed to return
+     * {@code Object}, computed on first use.
+     */
+    private static final ClassValue<MethodHandle> CONSTRUCTORS =
+            new ClassValue<MethodHandle>() {
+                @Override
+                protected MethodHandle computeValue(Class<?> type) {
+                    try {
+                        return MethodHandles.publicLookup()
+                                .findConstructor(type,
+                                        MethodType.methodType(void.class))
+                                .asType(MethodType.methodType(Object.class));
+                    } catch (ReflectiveOperationException e) {
+                        throw new AssertionError(
+                                "Cannot construct object of type " + type);
+                    }
+                }
+            };
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private InstanceFactory() {
+    }
+
+    /**
+     * Returns a new object of class {@code type} built by its public
+     * no-argument constructor.
+     *
+     * @param <T>
+     *            the type of the object
+     * @param type
+     *            the class to instantiate
+     * @return the new object
+     * @requires [type has a public no-argument constructor]
+     */
+    public static <T> T newInstanceOf(Class<T> type) {
+        assert type != null : "Violation of: type is not null";
+
+        Object result;
+        try {
+            result = (Object) CONSTRUCTORS.get(type).invokeExact();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new AssertionError("Cannot construct object of type " + type);
+        }
+        return type.cast(result);
+    }
+
+}
@@ -0,0 +1,244 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import components.map.Map;
+import components.program.Program;
+import components.program.Program1;
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+import components.statement.Statement;
+import components.statement.Statement1;
+import components.statement.StatementKernel.Condition;
+
+/**
+ * Times every {@code Statement} kernel method, {@code parseBlock} (through
+ * {@code BLParser}) and {@code prettyPrint} on synthetic statements of
+ * several block widths and nesting depths, for the library Statement1 and
+ * for Statement2, Statement3 and Statement4, and times {@code swapContext}
+ * and {@code swapBody} for Program1, Program2 and Program3 on a synthetic
+ * program. Each kernel method is timed together with its inverse (for
+ * instance {@code assembleIf} followed by {@code disassembleIf}), so the
+ * statement measured is the same every run; the results are printed one
+ * line per implementation, shape and operation, in nanoseconds per
+ * operation pair, so that runs before and after a change can be diffed.
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public final class KernelBenchmark {
+
+    /**
+     * Block widths and nesting depths of the synthetic statements, in pairs.
+     */
+    private static final int[][] SHAPES = { { 4, 2 }, { 4, 5 }, { 16, 2 },
+            { 16, 3 } };
+
+    /**
+     * Number of operation pairs per timed run of the kernel methods that
+     * take constant time in every implementation; those whose cost may grow
+     * with the statement run this many divided by width^depth.
+     */
+    private static final int PAIRS = 10_000;
+
+    /**
+     * Number of untimed runs of each operation.
+     */
+    private static final int WARMUPS = 5;
+
+    /**
+     * Number of timed runs of each operation.
+     */
+    private static final int RUNS = 20;
+
+    /**
+     * Minimum size of the synthetic program, in bytes.
+     */
+    private static final int PROGRAM_SIZE = 256 * 1024;
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private KernelBenchmark() {
+    }
+
+    /**
+     * Times {@code op}, which performs {@code pairs} operation pairs per run,
+     * and prints the time per pair.
+     *
+     * @param label
+     *            the implementation, shape and operation
+     * @param pairs
+     *            the number of operation pairs per run of {@code op}
+     * @param op
+     *            the operation
+     * @param out
+     *            the output stream
+     */
+    private static void time(String label, int pairs, Runnable op,
+            SimpleWriter out) {
+        double nanos = Benchmark.nanosPerOp(op, WARMUPS, RUNS) / pairs;
+        out.println(label + " " + String.format("%.1f", nanos) + " ns");
+    }
+
+    /**
+     * Times the kernel methods, parseBlock and prettyPrint of one
+     * implementation on a statement of the given shape.
+     *
+     * @param name
+     *            the name of the implementation
+     * @param prototype
+     *            a statement of the implementation
+     * @param width
+     *            the block width
+     * @param depth
+     *            the nesting depth
+     * @param text
+     *            the BL text of the statement
+     * @param sink
+     *            the file prettyPrint writes to
+     * @param out
+     *            the output stream
+     */
+    private static void measure(String name, Statement prototype, int width,
+            int depth, byte[] text, String sink, SimpleWriter out) {
+        String label = name + " w" + width + " d" + depth;
+        Statement s = prototype.newInstance();
+        Benchmark.fillBlock(s, width, depth);
+        Statement block = prototype.newInstance();
+        Benchmark.fillBlock(block, width, depth);
+        Statement block2 = prototype.newInstance();
+        Benchmark.fillBlock(block2, width, depth);
+        Statement t = prototype.newInstance();
+        int middle = width / 2;
+        int pairs = Math.max(1, PAIRS / (int) Math.pow(width, depth));
+
+        time(label + " addToBlock+removeFromBlock(middle)", pairs, () -> {
+            for (int i = 0; i < pairs; i++) {
+                s.addToBlock(middle, s.removeFromBlock(middle));
+            }
+        }, out);
+        time(label + " addToBlock+removeFromBlock(end)", pairs, () -> {
+            for (int i = 0; i < pairs; i++) {
+                s.addToBlock(width - 1, s.removeFromBlock(width - 1));
+            }
+        }, out);
+        time(label + " assembleIf+disassembleIf", pairs, () -> {
+            for (int i = 0; i < pairs; i++) {
+                t.assembleIf(Condition.RANDOM, block);
+                t.disassembleIf(block);
+            }
+        }, out);
+        time(label + " assembleIfElse+disassembleIfElse", pairs, () -> {
+            for (int i = 0; i < pairs; i++) {
+                t.assembleIfElse(Condition.RANDOM, block, block2);
+                t.disassembleIfElse(block, block2);
+            }
+        }, out);
+        time(label + " assembleWhile+disassembleWhile", pairs, () -> {
+            for (int i = 0; i < pairs; i++) {
+                t.assembleWhile(Condition.RANDOM, block);
+                t.disassembleWhile(block);
+            }
+        }, out);
+        time(label + " assembleCall+disassembleCall", PAIRS, () -> {
+            for (int i = 0; i < PAIRS; i++) {
+                t.assembleCall("move");
+                Benchmark.consume(t.disassembleCall().length());
+            }
+        }, out);
+        time(label + " kind+lengthOfBlock", PAIRS, () -> {
+            for (int i = 0; i < PAIRS; i++) {
+                Benchmark.consume(s.kind().ordinal() + s.lengthOfBlock());
+            }
+        }, out);
+        time(label + " parseBlock", 1, () -> {
+            try {
+                BLParser.parseBlock(t, ByteBuffer.wrap(text));
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        }, out);
+        SimpleWriter file = new SimpleWriter1L(sink);
+        time(label + " prettyPrint", 1, () -> {
+            s.prettyPrint(file, 0);
+        }, out);
+        file.close();
+    }
+
+    /**
+     * Times swapContext and swapBody of one implementation.
+     *
+     * @param name
+     *            the name of the implementation
+     * @param p
+     *            an empty program of the implementation
+     * @param program
+     *            the synthetic program file
+     * @param out
+     *            the output stream
+     * @throws IOException
+     *             if the program cannot be read
+     */
+    private static void measure(String name, Program p, Path program,
+            SimpleWriter out) throws IOException {
+        BLParser.parse(p, program);
+        Map<String, Statement> context = p.newContext();
+        Statement body = p.newBody();
+        time(name + " swapContext+swapContext", 1, () -> {
+            p.swapContext(context);
+            p.swapContext(context);
+        }, out);
+        time(name + " swapBody+swapBody", PAIRS, () -> {
+            for (int i = 0; i < PAIRS; i++) {
+                p.swapBody(body);
+                p.swapBody(body);
+            }
+        }, out);
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments
+     * @throws IOException
+     *             if the scratch files cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        SimpleWriter out = new SimpleWriter1L();
+        File sink = File.createTempFile("kernel-benchmark", ".bl");
+        sink.deleteOnExit();
+
+        for (int[] shape : SHAPES) {
+            int width = shape[0];
+            int depth = shape[1];
+            Statement s = new Statement2();
+            Benchmark.fillBlock(s, width, depth);
+            SimpleWriter file = new SimpleWriter1L(sink.getPath());
+            s.prettyPrint(file, 0);
+            file.close();
+            byte[] text = Files.readAllBytes(sink.toPath());
+
+            measure("Statement1", new Statement1(), width, depth, text,
+                    sink.getPath(), out);
+            measure("Statement2", new Statement2(), width, depth, text,
+                    sink.getPath(), out);
+            measure("Statement3", new Statement3(), width, depth, text,
+                    sink.getPath(), out);
+            measure("Statement4", new Statement4(), width, depth, text,
+                    sink.getPath(), out);
+        }
+
+        Path program = sink.toPath();
+        Benchmark.writeProgram(program, PROGRAM_SIZE);
+        measure("Program1", new Program1(), program, out);
+        measure("Program2", new Program2(), program, out);
+        measure("Program3", new Program3(), program, out);
+
+        out.close();
+    }
+
+}
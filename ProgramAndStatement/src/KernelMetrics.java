@@ -0,0 +1,447 @@
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Opt-in registry of call counts, cumulative times and allocation estimates
+ * of the kernel methods of Statement2 and Program2. Each instrumented method
+ * brackets its work with {@code start} and {@code stop}; while measuring is
+ * off, which is the default, {@code start} reads one flag and returns 0, and
+ * {@code stop} of 0 returns at once, so the instrumentation costs a few
+ * nanoseconds per call (see {@code MetricsBenchmark}). Measuring is turned on
+ * by {@code setEnabled}, by the system property {@code kernel.metrics=true},
+ * or through the MBean registered by {@code registerMBean}.
+ *
+ * <p>
+ * Totals are kept in {@code LongAdder}s, so threads can be measured
+ * concurrently. Times and allocations of an operation include those of the
+ * instrumented operations it calls. Allocations are measured only on JVMs
+ * whose thread management interface has per-thread allocation counters (see
+ * {@code isAllocationTracked}); elsewhere operations are counted and timed
+ * only.
+ * </p>
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public final class KernelMetrics {
+
+    /**
+     * An instrumented kernel operation.
+     */
+    public enum Operation {
+
+        /**
+         * {@code Statement2.kind}.
+         */
+        STATEMENT_KIND("Statement2.kind"),
+
+        /**
+         * {@code Statement2.addToBlock}.
+         */
+        STATEMENT_ADD_TO_BLOCK("Statement2.addToBlock"),
+
+        /**
+         * {@code Statement2.removeFromBlock}.
+         */
+        STATEMENT_REMOVE_FROM_BLOCK("Statement2.removeFromBlock"),
+
+        /**
+         * {@code Statement2.lengthOfBlock}.
+         */
+        STATEMENT_LENGTH_OF_BLOCK("Statement2.lengthOfBlock"),
+
+        /**
+         * {@code Statement2.assembleIf}.
+         */
+        STATEMENT_ASSEMBLE_IF("Statement2.assembleIf"),
+
+        /**
+         * {@code Statement2.disassembleIf}.
+         */
+        STATEMENT_DISASSEMBLE_IF("Statement2.disassembleIf"),
+
+        /**
+         * {@code Statement2.assembleIfElse}.
+         */
+        STATEMENT_ASSEMBLE_IF_ELSE("Statement2.assembleIfElse"),
+
+        /**
+         * {@code Statement2.disassembleIfElse}.
+         */
+        STATEMENT_DISASSEMBLE_IF_ELSE("Statement2.disassembleIfElse"),
+
+        /**
+         * {@code Statement2.assembleWhile}.
+         */
+        STATEMENT_ASSEMBLE_WHILE("Statement2.assembleWhile"),
+
+        /**
+         * {@code Statement2.disassembleWhile}.
+         */
+        STATEMENT_DISASSEMBLE_WHILE("Statement2.disassembleWhile"),
+
+        /**
+         * {@code Statement2.assembleCall}.
+         */
+        STATEMENT_ASSEMBLE_CALL("Statement2.assembleCall"),
+
+        /**
+         * {@code Statement2.disassembleCall}.
+         */
+        STATEMENT_DISASSEMBLE_CALL("Statement2.disassembleCall"),
+
+        /**
+         * {@code Program2.setName}.
+         */
+        PROGRAM_SET_NAME("Program2.setName"),
+
+        /**
+         * {@code Program2.name}.
+         */
+        PROGRAM_NAME("Program2.name"),
+
+        /**
+         * {@code Program2.newContext}.
+         */
+        PROGRAM_NEW_CONTEXT("Program2.newContext"),
+
+        /**
+         * {@code Program2.swapContext}.
+         */
+        PROGRAM_SWAP_CONTEXT("Program2.swapContext"),
+
+        /**
+         * {@code Program2.newBody}.
+         */
+        PROGRAM_NEW_BODY("Program2.newBody"),
+
+        /**
+         * {@code Program2.swapBody}.
+         */
+        PROGRAM_SWAP_BODY("Program2.swapBody");
+
+        /**
+         * The name reported for this operation.
+         */
+        private final String label;
+
+        /**
+         * Constructor.
+         *
+         * @param label
+         *            the name reported for this operation
+         */
+        Operation(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return this.label;
+        }
+
+    }
+
+    /**
+     * Name under which the MBean is registered.
+     */
+    public static final String MBEAN_NAME =
+            "ProgramAndStatement:type=KernelMetrics";
+
+    /**
+     * Maximum nesting of instrumented operations whose allocations are
+     * tracked in one thread; deeper operations are counted and timed only.
+     */
+    private static final int MAX_DEPTH = 64;
+
+    /**
+     * The operations, indexed by ordinal.
+     */
+    private static final Operation[] OPERATIONS = Operation.values();
+
+    /**
+     * Call count of each operation.
+     */
+    private static final LongAdder[] CALLS = adders();
+
+    /**
+     * Cumulative time of each operation.
+     */
+    private static final LongAdder[] NANOS = adders();
+
+    /**
+     * Allocated bytes of each operation.
+     */
+    private static final LongAdder[] BYTES = adders();
+
+    /**
+     * Per thread: entry 0 is the nesting depth of instrumented operations in
+     * progress, and entry d the allocation counter when the operation at
+     * depth d started.
+     */
+    private static final ThreadLocal<long[]> STARTS = ThreadLocal
+            .withInitial(() -> new long[MAX_DEPTH + 1]);
+
+    /**
+     * The JVM's thread management interface if it has per-thread allocation
+     * counters, or null if it does not.
+     */
+    private static final com.sun.management.ThreadMXBean THREADS =
+            allocationCounters();
+
+    /**
+     * Whether the operations are being measured.
+     */
+    private static volatile boolean enabled = Boolean
+            .getBoolean("kernel.metrics");
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private KernelMetrics() {
+    }
+
+    /**
+     * Returns one adder per operation.
+     *
+     * @return the adders
+     */
+    private static LongAdder[] adders() {
+        LongAdder[] result = new LongAdder[Operation.values().length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = new LongAdder();
+        }
+        return result;
+    }
+
+    /**
+     * Returns the JVM's thread management interface with its per-thread
+     * allocation counters turned on, or null if it has none.
+     *
+     * @return the interface, or null
+     */
+    private static com.sun.management.ThreadMXBean allocationCounters() {
+        com.sun.management.ThreadMXBean result = null;
+        java.lang.management.ThreadMXBean threads = ManagementFactory
+                .getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean counters =
+                    (com.sun.management.ThreadMXBean) threads;
+            if (counters.isThreadAllocatedMemorySupported()) {
+                counters.setThreadAllocatedMemoryEnabled(true);
+                result = counters;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the bytes allocated so far by the current thread, or -1 if
+     * they are not known.
+     *
+     * @return the allocated bytes, or -1
+     */
+    private static long allocatedBytes() {
+        long result = -1;
+        if (THREADS != null) {
+            result = THREADS
+                    .getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return result;
+    }
+
+    /**
+     * Marks the start of an instrumented operation.
+     *
+     * @return the start time to pass to {@code stop}, or 0 if measuring is
+     *         off
+     */
+    public static long start() {
+        long result = 0;
+        if (enabled) {
+            long[] starts = STARTS.get();
+            int depth = (int) ++starts[0];
+            if (depth <= MAX_DEPTH) {
+                starts[depth] = allocatedBytes();
+            }
+            result = System.nanoTime() | 1;
+        }
+        return result;
+    }
+
+    /**
+     * Marks the end of an instrumented operation and adds it to the totals.
+     *
+     * @param op
+     *            the operation
+     * @param start
+     *            the result of the matching call of {@code start}
+     */
+    public static void stop(Operation op, long start) {
+        if (start != 0) {
+            long nanos = System.nanoTime() - start;
+            long[] starts = STARTS.get();
+            int depth = (int) starts[0]--;
+            int i = op.ordinal();
+            CALLS[i].increment();
+            NANOS[i].add(Math.max(0, nanos));
+            if (depth <= MAX_DEPTH && starts[depth] >= 0) {
+                long bytes = allocatedBytes();
+                if (bytes >= 0) {
+                    BYTES[i].add(bytes - starts[depth]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reports whether the operations are being measured.
+     *
+     * @return true iff measuring is on
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Reports whether the bytes allocated by operations are measured, which
+     * depends on the JVM having per-thread allocation counters.
+     *
+     * @return true iff allocations are measured
+     */
+    public static boolean isAllocationTracked() {
+        return THREADS != null;
+    }
+
+    /**
+     * Turns measuring on or off; operations in progress when it is turned on
+     * are not counted.
+     *
+     * @param on
+     *            whether to measure
+     */
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    /**
+     * Sets every total to zero.
+     */
+    public static void reset() {
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            CALLS[i].reset();
+            NANOS[i].reset();
+            BYTES[i].reset();
+        }
+    }
+
+    /**
+     * Reports the number of calls of {@code op} measured.
+     *
+     * @param op
+     *            the operation
+     * @return the call count
+     */
+    public static long calls(Operation op) {
+        return CALLS[op.ordinal()].sum();
+    }
+
+    /**
+     * Reports the cumulative time of the calls of {@code op} measured.
+     *
+     * @param op
+     *            the operation
+     * @return the time, in nanoseconds
+     */
+    public static long nanos(Operation op) {
+        return NANOS[op.ordinal()].sum();
+    }
+
+    /**
+     * Reports the bytes allocated during the calls of {@code op} measured.
+     *
+     * @param op
+     *            the operation
+     * @return the allocated bytes, or 0 if allocations are not measured
+     */
+    public static long allocatedBytes(Operation op) {
+        return BYTES[op.ordinal()].sum();
+    }
+
+    /**
+     * Returns the nonzero totals of {@code adders} by operation name.
+     *
+     * @param adders
+     *            the totals
+     * @return the totals of the operations that were called
+     */
+    private static Map<String, Long> totals(LongAdder[] adders) {
+        Map<String, Long> result = new TreeMap<>();
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            if (CALLS[i].sum() > 0) {
+                result.put(OPERATIONS[i].toString(), adders[i].sum());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Registers the MBean of this registry with the platform MBean server
+     * under {@code MBEAN_NAME}, unless it is registered already.
+     */
+    public static synchronized void registerMBean() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = new ObjectName(MBEAN_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(new MBean(), name);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * The MBean, which forwards to the static methods.
+     */
+    private static final class MBean implements KernelMetricsMXBean {
+
+        @Override
+        public boolean isEnabled() {
+            return KernelMetrics.isEnabled();
+        }
+
+        @Override
+        public void setEnabled(boolean on) {
+            KernelMetrics.setEnabled(on);
+        }
+
+        @Override
+        public void reset() {
+            KernelMetrics.reset();
+        }
+
+        @Override
+        public Map<String, Long> getCallCounts() {
+            return totals(CALLS);
+        }
+
+        @Override
+        public Map<String, Long> getTotalNanos() {
+            return totals(NANOS);
+        }
+
+        @Override
+        public Map<String, Long> getAllocatedBytes() {
+            return totals(BYTES);
+        }
+
+    }
+
+}
@@ -0,0 +1,56 @@
+import java.util.Map;
+
+/**
+ * Management interface of {@code KernelMetrics}, registered with the
+ * platform MBean server by {@code KernelMetrics.registerMBean}. The maps are
+ * keyed by operation name, for example {@code "Statement2.addToBlock"}.
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public interface KernelMetricsMXBean {
+
+    /**
+     * Reports whether the kernel operations are being measured.
+     *
+     * @return true iff measuring is on
+     */
+    boolean isEnabled();
+
+    /**
+     * Turns measuring on or off.
+     *
+     * @param enabled
+     *            whether to measure
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * Sets every total to zero.
+     */
+    void reset();
+
+    /**
+     * Reports the number of calls of each operation.
+     *
+     * @return the call counts
+     */
+    Map<String, Long> getCallCounts();
+
+    /**
+     * Reports the cumulative time spent in each operation, including the
+     * operations it calls.
+     *
+     * @return the cumulative times, in nanoseconds
+     */
+    Map<String, Long> getTotalNanos();
+
+    /**
+     * Reports the bytes allocated by the calling threads during each
+     * operation, as estimated by the JVM's per-thread allocation counters.
+     *
+     * @return the allocated bytes
+     */
+    Map<String, Long> getAllocatedBytes();
+
+}
@@ -0,0 +1,135 @@
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+import components.statement.Statement;
+
+/**
+ * Measures the cost of the {@code KernelMetrics} instrumentation of
+ * Statement2: the time of one disabled start/stop probe on its own, the time
+ * of a pair of kernel operations with measuring off and on, and the share of
+ * the disabled pair spent in its probes. It then prints the totals of one
+ * measured run, which the registered MBean also exposes.
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public final class MetricsBenchmark {
+
+    /**
+     * Number of operations per timed run.
+     */
+    private static final int OPS = 100_000;
+
+    /**
+     * Number of untimed runs.
+     */
+    private static final int WARMUPS = 20;
+
+    /**
+     * Number of timed runs.
+     */
+    private static final int RUNS = 20;
+
+    /**
+     * Length of the block edited.
+     */
+    private static final int BLOCK_LENGTH = 100;
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private MetricsBenchmark() {
+    }
+
+    /**
+     * Times pairs of kernel operations on {@code block}: a CALL moved from
+     * the end of the block and back, and a CALL assembled and disassembled.
+     *
+     * @param block
+     *            a BLOCK of {@code BLOCK_LENGTH} statements
+     * @param call
+     *            a statement to assemble CALLs into
+     * @return the mean time per pair, in nanoseconds
+     */
+    private static double pairs(Statement block, Statement call) {
+        return Benchmark.nanosPerOp(() -> {
+            for (int i = 0; i < OPS; i++) {
+                block.addToBlock(BLOCK_LENGTH - 1,
+                        block.removeFromBlock(BLOCK_LENGTH - 1));
+                call.assembleCall("move");
+                Benchmark.consume(call.disassembleCall().length());
+            }
+        }, WARMUPS, RUNS) / (2 * OPS);
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments
+     * @throws JMException
+     *             if the MBean cannot be read
+     */
+    public static void main(String[] args) throws JMException {
+        SimpleWriter out = new SimpleWriter1L();
+        KernelMetrics.setEnabled(false);
+        KernelMetrics.registerMBean();
+
+        double probe = Benchmark.nanosPerOp(() -> {
+            long sum = 0;
+            for (int i = 0; i < OPS; i++) {
+                long start = KernelMetrics.start();
+                KernelMetrics.stop(KernelMetrics.Operation.STATEMENT_KIND,
+                        start);
+                sum += start;
+            }
+            Benchmark.consume(sum);
+        }, WARMUPS, RUNS) / OPS;
+
+        Statement block = new Statement2();
+        Benchmark.fillBlock(block, BLOCK_LENGTH, 0);
+        Statement call = new Statement2();
+        double off = pairs(block, call);
+        KernelMetrics.setEnabled(true);
+        double on = pairs(block, call);
+        KernelMetrics.setEnabled(false);
+
+        out.println("disabled probe: " + String.format("%.2f", probe) + " ns");
+        out.println("operation pair, measuring off: "
+                + String.format("%.1f", off) + " ns");
+        out.println("operation pair, measuring on: "
+                + String.format("%.1f", on) + " ns");
+        out.println("share of the pair spent in disabled probes: "
+                + String.format("%.1f%%", 100 * 2 * probe / off));
+
+        KernelMetrics.reset();
+        KernelMetrics.setEnabled(true);
+        pairs(block, call);
+        KernelMetrics.setEnabled(false);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(KernelMetrics.MBEAN_NAME);
+        out.println("MBean " + name + " registered, Enabled = "
+                + server.getAttribute(name, "Enabled"));
+        for (KernelMetrics.Operation op : KernelMetrics.Operation.values()) {
+            long calls = KernelMetrics.calls(op);
+            if (calls > 0) {
+                out.println(op + ": " + calls + " calls, "
+                        + String.format("%.1f",
+                                (double) KernelMetrics.nanos(op) / calls)
+                        + " ns/call, "
+                        + String.format("%.1f",
+                                (double) KernelMetrics.allocatedBytes(op)
+                                        / calls)
+                        + " bytes/call");
+            }
+        }
+
+        out.close();
+    }
+
+}
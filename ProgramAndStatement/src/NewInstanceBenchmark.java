@@ -0,0 +1,109 @@
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+import components.statement.Statement;
+
+/**
+ * Compares reflective construction with the cached constructor handles of
+ * {@code InstanceFactory}, and measures the removeFromBlock throughput that
+ * depends on it.
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public final class NewInstanceBenchmark {
+
+    /**
+     * Number of operations per timed run.
+     */
+    private static final int OPS = 100_000;
+
+    /**
+     * Number of untimed runs.
+     */
+    private static final int WARMUPS = 20;
+
+    /**
+     * Number of timed runs.
+     */
+    private static final int RUNS = 20;
+
+    /**
+     * Length of the block edited by the removeFromBlock runs.
+     */
+    private static final int BLOCK_LENGTH = 100;
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private NewInstanceBenchmark() {
+    }
+
+    /**
+     * Constructs an object of the dynamic type of {@code s} the way
+     * {@code newInstance} used to, through reflection on every call.
+     *
+     * @param s
+     *            the object whose type to instantiate
+     * @return the new object
+     */
+    private static Object reflectiveNewInstance(Object s) {
+        try {
+            return s.getClass().getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(
+                    "Cannot construct object of type " + s.getClass());
+        }
+    }
+
+    /**
+     * Measures one implementation and reports the results.
+     *
+     * @param label
+     *            the name of the implementation
+     * @param block
+     *            an empty statement of the implementation
+     * @param out
+     *            the output stream
+     */
+    private static void measure(String label, Statement block,
+            SimpleWriter out) {
+        Benchmark.fillBlock(block, BLOCK_LENGTH, 0);
+        double reflective = Benchmark.nanosPerOp(() -> {
+            for (int i = 0; i < OPS; i++) {
+                Benchmark.consume(reflectiveNewInstance(block).hashCode());
+            }
+        }, WARMUPS, RUNS) / OPS;
+        double handle = Benchmark.nanosPerOp(() -> {
+            for (int i = 0; i < OPS; i++) {
+                Benchmark.consume(InstanceFactory
+                        .newInstanceOf(block.getClass()).hashCode());
+            }
+        }, WARMUPS, RUNS) / OPS;
+        double removeAdd = Benchmark.nanosPerOp(() -> {
+            for (int i = 0; i < OPS; i++) {
+                int pos = i % BLOCK_LENGTH;
+                block.addToBlock(pos, block.removeFromBlock(pos));
+            }
+        }, WARMUPS, RUNS) / OPS;
+
+        out.println(label + ": reflective construction "
+                + String.format("%.1f", reflective)
+                + " ns, handle construction " + String.format("%.1f", handle)
+                + " ns, removeFromBlock+addToBlock "
+                + String.format("%.1f", removeAdd) + " ns");
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments
+     */
+    public static void main(String[] args) {
+        SimpleWriter out = new SimpleWriter1L();
+        measure("Statement2", new Statement2(), out);
+        measure("Statement3", new Statement3(), out);
+        out.close();
+    }
+
+}
@@ -0,0 +1,113 @@
+import java.io.File;
+import java.io.IOException;
+
+import components.program.Program;
+import components.program.Program1;
+import components.simplereader.SimpleReader;
+import components.simplereader.SimpleReader1L;
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+
+/**
+ * Compares the streaming {@code BLParser} with the library
+ * {@code SimpleReader}/{@code Program.parse} path on synthetic BL programs.
+ * The first command-line argument, if any, is the size in megabytes of the
+ * large program (default 100); the library parser is only run on the small
+ * program, since it holds every token of its input as a string in a queue.
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public final class ParserBenchmark {
+
+    /**
+     * Bytes per megabyte.
+     */
+    private static final long MEGABYTE = 1L << 20;
+
+    /**
+     * Default size of the large program, in megabytes.
+     */
+    private static final int DEFAULT_SIZE_MB = 100;
+
+    /**
+     * Size of the program parsed by both parsers, in megabytes.
+     */
+    private static final int SMALL_SIZE_MB = 10;
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private ParserBenchmark() {
+    }
+
+    /**
+     * Reports the throughput of a parse of {@code file}.
+     *
+     * @param label
+     *            description of the parser
+     * @param file
+     *            the file parsed
+     * @param nanos
+     *            the time taken, in nanoseconds
+     * @param out
+     *            the output stream
+     */
+    private static void report(String label, File file, long nanos,
+            SimpleWriter out) {
+        double seconds = nanos / 1e9;
+        double megabytes = (double) file.length() / MEGABYTE;
+        out.println(label + ": " + String.format("%.1f", megabytes) + " MB in "
+                + String.format("%.2f", seconds) + " s ("
+                + String.format("%.1f", megabytes / seconds) + " MB/s)");
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments
+     * @throws IOException
+     *             if the scratch files cannot be written or read
+     */
+    public static void main(String[] args) throws IOException {
+        SimpleWriter out = new SimpleWriter1L();
+        int sizeMb = DEFAULT_SIZE_MB;
+        if (args.length > 0) {
+            sizeMb = Integer.parseInt(args[0]);
+        }
+
+        File small = File.createTempFile("parser-benchmark-small", ".bl");
+        File large = File.createTempFile("parser-benchmark-large", ".bl");
+        small.deleteOnExit();
+        large.deleteOnExit();
+        Benchmark.writeProgram(small.toPath(), SMALL_SIZE_MB * MEGABYTE);
+        Benchmark.writeProgram(large.toPath(), sizeMb * MEGABYTE);
+
+        long start = System.nanoTime();
+        Program ref = new Program1();
+        SimpleReader in = new SimpleReader1L(small.getPath());
+        ref.parse(in);
+        in.close();
+        report("SimpleReader1L + Program1.parse", small,
+                System.nanoTime() - start, out);
+
+        start = System.nanoTime();
+        Program test = new Program3();
+        BLParser.parse(test, small.toPath());
+        report("BLParser (mapped) into Program3", small,
+                System.nanoTime() - start, out);
+        out.println("  equal to library parse: " + test.equals(ref));
+        ref = null;
+        test = null;
+
+        start = System.nanoTime();
+        Program big = new Program3();
+        BLParser.parse(big, large.toPath());
+        report("BLParser (mapped) into Program3", large,
+                System.nanoTime() - start, out);
+
+        out.close();
+    }
+
+}
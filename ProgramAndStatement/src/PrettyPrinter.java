@@ -0,0 +1,500 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import components.map.Map;
+import components.program.Program;
+import components.statement.Statement;
+import components.statement.StatementKernel.Condition;
+
+/**
+ * Pretty-printer writing the same bytes as {@code prettyPrint} into a
+ * reusable byte buffer, which is either kept in memory or drained into a
+ * {@code WritableByteChannel} whenever it fills. Keywords, the lines
+ * opening IF and WHILE statements for each condition, and the indentation
+ * are precomputed byte arrays, and instruction names are copied character by
+ * character, so printing builds no strings; the only objects allocated are
+ * those the kernel methods of the program and statements allocate while
+ * being walked. The scratch statements and context the walk needs are kept
+ * between calls.
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public final class PrettyPrinter {
+
+    /**
+     * Number of spaces by which nested statements are indented.
+     */
+    private static final int INDENT_SIZE = 4;
+
+    /**
+     * Capacity of the buffer of a printer writing to a channel, and initial
+     * capacity of the buffer of an in-memory printer.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Spaces from which indentation is copied; deeper indentation is copied
+     * in several pieces.
+     */
+    private static final byte[] SPACES = new byte[64 * INDENT_SIZE];
+
+    /**
+     * The line separator.
+     */
+    private static final byte[] NEWLINE = ascii(System.lineSeparator());
+
+    /**
+     * "IF c THEN" for each condition c, indexed by ordinal.
+     */
+    private static final byte[][] IF_LINES;
+
+    /**
+     * "WHILE c DO" for each condition c, indexed by ordinal.
+     */
+    private static final byte[][] WHILE_LINES;
+
+    /**
+     * The ELSE line.
+     */
+    private static final byte[] ELSE = ascii("ELSE");
+
+    /**
+     * The line closing an IF.
+     */
+    private static final byte[] END_IF = ascii("END IF");
+
+    /**
+     * The line closing a WHILE.
+     */
+    private static final byte[] END_WHILE = ascii("END WHILE");
+
+    /**
+     * Start of the line opening the program.
+     */
+    private static final byte[] PROGRAM = ascii("PROGRAM ");
+
+    /**
+     * End of the lines opening the program and its instructions.
+     */
+    private static final byte[] IS = ascii(" IS");
+
+    /**
+     * Start of the line opening an instruction.
+     */
+    private static final byte[] INSTRUCTION = ascii("INSTRUCTION ");
+
+    /**
+     * The line opening the main body.
+     */
+    private static final byte[] BEGIN = ascii("BEGIN");
+
+    /**
+     * Start of the lines closing the program and its instructions.
+     */
+    private static final byte[] END = ascii("END ");
+
+    static {
+        Arrays.fill(SPACES, (byte) ' ');
+        Condition[] conditions = Condition.values();
+        IF_LINES = new byte[conditions.length][];
+        WHILE_LINES = new byte[conditions.length][];
+        for (Condition c : conditions) {
+            String name = c.name().toLowerCase().replace('_', '-');
+            IF_LINES[c.ordinal()] = ascii("IF " + name + " THEN");
+            WHILE_LINES[c.ordinal()] = ascii("WHILE " + name + " DO");
+        }
+    }
+
+    /**
+     * The buffer; bytes 0 through {@code length - 1} have been printed and
+     * not drained yet.
+     */
+    private byte[] buffer = new byte[BUFFER_SIZE];
+
+    /**
+     * Number of bytes in the buffer.
+     */
+    private int length;
+
+    /**
+     * The channel the buffer is drained into, or null for an in-memory
+     * printer.
+     */
+    private final WritableByteChannel channel;
+
+    /**
+     * View of the buffer written to the channel.
+     */
+    private ByteBuffer view;
+
+    /**
+     * Scratch statements for the BLOCKs of the IF, IF_ELSE and WHILE
+     * statements being printed, indexed by nesting depth.
+     */
+    private Statement[] firsts = new Statement[0];
+
+    /**
+     * Scratch statements for the ELSE BLOCKs of the IF_ELSE statements being
+     * printed, indexed by nesting depth.
+     */
+    private Statement[] seconds = new Statement[0];
+
+    /**
+     * Implementation of the last program printed.
+     */
+    private Class<?> programClass;
+
+    /**
+     * Scratch context for printing programs.
+     */
+    private Map<String, Statement> context;
+
+    /**
+     * Scratch body for printing programs.
+     */
+    private Statement body;
+
+    /**
+     * Constructor of an in-memory printer, whose buffer grows as needed.
+     */
+    public PrettyPrinter() {
+        this.channel = null;
+    }
+
+    /**
+     * Constructor of a printer draining its buffer into {@code channel}.
+     *
+     * @param channel
+     *            the channel
+     */
+    public PrettyPrinter(WritableByteChannel channel) {
+        assert channel != null : "Violation of: channel is not null";
+
+        this.channel = channel;
+        this.view = ByteBuffer.wrap(this.buffer);
+    }
+
+    /**
+     * Returns the ASCII bytes of {@code s}.
+     *
+     * @param s
+     *            the string
+     * @return its bytes
+     */
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Makes room for {@code n} more bytes in the buffer, draining it into
+     * the channel or growing it.
+     *
+     * @param n
+     *            the number of bytes
+     * @throws IOException
+     *             if writing to the channel fails
+     */
+    private void reserve(int n) throws IOException {
+        if (this.length + n > this.buffer.length) {
+            if (this.channel != null) {
+                this.flush();
+            }
+            if (n > this.buffer.length - this.length) {
+                this.buffer = Arrays.copyOf(this.buffer,
+                        Math.max(this.length + n, 2 * this.buffer.length));
+                if (this.channel != null) {
+                    this.view = ByteBuffer.wrap(this.buffer);
+                }
+            }
+        }
+    }
+
+    /**
+     * Appends {@code bytes} to the buffer.
+     *
+     * @param bytes
+     *            the bytes
+     * @throws IOException
+     *             if writing to the channel fails
+     */
+    private void write(byte[] bytes) throws IOException {
+        this.reserve(bytes.length);
+        System.arraycopy(bytes, 0, this.buffer, this.length, bytes.length);
+        this.length += bytes.length;
+    }
+
+    /**
+     * Appends the ASCII characters of {@code s} to the buffer.
+     *
+     * @param s
+     *            the string
+     * @throws IOException
+     *             if writing to the channel fails
+     */
+    private void write(String s) throws IOException {
+        int n = s.length();
+        this.reserve(n);
+        for (int i = 0; i < n; i++) {
+            this.buffer[this.length + i] = (byte) s.charAt(i);
+        }
+        this.length += n;
+    }
+
+    /**
+     * Appends {@code n} spaces to the buffer.
+     *
+     * @param n
+     *            the number of spaces
+     * @throws IOException
+     *             if writing to the channel fails
+     */
+    private void indent(int n) throws IOException {
+        this.reserve(n);
+        int left = n;
+        while (left > 0) {
+            int k = Math.min(left, SPACES.length);
+            System.arraycopy(SPACES, 0, this.buffer, this.length, k);
+            this.length += k;
+            left -= k;
+        }
+    }
+
+    /**
+     * Appends {@code line}, indented by {@code offset}, and a line separator
+     * to the buffer.
+     *
+     * @param offset
+     *            the number of spaces to indent
+     * @param line
+     *            the line
+     * @throws IOException
+     *             if writing to the channel fails
+     */
+    private void line(int offset, byte[] line) throws IOException {
+        this.indent(offset);
+        this.write(line);
+        this.write(NEWLINE);
+    }
+
+    /**
+     * Returns the scratch statement of {@code scratch} for depth
+     * {@code depth}, of the dynamic type of {@code s}.
+     *
+     * @param scratch
+     *            the scratch statements
+     * @param depth
+     *            the nesting depth
+     * @param s
+     *            a statement of the type needed
+     * @return the scratch statement
+     */
+    private static Statement scratch(Statement[] scratch, int depth,
+            Statement s) {
+        if (scratch[depth] == null
+                || scratch[depth].getClass() != s.getClass()) {
+            scratch[depth] = s.newInstance();
+        }
+        return scratch[depth];
+    }
+
+    /**
+     * Prints {@code s} at nesting depth {@code depth}.
+     *
+     * @param s
+     *            the statement
+     * @param offset
+     *            the number of spaces to indent
+     * @param depth
+     *            the number of IF, IF_ELSE and WHILE statements around
+     *            {@code s}
+     * @throws IOException
+     *             if writing to the channel fails
+     */
+    private void print(Statement s, int offset, int depth)
+            throws IOException {
+        if (depth == this.firsts.length) {
+            this.firsts = Arrays.copyOf(this.firsts, 2 * depth + 1);
+            this.seconds = Arrays.copyOf(this.seconds, 2 * depth + 1);
+        }
+        switch (s.kind()) {
+            case BLOCK: {
+                int n = s.lengthOfBlock();
+                for (int i = 0; i < n; i++) {
+                    Statement child = s.removeFromBlock(i);
+                    this.print(child, offset, depth);
+                    s.addToBlock(i, child);
+                }
+                break;
+            }
+            case IF: {
+                Statement block = scratch(this.firsts, depth, s);
+                Condition c = s.disassembleIf(block);
+                this.line(offset, IF_LINES[c.ordinal()]);
+                this.print(block, offset + INDENT_SIZE, depth + 1);
+                this.line(offset, END_IF);
+                s.assembleIf(c, block);
+                break;
+            }
+            case IF_ELSE: {
+                Statement block = scratch(this.firsts, depth, s);
+                Statement elseBlock = scratch(this.seconds, depth, s);
+                Condition c = s.disassembleIfElse(block, elseBlock);
+                this.line(offset, IF_LINES[c.ordinal()]);
+                this.print(block, offset + INDENT_SIZE, depth + 1);
+                this.line(offset, ELSE);
+                this.print(elseBlock, offset + INDENT_SIZE, depth + 1);
+                this.line(offset, END_IF);
+                s.assembleIfElse(c, block, elseBlock);
+                break;
+            }
+            case WHILE: {
+                Statement block = scratch(this.firsts, depth, s);
+                Condition c = s.disassembleWhile(block);
+                this.line(offset, WHILE_LINES[c.ordinal()]);
+                this.print(block, offset + INDENT_SIZE, depth + 1);
+                this.line(offset, END_WHILE);
+                s.assembleWhile(c, block);
+                break;
+            }
+            default: {
+                String instruction = s.disassembleCall();
+                this.indent(offset);
+                this.write(instruction);
+                this.write(NEWLINE);
+                s.assembleCall(instruction);
+                break;
+            }
+        }
+    }
+
+    /**
+     * Prints {@code s} as {@code s.prettyPrint(out, offset)} would.
+     *
+     * @param s
+     *            the statement
+     * @param offset
+     *            the number of spaces to indent
+     * @throws IOException
+     *             if writing to the channel fails
+     * @restores s
+     * @requires 0 <= offset
+     * @ensures <pre>
+     * [the buffer or channel holds, after what it held before, the
+     *  bytes s.prettyPrint(out, offset) writes to out]
+     * </pre>
+     */
+    public void print(Statement s, int offset) throws IOException {
+        assert s != null : "Violation of: s is not null";
+        assert 0 <= offset : "Violation of: 0 <= offset";
+
+        this.print(s, offset, 0);
+    }
+
+    /**
+     * Prints {@code p} as {@code p.prettyPrint(out)} would.
+     *
+     * @param p
+     *            the program
+     * @throws IOException
+     *             if writing to the channel fails
+     * @restores p
+     * @ensures <pre>
+     * [the buffer or channel holds, after what it held before, the
+     *  bytes p.prettyPrint(out) writes to out]
+     * </pre>
+     */
+    public void print(Program p) throws IOException {
+        assert p != null : "Violation of: p is not null";
+
+        String name = p.name();
+        this.write(PROGRAM);
+        this.write(name);
+        this.write(IS);
+        this.write(NEWLINE);
+        this.write(NEWLINE);
+
+        if (p.getClass() != this.programClass) {
+            this.programClass = p.getClass();
+            this.context = p.newContext();
+            this.body = p.newBody();
+        }
+        p.swapContext(this.context);
+        for (Map.Pair<String, Statement> instruction : this.context) {
+            this.indent(INDENT_SIZE);
+            this.write(INSTRUCTION);
+            this.write(instruction.key());
+            this.write(IS);
+            this.write(NEWLINE);
+            this.print(instruction.value(), 2 * INDENT_SIZE, 0);
+            this.indent(INDENT_SIZE);
+            this.write(END);
+            this.write(instruction.key());
+            this.write(NEWLINE);
+            this.write(NEWLINE);
+        }
+        p.swapContext(this.context);
+
+        p.swapBody(this.body);
+        this.line(0, BEGIN);
+        this.print(this.body, INDENT_SIZE, 0);
+        p.swapBody(this.body);
+        this.write(END);
+        this.write(name);
+        this.write(NEWLINE);
+    }
+
+    /**
+     * Writes the buffer to the channel and empties it; does nothing for an
+     * in-memory printer.
+     *
+     * @throws IOException
+     *             if writing to the channel fails
+     */
+    public void flush() throws IOException {
+        if (this.channel != null) {
+            this.view.clear().limit(this.length);
+            while (this.view.hasRemaining()) {
+                this.channel.write(this.view);
+            }
+            this.length = 0;
+        }
+    }
+
+    /**
+     * Reports the number of bytes in the buffer.
+     *
+     * @return the number of bytes
+     */
+    public int length() {
+        return this.length;
+    }
+
+    /**
+     * Reports the buffer, whose first {@code length()} bytes are the bytes
+     * printed and not yet drained; it is reused by later calls.
+     *
+     * @return the buffer
+     * @aliases reference returned by buffer
+     */
+    public byte[] buffer() {
+        return this.buffer;
+    }
+
+    /**
+     * Empties the buffer without draining it, so the printer can be reused.
+     */
+    public void clear() {
+        this.length = 0;
+    }
+
+    @Override
+    public String toString() {
+        return new String(this.buffer, 0, this.length,
+                StandardCharsets.US_ASCII);
+    }
+
+}
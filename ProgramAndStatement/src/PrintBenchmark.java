@@ -0,0 +1,146 @@
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import components.program.Program;
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+
+/**
+ * Compares {@code prettyPrint} through a {@code SimpleWriter} with
+ * {@code PrettyPrinter} writing to a file channel and to its in-memory
+ * buffer, on a synthetic Program2: time and bytes allocated per dump of the
+ * whole program.
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public final class PrintBenchmark {
+
+    /**
+     * Minimum size of the synthetic program, in bytes.
+     */
+    private static final int PROGRAM_SIZE = 256 * 1024;
+
+    /**
+     * Number of untimed dumps.
+     */
+    private static final int WARMUPS = 20;
+
+    /**
+     * Number of timed dumps.
+     */
+    private static final int RUNS = 50;
+
+    /**
+     * The JVM's thread management interface, which has per-thread allocation
+     * counters.
+     */
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory
+                    .getThreadMXBean();
+
+    /**
+     * A dump that may fail with {@code IOException}.
+     */
+    private interface Dump {
+
+        /**
+         * Dumps the program once.
+         *
+         * @throws IOException
+         *             if writing fails
+         */
+        void run() throws IOException;
+
+    }
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private PrintBenchmark() {
+    }
+
+    /**
+     * Returns the bytes allocated so far by the current thread.
+     *
+     * @return the allocated bytes
+     */
+    private static long allocatedBytes() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Times {@code dump} and prints the time and allocation per dump.
+     *
+     * @param label
+     *            the name of the dump
+     * @param dump
+     *            the dump
+     * @param out
+     *            the output stream
+     * @throws IOException
+     *             if writing fails
+     */
+    private static void measure(String label, Dump dump, SimpleWriter out)
+            throws IOException {
+        for (int i = 0; i < WARMUPS; i++) {
+            dump.run();
+        }
+        long bytes = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            dump.run();
+        }
+        long nanos = System.nanoTime() - start;
+        bytes = allocatedBytes() - bytes;
+        out.println(label + ": " + String.format("%.2f", nanos / 1e6 / RUNS)
+                + " ms, " + (bytes / RUNS / 1024) + " KiB allocated per dump");
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments
+     * @throws IOException
+     *             if the scratch files cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        SimpleWriter out = new SimpleWriter1L();
+        File source = File.createTempFile("print-benchmark", ".bl");
+        source.deleteOnExit();
+        Benchmark.writeProgram(source.toPath(), PROGRAM_SIZE);
+        Program p = new Program2();
+        BLParser.parse(p, source.toPath());
+        File sink = File.createTempFile("print-benchmark", ".bl");
+        sink.deleteOnExit();
+        Path sinkPath = sink.toPath();
+
+        measure("prettyPrint to SimpleWriter1L", () -> {
+            SimpleWriter file = new SimpleWriter1L(sink.getPath());
+            p.prettyPrint(file);
+            file.close();
+        }, out);
+        try (FileChannel channel = FileChannel.open(sinkPath,
+                StandardOpenOption.WRITE)) {
+            PrettyPrinter printer = new PrettyPrinter(channel);
+            measure("PrettyPrinter to FileChannel", () -> {
+                channel.position(0);
+                printer.print(p);
+                printer.flush();
+            }, out);
+        }
+        PrettyPrinter printer = new PrettyPrinter();
+        measure("PrettyPrinter to its buffer", () -> {
+            printer.clear();
+            printer.print(p);
+        }, out);
+
+        out.close();
+    }
+
+}
@@ -131,12 +131,7 @@ public class Program2 extends ProgramSecondary {
 
     @Override
     public final Program newInstance() {
-        try {
-            return this.getClass().getConstructor().newInstance();
-        } catch (ReflectiveOperationException e) {
-            throw new AssertionError(
-                    "Cannot construct object of type " + this.getClass());
-        }
+        return InstanceFactory.newInstanceOf(this.getClass());
     }
 
     @Override
@@ -171,20 +166,26 @@ public class Program2 extends ProgramSecondary {
         assert Tokenizer.isIdentifier(n) : ""
                 + "Violation of: n is a valid IDENTIFIER";
 
+        long start = KernelMetrics.start();
         this.name = n;
+        KernelMetrics.stop(KernelMetrics.Operation.PROGRAM_SET_NAME, start);
     }
 
     @Override
     public final String name() {
-
-        return this.name;
+        long start = KernelMetrics.start();
+        String result = this.name;
+        KernelMetrics.stop(KernelMetrics.Operation.PROGRAM_NAME, start);
+        return result;
 
     }
 
     @Override
     public final Map<String, Statement> newContext() {
-
-        return this.context.newInstance();
+        long start = KernelMetrics.start();
+        Map<String, Statement> result = this.context.newInstance();
+        KernelMetrics.stop(KernelMetrics.Operation.PROGRAM_NEW_CONTEXT, start);
+        return result;
 
     }
 
@@ -200,17 +201,22 @@ public class Program2 extends ProgramSecondary {
         assert allBlocks(c) : "Violation of: bodies in c"
                 + " are all BLOCK statements";
 
+        long start = KernelMetrics.start();
         Map<String, Statement> tempContext = this.newContext();
         tempContext.transferFrom(this.context);
         this.context.transferFrom(c);
         c.transferFrom(tempContext);
+        KernelMetrics.stop(KernelMetrics.Operation.PROGRAM_SWAP_CONTEXT,
+                start);
 
     }
 
     @Override
     public final Statement newBody() {
-
-        return this.body.newInstance();
+        long start = KernelMetrics.start();
+        Statement result = this.body.newInstance();
+        KernelMetrics.stop(KernelMetrics.Operation.PROGRAM_NEW_BODY, start);
+        return result;
 
     }
 
@@ -220,10 +226,12 @@ public class Program2 extends ProgramSecondary {
         assert b instanceof Statement1 : "Violation of: b is a Statement1";
         assert b.kind() == Kind.BLOCK : "Violation of: b is a BLOCK statement";
 
+        long start = KernelMetrics.start();
         Statement tempBody = this.newBody();
         tempBody.transferFrom(this.body);
         this.body.transferFrom(b);
         b.transferFrom(tempBody);
+        KernelMetrics.stop(KernelMetrics.Operation.PROGRAM_SWAP_BODY, start);
 
     }
 
@@ -0,0 +1,164 @@
+import components.map.Map;
+import components.program.Program;
+import components.program.ProgramSecondary;
+import components.statement.Statement;
+import components.statement.StatementKernel.Kind;
+import components.utilities.Tokenizer;
+
+/**
+ * {@code Program} represented with a hash-based {@code ContextMap} context and
+ * an array-based {@code Statement3} body, with implementations of primary
+ * methods. Context lookups take constant expected time, and the CONTEXT checks
+ * on names in {@code swapContext} read the violation record the map keeps as
+ * entries are added, instead of iterating over the whole context; the bodies,
+ * which may have changed since they were added, are checked one by one.
+ *
+ * @convention [$this.name is an IDENTIFIER] and [$this.context is a CONTEXT]
+ *             and [$this.body is a BLOCK statement]
+ * @correspondence this = ($this.name, $this.context, $this.body)
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public class Program3 extends ProgramSecondary {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * The program name.
+     */
+    private String name;
+
+    /**
+     * The program context.
+     */
+    private ContextMap context;
+
+    /**
+     * The program body.
+     */
+    private Statement3 body;
+
+    /**
+     * Creator of initial representation.
+     */
+    private void createNewRep() {
+
+        this.body = new Statement3();
+        this.context = new ContextMap();
+        this.name = "Unnamed";
+
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public Program3() {
+        this.createNewRep();
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @Override
+    public final Program newInstance() {
+        return InstanceFactory.newInstanceOf(this.getClass());
+    }
+
+    @Override
+    public final void clear() {
+        this.createNewRep();
+    }
+
+    @Override
+    public final void transferFrom(Program source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof Program3 : ""
+                + "Violation of: source is of dynamic type Program3";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case: source must be of dynamic type Program3.
+         */
+        Program3 localSource = (Program3) source;
+        this.name = localSource.name;
+        this.context = localSource.context;
+        this.body = localSource.body;
+        localSource.createNewRep();
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final void setName(String n) {
+        assert n != null : "Violation of: n is not null";
+        assert Tokenizer.isIdentifier(n) : ""
+                + "Violation of: n is a valid IDENTIFIER";
+
+        this.name = n;
+    }
+
+    @Override
+    public final String name() {
+
+        return this.name;
+
+    }
+
+    @Override
+    public final Map<String, Statement> newContext() {
+
+        return this.context.newInstance();
+
+    }
+
+    @Override
+    public final void swapContext(Map<String, Statement> c) {
+        assert c != null : "Violation of: c is not null";
+        assert c instanceof ContextMap : "Violation of: c is a ContextMap";
+        ContextMap localC = (ContextMap) c;
+        assert localC.allIdentifiers() : ""
+                + "Violation of: names in c are valid IDENTIFIERs";
+        assert localC.noPrimitiveInstructions() : ""
+                + "Violation of: names in c do not match the names"
+                + " of primitive instructions in the BL language";
+        assert localC.allBlocks() : "Violation of: bodies in c"
+                + " are all BLOCK statements";
+
+        ContextMap tempContext = this.context.newInstance();
+        tempContext.transferFrom(this.context);
+        this.context.transferFrom(localC);
+        localC.transferFrom(tempContext);
+
+    }
+
+    @Override
+    public final Statement newBody() {
+
+        return this.body.newInstance();
+
+    }
+
+    @Override
+    public final void swapBody(Statement b) {
+        assert b != null : "Violation of: b is not null";
+        assert b instanceof Statement3 : "Violation of: b is a Statement3";
+        assert b.kind() == Kind.BLOCK : "Violation of: b is a BLOCK statement";
+
+        Statement3 tempBody = this.body.newInstance();
+        tempBody.transferFrom(this.body);
+        this.body.transferFrom(b);
+        b.transferFrom(tempBody);
+
+    }
+
+}
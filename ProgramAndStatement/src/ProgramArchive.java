@@ -0,0 +1,255 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+
+import components.program.Program;
+
+/**
+ * Memory-mapped archive of BL programs in the binary encoding of
+ * {@code BLBinaryWriter}. Opening an archive maps the file and reads its
+ * fixed-size header, so it takes constant time whatever the number of
+ * programs; a program's directory is read the first time the program is
+ * asked for, and its bodies the first time each of them is asked for, so the
+ * memory in use grows only with what is actually used. An archive file is
+ * laid out as follows, with integers big-endian:
+ *
+ * <pre>
+ * archive = MAGIC:int32 VERSION:u8 count:int32 index:int64 encoding* entry*
+ * entry   = offset:int64 length:int32
+ * </pre>
+ *
+ * where {@code index} is the offset of the {@code count} entries, and entry
+ * {@code i} locates the encoding of program {@code i}. Archives are limited
+ * to what can be mapped in one piece (2 GB). An archive is not safe for use
+ * by concurrent threads.
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public final class ProgramArchive {
+
+    /**
+     * First four bytes of every archive ("BLAR").
+     */
+    public static final int MAGIC = 0x424C4152;
+
+    /**
+     * Version of the archive layout written by this class.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Size of the header, in bytes.
+     */
+    private static final int HEADER_SIZE = 4 + 1 + 4 + 8;
+
+    /**
+     * Size of an index entry, in bytes.
+     */
+    private static final int ENTRY_SIZE = 8 + 4;
+
+    /**
+     * Offset of the program count in the header.
+     */
+    private static final int COUNT_OFFSET = 5;
+
+    /**
+     * Offset of the index offset in the header.
+     */
+    private static final int INDEX_OFFSET = 9;
+
+    /**
+     * The mapped archive.
+     */
+    private final ByteBuffer archive;
+
+    /**
+     * Program whose {@code newBody} supplies empty statements.
+     */
+    private final Program prototype;
+
+    /**
+     * Number of programs in the archive.
+     */
+    private final int count;
+
+    /**
+     * Offset of the index.
+     */
+    private final long index;
+
+    /**
+     * Views of the programs asked for so far, by position.
+     */
+    private final HashMap<Integer, ArchivedProgram> opened;
+
+    /**
+     * Constructor.
+     *
+     * @param archive
+     *            the mapped archive
+     * @param prototype
+     *            program whose {@code newBody} supplies empty statements
+     */
+    private ProgramArchive(ByteBuffer archive, Program prototype) {
+        this.archive = archive;
+        this.prototype = prototype;
+        if (archive.capacity() < HEADER_SIZE
+                || archive.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("not a BL program archive");
+        }
+        int version = archive.get(4);
+        if (version != VERSION) {
+            throw new IllegalArgumentException(
+                    "unsupported BL program archive version " + version);
+        }
+        this.count = archive.getInt(COUNT_OFFSET);
+        this.index = archive.getLong(INDEX_OFFSET);
+        if (this.count < 0 || this.index < HEADER_SIZE || this.index
+                + (long) this.count * ENTRY_SIZE > archive.capacity()) {
+            throw new IllegalArgumentException(
+                    "malformed BL program archive: bad index");
+        }
+        this.opened = new HashMap<>();
+    }
+
+    /**
+     * Opens the archive in {@code file}. Statements returned by the archive
+     * are of the dynamic type returned by {@code prototype.newBody()}.
+     *
+     * @param file
+     *            the archive file
+     * @param prototype
+     *            program whose {@code newBody} supplies empty statements
+     * @return the archive
+     * @throws IOException
+     *             if the file cannot be read or mapped
+     * @ensures open = [the archive in file]
+     */
+    public static ProgramArchive open(Path file, Program prototype)
+            throws IOException {
+        assert file != null : "Violation of: file is not null";
+        assert prototype != null : "Violation of: prototype is not null";
+
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("archive too large to map: " + file);
+            }
+            /*
+             * The mapping stays valid after the channel is closed.
+             */
+            MappedByteBuffer mapped = channel
+                    .map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return new ProgramArchive(mapped, prototype);
+        }
+    }
+
+    /**
+     * Writes an archive of {@code programs}, in iteration order, to
+     * {@code file}.
+     *
+     * @param file
+     *            the archive file to create or replace
+     * @param programs
+     *            the programs to archive
+     * @throws IOException
+     *             if the file cannot be written
+     * @throws IllegalArgumentException
+     *             if a body of one of {@code programs} nests nodes more than
+     *             {@code BLBinaryWriter.MAX_DEPTH} deep
+     * @restores programs
+     * @ensures [file holds the archive of programs]
+     */
+    public static void write(Path file, Iterable<? extends Program> programs)
+            throws IOException {
+        assert file != null : "Violation of: file is not null";
+        assert programs != null : "Violation of: programs is not null";
+
+        try (FileChannel out = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer entries = ByteBuffer.allocate(ENTRY_SIZE * 2);
+            long position = HEADER_SIZE;
+            int n = 0;
+            out.position(position);
+            for (Program p : programs) {
+                ByteBuffer encoding = ByteBuffer
+                        .wrap(BLBinaryWriter.toBytes(p));
+                if (entries.remaining() < ENTRY_SIZE) {
+                    ByteBuffer larger = ByteBuffer
+                            .allocate(2 * entries.capacity());
+                    entries.flip();
+                    larger.put(entries);
+                    entries = larger;
+                }
+                entries.putLong(position);
+                entries.putInt(encoding.remaining());
+                position += encoding.remaining();
+                while (encoding.hasRemaining()) {
+                    out.write(encoding);
+                }
+                n++;
+            }
+            entries.flip();
+            while (entries.hasRemaining()) {
+                out.write(entries);
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).put((byte) VERSION).putInt(n)
+                    .putLong(position).flip();
+            while (header.hasRemaining()) {
+                out.write(header, header.position());
+            }
+        }
+    }
+
+    /**
+     * Reports the number of programs in this archive.
+     *
+     * @return the number of programs
+     */
+    public int size() {
+        return this.count;
+    }
+
+    /**
+     * Returns a view of program {@code i} of this archive, reading its
+     * directory if this is the first time it is asked for.
+     *
+     * @param i
+     *            the position of the program
+     * @return the view of the program
+     * @aliases reference returned by program
+     * @requires 0 <= i < size()
+     * @ensures program = [view of program i of this archive]
+     */
+    public ArchivedProgram program(int i) {
+        assert 0 <= i : "Violation of: 0 <= i";
+        assert i < this.size() : "Violation of: i < size()";
+
+        ArchivedProgram result = this.opened.get(i);
+        if (result == null) {
+            int entry = (int) (this.index + (long) i * ENTRY_SIZE);
+            long offset = this.archive.getLong(entry);
+            int length = this.archive.getInt(entry + Long.BYTES);
+            if (offset < HEADER_SIZE || offset + length > this.index
+                    || length < 0) {
+                throw new IllegalArgumentException(
+                        "malformed BL program archive: bad entry " + i);
+            }
+            ByteBuffer encoding = this.archive.duplicate();
+            encoding.position((int) offset);
+            encoding.limit((int) offset + length);
+            result = new ArchivedProgram(encoding.slice(), this.prototype);
+            this.opened.put(i, result);
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,680 @@
+import java.io.ByteArrayOutputStream;
+import java.lang.invoke.MethodHandles;
+import java.util.HashMap;
+import java.util.Map;
+
+import components.program.Program;
+
+/**
+ * Compiles the bytecode produced by {@code Program.generatedCode()} into a
+ * JVM class, loaded as a hidden class, whose {@code run} method is a
+ * resumable state machine: a {@code tableswitch} on the program counter jumps
+ * into straight-line code with one label per BL instruction, where jumps
+ * become {@code goto}s and conditional jumps calls of the sensor. HotSpot
+ * then compiles each program like any other method, with no interpreter
+ * dispatch between BL instructions. Results are exactly those of
+ * {@code BytecodeVM.run}, step counts included.
+ *
+ * <p>
+ * The class file is written by hand, in version 49 so that it needs no stack
+ * map frames. Compiling pays only for small programs: past about
+ * {@code MAX_COMPILED_LENGTH} ints of code, each turn still runs only a few
+ * instructions, and entering the larger method costs more than the dispatch
+ * it saves, so {@code CompilerBenchmark} measures compiled code slower than
+ * {@code BytecodeVM}. Larger code, or a JVM that cannot define hidden
+ * classes, gets a {@code CompiledProgram} that runs {@code BytecodeVM}
+ * instead.
+ * </p>
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public final class ProgramCompiler {
+
+    /**
+     * Lookup in whose package the hidden classes are defined.
+     */
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    /**
+     * Largest code, in ints, that is compiled. On {@code CompilerBenchmark}
+     * synthetic programs, compiled code runs 1.1 times as many turns as
+     * {@code BytecodeVM} at 63 ints but only 0.95 times at 76, 0.85 at 134
+     * and 0.35 at 2,247; well below HotSpot's limit of 8,000 bytes for a
+     * method it compiles.
+     */
+    private static final int MAX_COMPILED_LENGTH = 64;
+
+    /**
+     * Class file magic number.
+     */
+    private static final int MAGIC = 0xCAFEBABE;
+
+    /**
+     * Class file major version: Java 5, the last without stack map frames.
+     */
+    private static final int VERSION = 49;
+
+    /**
+     * Access flags of the class: public, final, super.
+     */
+    private static final int CLASS_FLAGS = 0x0031;
+
+    /**
+     * Access flags of the methods: public.
+     */
+    private static final int METHOD_FLAGS = 0x0001;
+
+    /**
+     * Constant pool tags.
+     */
+    private static final int UTF8 = 1, LONG = 5, CLASS = 7, METHODREF = 10,
+            INTERFACE_METHODREF = 11, NAME_AND_TYPE = 12;
+
+    /**
+     * Largest number of constant pool slots.
+     */
+    private static final int MAX_POOL_SLOTS = 0xFFFF;
+
+    /**
+     * JVM opcodes.
+     */
+    private static final int ICONST_0 = 0x03, BIPUSH = 0x10, LDC2_W = 0x14,
+            ILOAD = 0x15, ILOAD_1 = 0x1B, ILOAD_3 = 0x1D, ALOAD_0 = 0x2A,
+            ALOAD_2 = 0x2C, ISTORE = 0x36, LSHL = 0x79, LOR = 0x81,
+            IINC = 0x84, I2L = 0x85, IFEQ = 0x99, IF_ICMPLT = 0xA1,
+            GOTO = 0xA7, TABLESWITCH = 0xAA, LRETURN = 0xAD, RETURN = 0xB1,
+            INVOKESPECIAL = 0xB7, INVOKEINTERFACE = 0xB9;
+
+    /**
+     * Local variable holding the step count, after the program counter, the
+     * sensor and the step limit.
+     */
+    private static final int STEPS = 4;
+
+    /**
+     * Maximum operand stack depth, and number of locals, of {@code run}.
+     */
+    private static final int MAX_STACK = 6, MAX_LOCALS = 5;
+
+    /**
+     * Lengths in bytes of a branch, of the code returning a result, and of
+     * the fixed part of a {@code Code} attribute.
+     */
+    private static final int BRANCH_LENGTH = 3, RETURN_LENGTH = 11,
+            CODE_HEADER_LENGTH = 12;
+
+    /**
+     * Length in bytes of a {@code tableswitch} entry.
+     */
+    private static final int ENTRY_LENGTH = 4;
+
+    /**
+     * Position of the step count in a result.
+     */
+    private static final int STEPS_SHIFT = 8;
+
+    /**
+     * Position of the program counter in a result.
+     */
+    private static final int PC_SHIFT = 32;
+
+    /**
+     * Label of an address that is not that of an instruction.
+     */
+    private static final int INVALID = -1;
+
+    /**
+     * Name of the compiled class, and descriptor of {@code run}.
+     */
+    private static final String CLASS_NAME = "CompiledBL",
+            RUN_DESCRIPTOR = "(ILWorldSensor;I)J";
+
+    /**
+     * The {@code CompiledProgram} running {@code BytecodeVM}.
+     */
+    private static final class Interpreted implements CompiledProgram {
+
+        /**
+         * The code.
+         */
+        private final int[] code;
+
+        /**
+         * Constructor.
+         *
+         * @param code
+         *            the code
+         */
+        Interpreted(int[] code) {
+            this.code = code;
+        }
+
+        @Override
+        public long run(int pc, WorldSensor sensor, int stepLimit) {
+            return BytecodeVM.run(this.code, pc, sensor, stepLimit);
+        }
+
+    }
+
+    /**
+     * Growable byte array with big-endian writes.
+     */
+    private static class Bytes extends ByteArrayOutputStream {
+
+        /**
+         * Appends a 16-bit value.
+         *
+         * @param v
+         *            the value
+         */
+        void u2(int v) {
+            this.write(v >>> 8);
+            this.write(v);
+        }
+
+        /**
+         * Appends a 32-bit value.
+         *
+         * @param v
+         *            the value
+         */
+        void u4(int v) {
+            this.u2(v >>> 16);
+            this.u2(v);
+        }
+
+        /**
+         * Overwrites the 16-bit value at {@code at}.
+         *
+         * @param at
+         *            the position
+         * @param v
+         *            the value
+         */
+        void patch2(int at, int v) {
+            this.buf[at] = (byte) (v >>> 8);
+            this.buf[at + 1] = (byte) v;
+        }
+
+        /**
+         * Overwrites the 32-bit value at {@code at}.
+         *
+         * @param at
+         *            the position
+         * @param v
+         *            the value
+         */
+        void patch4(int at, int v) {
+            this.patch2(at, v >>> 16);
+            this.patch2(at + 2, v);
+        }
+
+    }
+
+    /**
+     * Constant pool under construction.
+     */
+    private static final class Pool extends Bytes {
+
+        /**
+         * Index of the next entry.
+         */
+        private int next = 1;
+
+        /**
+         * Indices of the long constants in the pool.
+         */
+        private final Map<Long, Integer> longs = new HashMap<>();
+
+        /**
+         * Returns the number of slots, plus one, as in a class file.
+         *
+         * @return the constant pool count
+         */
+        int count() {
+            return this.next;
+        }
+
+        /**
+         * Adds a UTF8 entry for {@code s}, which is ASCII.
+         *
+         * @param s
+         *            the string
+         * @return the index of the entry
+         */
+        int utf8(String s) {
+            this.write(UTF8);
+            this.u2(s.length());
+            for (int i = 0; i < s.length(); i++) {
+                this.write(s.charAt(i));
+            }
+            return this.next++;
+        }
+
+        /**
+         * Adds an entry of {@code tag} with index {@code a}, and {@code b}
+         * unless it is negative.
+         *
+         * @param tag
+         *            the tag
+         * @param a
+         *            the first index
+         * @param b
+         *            the second index, or -1 for none
+         * @return the index of the entry
+         */
+        int entry(int tag, int a, int b) {
+            this.write(tag);
+            this.u2(a);
+            if (b >= 0) {
+                this.u2(b);
+            }
+            return this.next++;
+        }
+
+        /**
+         * Adds a CLASS entry for the class named {@code name}.
+         *
+         * @param name
+         *            the internal name of the class
+         * @return the index of the entry
+         */
+        int classRef(String name) {
+            return this.entry(CLASS, this.utf8(name), -1);
+        }
+
+        /**
+         * Adds an entry of {@code tag} for the method {@code name} with
+         * {@code descriptor} of the class at {@code owner}.
+         *
+         * @param tag
+         *            METHODREF or INTERFACE_METHODREF
+         * @param owner
+         *            the index of the class entry
+         * @param name
+         *            the name of the method
+         * @param descriptor
+         *            the descriptor of the method
+         * @return the index of the entry
+         */
+        int methodRef(int tag, int owner, String name, String descriptor) {
+            int nameAndType = this.entry(NAME_AND_TYPE, this.utf8(name),
+                    this.utf8(descriptor));
+            return this.entry(tag, owner, nameAndType);
+        }
+
+        /**
+         * Returns the index of the LONG entry for {@code value}, adding it if
+         * needed.
+         *
+         * @param value
+         *            the value
+         * @return the index of the entry
+         */
+        int longConstant(long value) {
+            Integer index = this.longs.get(value);
+            if (index == null) {
+                index = this.next;
+                this.longs.put(value, index);
+                this.write(LONG);
+                this.u4((int) (value >>> PC_SHIFT));
+                this.u4((int) value);
+                this.next += 2;
+            }
+            return index;
+        }
+
+    }
+
+    /**
+     * Constant pool entries used by the code.
+     */
+    private static final class Refs {
+
+        /**
+         * The pool.
+         */
+        private final Pool pool = new Pool();
+
+        /**
+         * Entries of the compiled class, of its superclass, of
+         * {@code CompiledProgram}, of the superclass constructor and of
+         * {@code WorldSensor.test}.
+         */
+        private final int thisClass, objectClass, interfaceClass, objectInit,
+                sensorTest;
+
+        /**
+         * Entries of the names of the constructor, of {@code run} and of the
+         * {@code Code} attribute, and of the descriptors of the constructor
+         * and of {@code run}.
+         */
+        private final int initName, runName, codeName, voidDescriptor,
+                runDescriptor;
+
+        /**
+         * Constructor.
+         */
+        Refs() {
+            this.thisClass = this.pool.classRef(CLASS_NAME);
+            this.objectClass = this.pool.classRef("java/lang/Object");
+            this.interfaceClass = this.pool.classRef("CompiledProgram");
+            this.objectInit = this.pool.methodRef(METHODREF,
+                    this.objectClass, "<init>", "()V");
+            this.sensorTest = this.pool.methodRef(INTERFACE_METHODREF,
+                    this.pool.classRef("WorldSensor"), "test", "(I)Z");
+            this.initName = this.pool.utf8("<init>");
+            this.runName = this.pool.utf8("run");
+            this.codeName = this.pool.utf8("Code");
+            this.voidDescriptor = this.pool.utf8("()V");
+            this.runDescriptor = this.pool.utf8(RUN_DESCRIPTOR);
+        }
+
+    }
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private ProgramCompiler() {
+    }
+
+    /**
+     * Appends code returning the result {@code pc}, the step count and
+     * {@code instruction}.
+     *
+     * @param m
+     *            the method code
+     * @param pc
+     *            the program counter of the result
+     * @param instruction
+     *            the opcode of the result
+     * @param pool
+     *            the constant pool
+     * @updates m, pool
+     */
+    private static void emitReturn(Bytes m, int pc, int instruction,
+            Pool pool) {
+        m.write(LDC2_W);
+        m.u2(pool.longConstant(((long) pc << PC_SHIFT) | instruction));
+        m.write(ILOAD);
+        m.write(STEPS);
+        m.write(I2L);
+        m.write(BIPUSH);
+        m.write(STEPS_SHIFT);
+        m.write(LSHL);
+        m.write(LOR);
+        m.write(LRETURN);
+    }
+
+    /**
+     * Appends a 16-bit branch {@code opcode} to be patched, recording it in
+     * {@code branches}.
+     *
+     * @param m
+     *            the method code
+     * @param opcode
+     *            the branch opcode
+     * @param target
+     *            the BL address branched to
+     * @param branches
+     *            the branches to patch, as positions and targets in pairs
+     * @param count
+     *            the number of ints used in branches
+     * @return the new number of ints used in branches
+     * @updates m, branches
+     */
+    private static int emitBranch(Bytes m, int opcode, int target,
+            int[] branches, int count) {
+        branches[count] = m.size();
+        branches[count + 1] = target;
+        m.write(opcode);
+        m.u2(0);
+        return count + 2;
+    }
+
+    /**
+     * Appends the code running the instructions of {@code code}: a
+     * {@code tableswitch} on the program counter and one label per
+     * instruction.
+     *
+     * @param m
+     *            the method code
+     * @param code
+     *            the BL code
+     * @param pool
+     *            the constant pool
+     * @param sensorTest
+     *            the constant pool entry of {@code WorldSensor.test}
+     * @updates m, pool
+     */
+    private static void emitCode(Bytes m, int[] code, Pool pool,
+            int sensorTest) {
+        int[] labels = new int[code.length];
+        int[] branches = new int[2 * code.length];
+        int count = 0;
+
+        m.write(ILOAD_1);
+        int switchAt = m.size();
+        m.write(TABLESWITCH);
+        while (m.size() % ENTRY_LENGTH != 0) {
+            m.write(0);
+        }
+        int table = m.size();
+        m.u4(0);
+        m.u4(0);
+        m.u4(code.length - 1);
+        for (int a = 0; a < code.length; a++) {
+            labels[a] = INVALID;
+            m.u4(0);
+        }
+
+        int a = 0;
+        while (a < code.length) {
+            int op = code[a];
+            labels[a] = m.size();
+            m.write(ILOAD);
+            m.write(STEPS);
+            m.write(ILOAD_3);
+            m.write(IF_ICMPLT);
+            m.u2(BRANCH_LENGTH + RETURN_LENGTH);
+            emitReturn(m, a, BytecodeVM.BLOCKED, pool);
+            m.write(IINC);
+            m.write(STEPS);
+            m.write(1);
+            if (op == BytecodeVM.JUMP_IF_NOT_TRUE) {
+                a += 2;
+            } else if (op == BytecodeVM.JUMP
+                    || op >= BytecodeVM.JUMP_IF_NOT_BASE) {
+                int target = code[a + 1];
+                if (op == BytecodeVM.JUMP) {
+                    count = emitBranch(m, GOTO, target, branches, count);
+                } else {
+                    m.write(ALOAD_2);
+                    m.write(BIPUSH);
+                    m.write(op - BytecodeVM.JUMP_IF_NOT_BASE);
+                    m.write(INVOKEINTERFACE);
+                    m.u2(sensorTest);
+                    m.write(2);
+                    m.write(0);
+                    count = emitBranch(m, IFEQ, target, branches, count);
+                }
+                a += 2;
+            } else if (op >= BytecodeVM.MOVE && op <= BytecodeVM.SKIP) {
+                emitReturn(m, a + 1, op, pool);
+                a++;
+            } else {
+                emitReturn(m, a, op, pool);
+                a++;
+            }
+        }
+        /*
+         * A program counter that is not an instruction gives BLOCKED; valid
+         * code never falls off its end into this
+         */
+        int invalid = m.size();
+        m.write(ILOAD_1);
+        m.write(I2L);
+        m.write(BIPUSH);
+        m.write(PC_SHIFT);
+        m.write(LSHL);
+        m.write(LRETURN);
+
+        for (int i = 0; i < count; i += 2) {
+            m.patch2(branches[i] + 1, labels[branches[i + 1]] - branches[i]);
+        }
+        m.patch4(table, invalid - switchAt);
+        int entries = table + 3 * ENTRY_LENGTH;
+        for (int t = 0; t < code.length; t++) {
+            int to = invalid;
+            if (labels[t] != INVALID) {
+                to = labels[t];
+            }
+            m.patch4(entries + ENTRY_LENGTH * t, to - switchAt);
+        }
+    }
+
+    /**
+     * Appends a method to class file {@code c}.
+     *
+     * @param c
+     *            the class file
+     * @param name
+     *            the constant pool entry of the name
+     * @param descriptor
+     *            the constant pool entry of the descriptor
+     * @param maxLocals
+     *            the number of locals
+     * @param code
+     *            the code
+     * @param refs
+     *            the constant pool entries used
+     * @updates c
+     */
+    private static void method(Bytes c, int name, int descriptor,
+            int maxLocals, byte[] code, Refs refs) {
+        c.u2(METHOD_FLAGS);
+        c.u2(name);
+        c.u2(descriptor);
+        c.u2(1);
+        c.u2(refs.codeName);
+        c.u4(CODE_HEADER_LENGTH + code.length);
+        c.u2(MAX_STACK);
+        c.u2(maxLocals);
+        c.u4(code.length);
+        c.write(code, 0, code.length);
+        c.u2(0);
+        c.u2(0);
+    }
+
+    /**
+     * Returns the class file of the compiled {@code code}, or null if it is
+     * too large.
+     *
+     * @param code
+     *            the BL code
+     * @return the class file, or null
+     */
+    private static byte[] classFile(int[] code) {
+        byte[] result = null;
+        if (code.length <= MAX_COMPILED_LENGTH) {
+            Refs refs = new Refs();
+            Bytes m = new Bytes();
+            m.write(ICONST_0);
+            m.write(ISTORE);
+            m.write(STEPS);
+            emitCode(m, code, refs.pool, refs.sensorTest);
+            byte[] run = m.toByteArray();
+
+            if (refs.pool.count() <= MAX_POOL_SLOTS) {
+                Bytes c = new Bytes();
+                c.u4(MAGIC);
+                c.u2(0);
+                c.u2(VERSION);
+                c.u2(refs.pool.count());
+                c.write(refs.pool.toByteArray(), 0, refs.pool.size());
+                c.u2(CLASS_FLAGS);
+                c.u2(refs.thisClass);
+                c.u2(refs.objectClass);
+                c.u2(1);
+                c.u2(refs.interfaceClass);
+                c.u2(0);
+                c.u2(2);
+                byte[] init = { ALOAD_0, (byte) INVOKESPECIAL,
+                        (byte) (refs.objectInit >>> 8),
+                        (byte) refs.objectInit, (byte) RETURN };
+                method(c, refs.initName, refs.voidDescriptor, 1, init, refs);
+                method(c, refs.runName, refs.runDescriptor, MAX_LOCALS, run,
+                        refs);
+                c.u2(0);
+                result = c.toByteArray();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Compiles {@code code}.
+     *
+     * @param code
+     *            the code
+     * @return the compiled program
+     * @requires [code is a valid generatedCode() program]
+     * @ensures <pre>
+     * [compile.run(pc, sensor, stepLimit) =
+     *  BytecodeVM.run(code, pc, sensor, stepLimit)]
+     * </pre>
+     */
+    public static CompiledProgram compile(int[] code) {
+        assert code != null : "Violation of: code is not null";
+
+        int[] copy = code.clone();
+        CompiledProgram result = null;
+        byte[] bytes = classFile(copy);
+        if (bytes != null) {
+            try {
+                result = (CompiledProgram) LOOKUP.defineHiddenClass(bytes, true)
+                        .lookupClass().getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                result = null;
+            }
+        }
+        if (result == null) {
+            result = new Interpreted(copy);
+        }
+        return result;
+    }
+
+    /**
+     * Compiles {@code p.generatedCode()}.
+     *
+     * @param p
+     *            the program
+     * @return the compiled program
+     * @restores p
+     * @ensures <pre>
+     * [compile.run(pc, sensor, stepLimit) =
+     *  BytecodeVM.run(p.generatedCode(), pc, sensor, stepLimit)]
+     * </pre>
+     */
+    public static CompiledProgram compile(Program p) {
+        assert p != null : "Violation of: p is not null";
+
+        return compile(p.generatedCode());
+    }
+
+    /**
+     * Reports whether {@code program} runs compiled JVM code, rather than
+     * {@code BytecodeVM}.
+     *
+     * @param program
+     *            a program returned by {@code compile}
+     * @return true iff program is compiled
+     */
+    public static boolean isCompiled(CompiledProgram program) {
+        assert program != null : "Violation of: program is not null";
+
+        return !(program instanceof Interpreted);
+    }
+
+}
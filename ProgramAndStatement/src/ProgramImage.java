@@ -0,0 +1,466 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import components.map.Map;
+import components.program.Program;
+import components.statement.Statement;
+import components.statement.StatementKernel.Condition;
+
+/**
+ * Read-only, threaded image of the statement trees of a program, run by
+ * {@code TreeCursor}. Each IF, IF_ELSE, WHILE and CALL node of the main body
+ * and of the instruction bodies becomes one entry of parallel {@code int}
+ * arrays; BLOCK nodes disappear, because every entry records the entries
+ * control goes to next: for a test, where to go when its condition holds and
+ * where when it does not, and for a CALL, its successor. The successor of
+ * the last statement of a WHILE body is the WHILE itself, and CALLs of
+ * user-defined instructions record the entry of the instruction's body, so
+ * running a program never has to search the tree or the context.
+ *
+ * <p>
+ * The image is built once, through the kernel methods of the program and its
+ * statements, which are restored. Programs that call undefined instructions,
+ * or whose reachable instructions call themselves directly or indirectly,
+ * are rejected with {@code IllegalArgumentException}.
+ * </p>
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public final class ProgramImage {
+
+    /**
+     * Entry operation: test a condition.
+     */
+    public static final int TEST = 0;
+
+    /**
+     * Entry operation: perform a primitive instruction.
+     */
+    public static final int ACTION = 1;
+
+    /**
+     * Entry operation: call a user-defined instruction.
+     */
+    public static final int CALL = 2;
+
+    /**
+     * Address meaning "the end of the enclosing body".
+     */
+    public static final int END = -1;
+
+    /**
+     * Initial capacity of the entry arrays.
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * Operation of each entry.
+     */
+    private int[] ops;
+
+    /**
+     * Condition ordinal of each TEST, opcode of each ACTION, and number of
+     * the instruction of each CALL.
+     */
+    private int[] operands;
+
+    /**
+     * Where control goes next: when the condition of a TEST holds, and
+     * after an ACTION or CALL.
+     */
+    private int[] next;
+
+    /**
+     * Where control goes when the condition of a TEST does not hold; for a
+     * CALL, the entry of the body of the called instruction.
+     */
+    private int[] other;
+
+    /**
+     * Body each entry belongs to: the number of its instruction, or -1 for
+     * the main body.
+     */
+    private int[] owners;
+
+    /**
+     * Body whose entries are being added.
+     */
+    private int owner;
+
+    /**
+     * Number of entries.
+     */
+    private int size;
+
+    /**
+     * Entry of the main body.
+     */
+    private final int start;
+
+    /**
+     * Entry of the body of each instruction, indexed by number, or
+     * {@code END - 1} if the instruction is not defined.
+     */
+    private int[] entries;
+
+    /**
+     * Number of each user-defined instruction named in the program, in the
+     * order they are first met; numbers are local to this image, so building
+     * one adds nothing to the SymbolTable.
+     */
+    private final HashMap<String, Integer> numbers;
+
+    /**
+     * Name of each user-defined instruction, indexed by number.
+     */
+    private final ArrayList<String> names;
+
+    /**
+     * Longest chain of nested CALLs of user-defined instructions.
+     */
+    private final int maxCallDepth;
+
+    /**
+     * Builds the image of {@code p}.
+     *
+     * @param p
+     *            the program
+     * @restores p
+     */
+    public ProgramImage(Program p) {
+        assert p != null : "Violation of: p is not null";
+
+        this.ops = new int[INITIAL_CAPACITY];
+        this.operands = new int[INITIAL_CAPACITY];
+        this.next = new int[INITIAL_CAPACITY];
+        this.other = new int[INITIAL_CAPACITY];
+        this.owners = new int[INITIAL_CAPACITY];
+        this.size = 0;
+        this.entries = new int[0];
+        this.numbers = new HashMap<>();
+        this.names = new ArrayList<>();
+
+        Map<String, Statement> context = p.newContext();
+        p.swapContext(context);
+        for (Map.Pair<String, Statement> instruction : context) {
+            int id = this.number(instruction.key());
+            if (id >= this.entries.length) {
+                int oldLength = this.entries.length;
+                this.entries = Arrays.copyOf(this.entries, id + 1);
+                Arrays.fill(this.entries, oldLength, id + 1, END - 1);
+            }
+            this.owner = id;
+            this.entries[id] = this.compileBlock(instruction.value(), END);
+        }
+        p.swapContext(context);
+        Statement body = p.newBody();
+        p.swapBody(body);
+        this.owner = -1;
+        this.start = this.compileBlock(body, END);
+        p.swapBody(body);
+
+        this.maxCallDepth = this.link();
+    }
+
+    /**
+     * Returns the number of user-defined instruction {@code instruction},
+     * assigning the next one if it has not been met before.
+     *
+     * @param instruction
+     *            the name of the instruction
+     * @return its number
+     */
+    private int number(String instruction) {
+        Integer result = this.numbers.get(instruction);
+        if (result == null) {
+            result = this.names.size();
+            this.numbers.put(instruction, result);
+            this.names.add(instruction);
+        }
+        return result;
+    }
+
+    /**
+     * Adds an entry and returns its address.
+     *
+     * @param op
+     *            the operation
+     * @param operand
+     *            the operand
+     * @return the address of the new entry
+     */
+    private int add(int op, int operand) {
+        if (this.size == this.ops.length) {
+            int length = 2 * this.size;
+            this.ops = Arrays.copyOf(this.ops, length);
+            this.operands = Arrays.copyOf(this.operands, length);
+            this.next = Arrays.copyOf(this.next, length);
+            this.other = Arrays.copyOf(this.other, length);
+            this.owners = Arrays.copyOf(this.owners, length);
+        }
+        int address = this.size;
+        this.ops[address] = op;
+        this.operands[address] = operand;
+        this.owners[address] = this.owner;
+        this.size++;
+        return address;
+    }
+
+    /**
+     * Adds the entries of BLOCK {@code block}, whose successor is
+     * {@code cont}, and returns the address control goes to on entering it.
+     *
+     * @param block
+     *            the BLOCK
+     * @param cont
+     *            the address of the successor of the block
+     * @return the address of the first statement, or {@code cont} if the
+     *         block is empty
+     * @restores block
+     */
+    private int compileBlock(Statement block, int cont) {
+        int entry = cont;
+        for (int i = block.lengthOfBlock() - 1; i >= 0; i--) {
+            Statement child = block.removeFromBlock(i);
+            entry = this.compile(child, entry);
+            block.addToBlock(i, child);
+        }
+        return entry;
+    }
+
+    /**
+     * Adds the entries of non-BLOCK statement {@code s}, whose successor is
+     * {@code cont}, and returns its address.
+     *
+     * @param s
+     *            the statement
+     * @param cont
+     *            the address of the successor of the statement
+     * @return the address of the entry of {@code s}
+     * @restores s
+     */
+    private int compile(Statement s, int cont) {
+        int address;
+        switch (s.kind()) {
+            case IF: {
+                Statement block = s.newInstance();
+                Condition c = s.disassembleIf(block);
+                address = this.add(TEST, c.ordinal());
+                int thenEntry = this.compileBlock(block, cont);
+                this.next[address] = thenEntry;
+                this.other[address] = cont;
+                s.assembleIf(c, block);
+                break;
+            }
+            case IF_ELSE: {
+                Statement block1 = s.newInstance();
+                Statement block2 = s.newInstance();
+                Condition c = s.disassembleIfElse(block1, block2);
+                address = this.add(TEST, c.ordinal());
+                /*
+                 * The entries are stored only once both blocks are compiled,
+                 * since compiling them may replace the entry arrays.
+                 */
+                int thenEntry = this.compileBlock(block1, cont);
+                int elseEntry = this.compileBlock(block2, cont);
+                this.next[address] = thenEntry;
+                this.other[address] = elseEntry;
+                s.assembleIfElse(c, block1, block2);
+                break;
+            }
+            case WHILE: {
+                Statement block = s.newInstance();
+                Condition c = s.disassembleWhile(block);
+                address = this.add(TEST, c.ordinal());
+                int bodyEntry = this.compileBlock(block, address);
+                this.next[address] = bodyEntry;
+                this.other[address] = cont;
+                s.assembleWhile(c, block);
+                break;
+            }
+            default: {
+                String instruction = s.disassembleCall();
+                int id = SymbolTable.idOf(instruction);
+                if (SymbolTable.isPrimitive(id)) {
+                    address = this.add(ACTION, id + BytecodeVM.MOVE);
+                } else {
+                    address = this.add(CALL, this.number(instruction));
+                }
+                this.next[address] = cont;
+                s.assembleCall(instruction);
+                break;
+            }
+        }
+        return address;
+    }
+
+    /**
+     * Points every CALL reachable from the main body at the entry of the body
+     * of the instruction it calls, and returns the longest chain of nested
+     * CALLs.
+     *
+     * @return the maximum call depth
+     */
+    private int link() {
+        /*
+         * calls[b] lists the addresses of the CALLs in body b, where b is the
+         * number of an instruction or, for the main body, the last index.
+         */
+        int main = this.entries.length;
+        int[] counts = new int[main + 1];
+        for (int a = 0; a < this.size; a++) {
+            if (this.ops[a] == CALL) {
+                counts[this.bodyOf(a)]++;
+            }
+        }
+        int[][] calls = new int[main + 1][];
+        for (int b = 0; b <= main; b++) {
+            calls[b] = new int[counts[b]];
+            counts[b] = 0;
+        }
+        for (int a = 0; a < this.size; a++) {
+            if (this.ops[a] == CALL) {
+                int b = this.bodyOf(a);
+                calls[b][counts[b]] = a;
+                counts[b]++;
+            }
+        }
+        return this.callDepth(main, calls, new int[main + 1]);
+    }
+
+    /**
+     * Returns the index in the call lists of the body entry {@code a}
+     * belongs to.
+     *
+     * @param a
+     *            the address of the entry
+     * @return the index of its body
+     */
+    private int bodyOf(int a) {
+        int result = this.owners[a];
+        if (result < 0) {
+            result = this.entries.length;
+        }
+        return result;
+    }
+
+    /**
+     * Links the CALLs of body {@code b} and of the bodies they reach, and
+     * returns the longest chain of nested CALLs made from {@code b}.
+     *
+     * @param b
+     *            the index of the body
+     * @param calls
+     *            the addresses of the CALLs of each body
+     * @param depths
+     *            for each body, 0 if not yet visited, -1 while being
+     *            visited, and one more than its call depth once visited
+     * @return the call depth of body {@code b}
+     */
+    private int callDepth(int b, int[][] calls, int[] depths) {
+        if (depths[b] > 0) {
+            return depths[b] - 1;
+        }
+        depths[b] = -1;
+        int result = 0;
+        for (int a : calls[b]) {
+            int id = this.operands[a];
+            if (id >= this.entries.length || this.entries[id] < END) {
+                throw new IllegalArgumentException("instruction \""
+                        + this.names.get(id) + "\" is not defined");
+            }
+            if (depths[id] < 0) {
+                throw new IllegalArgumentException("instruction \""
+                        + this.names.get(id) + "\" is recursive");
+            }
+            this.other[a] = this.entries[id];
+            result = Math.max(result, 1 + this.callDepth(id, calls, depths));
+        }
+        depths[b] = result + 1;
+        return result;
+    }
+
+    /**
+     * Reports the number of entries in this image.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Reports the entry of the main body.
+     *
+     * @return the address of the first statement of the main body, or
+     *         {@code END} if it is empty
+     */
+    public int start() {
+        return this.start;
+    }
+
+    /**
+     * Reports the longest chain of nested CALLs of user-defined instructions
+     * reachable from the main body.
+     *
+     * @return the maximum call depth
+     */
+    public int maxCallDepth() {
+        return this.maxCallDepth;
+    }
+
+    /**
+     * Reports the operation of entry {@code a}.
+     *
+     * @param a
+     *            the address
+     * @return TEST, ACTION or CALL
+     * @requires 0 <= a < size()
+     */
+    public int op(int a) {
+        return this.ops[a];
+    }
+
+    /**
+     * Reports the operand of entry {@code a}: the condition ordinal of a
+     * TEST, the {@code BytecodeVM} opcode of an ACTION, or the number in this
+     * image of the instruction called by a CALL.
+     *
+     * @param a
+     *            the address
+     * @return the operand
+     * @requires 0 <= a < size()
+     */
+    public int operand(int a) {
+        return this.operands[a];
+    }
+
+    /**
+     * Reports where control goes after entry {@code a}: for a TEST, when its
+     * condition holds.
+     *
+     * @param a
+     *            the address
+     * @return the address, or END
+     * @requires 0 <= a < size()
+     */
+    public int next(int a) {
+        return this.next[a];
+    }
+
+    /**
+     * Reports, for a TEST, where control goes when its condition does not
+     * hold, and for a CALL, the entry of the body of the called instruction.
+     *
+     * @param a
+     *            the address
+     * @return the address, or END
+     * @requires 0 <= a < size() and op(a) /= ACTION
+     */
+    public int other(int a) {
+        return this.other[a];
+    }
+
+}
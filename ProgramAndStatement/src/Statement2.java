@@ -1,3 +1,5 @@
+import java.util.Iterator;
+
 import components.sequence.Sequence;
 import components.statement.Statement;
 import components.statement.StatementSecondary;
@@ -41,6 +43,30 @@ public class Statement2 extends StatementSecondary {
          */
         private String instruction;
 
+        /**
+         * Structural hash of the subtree whose root is this label.
+         */
+        private int hash;
+
+        /**
+         * Length of {@code debugString} of the subtree whose root is this
+         * label.
+         */
+        private int length;
+
+        /**
+         * The text of a CALL label, once computed.
+         */
+        private String text;
+
+        /**
+         * {@code debugString} of the statement whose root this label is, once
+         * computed; reset when the statement changes, and when it becomes a
+         * child of another statement, so only whole statements keep their
+         * text and the texts kept never nest.
+         */
+        private String tree;
+
         /**
          * Constructor for BLOCK.
          *
@@ -95,23 +121,227 @@ public class Statement2 extends StatementSecondary {
 
         @Override
         public String toString() {
-            String condition = "?", instruction = "?";
-            if ((this.kind == Kind.IF) || (this.kind == Kind.IF_ELSE)
-                    || (this.kind == Kind.WHILE)) {
-                condition = this.condition.toString();
-            } else if (this.kind == Kind.CALL) {
-                instruction = this.instruction;
+            /*
+             * Labels do not change once built, so the text of a BLOCK, IF,
+             * IF_ELSE or WHILE label is shared from LABEL_TEXTS, and that of
+             * a CALL label is built once.
+             */
+            String result;
+            if (this.kind == Kind.CALL) {
+                if (this.text == null) {
+                    this.text = "(" + this.kind + ",?," + this.instruction
+                            + ")";
+                }
+                result = this.text;
+            } else {
+                result = labelText(this.kind, this.condition);
             }
-            return "(" + this.kind + "," + condition + "," + instruction + ")";
+            return result;
         }
 
     }
 
+    /**
+     * Odd multiplier of the structural hash.
+     */
+    private static final int MULTIPLIER = 0x9E3779B1;
+
+    /**
+     * Multiplicative inverse of {@code MULTIPLIER} modulo 2^32.
+     */
+    private static final int INVERSE = inverse(MULTIPLIER);
+
+    /**
+     * Text of the labels other than CALL labels, indexed by kind ordinal and
+     * by condition ordinal plus one, or 0 for no condition.
+     */
+    private static final String[][] LABEL_TEXTS = labelTexts();
+
+    /**
+     * Length of the text of a CALL label, not counting the instruction.
+     */
+    private static final int CALL_TEXT_LENGTH = "(CALL,?,)".length();
+
     /**
      * The tree representation field.
      */
     private Tree<StatementLabel> rep;
 
+    /**
+     * Returns the table of label texts stored in {@code LABEL_TEXTS}.
+     *
+     * @return the table
+     */
+    private static String[][] labelTexts() {
+        Condition[] conditions = Condition.values();
+        String[][] result = new String[Kind.values().length][];
+        for (Kind k : Kind.values()) {
+            String[] texts = new String[conditions.length + 1];
+            texts[0] = "(" + k + ",?,?)";
+            for (Condition c : conditions) {
+                texts[c.ordinal() + 1] = "(" + k + "," + c + ",?)";
+            }
+            result[k.ordinal()] = texts;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the text of a label of kind {@code k} and condition {@code c}.
+     *
+     * @param k
+     *            the kind, not CALL
+     * @param c
+     *            the condition, or null
+     * @return the text
+     */
+    private static String labelText(Kind k, Condition c) {
+        int column = 0;
+        if (c != null) {
+            column = c.ordinal() + 1;
+        }
+        return LABEL_TEXTS[k.ordinal()][column];
+    }
+
+    /**
+     * Appends the rendering of {@code t} described at {@code debugString} to
+     * {@code out}.
+     *
+     * @param t
+     *            the tree
+     * @param out
+     *            the builder
+     * @restores t
+     */
+    private static void appendTree(Tree<StatementLabel> t,
+            StringBuilder out) {
+        StatementLabel label = t.root();
+        out.append(label.toString());
+        if (t.numberOfSubtrees() > 0) {
+            Sequence<Tree<StatementLabel>> children = t.newSequenceOfTree();
+            t.disassemble(children);
+            char separator = '(';
+            for (Tree<StatementLabel> child : children) {
+                out.append(separator);
+                appendTree(child, out);
+                separator = ',';
+            }
+            out.append(')');
+            t.assemble(label, children);
+        }
+    }
+
+    /**
+     * Returns the multiplicative inverse of odd {@code m} modulo 2^32.
+     *
+     * @param m
+     *            the number to invert
+     * @return the inverse of {@code m}
+     * @requires m is odd
+     */
+    private static int inverse(int m) {
+        /*
+         * Newton's iteration doubles the number of correct low-order bits,
+         * and m is its own inverse modulo 8.
+         */
+        int result = m;
+        for (int i = 0; i < 4; i++) {
+            result *= 2 - m * result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns {@code MULTIPLIER} to the power {@code n} modulo 2^32.
+     *
+     * @param n
+     *            the exponent
+     * @return {@code MULTIPLIER}^n
+     * @requires n >= 0
+     */
+    private static int power(int n) {
+        int result = 1;
+        int base = MULTIPLIER;
+        for (int e = n; e > 0; e >>= 1) {
+            if ((e & 1) != 0) {
+                result *= base;
+            }
+            base *= base;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the structural hash of a BLOCK with the given children: the
+     * polynomial in {@code MULTIPLIER} whose coefficients are the hashes of
+     * the children, the first child's being that of the highest power.
+     *
+     * @param children
+     *            the children
+     * @return the hash of the BLOCK
+     */
+    private static int blockHash(Sequence<Tree<StatementLabel>> children) {
+        int result = 0;
+        for (Tree<StatementLabel> child : children) {
+            result = result * MULTIPLIER + child.root().hash;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the structural hash of an IF, IF_ELSE or WHILE statement.
+     *
+     * @param k
+     *            the kind of statement
+     * @param c
+     *            the statement condition
+     * @param first
+     *            the hash of its first block
+     * @param second
+     *            the hash of its second block, or 0 if there is none
+     * @return the hash of the statement
+     */
+    private static int testHash(Kind k, Condition c, int first, int second) {
+        int result = k.ordinal() * MULTIPLIER + c.ordinal() + 1;
+        result = result * MULTIPLIER + first;
+        return result * MULTIPLIER + second;
+    }
+
+    /**
+     * Reports whether the trees {@code a} and {@code b} represent the same
+     * statement, comparing the hashes of subtrees before walking them.
+     *
+     * @param a
+     *            the first tree
+     * @param b
+     *            the second tree
+     * @return true iff {@code a} and {@code b} represent the same statement
+     * @restores a, b
+     */
+    private static boolean sameTree(Tree<StatementLabel> a,
+            Tree<StatementLabel> b) {
+        StatementLabel x = a.root();
+        StatementLabel y = b.root();
+        boolean result = x.hash == y.hash && x.kind == y.kind
+                && x.condition == y.condition
+                && a.numberOfSubtrees() == b.numberOfSubtrees();
+        if (result && x.kind == Kind.CALL) {
+            result = x.instruction.equals(y.instruction);
+        } else if (result && a.numberOfSubtrees() > 0) {
+            Sequence<Tree<StatementLabel>> aChildren = a.newSequenceOfTree();
+            Sequence<Tree<StatementLabel>> bChildren = b.newSequenceOfTree();
+            a.disassemble(aChildren);
+            b.disassemble(bChildren);
+            Iterator<Tree<StatementLabel>> bIterator = bChildren.iterator();
+            for (Tree<StatementLabel> aChild : aChildren) {
+                result = result && sameTree(aChild, bIterator.next());
+            }
+            a.assemble(x, aChildren);
+            b.assemble(y, bChildren);
+        }
+        return result;
+    }
+
     /**
      * Creator of initial representation.
      */
@@ -120,6 +350,7 @@ public class Statement2 extends StatementSecondary {
         this.rep = new Tree1<StatementLabel>();
         Sequence<Tree<StatementLabel>> children = this.rep.newSequenceOfTree();
         StatementLabel root = new StatementLabel(Kind.BLOCK);
+        root.length = labelText(Kind.BLOCK, null).length();
         this.rep.assemble(root, children);
 
     }
@@ -141,12 +372,7 @@ public class Statement2 extends StatementSecondary {
 
     @Override
     public final Statement2 newInstance() {
-        try {
-            return this.getClass().getConstructor().newInstance();
-        } catch (ReflectiveOperationException e) {
-            throw new AssertionError(
-                    "Cannot construct object of type " + this.getClass());
-        }
+        return InstanceFactory.newInstanceOf(this.getClass());
     }
 
     @Override
@@ -175,8 +401,10 @@ public class Statement2 extends StatementSecondary {
 
     @Override
     public final Kind kind() {
-
-        return this.rep.root().kind;
+        long start = KernelMetrics.start();
+        Kind result = this.rep.root().kind;
+        KernelMetrics.stop(KernelMetrics.Operation.STATEMENT_KIND, start);
+        return result;
     }
 
     @Override
@@ -184,33 +412,56 @@ public class Statement2 extends StatementSecondary {
         assert s != null : "Violation of: s is not null";
         assert s != this : "Violation of: s is not this";
         assert s instanceof Statement2 : "Violation of: s is a Statement2";
-        assert this.kind() == Kind.BLOCK : ""
+        assert this.rep.root().kind == Kind.BLOCK : ""
                 + "Violation of: [this is a BLOCK statement]";
         assert 0 <= pos : "Violation of: 0 <= pos";
-        assert pos <= this.lengthOfBlock() : ""
+        assert pos <= this.rep.numberOfSubtrees() : ""
                 + "Violation of: pos <= [length of this BLOCK]";
-        assert s.kind() != Kind.BLOCK : "Violation of: [s is not a BLOCK statement]";
+        assert ((Statement2) s).rep.root().kind != Kind.BLOCK : ""
+                + "Violation of: [s is not a BLOCK statement]";
 
+        long start = KernelMetrics.start();
         //create new sequence
         Sequence<Tree<StatementLabel>> seq = this.rep.newSequenceOfTree();
         //disassemble current rep into seq
         StatementLabel root = this.rep.disassemble(seq);
-        //add s rep at pos
+        //add s rep at pos, updating the hash of the block: appending and
+        //prepending are constant time, other positions rehash the block
         Statement2 temp = (Statement2) s;
+        int n = seq.length();
+        int h = temp.rep.root().hash;
+        root.length += temp.rep.root().length + 1;
+        if (n == 0) {
+            root.length++;
+        }
+        root.tree = null;
+        //s is now part of this, so it no longer keeps its own text
+        temp.rep.root().tree = null;
         seq.add(pos, temp.rep);
         temp.createNewRep();
+        if (pos == n) {
+            root.hash = root.hash * MULTIPLIER + h;
+        } else if (pos == 0) {
+            root.hash += h * power(n);
+        } else {
+            root.hash = blockHash(seq);
+        }
         //assemble sequence back into rep
         this.rep.assemble(root, seq);
+        KernelMetrics.stop(KernelMetrics.Operation.STATEMENT_ADD_TO_BLOCK,
+                start);
 
     }
 
     @Override
     public final Statement removeFromBlock(int pos) {
         assert 0 <= pos : "Violation of: 0 <= pos";
-        assert pos < this.lengthOfBlock() : ""
+        assert pos < this.rep.numberOfSubtrees() : ""
                 + "Violation of: pos < [length of this BLOCK]";
-        assert this.kind() == Kind.BLOCK : ""
+        assert this.rep.root().kind == Kind.BLOCK : ""
                 + "Violation of: [this is a BLOCK statement]";
+
+        long start = KernelMetrics.start();
         /*
          * The following call to Statement newInstance method is a violation of
          * the kernel purity rule. However, there is no way to avoid it and it
@@ -223,20 +474,41 @@ public class Statement2 extends StatementSecondary {
         Sequence<Tree<StatementLabel>> children = this.rep.newSequenceOfTree();
         //disassemble current rep into children
         StatementLabel root = this.rep.disassemble(children);
-        //remove statement rep at pos
+        //remove statement rep at pos, updating the hash of the block as in
+        //addToBlock
+        int n = children.length();
         s.rep = children.remove(pos);
+        int h = s.rep.root().hash;
+        root.length -= s.rep.root().length + 1;
+        if (n == 1) {
+            root.length--;
+        }
+        root.tree = null;
+        if (pos == n - 1) {
+            root.hash = (root.hash - h) * INVERSE;
+        } else if (pos == 0) {
+            root.hash -= h * power(n - 1);
+        } else {
+            root.hash = blockHash(children);
+        }
         //assemble sequence back into rep
         this.rep.assemble(root, children);
 
+        KernelMetrics.stop(KernelMetrics.Operation.STATEMENT_REMOVE_FROM_BLOCK,
+                start);
         return s;
     }
 
     @Override
     public final int lengthOfBlock() {
-        assert this.kind() == Kind.BLOCK : ""
+        assert this.rep.root().kind == Kind.BLOCK : ""
                 + "Violation of: [this is a BLOCK statement]";
 
-        return this.rep.numberOfSubtrees();
+        long start = KernelMetrics.start();
+        int result = this.rep.numberOfSubtrees();
+        KernelMetrics.stop(KernelMetrics.Operation.STATEMENT_LENGTH_OF_BLOCK,
+                start);
+        return result;
     }
 
     @Override
@@ -245,15 +517,22 @@ public class Statement2 extends StatementSecondary {
         assert s != null : "Violation of: s is not null";
         assert s != this : "Violation of: s is not this";
         assert s instanceof Statement2 : "Violation of: s is a Statement2";
-        assert s.kind() == Kind.BLOCK : ""
+        assert ((Statement2) s).rep.root().kind == Kind.BLOCK : ""
                 + "Violation of: [s is a BLOCK statement]";
 
+        long start = KernelMetrics.start();
         Statement2 localS = (Statement2) s;
         StatementLabel label = new StatementLabel(Kind.IF, c);
+        label.hash = testHash(Kind.IF, c, localS.rep.root().hash, 0);
+        label.length = labelText(Kind.IF, c).length() + 2
+                + localS.rep.root().length;
         Sequence<Tree<StatementLabel>> children = this.rep.newSequenceOfTree();
+        localS.rep.root().tree = null;
         children.add(0, localS.rep);
         this.rep.assemble(label, children);
         localS.createNewRep();
+        KernelMetrics.stop(KernelMetrics.Operation.STATEMENT_ASSEMBLE_IF,
+                start);
     }
 
     @Override
@@ -261,14 +540,17 @@ public class Statement2 extends StatementSecondary {
         assert s != null : "Violation of: s is not null";
         assert s != this : "Violation of: s is not this";
         assert s instanceof Statement2 : "Violation of: s is a Statement2";
-        assert this.kind() == Kind.IF : ""
+        assert this.rep.root().kind == Kind.IF : ""
                 + "Violation of: [this is an IF statement]";
 
+        long start = KernelMetrics.start();
         Statement2 localS = (Statement2) s;
         Sequence<Tree<StatementLabel>> children = this.rep.newSequenceOfTree();
         StatementLabel label = this.rep.disassemble(children);
         localS.rep = children.remove(0);
         this.createNewRep();
+        KernelMetrics.stop(KernelMetrics.Operation.STATEMENT_DISASSEMBLE_IF,
+                start);
         return label.condition;
     }
 
@@ -282,23 +564,32 @@ public class Statement2 extends StatementSecondary {
         assert s1 != s2 : "Violation of: s1 is not s2";
         assert s1 instanceof Statement2 : "Violation of: s1 is a Statement2";
         assert s2 instanceof Statement2 : "Violation of: s2 is a Statement2";
-        assert s1
-                .kind() == Kind.BLOCK : "Violation of: [s1 is a BLOCK statement]";
-        assert s2
-                .kind() == Kind.BLOCK : "Violation of: [s2 is a BLOCK statement]";
+        assert ((Statement2) s1).rep.root().kind == Kind.BLOCK : ""
+                + "Violation of: [s1 is a BLOCK statement]";
+        assert ((Statement2) s2).rep.root().kind == Kind.BLOCK : ""
+                + "Violation of: [s2 is a BLOCK statement]";
 
+        long start = KernelMetrics.start();
         Statement2 localS1 = (Statement2) s1;
         Statement2 localS2 = (Statement2) s2;
         StatementLabel label = new StatementLabel(Kind.IF_ELSE, c);
+        label.hash = testHash(Kind.IF_ELSE, c, localS1.rep.root().hash,
+                localS2.rep.root().hash);
+        label.length = labelText(Kind.IF_ELSE, c).length() + 3
+                + localS1.rep.root().length + localS2.rep.root().length;
         //create new sequence to hold children of if-else
         Sequence<Tree<StatementLabel>> children = this.rep.newSequenceOfTree();
-        //add to children sequence
+        //add to children sequence, which no longer keep their own texts
+        localS1.rep.root().tree = null;
+        localS2.rep.root().tree = null;
         children.add(0, localS1.rep);
         children.add(1, localS2.rep);
         //assemble with new label and added children
         this.rep.assemble(label, children);
         localS1.createNewRep();
         localS2.createNewRep();
+        KernelMetrics.stop(KernelMetrics.Operation.STATEMENT_ASSEMBLE_IF_ELSE,
+                start);
 
     }
 
@@ -311,9 +602,10 @@ public class Statement2 extends StatementSecondary {
         assert s1 != s2 : "Violation of: s1 is not s2";
         assert s1 instanceof Statement2 : "Violation of: s1 is a Statement2";
         assert s2 instanceof Statement2 : "Violation of: s2 is a Statement2";
-        assert this.kind() == Kind.IF_ELSE : ""
+        assert this.rep.root().kind == Kind.IF_ELSE : ""
                 + "Violation of: [this is an IF_ELSE statement]";
 
+        long start = KernelMetrics.start();
         Statement2 localS1 = (Statement2) s1;
         Statement2 localS2 = (Statement2) s2;
         //create new sequence to hold children of if-else
@@ -325,6 +617,8 @@ public class Statement2 extends StatementSecondary {
         localS2.rep = seq.remove(0);
         this.createNewRep();
 
+        KernelMetrics.stop(KernelMetrics.Operation.STATEMENT_DISASSEMBLE_IF_ELSE,
+                start);
         return root.condition;
 
     }
@@ -335,16 +629,24 @@ public class Statement2 extends StatementSecondary {
         assert s != null : "Violation of: s is not null";
         assert s != this : "Violation of: s is not this";
         assert s instanceof Statement2 : "Violation of: s is a Statement2";
-        assert s.kind() == Kind.BLOCK : "Violation of: [s is a BLOCK statement]";
+        assert ((Statement2) s).rep.root().kind == Kind.BLOCK : ""
+                + "Violation of: [s is a BLOCK statement]";
 
+        long start = KernelMetrics.start();
         Statement2 localS = (Statement2) s;
         StatementLabel label = new StatementLabel(Kind.WHILE, c);
+        label.hash = testHash(Kind.WHILE, c, localS.rep.root().hash, 0);
+        label.length = labelText(Kind.WHILE, c).length() + 2
+                + localS.rep.root().length;
         //create new sequence to hold children of while
         Sequence<Tree<StatementLabel>> children = this.rep.newSequenceOfTree();
+        localS.rep.root().tree = null;
         children.add(0, localS.rep);
         //assemble while with new label and children
         this.rep.assemble(label, children);
         localS.createNewRep();
+        KernelMetrics.stop(KernelMetrics.Operation.STATEMENT_ASSEMBLE_WHILE,
+                start);
 
     }
 
@@ -353,9 +655,10 @@ public class Statement2 extends StatementSecondary {
         assert s != null : "Violation of: s is not null";
         assert s != this : "Violation of: s is not this";
         assert s instanceof Statement2 : "Violation of: s is a Statement2";
-        assert this.kind() == Kind.WHILE : ""
+        assert this.rep.root().kind == Kind.WHILE : ""
                 + "Violation of: [this is a WHILE statement]";
 
+        long start = KernelMetrics.start();
         Statement2 localS = (Statement2) s;
         //create new sequence to hold children of while
         Sequence<Tree<StatementLabel>> seq = this.rep.newSequenceOfTree();
@@ -364,6 +667,8 @@ public class Statement2 extends StatementSecondary {
         localS.rep = seq.remove(0);
         this.createNewRep();
 
+        KernelMetrics.stop(KernelMetrics.Operation.STATEMENT_DISASSEMBLE_WHILE,
+                start);
         return root.condition;
 
     }
@@ -374,19 +679,25 @@ public class Statement2 extends StatementSecondary {
         assert Tokenizer.isIdentifier(inst) : ""
                 + "Violation of: inst is a valid IDENTIFIER";
 
+        long start = KernelMetrics.start();
         StatementLabel label = new StatementLabel(Kind.CALL, inst);
+        label.hash = Kind.CALL.ordinal() * MULTIPLIER + inst.hashCode();
+        label.length = CALL_TEXT_LENGTH + inst.length();
         //create new sequence to hold children of call
         Sequence<Tree<StatementLabel>> children = this.rep.newSequenceOfTree();
         //assemble call rep with new label and children
         this.rep.assemble(label, children);
+        KernelMetrics.stop(KernelMetrics.Operation.STATEMENT_ASSEMBLE_CALL,
+                start);
 
     }
 
     @Override
     public final String disassembleCall() {
-        assert this.kind() == Kind.CALL : ""
+        assert this.rep.root().kind == Kind.CALL : ""
                 + "Violation of: [this is a CALL statement]";
 
+        long start = KernelMetrics.start();
         //create new sequence to hold children of call
         Sequence<Tree<StatementLabel>> seq = this.rep.newSequenceOfTree();
         //disassemble current rep into sequence
@@ -395,7 +706,64 @@ public class Statement2 extends StatementSecondary {
         String instruction = root.instruction;
         this.createNewRep();
 
+        KernelMetrics.stop(KernelMetrics.Operation.STATEMENT_DISASSEMBLE_CALL,
+                start);
         return instruction;
     }
 
+    /*
+     * Other methods ----------------------------------------------------------
+     */
+
+    /**
+     * Returns the representation tree of this as text, for debugging: each
+     * node is written as its label, {@code (kind,condition,instruction)} with
+     * {@code ?} for the parts the kind does not have, followed, if it has
+     * children, by the children in parentheses separated by commas. The text
+     * is built in one {@code StringBuilder} of the exact length, which every
+     * label keeps up to date for its subtree, and is kept until this
+     * changes or becomes part of another statement.
+     *
+     * @return the text of the representation tree
+     */
+    public final String debugString() {
+        StatementLabel root = this.rep.root();
+        if (root.tree == null) {
+            StringBuilder out = new StringBuilder(root.length);
+            appendTree(this.rep, out);
+            root.tree = out.toString();
+        }
+        return root.tree;
+    }
+
+    /*
+     * Secondary methods overridden for efficiency ----------------------------
+     */
+
+    @Override
+    public final boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof Statement2)) {
+            return super.equals(obj);
+        }
+        /*
+         * Every node caches the structural hash of its subtree, so unequal
+         * statements are almost always told apart by their root hashes, and
+         * otherwise by the first subtree whose hashes differ.
+         */
+        Statement2 other = (Statement2) obj;
+        return sameTree(this.rep, other.rep);
+    }
+
+    @Override
+    public final int hashCode() {
+        /*
+         * Not the structural hash: a Statement2 may equal a statement of
+         * another implementation, so it must hash as StatementSecondary does
+         */
+        return super.hashCode();
+    }
+
 }
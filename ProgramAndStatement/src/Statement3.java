@@ -0,0 +1,780 @@
+import java.util.Arrays;
+
+import components.simplewriter.SimpleWriter;
+import components.statement.Statement;
+import components.statement.StatementSecondary;
+import components.utilities.Tokenizer;
+
+/**
+ * {@code Statement} represented as the preorder listing of its nodes, stored
+ * in parallel {@code int} arrays, with implementations of primary methods.
+ *
+ * @convention <pre>
+ * 1 <= $this.gapStart <= $this.size <= |$this.kinds| and
+ * |$this.kinds| = |$this.conditions| = |$this.instructions| =
+ *   |$this.extents| and
+ * [the node arrays are gap buffers: entries 0 through $this.gapStart - 1
+ *  followed by the last $this.size - $this.gapStart entries of the four
+ *  arrays are the preorder listing of a valid Statement tree, where for
+ *  each node i:
+ *  $this.kinds[i] is the ordinal of its Kind,
+ *  $this.conditions[i] is the ordinal of its Condition if it is an IF,
+ *  IF_ELSE or WHILE node,
+ *  $this.instructions[i] is the SymbolTable id of its instruction name if
+ *  it is a CALL node, and
+ *  $this.extents[i] is the number of nodes in the subtree rooted at i] and
+ * $this.extents[0] = $this.size and
+ * [if $this.kinds[0] is not the ordinal of BLOCK then
+ *  $this.gapStart = $this.size and $this.childCount = 0] and
+ * 0 <= $this.childGapStart <= $this.childCount <= |$this.childNodes| and
+ * [if $this.kinds[0] is the ordinal of BLOCK then $this.childCount is the
+ *  number of children of the root, entries 0 through
+ *  $this.childGapStart - 1 of $this.childNodes are the preorder positions of
+ *  the children before the gap, the last
+ *  $this.childCount - $this.childGapStart entries are $this.size minus the
+ *  preorder positions of the children after it, and the node gap is just
+ *  before child $this.childGapStart (or at the end)]
+ * </pre>
+ * @correspondence this = [the Statement tree whose preorder listing is held
+ *                 in the gap buffers $this.kinds, $this.conditions,
+ *                 $this.instructions and $this.extents]
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public class Statement3 extends StatementSecondary {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Initial capacity of the node arrays.
+     */
+    private static final int INITIAL_CAPACITY = 4;
+
+    /**
+     * Number of spaces by which nested statements are indented.
+     */
+    private static final int INDENT_SIZE = 4;
+
+    /**
+     * Cached {@code Kind.values()}, indexed by ordinal.
+     */
+    private static final Kind[] KINDS = Kind.values();
+
+    /**
+     * Cached {@code Condition.values()}, indexed by ordinal.
+     */
+    private static final Condition[] CONDITIONS = Condition.values();
+
+    /**
+     * BL spelling of each condition, indexed by ordinal.
+     */
+    private static final String[] CONDITION_NAMES =
+            new String[CONDITIONS.length];
+
+    static {
+        for (Condition c : CONDITIONS) {
+            CONDITION_NAMES[c.ordinal()] = c.name().toLowerCase().replace('_',
+                    '-');
+        }
+    }
+
+    /**
+     * Ordinal of each node's kind, in preorder.
+     */
+    private int[] kinds;
+
+    /**
+     * Ordinal of each node's condition, in preorder.
+     */
+    private int[] conditions;
+
+    /**
+     * Interned id of each node's instruction name, in preorder.
+     */
+    private int[] instructions;
+
+    /**
+     * Number of nodes in the subtree rooted at each node, in preorder.
+     */
+    private int[] extents;
+
+    /**
+     * Number of nodes in this statement.
+     */
+    private int size;
+
+    /**
+     * Number of nodes before the gap in the node arrays.
+     */
+    private int gapStart;
+
+    /**
+     * Gap buffer locating the children of the root, when the root is a BLOCK.
+     */
+    private int[] childNodes;
+
+    /**
+     * Number of children of the root, when the root is a BLOCK.
+     */
+    private int childCount;
+
+    /**
+     * Number of entries before the gap in {@code childNodes}.
+     */
+    private int childGapStart;
+
+    /**
+     * Creator of initial representation.
+     */
+    private void createNewRep() {
+        this.kinds = new int[INITIAL_CAPACITY];
+        this.conditions = new int[INITIAL_CAPACITY];
+        this.instructions = new int[INITIAL_CAPACITY];
+        this.extents = new int[INITIAL_CAPACITY];
+        this.kinds[0] = Kind.BLOCK.ordinal();
+        this.extents[0] = 1;
+        this.size = 1;
+        this.gapStart = 1;
+        this.childNodes = new int[INITIAL_CAPACITY];
+        this.childCount = 0;
+        this.childGapStart = 0;
+    }
+
+    /**
+     * Replaces the representation with arrays of exactly {@code capacity}
+     * nodes holding a single root node; the caller is expected to fill in the
+     * remaining nodes.
+     *
+     * @param capacity
+     *            the number of nodes in the new representation
+     * @param k
+     *            the kind of the root node
+     * @param c
+     *            the condition ordinal of the root node
+     */
+    private void createRootRep(int capacity, Kind k, int c) {
+        this.kinds = new int[capacity];
+        this.conditions = new int[capacity];
+        this.instructions = new int[capacity];
+        this.extents = new int[capacity];
+        this.kinds[0] = k.ordinal();
+        this.conditions[0] = c;
+        this.extents[0] = capacity;
+        this.size = capacity;
+        this.gapStart = capacity;
+        this.childCount = 0;
+        this.childGapStart = 0;
+    }
+
+    /**
+     * Returns a copy of gap buffer {@code a} whose gap, starting at
+     * {@code gapStart}, has been widened so the copy has length
+     * {@code newLength}.
+     *
+     * @param a
+     *            the gap buffer
+     * @param gapStart
+     *            the start of the gap
+     * @param used
+     *            the number of entries outside the gap
+     * @param newLength
+     *            the length of the copy
+     * @return the widened copy
+     */
+    private static int[] widenGap(int[] a, int gapStart, int used,
+            int newLength) {
+        int[] result = new int[newLength];
+        int suffix = used - gapStart;
+        System.arraycopy(a, 0, result, 0, gapStart);
+        System.arraycopy(a, a.length - suffix, result, newLength - suffix,
+                suffix);
+        return result;
+    }
+
+    /**
+     * Makes sure the node gap can hold at least {@code count} nodes.
+     *
+     * @param count
+     *            the required gap length
+     */
+    private void ensureGap(int count) {
+        if (this.kinds.length - this.size < count) {
+            int newLength = Math.max(this.size + count, 2 * this.kinds.length);
+            this.kinds = widenGap(this.kinds, this.gapStart, this.size,
+                    newLength);
+            this.conditions = widenGap(this.conditions, this.gapStart,
+                    this.size, newLength);
+            this.instructions = widenGap(this.instructions, this.gapStart,
+                    this.size, newLength);
+            this.extents = widenGap(this.extents, this.gapStart, this.size,
+                    newLength);
+        }
+        if (this.childCount == this.childNodes.length) {
+            this.childNodes = widenGap(this.childNodes, this.childGapStart,
+                    this.childCount, 2 * this.childNodes.length);
+        }
+    }
+
+    /**
+     * Moves both gaps to child position {@code pos} of the root: the child
+     * gap to just before entry {@code pos}, and the node gap to just before
+     * the first node of that child (or to the end if {@code pos} is the number
+     * of children).
+     *
+     * @param pos
+     *            the child position
+     */
+    private void moveGaps(int pos) {
+        int childGap = this.childNodes.length - this.childCount;
+        while (this.childGapStart > pos) {
+            this.childGapStart--;
+            this.childNodes[this.childGapStart + childGap] = this.size
+                    - this.childNodes[this.childGapStart];
+        }
+        while (this.childGapStart < pos) {
+            this.childNodes[this.childGapStart] = this.size
+                    - this.childNodes[this.childGapStart + childGap];
+            this.childGapStart++;
+        }
+        int target = this.size;
+        if (pos < this.childCount) {
+            target -= this.childNodes[pos + childGap];
+        }
+        int gap = this.kinds.length - this.size;
+        if (target < this.gapStart) {
+            this.copyNodes(this, target, target + gap,
+                    this.gapStart - target);
+        } else if (target > this.gapStart) {
+            this.copyNodes(this, this.gapStart + gap, this.gapStart,
+                    target - this.gapStart);
+        }
+        this.gapStart = target;
+    }
+
+    /**
+     * Returns the position in the node arrays of the node at preorder index
+     * {@code n}, skipping the node gap.
+     *
+     * @param n
+     *            the preorder index
+     * @return the position of the node
+     */
+    private int position(int n) {
+        int result = n;
+        if (n >= this.gapStart) {
+            result += this.kinds.length - this.size;
+        }
+        return result;
+    }
+
+    /**
+     * Moves both gaps to the end, so that the nodes occupy positions 0
+     * through {@code size - 1} of the node arrays.
+     */
+    private void closeGaps() {
+        this.moveGaps(this.childCount);
+    }
+
+    /**
+     * Copies {@code count} nodes of {@code source} starting at {@code from}
+     * into this starting at {@code to}.
+     *
+     * @param source
+     *            the statement to copy from
+     * @param from
+     *            the first node of {@code source} to copy
+     * @param to
+     *            the position in this of the first copied node
+     * @param count
+     *            the number of nodes to copy
+     */
+    private void copyNodes(Statement3 source, int from, int to, int count) {
+        System.arraycopy(source.kinds, from, this.kinds, to, count);
+        System.arraycopy(source.conditions, from, this.conditions, to, count);
+        System.arraycopy(source.instructions, from, this.instructions, to,
+                count);
+        System.arraycopy(source.extents, from, this.extents, to, count);
+    }
+
+    /**
+     * Replaces the representation of {@code target} with a copy of the
+     * subtree of this whose root is at position {@code from} of the node
+     * arrays.
+     *
+     * @param from
+     *            the position of the root of the subtree to copy
+     * @param target
+     *            the statement receiving the copy
+     */
+    private void copySubtreeTo(int from, Statement3 target) {
+        int count = this.extents[from];
+        int capacity = Math.max(count, INITIAL_CAPACITY);
+        target.kinds = new int[capacity];
+        target.conditions = new int[capacity];
+        target.instructions = new int[capacity];
+        target.extents = new int[capacity];
+        target.copyNodes(this, from, 0, count);
+        target.size = count;
+        target.gapStart = count;
+        target.indexChildren();
+    }
+
+    /**
+     * Rebuilds the child index from the node arrays, whose gap must be at the
+     * end.
+     */
+    private void indexChildren() {
+        this.childCount = 0;
+        this.childGapStart = 0;
+        if (this.kinds[0] == Kind.BLOCK.ordinal()) {
+            int node = 1;
+            while (node < this.size) {
+                if (this.childCount == this.childNodes.length) {
+                    this.childNodes = Arrays.copyOf(this.childNodes,
+                            2 * this.childCount);
+                }
+                this.childNodes[this.childCount] = node;
+                this.childCount++;
+                node += this.extents[node];
+            }
+            this.childGapStart = this.childCount;
+        }
+    }
+
+    /**
+     * Prints the subtree rooted at {@code node} with the given offset.
+     *
+     * @param node
+     *            the root of the subtree to print
+     * @param out
+     *            the output stream
+     * @param offset
+     *            the number of spaces to indent
+     */
+    private void prettyPrintNode(int node, SimpleWriter out, int offset) {
+        int end = node + this.extents[node];
+        switch (KINDS[this.kinds[node]]) {
+            case BLOCK: {
+                int child = node + 1;
+                while (child < end) {
+                    this.prettyPrintNode(child, out, offset);
+                    child += this.extents[child];
+                }
+                break;
+            }
+            case IF: {
+                printSpaces(out, offset);
+                out.println("IF " + CONDITION_NAMES[this.conditions[node]]
+                        + " THEN");
+                this.prettyPrintNode(node + 1, out, offset + INDENT_SIZE);
+                printSpaces(out, offset);
+                out.println("END IF");
+                break;
+            }
+            case IF_ELSE: {
+                int elseBlock = node + 1 + this.extents[node + 1];
+                printSpaces(out, offset);
+                out.println("IF " + CONDITION_NAMES[this.conditions[node]]
+                        + " THEN");
+                this.prettyPrintNode(node + 1, out, offset + INDENT_SIZE);
+                printSpaces(out, offset);
+                out.println("ELSE");
+                this.prettyPrintNode(elseBlock, out, offset + INDENT_SIZE);
+                printSpaces(out, offset);
+                out.println("END IF");
+                break;
+            }
+            case WHILE: {
+                printSpaces(out, offset);
+                out.println("WHILE " + CONDITION_NAMES[this.conditions[node]]
+                        + " DO");
+                this.prettyPrintNode(node + 1, out, offset + INDENT_SIZE);
+                printSpaces(out, offset);
+                out.println("END WHILE");
+                break;
+            }
+            default: {
+                printSpaces(out, offset);
+                out.println(SymbolTable.name(this.instructions[node]));
+                break;
+            }
+        }
+    }
+
+    /**
+     * Prints {@code n} spaces to {@code out}.
+     *
+     * @param out
+     *            the output stream
+     * @param n
+     *            the number of spaces
+     */
+    private static void printSpaces(SimpleWriter out, int n) {
+        for (int i = 0; i < n; i++) {
+            out.print(' ');
+        }
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public Statement3() {
+        this.createNewRep();
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @Override
+    public final Statement3 newInstance() {
+        return InstanceFactory.newInstanceOf(this.getClass());
+    }
+
+    @Override
+    public final void clear() {
+        this.createNewRep();
+    }
+
+    @Override
+    public final void transferFrom(Statement source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof Statement3 : ""
+                + "Violation of: source is of dynamic type Statement3";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case: source must be of dynamic type Statement3.
+         */
+        Statement3 localSource = (Statement3) source;
+        this.kinds = localSource.kinds;
+        this.conditions = localSource.conditions;
+        this.instructions = localSource.instructions;
+        this.extents = localSource.extents;
+        this.size = localSource.size;
+        this.gapStart = localSource.gapStart;
+        this.childNodes = localSource.childNodes;
+        this.childCount = localSource.childCount;
+        this.childGapStart = localSource.childGapStart;
+        localSource.createNewRep();
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final Kind kind() {
+
+        return KINDS[this.kinds[0]];
+    }
+
+    @Override
+    public final void addToBlock(int pos, Statement s) {
+        assert s != null : "Violation of: s is not null";
+        assert s != this : "Violation of: s is not this";
+        assert s instanceof Statement3 : "Violation of: s is a Statement3";
+        assert this.kind() == Kind.BLOCK : ""
+                + "Violation of: [this is a BLOCK statement]";
+        assert 0 <= pos : "Violation of: 0 <= pos";
+        assert pos <= this.lengthOfBlock() : ""
+                + "Violation of: pos <= [length of this BLOCK]";
+        assert s.kind() != Kind.BLOCK : "Violation of: [s is not a BLOCK statement]";
+
+        Statement3 localS = (Statement3) s;
+        int count = localS.size;
+        /*
+         * Only the nodes between the previous edit position and pos move, so
+         * appending and clustered edits cost O(|s|) amortized.
+         */
+        this.moveGaps(pos);
+        this.ensureGap(count);
+        int at = this.gapStart;
+        this.copyNodes(localS, 0, at, count);
+        this.gapStart += count;
+        this.size += count;
+        this.extents[0] = this.size;
+        this.childNodes[this.childGapStart] = at;
+        this.childGapStart++;
+        this.childCount++;
+        localS.createNewRep();
+    }
+
+    @Override
+    public final Statement removeFromBlock(int pos) {
+        assert 0 <= pos : "Violation of: 0 <= pos";
+        assert pos < this.lengthOfBlock() : ""
+                + "Violation of: pos < [length of this BLOCK]";
+        assert this.kind() == Kind.BLOCK : ""
+                + "Violation of: [this is a BLOCK statement]";
+        /*
+         * The following call to Statement newInstance method is a violation of
+         * the kernel purity rule. However, there is no way to avoid it and it
+         * is safe because the convention clearly holds at this point in the
+         * code.
+         */
+        Statement3 s = this.newInstance();
+        this.moveGaps(pos);
+        int at = this.gapStart + this.kinds.length - this.size;
+        int count = this.extents[at];
+        this.copySubtreeTo(at, s);
+        //the removed nodes and child entry simply join the gaps
+        this.size -= count;
+        this.extents[0] = this.size;
+        this.childCount--;
+
+        return s;
+    }
+
+    @Override
+    public final int lengthOfBlock() {
+        assert this.kind() == Kind.BLOCK : ""
+                + "Violation of: [this is a BLOCK statement]";
+
+        return this.childCount;
+    }
+
+    @Override
+    public final void assembleIf(Condition c, Statement s) {
+        assert c != null : "Violation of: c is not null";
+        assert s != null : "Violation of: s is not null";
+        assert s != this : "Violation of: s is not this";
+        assert s instanceof Statement3 : "Violation of: s is a Statement3";
+        assert s.kind() == Kind.BLOCK : ""
+                + "Violation of: [s is a BLOCK statement]";
+
+        Statement3 localS = (Statement3) s;
+        localS.closeGaps();
+        this.createRootRep(1 + localS.size, Kind.IF, c.ordinal());
+        this.copyNodes(localS, 0, 1, localS.size);
+        localS.createNewRep();
+    }
+
+    @Override
+    public final Condition disassembleIf(Statement s) {
+        assert s != null : "Violation of: s is not null";
+        assert s != this : "Violation of: s is not this";
+        assert s instanceof Statement3 : "Violation of: s is a Statement3";
+        assert this.kind() == Kind.IF : ""
+                + "Violation of: [this is an IF statement]";
+
+        Statement3 localS = (Statement3) s;
+        Condition c = CONDITIONS[this.conditions[0]];
+        this.copySubtreeTo(1, localS);
+        this.createNewRep();
+        return c;
+    }
+
+    @Override
+    public final void assembleIfElse(Condition c, Statement s1, Statement s2) {
+        assert c != null : "Violation of: c is not null";
+        assert s1 != null : "Violation of: s1 is not null";
+        assert s2 != null : "Violation of: s2 is not null";
+        assert s1 != this : "Violation of: s1 is not this";
+        assert s2 != this : "Violation of: s2 is not this";
+        assert s1 != s2 : "Violation of: s1 is not s2";
+        assert s1 instanceof Statement3 : "Violation of: s1 is a Statement3";
+        assert s2 instanceof Statement3 : "Violation of: s2 is a Statement3";
+        assert s1
+                .kind() == Kind.BLOCK : "Violation of: [s1 is a BLOCK statement]";
+        assert s2
+                .kind() == Kind.BLOCK : "Violation of: [s2 is a BLOCK statement]";
+
+        Statement3 localS1 = (Statement3) s1;
+        Statement3 localS2 = (Statement3) s2;
+        localS1.closeGaps();
+        localS2.closeGaps();
+        this.createRootRep(1 + localS1.size + localS2.size, Kind.IF_ELSE,
+                c.ordinal());
+        this.copyNodes(localS1, 0, 1, localS1.size);
+        this.copyNodes(localS2, 0, 1 + localS1.size, localS2.size);
+        localS1.createNewRep();
+        localS2.createNewRep();
+    }
+
+    @Override
+    public final Condition disassembleIfElse(Statement s1, Statement s2) {
+        assert s1 != null : "Violation of: s1 is not null";
+        assert s2 != null : "Violation of: s1 is not null";
+        assert s1 != this : "Violation of: s1 is not this";
+        assert s2 != this : "Violation of: s2 is not this";
+        assert s1 != s2 : "Violation of: s1 is not s2";
+        assert s1 instanceof Statement3 : "Violation of: s1 is a Statement3";
+        assert s2 instanceof Statement3 : "Violation of: s2 is a Statement3";
+        assert this.kind() == Kind.IF_ELSE : ""
+                + "Violation of: [this is an IF_ELSE statement]";
+
+        Statement3 localS1 = (Statement3) s1;
+        Statement3 localS2 = (Statement3) s2;
+        Condition c = CONDITIONS[this.conditions[0]];
+        this.copySubtreeTo(1, localS1);
+        this.copySubtreeTo(1 + this.extents[1], localS2);
+        this.createNewRep();
+        return c;
+    }
+
+    @Override
+    public final void assembleWhile(Condition c, Statement s) {
+        assert c != null : "Violation of: c is not null";
+        assert s != null : "Violation of: s is not null";
+        assert s != this : "Violation of: s is not this";
+        assert s instanceof Statement3 : "Violation of: s is a Statement3";
+        assert s.kind() == Kind.BLOCK : "Violation of: [s is a BLOCK statement]";
+
+        Statement3 localS = (Statement3) s;
+        localS.closeGaps();
+        this.createRootRep(1 + localS.size, Kind.WHILE, c.ordinal());
+        this.copyNodes(localS, 0, 1, localS.size);
+        localS.createNewRep();
+    }
+
+    @Override
+    public final Condition disassembleWhile(Statement s) {
+        assert s != null : "Violation of: s is not null";
+        assert s != this : "Violation of: s is not this";
+        assert s instanceof Statement3 : "Violation of: s is a Statement3";
+        assert this.kind() == Kind.WHILE : ""
+                + "Violation of: [this is a WHILE statement]";
+
+        Statement3 localS = (Statement3) s;
+        Condition c = CONDITIONS[this.conditions[0]];
+        this.copySubtreeTo(1, localS);
+        this.createNewRep();
+        return c;
+    }
+
+    @Override
+    public final void assembleCall(String inst) {
+        assert inst != null : "Violation of: inst is not null";
+        assert Tokenizer.isIdentifier(inst) : ""
+                + "Violation of: inst is a valid IDENTIFIER";
+
+        this.createNewRep();
+        this.kinds[0] = Kind.CALL.ordinal();
+        this.instructions[0] = SymbolTable.intern(inst);
+    }
+
+    @Override
+    public final String disassembleCall() {
+        assert this.kind() == Kind.CALL : ""
+                + "Violation of: [this is a CALL statement]";
+
+        String instruction = SymbolTable.name(this.instructions[0]);
+        this.createNewRep();
+        return instruction;
+    }
+
+    /*
+     * Secondary methods overridden for efficiency ----------------------------
+     */
+
+    @Override
+    public final void prettyPrint(SimpleWriter out, int offset) {
+        assert out != null : "Violation of: out is not null";
+        assert 0 <= offset : "Violation of: 0 <= offset";
+
+        this.closeGaps();
+        this.prettyPrintNode(0, out, offset);
+    }
+
+    @Override
+    public final boolean equals(Object obj) {
+        if (!(obj instanceof Statement3)) {
+            return super.equals(obj);
+        }
+        /*
+         * Two Statement3 values are equal exactly when their preorder listings
+         * are; unused condition and instruction entries are never compared.
+         */
+        Statement3 other = (Statement3) obj;
+        if (this.size != other.size) {
+            return false;
+        }
+        for (int n = 0; n < this.size; n++) {
+            int i = this.position(n);
+            int j = other.position(n);
+            int k = this.kinds[i];
+            if (k != other.kinds[j] || this.extents[i] != other.extents[j]) {
+                return false;
+            }
+            if (k == Kind.CALL.ordinal()) {
+                if (this.instructions[i] != other.instructions[j]) {
+                    return false;
+                }
+            } else if (k != Kind.BLOCK.ordinal()
+                    && this.conditions[i] != other.conditions[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public final int hashCode() {
+        return super.hashCode();
+    }
+
+    /*
+     * Other methods ----------------------------------------------------------
+     */
+
+    /**
+     * Replaces this with the statement whose preorder listing is held in
+     * entries {@code from} through {@code from + count - 1} of the given
+     * arrays, laid out as in the representation of this class. This lets
+     * decoders that already produce preorder node listings, such as
+     * {@code BLBinaryReader}, build a statement in one copy instead of
+     * assembling it node by node.
+     *
+     * @param nodeKinds
+     *            the Kind ordinal of each node
+     * @param nodeConditions
+     *            the Condition ordinal of each IF, IF_ELSE and WHILE node
+     * @param nodeInstructions
+     *            the SymbolTable id of the instruction name of each CALL node
+     * @param nodeExtents
+     *            the number of nodes in the subtree rooted at each node
+     * @param from
+     *            the position of the root in the arrays
+     * @param count
+     *            the number of nodes
+     * @replaces this
+     * @requires <pre>
+     * 0 <= from and from + count <= [the length of each array] and
+     * [entries from through from + count - 1 of the arrays are the preorder
+     *  listing of a valid Statement tree of count nodes]
+     * </pre>
+     * @ensures this = [the Statement tree listed in the arrays]
+     */
+    public final void setPreorder(int[] nodeKinds, int[] nodeConditions,
+            int[] nodeInstructions, int[] nodeExtents, int from, int count) {
+        assert nodeKinds != null : "Violation of: nodeKinds is not null";
+        assert nodeConditions != null : ""
+                + "Violation of: nodeConditions is not null";
+        assert nodeInstructions != null : ""
+                + "Violation of: nodeInstructions is not null";
+        assert nodeExtents != null : "Violation of: nodeExtents is not null";
+        assert 0 <= from : "Violation of: 0 <= from";
+        assert count > 0 && nodeExtents[from] == count : ""
+                + "Violation of: [the arrays list a valid Statement tree]";
+
+        int capacity = Math.max(count, INITIAL_CAPACITY);
+        this.kinds = Arrays.copyOfRange(nodeKinds, from, from + capacity);
+        this.conditions = Arrays.copyOfRange(nodeConditions, from,
+                from + capacity);
+        this.instructions = Arrays.copyOfRange(nodeInstructions, from,
+                from + capacity);
+        this.extents = Arrays.copyOfRange(nodeExtents, from, from + capacity);
+        this.size = count;
+        this.gapStart = count;
+        this.indexChildren();
+    }
+
+}
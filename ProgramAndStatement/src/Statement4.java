@@ -0,0 +1,608 @@
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import components.statement.Statement;
+import components.statement.StatementSecondary;
+import components.utilities.Tokenizer;
+
+/**
+ * {@code Statement} represented as a reference to an immutable, hash-consed
+ * node: structurally identical subtrees of all the Statement4 values in the
+ * program are the same node, held once in a shared pool. Since nodes never
+ * change, the kernel methods copy on write: each one that changes a statement
+ * builds (or finds in the pool) the nodes of the new value along the path it
+ * changes and points the statement at them, leaving every other statement
+ * that shares the old nodes as it was.
+ *
+ * <p>
+ * Assembling and disassembling IF, IF_ELSE, WHILE and CALL statements takes
+ * constant time. A BLOCK being edited with {@code addToBlock} and
+ * {@code removeFromBlock} keeps its statements in a private array, outside
+ * the pool, so building a block one statement at a time takes amortized
+ * constant time per statement at its end and pools none of its prefixes; the
+ * block is interned once it becomes part of another statement. Two Statement4
+ * values are equal exactly when they refer to the same node, or, for a BLOCK
+ * being edited, to the same statement nodes, so {@code equals} takes constant
+ * time except on such blocks. {@code hashCode} is that of
+ * {@code StatementSecondary}, since a Statement4 may equal a statement of
+ * another implementation.
+ * </p>
+ *
+ * <p>
+ * The pool is split into independently locked stripes, chosen by node hash,
+ * so statements built by several threads rarely wait for each other. It
+ * holds its nodes weakly, so nodes no statement refers to any more are
+ * reclaimed by the garbage collector.
+ * </p>
+ *
+ * @convention <pre>
+ * [$this.root is the pool's node for the statement it represents] or
+ * ($this.root = null and [$this.statements[0, $this.length) are pool nodes]
+ *  and |$this.statements| > $this.length)
+ * </pre>
+ * @correspondence <pre>
+ * this = [the statement tree represented by $this.root, or, if $this.root
+ *  is null, the BLOCK of the statements represented by
+ *  $this.statements[0, $this.length)]
+ * </pre>
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public class Statement4 extends StatementSecondary {
+
+    /*
+     * Private members --------------------------------------------------------
+     */
+
+    /**
+     * Immutable node of a statement tree, whose children are pool nodes.
+     */
+    private static final class Node {
+
+        /**
+         * Statement kind.
+         */
+        private final Kind kind;
+
+        /**
+         * IF/IF_ELSE/WHILE statement condition, or null.
+         */
+        private final Condition condition;
+
+        /**
+         * CALL instruction name, or null.
+         */
+        private final String instruction;
+
+        /**
+         * Children: the statements of a BLOCK, or the blocks of an IF,
+         * IF_ELSE or WHILE statement.
+         */
+        private final Node[] children;
+
+        /**
+         * Structural hash of the tree rooted at this node.
+         */
+        private final int hash;
+
+        /**
+         * Constructor.
+         *
+         * @param k
+         *            the kind of statement
+         * @param c
+         *            the condition, or null
+         * @param i
+         *            the instruction name, or null
+         * @param ch
+         *            the children, which are pool nodes
+         */
+        private Node(Kind k, Condition c, String i, Node[] ch) {
+            this.kind = k;
+            this.condition = c;
+            this.instruction = i;
+            this.children = ch;
+            int h = k.ordinal();
+            if (c != null) {
+                h = h * MULTIPLIER + c.ordinal();
+            }
+            if (i != null) {
+                h = h * MULTIPLIER + i.hashCode();
+            }
+            for (Node child : ch) {
+                h = h * MULTIPLIER + child.hash;
+            }
+            this.hash = h;
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            /*
+             * Children are pool nodes, so they are compared by reference.
+             */
+            if (!(obj instanceof Node)) {
+                return false;
+            }
+            Node other = (Node) obj;
+            boolean result = this.hash == other.hash
+                    && this.kind == other.kind
+                    && this.condition == other.condition
+                    && this.children.length == other.children.length
+                    && (this.instruction == null
+                            ? other.instruction == null
+                            : this.instruction.equals(other.instruction));
+            for (int k = 0; result && k < this.children.length; k++) {
+                result = this.children[k] == other.children[k];
+            }
+            return result;
+        }
+
+    }
+
+    /**
+     * Odd multiplier of the structural hash.
+     */
+    private static final int MULTIPLIER = 0x9E3779B1;
+
+    /**
+     * Children of a node without any.
+     */
+    private static final Node[] NO_CHILDREN = {};
+
+    /**
+     * One stripe of the pool, locked on its own.
+     */
+    private static final class Stripe {
+
+        /**
+         * The nodes of this stripe: each maps to a weak reference to itself.
+         */
+        private final Map<Node, WeakReference<Node>> nodes =
+                new WeakHashMap<>();
+
+    }
+
+    /**
+     * Number of stripes of the pool, a power of two.
+     */
+    private static final int STRIPE_COUNT = 64;
+
+    /**
+     * Initial capacity of the statement array of a BLOCK being edited.
+     */
+    private static final int INITIAL_CAPACITY = 8;
+
+    /**
+     * The pool, split into stripes by node hash.
+     */
+    private static final Stripe[] POOL = new Stripe[STRIPE_COUNT];
+
+    static {
+        for (int k = 0; k < STRIPE_COUNT; k++) {
+            POOL[k] = new Stripe();
+        }
+    }
+
+    /**
+     * The empty BLOCK.
+     */
+    private static final Node EMPTY_BLOCK = intern(
+            new Node(Kind.BLOCK, null, null, NO_CHILDREN));
+
+    /**
+     * The root of the tree representation, or null while this is a BLOCK
+     * being edited.
+     */
+    private Node root;
+
+    /**
+     * The statements of this BLOCK while it is being edited, or null.
+     */
+    private Node[] statements;
+
+    /**
+     * Number of statements of this BLOCK while it is being edited.
+     */
+    private int length;
+
+    /**
+     * Returns the pool's node equal to {@code n}, adding {@code n} to the
+     * pool if there is none.
+     *
+     * @param n
+     *            the node
+     * @return the pool node equal to {@code n}
+     */
+    private static Node intern(Node n) {
+        Stripe stripe = POOL[(n.hash ^ (n.hash >>> 16)) & (STRIPE_COUNT - 1)];
+        Node result = null;
+        synchronized (stripe) {
+            WeakReference<Node> ref = stripe.nodes.get(n);
+            if (ref != null) {
+                result = ref.get();
+            }
+            if (result == null) {
+                stripe.nodes.put(n, new WeakReference<>(n));
+                result = n;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the pool node of the BLOCK with the given statements.
+     *
+     * @param children
+     *            the statements, which are pool nodes
+     * @return the pool node
+     */
+    private static Node block(Node[] children) {
+        Node result = EMPTY_BLOCK;
+        if (children.length > 0) {
+            result = intern(new Node(Kind.BLOCK, null, null, children));
+        }
+        return result;
+    }
+
+    /**
+     * Makes {@code n} the representation of this.
+     *
+     * @param n
+     *            the pool node
+     */
+    private void setRoot(Node n) {
+        this.root = n;
+        this.statements = null;
+        this.length = 0;
+    }
+
+    /**
+     * Moves the statements of this BLOCK out of its pool node into an array
+     * that can be edited, unless that has been done already.
+     */
+    private void edit() {
+        if (this.root != null) {
+            Node[] children = this.root.children;
+            this.statements = Arrays.copyOf(children,
+                    Math.max(INITIAL_CAPACITY, 2 * children.length));
+            this.length = children.length;
+            this.root = null;
+        }
+    }
+
+    /**
+     * Returns the pool node of this statement, interning this BLOCK if it is
+     * being edited.
+     *
+     * @return the pool node
+     */
+    private Node node() {
+        if (this.root == null) {
+            this.setRoot(block(Arrays.copyOf(this.statements, this.length)));
+        }
+        return this.root;
+    }
+
+    /**
+     * Returns the pool node of statement {@code k} of this BLOCK.
+     *
+     * @param k
+     *            the position of the statement
+     * @return the pool node
+     */
+    private Node statement(int k) {
+        Node result;
+        if (this.root == null) {
+            result = this.statements[k];
+        } else {
+            result = this.root.children[k];
+        }
+        return result;
+    }
+
+    /**
+     * Creator of initial representation.
+     */
+    private void createNewRep() {
+        this.setRoot(EMPTY_BLOCK);
+    }
+
+    /*
+     * Constructors -----------------------------------------------------------
+     */
+
+    /**
+     * No-argument constructor.
+     */
+    public Statement4() {
+        this.createNewRep();
+    }
+
+    /*
+     * Standard methods -------------------------------------------------------
+     */
+
+    @Override
+    public final Statement4 newInstance() {
+        return InstanceFactory.newInstanceOf(this.getClass());
+    }
+
+    @Override
+    public final void clear() {
+        this.createNewRep();
+    }
+
+    @Override
+    public final void transferFrom(Statement source) {
+        assert source != null : "Violation of: source is not null";
+        assert source != this : "Violation of: source is not this";
+        assert source instanceof Statement4 : ""
+                + "Violation of: source is of dynamic type Statement4";
+        /*
+         * This cast cannot fail since the assert above would have stopped
+         * execution in that case: source must be of dynamic type Statement4.
+         */
+        Statement4 localSource = (Statement4) source;
+        this.root = localSource.root;
+        this.statements = localSource.statements;
+        this.length = localSource.length;
+        localSource.createNewRep();
+    }
+
+    /*
+     * Kernel methods ---------------------------------------------------------
+     */
+
+    @Override
+    public final Kind kind() {
+        Kind result = Kind.BLOCK;
+        if (this.root != null) {
+            result = this.root.kind;
+        }
+        return result;
+    }
+
+    @Override
+    public final void addToBlock(int pos, Statement s) {
+        assert s != null : "Violation of: s is not null";
+        assert s != this : "Violation of: s is not this";
+        assert s instanceof Statement4 : "Violation of: s is a Statement4";
+        assert this.kind() == Kind.BLOCK : ""
+                + "Violation of: [this is a BLOCK statement]";
+        assert 0 <= pos : "Violation of: 0 <= pos";
+        assert pos <= this.lengthOfBlock() : ""
+                + "Violation of: pos <= [length of this BLOCK]";
+        assert s.kind() != Kind.BLOCK : "Violation of: [s is not a BLOCK statement]";
+
+        Statement4 localS = (Statement4) s;
+        this.edit();
+        if (this.length == this.statements.length) {
+            this.statements = Arrays.copyOf(this.statements,
+                    2 * this.length);
+        }
+        System.arraycopy(this.statements, pos, this.statements, pos + 1,
+                this.length - pos);
+        this.statements[pos] = localS.root;
+        this.length++;
+        localS.createNewRep();
+    }
+
+    @Override
+    public final Statement removeFromBlock(int pos) {
+        assert 0 <= pos : "Violation of: 0 <= pos";
+        assert pos < this.lengthOfBlock() : ""
+                + "Violation of: pos < [length of this BLOCK]";
+        assert this.kind() == Kind.BLOCK : ""
+                + "Violation of: [this is a BLOCK statement]";
+        /*
+         * The following call to Statement newInstance method is a violation of
+         * the kernel purity rule. However, there is no way to avoid it and it
+         * is safe because the convention clearly holds at this point in the
+         * code.
+         */
+        Statement4 s = this.newInstance();
+        this.edit();
+        s.root = this.statements[pos];
+        this.length--;
+        System.arraycopy(this.statements, pos + 1, this.statements, pos,
+                this.length - pos);
+        this.statements[this.length] = null;
+        return s;
+    }
+
+    @Override
+    public final int lengthOfBlock() {
+        assert this.kind() == Kind.BLOCK : ""
+                + "Violation of: [this is a BLOCK statement]";
+
+        int result = this.length;
+        if (this.root != null) {
+            result = this.root.children.length;
+        }
+        return result;
+    }
+
+    @Override
+    public final void assembleIf(Condition c, Statement s) {
+        assert c != null : "Violation of: c is not null";
+        assert s != null : "Violation of: s is not null";
+        assert s != this : "Violation of: s is not this";
+        assert s instanceof Statement4 : "Violation of: s is a Statement4";
+        assert s.kind() == Kind.BLOCK : ""
+                + "Violation of: [s is a BLOCK statement]";
+
+        Statement4 localS = (Statement4) s;
+        this.setRoot(intern(new Node(Kind.IF, c, null,
+                new Node[] { localS.node() })));
+        localS.createNewRep();
+    }
+
+    @Override
+    public final Condition disassembleIf(Statement s) {
+        assert s != null : "Violation of: s is not null";
+        assert s != this : "Violation of: s is not this";
+        assert s instanceof Statement4 : "Violation of: s is a Statement4";
+        assert this.kind() == Kind.IF : ""
+                + "Violation of: [this is an IF statement]";
+
+        Statement4 localS = (Statement4) s;
+        Condition c = this.root.condition;
+        localS.setRoot(this.root.children[0]);
+        this.createNewRep();
+        return c;
+    }
+
+    @Override
+    public final void assembleIfElse(Condition c, Statement s1, Statement s2) {
+        assert c != null : "Violation of: c is not null";
+        assert s1 != null : "Violation of: s1 is not null";
+        assert s2 != null : "Violation of: s2 is not null";
+        assert s1 != this : "Violation of: s1 is not this";
+        assert s2 != this : "Violation of: s2 is not this";
+        assert s1 != s2 : "Violation of: s1 is not s2";
+        assert s1 instanceof Statement4 : "Violation of: s1 is a Statement4";
+        assert s2 instanceof Statement4 : "Violation of: s2 is a Statement4";
+        assert s1
+                .kind() == Kind.BLOCK : "Violation of: [s1 is a BLOCK statement]";
+        assert s2
+                .kind() == Kind.BLOCK : "Violation of: [s2 is a BLOCK statement]";
+
+        Statement4 localS1 = (Statement4) s1;
+        Statement4 localS2 = (Statement4) s2;
+        this.setRoot(intern(new Node(Kind.IF_ELSE, c, null,
+                new Node[] { localS1.node(), localS2.node() })));
+        localS1.createNewRep();
+        localS2.createNewRep();
+    }
+
+    @Override
+    public final Condition disassembleIfElse(Statement s1, Statement s2) {
+        assert s1 != null : "Violation of: s1 is not null";
+        assert s2 != null : "Violation of: s1 is not null";
+        assert s1 != this : "Violation of: s1 is not this";
+        assert s2 != this : "Violation of: s2 is not this";
+        assert s1 != s2 : "Violation of: s1 is not s2";
+        assert s1 instanceof Statement4 : "Violation of: s1 is a Statement4";
+        assert s2 instanceof Statement4 : "Violation of: s2 is a Statement4";
+        assert this.kind() == Kind.IF_ELSE : ""
+                + "Violation of: [this is an IF_ELSE statement]";
+
+        Statement4 localS1 = (Statement4) s1;
+        Statement4 localS2 = (Statement4) s2;
+        Condition c = this.root.condition;
+        localS1.setRoot(this.root.children[0]);
+        localS2.setRoot(this.root.children[1]);
+        this.createNewRep();
+        return c;
+    }
+
+    @Override
+    public final void assembleWhile(Condition c, Statement s) {
+        assert c != null : "Violation of: c is not null";
+        assert s != null : "Violation of: s is not null";
+        assert s != this : "Violation of: s is not this";
+        assert s instanceof Statement4 : "Violation of: s is a Statement4";
+        assert s.kind() == Kind.BLOCK : "Violation of: [s is a BLOCK statement]";
+
+        Statement4 localS = (Statement4) s;
+        this.setRoot(intern(new Node(Kind.WHILE, c, null,
+                new Node[] { localS.node() })));
+        localS.createNewRep();
+    }
+
+    @Override
+    public final Condition disassembleWhile(Statement s) {
+        assert s != null : "Violation of: s is not null";
+        assert s != this : "Violation of: s is not this";
+        assert s instanceof Statement4 : "Violation of: s is a Statement4";
+        assert this.kind() == Kind.WHILE : ""
+                + "Violation of: [this is a WHILE statement]";
+
+        Statement4 localS = (Statement4) s;
+        Condition c = this.root.condition;
+        localS.setRoot(this.root.children[0]);
+        this.createNewRep();
+        return c;
+    }
+
+    @Override
+    public final void assembleCall(String inst) {
+        assert inst != null : "Violation of: inst is not null";
+        assert Tokenizer.isIdentifier(inst) : ""
+                + "Violation of: inst is a valid IDENTIFIER";
+
+        this.setRoot(intern(new Node(Kind.CALL, null, inst, NO_CHILDREN)));
+    }
+
+    @Override
+    public final String disassembleCall() {
+        assert this.kind() == Kind.CALL : ""
+                + "Violation of: [this is a CALL statement]";
+
+        String instruction = this.root.instruction;
+        this.createNewRep();
+        return instruction;
+    }
+
+    /*
+     * Secondary methods overridden for efficiency ----------------------------
+     */
+
+    @Override
+    public final boolean equals(Object obj) {
+        if (!(obj instanceof Statement4)) {
+            return super.equals(obj);
+        }
+        Statement4 other = (Statement4) obj;
+        if (this.root != null && other.root != null) {
+            return this.root == other.root;
+        }
+        /*
+         * A BLOCK being edited is not in the pool, but its statements are,
+         * so they are compared by reference; neither side is interned, as
+         * equals must not change the representation of its arguments
+         */
+        boolean result = this.kind() == Kind.BLOCK
+                && other.kind() == Kind.BLOCK
+                && this.lengthOfBlock() == other.lengthOfBlock();
+        for (int k = 0; result && k < this.lengthOfBlock(); k++) {
+            result = this.statement(k) == other.statement(k);
+        }
+        return result;
+    }
+
+    @Override
+    public final int hashCode() {
+        return super.hashCode();
+    }
+
+    /*
+     * Other methods ----------------------------------------------------------
+     */
+
+    /**
+     * Reports the number of distinct nodes in the pool shared by all
+     * Statement4 values, including nodes no longer referred to that the
+     * garbage collector has not reclaimed yet.
+     *
+     * @return the number of pool nodes
+     */
+    public static int poolSize() {
+        int result = 0;
+        for (Stripe stripe : POOL) {
+            synchronized (stripe) {
+                result += stripe.nodes.size();
+            }
+        }
+        return result;
+    }
+
+}
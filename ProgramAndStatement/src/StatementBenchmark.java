@@ -0,0 +1,118 @@
+import java.io.File;
+import java.io.IOException;
+
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+import components.statement.Statement;
+import components.statement.Statement1;
+
+/**
+ * Compares the retained heap and the cost of full-tree walks (prettyPrint,
+ * equals and hashCode) of the library Statement1, the tree-based Statement2
+ * and the array-based Statement3; equals is timed both on equal statements
+ * and on statements differing only in their last child.
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public final class StatementBenchmark {
+
+    /**
+     * Number of statements in each synthetic block.
+     */
+    private static final int WIDTH = 12;
+
+    /**
+     * Nesting depth of the synthetic statement (about 50k nodes).
+     */
+    private static final int DEPTH = 4;
+
+    /**
+     * Number of untimed runs of each walk.
+     */
+    private static final int WARMUPS = 5;
+
+    /**
+     * Number of timed runs of each walk.
+     */
+    private static final int RUNS = 20;
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private StatementBenchmark() {
+    }
+
+    /**
+     * Measures one implementation and reports the results.
+     *
+     * @param label
+     *            the name of the implementation
+     * @param a
+     *            an empty statement of the implementation
+     * @param b
+     *            another empty statement of the implementation
+     * @param c
+     *            a third empty statement of the implementation
+     * @param sink
+     *            the file prettyPrint writes to
+     * @param out
+     *            the output stream
+     */
+    private static void measure(String label, Statement a, Statement b,
+            Statement c, String sink, SimpleWriter out) {
+        long before = Benchmark.usedHeap();
+        Benchmark.fillBlock(a, WIDTH, DEPTH);
+        long retained = Benchmark.usedHeap() - before;
+        Benchmark.fillBlock(b, WIDTH, DEPTH);
+        Benchmark.fillBlock(c, WIDTH, DEPTH);
+        Statement last = c.removeFromBlock(WIDTH - 1);
+        last.assembleCall("skip");
+        c.addToBlock(WIDTH - 1, last);
+
+        double equalsNanos = Benchmark.nanosPerOp(() -> {
+            Benchmark.consume(a.equals(b) ? 1 : 0);
+        }, WARMUPS, RUNS);
+        double differNanos = Benchmark.nanosPerOp(() -> {
+            Benchmark.consume(a.equals(c) ? 1 : 0);
+        }, WARMUPS, RUNS);
+        double hashNanos = Benchmark.nanosPerOp(() -> {
+            Benchmark.consume(a.hashCode());
+        }, WARMUPS, RUNS);
+        SimpleWriter file = new SimpleWriter1L(sink);
+        double printNanos = Benchmark.nanosPerOp(() -> {
+            a.prettyPrint(file, 0);
+        }, WARMUPS, RUNS);
+        file.close();
+
+        out.println(label + ": retained " + retained / 1024 + " KiB, equals "
+                + (long) (equalsNanos / 1000) + " us, equals (last differs) "
+                + (long) (differNanos / 1000) + " us, hashCode "
+                + (long) (hashNanos / 1000) + " us, prettyPrint "
+                + (long) (printNanos / 1000) + " us");
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments
+     * @throws IOException
+     *             if the scratch file cannot be created
+     */
+    public static void main(String[] args) throws IOException {
+        SimpleWriter out = new SimpleWriter1L();
+        File sink = File.createTempFile("statement-benchmark", ".bl");
+        sink.deleteOnExit();
+
+        measure("Statement1", new Statement1(), new Statement1(),
+                new Statement1(), sink.getPath(), out);
+        measure("Statement2", new Statement2(), new Statement2(),
+                new Statement2(), sink.getPath(), out);
+        measure("Statement3", new Statement3(), new Statement3(),
+                new Statement3(), sink.getPath(), out);
+
+        out.close();
+    }
+
+}
@@ -0,0 +1,191 @@
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide table interning BL identifiers to dense {@code int} ids, so
+ * the CALL nodes of a {@code Statement3} can carry an id instead of a name.
+ *
+ * <p>
+ * The five primitive instructions are interned first, in BugsWorld byte code
+ * order, so their ids are the constants below and every user-defined
+ * instruction has an id of at least {@link #PRIMITIVE_COUNT}.
+ * </p>
+ *
+ * <p>
+ * The table is static and never cleared, since an id may be held by any
+ * {@code Statement3} still alive: it grows by one entry per distinct
+ * identifier interned, for the life of the process. Only the CALL names of
+ * a {@code Statement3} should be interned. Code that only needs to know
+ * whether a name already has an id, or whether it is primitive, uses
+ * {@link #idOf}, which never adds to the table.
+ * </p>
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public final class SymbolTable {
+
+    /**
+     * Id of the primitive instruction move.
+     */
+    public static final int MOVE = 0;
+
+    /**
+     * Id of the primitive instruction turnleft.
+     */
+    public static final int TURNLEFT = 1;
+
+    /**
+     * Id of the primitive instruction turnright.
+     */
+    public static final int TURNRIGHT = 2;
+
+    /**
+     * Id of the primitive instruction infect.
+     */
+    public static final int INFECT = 3;
+
+    /**
+     * Id of the primitive instruction skip.
+     */
+    public static final int SKIP = 4;
+
+    /**
+     * Number of primitive instructions.
+     */
+    public static final int PRIMITIVE_COUNT = 5;
+
+    /**
+     * Initial capacity of the name array.
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * Map from identifier to id.
+     */
+    private static final ConcurrentHashMap<String, Integer> IDS =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Identifiers indexed by id; replaced, never mutated in place below
+     * {@code count}, so readers need no lock.
+     */
+    private static volatile String[] names = new String[INITIAL_CAPACITY];
+
+    /**
+     * Number of interned identifiers.
+     */
+    private static volatile int count;
+
+    static {
+        intern("move");
+        intern("turnleft");
+        intern("turnright");
+        intern("infect");
+        intern("skip");
+    }
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private SymbolTable() {
+    }
+
+    /**
+     * Returns the id of identifier {@code name}, assigning the next unused id
+     * if {@code name} has not been interned before.
+     *
+     * @param name
+     *            the identifier
+     * @return the id of {@code name}
+     * @ensures name(intern) = name
+     */
+    public static int intern(String name) {
+        assert name != null : "Violation of: name is not null";
+
+        Integer id = IDS.get(name);
+        if (id == null) {
+            id = internNew(name);
+        }
+        return id;
+    }
+
+    /**
+     * Assigns the next unused id to {@code name} unless another thread got
+     * there first.
+     *
+     * @param name
+     *            the identifier
+     * @return the id of {@code name}
+     */
+    private static synchronized int internNew(String name) {
+        Integer id = IDS.get(name);
+        if (id == null) {
+            id = count;
+            String[] current = names;
+            if (id == current.length) {
+                current = Arrays.copyOf(current, 2 * current.length);
+            }
+            current[id] = name;
+            names = current;
+            count = id + 1;
+            IDS.put(name, id);
+        }
+        return id;
+    }
+
+    /**
+     * Returns the id of identifier {@code name}, or -1 if it has not been
+     * interned.
+     *
+     * @param name
+     *            the identifier
+     * @return the id of {@code name}, or -1
+     */
+    public static int idOf(String name) {
+        assert name != null : "Violation of: name is not null";
+
+        Integer id = IDS.get(name);
+        int result = -1;
+        if (id != null) {
+            result = id;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the identifier with id {@code id}.
+     *
+     * @param id
+     *            the id
+     * @return the identifier
+     * @requires 0 <= id < size()
+     */
+    public static String name(int id) {
+        assert 0 <= id && id < count : "Violation of: 0 <= id < size()";
+
+        return names[id];
+    }
+
+    /**
+     * Returns the number of interned identifiers; every id is smaller.
+     *
+     * @return the number of ids assigned so far
+     */
+    public static int size() {
+        return count;
+    }
+
+    /**
+     * Reports whether {@code id} is the id of a primitive instruction.
+     *
+     * @param id
+     *            the id
+     * @return true iff {@code id} names move, turnleft, turnright, infect or
+     *         skip
+     */
+    public static boolean isPrimitive(int id) {
+        return 0 <= id && id < PRIMITIVE_COUNT;
+    }
+
+}
@@ -0,0 +1,215 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Random;
+
+import components.program.Program;
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+import components.statement.Statement;
+import components.statement.StatementKernel.Condition;
+
+/**
+ * Compares the turn throughput of {@code BytecodeVM} with that of
+ * {@code TransitionTable}, on the data programs and on synthetic programs
+ * repeating a synthetic block forever. Each turn faces a cell drawn from a
+ * fixed pseudo-random sequence; RANDOM is answered from an xorshift stream.
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public final class TransitionBenchmark {
+
+    /**
+     * Number of turns run per measurement.
+     */
+    private static final int TURNS = 20_000_000;
+
+    /**
+     * Number of measurements of each program; the first is a warm-up.
+     */
+    private static final int ROUNDS = 4;
+
+    /**
+     * Step limit of each turn.
+     */
+    private static final int STEP_LIMIT = 1_000;
+
+    /**
+     * Number of masks in the sequence, a power of two.
+     */
+    private static final int MASK_COUNT = 1 << 16;
+
+    /**
+     * Ordinal of {@code Condition.RANDOM}.
+     */
+    private static final int RANDOM = 8;
+
+    /**
+     * The names of files containing BL programs.
+     */
+    private static final String[] FILE_NAMES = { "data/program-sample.bl",
+            "data/program-test1.bl", "data/program-test2.bl" };
+
+    /**
+     * Block widths and nesting depths of the synthetic programs, in pairs.
+     */
+    private static final int[][] SHAPES = { { 3, 3 }, { 6, 3 }, { 8, 3 } };
+
+    /**
+     * Sensor answering the conditions on the cell in front of the bug from a
+     * mask, and RANDOM with the next bit of an xorshift stream.
+     */
+    private static final class MaskSensor implements WorldSensor {
+
+        /**
+         * The mask.
+         */
+        private int mask;
+
+        /**
+         * The generator state.
+         */
+        private long state = 0x9E3779B97F4A7C15L;
+
+        @Override
+        public boolean test(int condition) {
+            boolean result;
+            if (condition == RANDOM) {
+                this.state ^= this.state << 13;
+                this.state ^= this.state >>> 7;
+                this.state ^= this.state << 17;
+                result = this.state < 0;
+            } else {
+                result = (((this.mask >> (condition >> 1)) ^ condition)
+                        & 1) != 0;
+            }
+            return result;
+        }
+
+    }
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private TransitionBenchmark() {
+    }
+
+    /**
+     * Returns the best time of {@code TURNS} turns of {@code code} through
+     * {@code BytecodeVM}, in nanoseconds.
+     *
+     * @param code
+     *            the program
+     * @param masks
+     *            the masks of the turns
+     * @return the time
+     */
+    private static long interpreted(int[] code, int[] masks) {
+        MaskSensor sensor = new MaskSensor();
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            int pc = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < TURNS; i++) {
+                sensor.mask = masks[i & (MASK_COUNT - 1)];
+                pc = BytecodeVM.nextPc(
+                        BytecodeVM.run(code, pc, sensor, STEP_LIMIT));
+            }
+            long nanos = System.nanoTime() - start;
+            Benchmark.consume(pc);
+            if (round > 0) {
+                best = Math.min(best, nanos);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the best time of {@code TURNS} turns of {@code code} through a
+     * {@code TransitionTable}, in nanoseconds.
+     *
+     * @param code
+     *            the program
+     * @param masks
+     *            the masks of the turns
+     * @return the time
+     */
+    private static long tabled(int[] code, int[] masks) {
+        TransitionTable table = new TransitionTable(code);
+        MaskSensor sensor = new MaskSensor();
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            int pc = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < TURNS; i++) {
+                pc = BytecodeVM.nextPc(table.run(pc,
+                        masks[i & (MASK_COUNT - 1)], sensor, STEP_LIMIT));
+            }
+            long nanos = System.nanoTime() - start;
+            Benchmark.consume(pc);
+            if (round > 0) {
+                best = Math.min(best, nanos);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Measures {@code p} both ways and reports the throughputs.
+     *
+     * @param label
+     *            the name of the program
+     * @param p
+     *            the program
+     * @param masks
+     *            the masks of the turns
+     * @param out
+     *            the output stream
+     */
+    private static void measure(String label, Program p, int[] masks,
+            SimpleWriter out) {
+        int[] code = p.generatedCode();
+        long vm = interpreted(code, masks);
+        long table = tabled(code, masks);
+        out.println(label + " (" + code.length + " ints): BytecodeVM "
+                + (TURNS * 1_000L / vm) + " M turns/s, TransitionTable "
+                + (TURNS * 1_000L / table) + " M turns/s, speedup "
+                + String.format("%.2f", (double) vm / table));
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments
+     * @throws IOException
+     *             if a program cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        SimpleWriter out = new SimpleWriter1L();
+        Random random = new Random(0);
+        int[] masks = new int[MASK_COUNT];
+        for (int i = 0; i < MASK_COUNT; i++) {
+            masks[i] = 1 << random.nextInt(4);
+        }
+        for (String name : FILE_NAMES) {
+            Program p = new Program2();
+            BLParser.parse(p, Paths.get(name));
+            measure(name, p, masks, out);
+        }
+        for (int[] shape : SHAPES) {
+            Program p = new Program2();
+            Statement block = p.newBody();
+            Benchmark.fillBlock(block, shape[0], shape[1]);
+            Statement loop = block.newInstance();
+            loop.assembleWhile(Condition.TRUE, block);
+            Statement body = p.newBody();
+            body.addToBlock(0, loop);
+            p.swapBody(body);
+            measure("synthetic w" + shape[0] + " d" + shape[1], p, masks,
+                    out);
+        }
+        out.close();
+    }
+
+}
@@ -0,0 +1,336 @@
+/**
+ * Memoized transitions of the bytecode produced by
+ * {@code Program.generatedCode()}. Between two primitive instructions, the
+ * path a turn takes depends only on the program counter it resumes at, on
+ * what is in the cell in front of the bug, and on the answers to the RANDOM
+ * tests along the way. The cell is given as a sensor mask, so each
+ * {@code (pc, mask)} pair has one transition: the next primitive instruction
+ * with the program counter after it, or the next RANDOM test. Transitions are
+ * computed the first time they are needed and kept, so a turn in a program
+ * already seen costs one lookup, plus one per RANDOM test.
+ *
+ * <p>
+ * A table is not safe for use by several threads at once.
+ * </p>
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public final class TransitionTable {
+
+    /**
+     * Mask bit: the cell in front of the bug is empty.
+     */
+    public static final int EMPTY = 1;
+
+    /**
+     * Mask bit: the cell in front of the bug is a wall.
+     */
+    public static final int WALL = 2;
+
+    /**
+     * Mask bit: the cell in front of the bug holds a bug of its species.
+     */
+    public static final int FRIEND = 4;
+
+    /**
+     * Mask bit: the cell in front of the bug holds a bug of another species.
+     */
+    public static final int ENEMY = 8;
+
+    /**
+     * Number of sensor masks.
+     */
+    public static final int MASKS = 16;
+
+    /**
+     * Ordinal of {@code Condition.RANDOM}.
+     */
+    private static final int RANDOM = 8;
+
+    /**
+     * Opcode of {@code Instruction.JUMP_IF_NOT_RANDOM}.
+     */
+    private static final int JUMP_IF_NOT_RANDOM = BytecodeVM.JUMP_IF_NOT_BASE
+            + RANDOM;
+
+    /**
+     * Instruction of a transition ending at a RANDOM test, at the
+     * transition's program counter.
+     */
+    private static final int RANDOM_TEST = 0xFE;
+
+    /**
+     * Instruction of a transition that loops forever without a primitive
+     * instruction or a RANDOM test.
+     */
+    private static final int LOOP = 0xFD;
+
+    /**
+     * Bits of a transition holding the instruction.
+     */
+    private static final int INSTRUCTION_MASK = 0xFF;
+
+    /**
+     * Position of the step count in a transition.
+     */
+    private static final int STEPS_SHIFT = 8;
+
+    /**
+     * Position of the program counter in a transition.
+     */
+    private static final int PC_SHIFT = 32;
+
+    /**
+     * The code.
+     */
+    private final int[] code;
+
+    /**
+     * Transitions, packed like the results of {@code BytecodeVM.run}, indexed
+     * by program counter times MASKS plus mask; 0 for one not yet computed.
+     * Allocated on first use.
+     */
+    private long[] transitions;
+
+    /**
+     * Constructor.
+     *
+     * @param code
+     *            the program, as returned by {@code generatedCode()}
+     * @aliases reference code
+     * @requires [code is a valid generatedCode() program]
+     * @ensures [this is the table of code, with no transitions computed]
+     */
+    public TransitionTable(int[] code) {
+        assert code != null : "Violation of: code is not null";
+
+        this.code = code;
+    }
+
+    /**
+     * Packs a transition or a result.
+     *
+     * @param pc
+     *            the program counter
+     * @param steps
+     *            the number of instructions executed
+     * @param instruction
+     *            the opcode
+     * @return the packed transition
+     */
+    private static long pack(int pc, int steps, int instruction) {
+        return ((long) pc << PC_SHIFT) | ((long) steps << STEPS_SHIFT)
+                | instruction;
+    }
+
+    /**
+     * Reports whether the condition with ordinal {@code condition}, other
+     * than RANDOM and TRUE, holds for sensor mask {@code mask}.
+     *
+     * @param condition
+     *            the ordinal of the condition
+     * @param mask
+     *            the sensor mask
+     * @return true iff the condition holds
+     */
+    private static boolean holds(int condition, int mask) {
+        return (((mask >> (condition >> 1)) ^ condition) & 1) != 0;
+    }
+
+    /**
+     * Computes the transition from {@code pc} for {@code mask}.
+     *
+     * @param pc
+     *            the program counter
+     * @param mask
+     *            the sensor mask
+     * @return the transition
+     */
+    private long transition(int pc, int mask) {
+        int at = pc;
+        int steps = 0;
+        long result = 0;
+        while (result == 0) {
+            int op = this.code[at];
+            if (steps > this.code.length) {
+                result = pack(pc, 0, LOOP);
+            } else if (op >= BytecodeVM.MOVE && op <= BytecodeVM.SKIP) {
+                result = pack(at + 1, steps + 1, op);
+            } else if (op == BytecodeVM.HALT || op == BytecodeVM.BLOCKED) {
+                result = pack(at, steps + 1, op);
+            } else if (op == JUMP_IF_NOT_RANDOM) {
+                result = pack(at, steps, RANDOM_TEST);
+            } else if (op == BytecodeVM.JUMP) {
+                at = this.code[at + 1];
+                steps++;
+            } else if (op == BytecodeVM.JUMP_IF_NOT_TRUE || holds(
+                    op - BytecodeVM.JUMP_IF_NOT_BASE, mask)) {
+                at += 2;
+                steps++;
+            } else {
+                at = this.code[at + 1];
+                steps++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Runs a turn from {@code pc} instruction by instruction, as
+     * {@code BytecodeVM.run} does, for turns that reach the step limit.
+     *
+     * @param pc
+     *            the program counter
+     * @param mask
+     *            the sensor mask
+     * @param sensor
+     *            the source of the answers to the RANDOM tests
+     * @param stepLimit
+     *            the maximum number of instructions to execute
+     * @return the packed result
+     */
+    private long interpret(int pc, int mask, WorldSensor sensor,
+            int stepLimit) {
+        int at = pc;
+        int steps = 0;
+        long result = 0;
+        while (result == 0 && steps < stepLimit) {
+            int op = this.code[at];
+            steps++;
+            if (op >= BytecodeVM.MOVE && op <= BytecodeVM.SKIP) {
+                result = pack(at + 1, steps, op);
+            } else if (op == BytecodeVM.HALT || op == BytecodeVM.BLOCKED) {
+                result = pack(at, steps, op);
+            } else if (op == BytecodeVM.JUMP) {
+                at = this.code[at + 1];
+            } else if (op == BytecodeVM.JUMP_IF_NOT_TRUE
+                    || (op == JUMP_IF_NOT_RANDOM && sensor.test(RANDOM))
+                    || (op != JUMP_IF_NOT_RANDOM && holds(
+                            op - BytecodeVM.JUMP_IF_NOT_BASE, mask))) {
+                at += 2;
+            } else {
+                at = this.code[at + 1];
+            }
+        }
+        if (result == 0) {
+            result = pack(at, steps, BytecodeVM.BLOCKED);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the transition from {@code pc} for {@code mask}, computing it
+     * if this is its first use.
+     *
+     * @param pc
+     *            the program counter
+     * @param mask
+     *            the sensor mask
+     * @return the transition
+     */
+    private long lookup(int pc, int mask) {
+        int index = pc * MASKS + mask;
+        long result = this.transitions[index];
+        if (result == 0) {
+            result = this.transition(pc, mask);
+            this.transitions[index] = result;
+        }
+        return result;
+    }
+
+    /**
+     * Runs a turn from {@code pc} through its transitions, drawing RANDOM
+     * answers between them, and instruction by instruction once the step
+     * limit is near.
+     *
+     * @param pc
+     *            the program counter
+     * @param mask
+     *            the sensor mask
+     * @param sensor
+     *            the source of the answers to the RANDOM tests
+     * @param stepLimit
+     *            the maximum number of instructions to execute
+     * @return the packed result
+     */
+    private long chain(int pc, int mask, WorldSensor sensor, int stepLimit) {
+        int at = pc;
+        int steps = 0;
+        long result = 0;
+        while (result == 0) {
+            long t = this.lookup(at, mask);
+            int instruction = (int) t & INSTRUCTION_MASK;
+            int taken = steps + ((int) (t >>> STEPS_SHIFT)
+                    & BytecodeVM.MAX_STEP_LIMIT);
+            int next = (int) (t >>> PC_SHIFT);
+            if (instruction == RANDOM_TEST && taken < stepLimit) {
+                steps = taken + 1;
+                if (sensor.test(RANDOM)) {
+                    at = next + 2;
+                } else {
+                    at = this.code[next + 1];
+                }
+            } else if (instruction < LOOP && taken <= stepLimit) {
+                result = pack(next, taken, instruction);
+            } else {
+                long r = this.interpret(at, mask, sensor, stepLimit - steps);
+                result = pack(BytecodeVM.nextPc(r),
+                        steps + BytecodeVM.steps(r),
+                        BytecodeVM.instruction(r));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Runs one turn of a bug starting at {@code pc}, with the cell in front
+     * of it described by {@code mask}, and returns the packed result, whose
+     * parts are extracted by {@code BytecodeVM.nextPc},
+     * {@code BytecodeVM.instruction} and {@code BytecodeVM.steps}.
+     *
+     * @param pc
+     *            the program counter
+     * @param mask
+     *            the sensor mask: the bits of what the cell in front of the
+     *            bug is
+     * @param sensor
+     *            the source of the answers to the RANDOM tests; asked about
+     *            no other condition
+     * @param stepLimit
+     *            the maximum number of instructions to execute
+     * @return the packed result
+     * @updates this
+     * @requires <pre>
+     * 0 <= pc < |code| and [pc is the address of an instruction] and
+     * 0 <= mask < MASKS and 0 < stepLimit <= MAX_STEP_LIMIT
+     * </pre>
+     * @ensures <pre>
+     * run = BytecodeVM.run(code, pc, s, stepLimit), where s answers each
+     *  NEXT_IS_ condition from the bits of mask and RANDOM from sensor
+     * </pre>
+     */
+    public long run(int pc, int mask, WorldSensor sensor, int stepLimit) {
+        assert sensor != null : "Violation of: sensor is not null";
+        assert 0 <= pc && pc < this.code.length : ""
+                + "Violation of: 0 <= pc < |code|";
+        assert 0 <= mask && mask < MASKS : "Violation of: 0 <= mask < MASKS";
+        assert 0 < stepLimit && stepLimit <= BytecodeVM.MAX_STEP_LIMIT : ""
+                + "Violation of: 0 < stepLimit <= MAX_STEP_LIMIT";
+
+        if (this.transitions == null) {
+            this.transitions = new long[this.code.length * MASKS];
+        }
+        /*
+         * A transition from pc to a primitive instruction, HALT or BLOCKED
+         * within the step limit is the result itself
+         */
+        long result = this.lookup(pc, mask);
+        if (((int) result & INSTRUCTION_MASK) >= LOOP
+                || BytecodeVM.steps(result) > stepLimit) {
+            result = this.chain(pc, mask, sensor, stepLimit);
+        }
+        return result;
+    }
+
+}
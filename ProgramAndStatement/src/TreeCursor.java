@@ -0,0 +1,143 @@
+import components.statement.StatementKernel.Condition;
+
+/**
+ * Execution cursor of one bug over a {@code ProgramImage}. Each turn follows
+ * the image's precomputed successor addresses from the cursor's position
+ * until it reaches a primitive instruction, so the statement trees are never
+ * disassembled or searched while the program runs. CALLs of user-defined
+ * instructions push their successor onto a return stack sized for the
+ * image's deepest chain of CALLs; running a turn allocates nothing.
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public final class TreeCursor {
+
+    /**
+     * Ordinal of {@code Condition.TRUE}, which is decided without the sensor.
+     */
+    private static final int TRUE = Condition.TRUE.ordinal();
+
+    /**
+     * The image being run.
+     */
+    private final ProgramImage image;
+
+    /**
+     * Return addresses of the CALLs being executed.
+     */
+    private final int[] returns;
+
+    /**
+     * Number of entries of {@code returns} in use.
+     */
+    private int depth;
+
+    /**
+     * Address at which the next turn starts.
+     */
+    private int position;
+
+    /**
+     * Number of entries visited in the last turn.
+     */
+    private int steps;
+
+    /**
+     * Constructor.
+     *
+     * @param image
+     *            the image to run
+     */
+    public TreeCursor(ProgramImage image) {
+        assert image != null : "Violation of: image is not null";
+
+        this.image = image;
+        this.returns = new int[image.maxCallDepth()];
+        this.reset();
+    }
+
+    /**
+     * Moves this cursor back to the start of the main body.
+     */
+    public void reset() {
+        this.depth = 0;
+        this.position = this.image.start();
+        this.steps = 0;
+    }
+
+    /**
+     * Runs one turn and returns its result: the {@code BytecodeVM} opcode of
+     * the primitive instruction reached, which is the bug's action and after
+     * which the next turn starts; HALT if the main body has finished; or
+     * BLOCKED if {@code stepLimit} entries were visited without reaching
+     * either, in which case the next turn carries on from where this one
+     * stopped.
+     *
+     * @param sensor
+     *            the source of the answers to the conditions tested
+     * @param stepLimit
+     *            the maximum number of entries to visit
+     * @return the opcode of the action, HALT or BLOCKED
+     * @requires stepLimit > 0
+     * @ensures <pre>
+     * [nextAction = the result of the turn of the bug from the position of
+     *  this cursor, with conditions answered by sensor]
+     * </pre>
+     */
+    public int nextAction(WorldSensor sensor, int stepLimit) {
+        assert sensor != null : "Violation of: sensor is not null";
+        assert stepLimit > 0 : "Violation of: stepLimit > 0";
+
+        ProgramImage code = this.image;
+        int a = this.position;
+        int count = 0;
+        while (count < stepLimit) {
+            while (a == ProgramImage.END && this.depth > 0) {
+                this.depth--;
+                a = this.returns[this.depth];
+            }
+            count++;
+            if (a == ProgramImage.END) {
+                this.position = a;
+                this.steps = count;
+                return BytecodeVM.HALT;
+            }
+            switch (code.op(a)) {
+                case ProgramImage.TEST: {
+                    int c = code.operand(a);
+                    if (c == TRUE || sensor.test(c)) {
+                        a = code.next(a);
+                    } else {
+                        a = code.other(a);
+                    }
+                    break;
+                }
+                case ProgramImage.ACTION: {
+                    this.position = code.next(a);
+                    this.steps = count;
+                    return code.operand(a);
+                }
+                default: {
+                    this.returns[this.depth] = code.next(a);
+                    this.depth++;
+                    a = code.other(a);
+                    break;
+                }
+            }
+        }
+        this.position = a;
+        this.steps = count;
+        return BytecodeVM.BLOCKED;
+    }
+
+    /**
+     * Reports the number of entries visited in the last turn.
+     *
+     * @return the number of entries visited
+     */
+    public int steps() {
+        return this.steps;
+    }
+
+}
@@ -0,0 +1,126 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+
+import components.program.Program;
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+
+/**
+ * Measures the step throughput of {@code BytecodeVM} on a small hand-written
+ * program and on the sample program, with a sensor answering from a
+ * pseudo-random bit stream.
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public final class VMBenchmark {
+
+    /**
+     * Number of turns run per measurement.
+     */
+    private static final int TURNS = 50_000_000;
+
+    /**
+     * Number of measurements of each program; the first is a warm-up.
+     */
+    private static final int ROUNDS = 4;
+
+    /**
+     * Step limit of each turn.
+     */
+    private static final int STEP_LIMIT = 1_000;
+
+    /**
+     * Body of the hand-written program.
+     */
+    private static final String SIMPLE = "PROGRAM Simple IS BEGIN"
+            + " WHILE true DO"
+            + "   IF next-is-empty THEN move"
+            + "   ELSE IF next-is-enemy THEN infect"
+            + "   ELSE IF random THEN turnleft ELSE turnright END IF"
+            + "   END IF END IF"
+            + " END WHILE END Simple";
+
+    /**
+     * Sensor answering every test with the next bit of an xorshift stream.
+     */
+    private static final class RandomSensor implements WorldSensor {
+
+        /**
+         * The generator state.
+         */
+        private long state = 0x9E3779B97F4A7C15L;
+
+        @Override
+        public boolean test(int condition) {
+            this.state ^= this.state << 13;
+            this.state ^= this.state >>> 7;
+            this.state ^= this.state << 17;
+            return this.state < 0;
+        }
+
+    }
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private VMBenchmark() {
+    }
+
+    /**
+     * Runs {@code TURNS} turns of {@code code} and reports the throughput.
+     *
+     * @param label
+     *            the name of the program
+     * @param code
+     *            the program
+     * @param out
+     *            the output stream
+     */
+    private static void measure(String label, int[] code, SimpleWriter out) {
+        WorldSensor sensor = new RandomSensor();
+        for (int round = 0; round < ROUNDS; round++) {
+            int pc = 0;
+            long steps = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < TURNS; i++) {
+                long r = BytecodeVM.run(code, pc, sensor, STEP_LIMIT);
+                pc = BytecodeVM.nextPc(r);
+                steps += BytecodeVM.steps(r);
+            }
+            long nanos = System.nanoTime() - start;
+            Benchmark.consume(pc);
+            if (round > 0) {
+                out.println(label + ": " + (steps * 1_000 / nanos)
+                        + " M instructions/s, " + (TURNS * 1_000L / nanos)
+                        + " M turns/s");
+            }
+        }
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments
+     * @throws IOException
+     *             if the sample program cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        SimpleWriter out = new SimpleWriter1L();
+
+        Program simple = new Program2();
+        BLParser.parse(simple,
+                ByteBuffer.wrap(SIMPLE.getBytes(StandardCharsets.US_ASCII)));
+        measure("Simple", simple.generatedCode(), out);
+
+        Program sample = new Program2();
+        BLParser.parse(sample, Paths.get("data/program-sample.bl"));
+        measure("program-sample", sample.generatedCode(), out);
+
+        out.close();
+    }
+
+}
@@ -0,0 +1,128 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Random;
+
+import components.program.Program;
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+
+/**
+ * Measures the throughput of {@code BugWorld} in bug-turns per second on a
+ * large grid with scattered walls, populated by one species per data program
+ * and one running a hand-written wanderer.
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public final class WorldBenchmark {
+
+    /**
+     * Side of the grid.
+     */
+    private static final int SIDE = 1024;
+
+    /**
+     * Number of bugs.
+     */
+    private static final int BUGS = 100_000;
+
+    /**
+     * Number of walls.
+     */
+    private static final int WALLS = SIDE * SIDE / 10;
+
+    /**
+     * Number of rounds run per measurement.
+     */
+    private static final int ROUNDS = 200;
+
+    /**
+     * Number of measurements; the first is a warm-up.
+     */
+    private static final int MEASUREMENTS = 4;
+
+    /**
+     * The names of files containing BL programs.
+     */
+    private static final String[] FILE_NAMES = { "data/program-sample.bl",
+            "data/program-test1.bl", "data/program-test2.bl" };
+
+    /**
+     * A program that wanders around, infecting enemies.
+     */
+    private static final String WANDERER = "PROGRAM Wanderer IS BEGIN"
+            + " WHILE true DO"
+            + "   IF next-is-empty THEN move"
+            + "   ELSE IF next-is-enemy THEN infect"
+            + "   ELSE IF random THEN turnleft ELSE turnright END IF"
+            + "   END IF END IF"
+            + " END WHILE END Wanderer";
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private WorldBenchmark() {
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            the command line arguments
+     * @throws IOException
+     *             if a program cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        SimpleWriter out = new SimpleWriter1L();
+        BugWorld world = new BugWorld(SIDE, SIDE, BUGS, 0);
+        for (String name : FILE_NAMES) {
+            Program p = new Program2();
+            BLParser.parse(p, Paths.get(name));
+            world.addSpecies(p.generatedCode());
+        }
+        Program wanderer = new Program2();
+        BLParser.parse(wanderer,
+                ByteBuffer.wrap(WANDERER.getBytes(StandardCharsets.US_ASCII)));
+        int species = world.addSpecies(wanderer.generatedCode()) + 1;
+
+        Random random = new Random(0);
+        for (int i = 0; i < WALLS; i++) {
+            int x = random.nextInt(SIDE), y = random.nextInt(SIDE);
+            if (!world.isWall(x, y)) {
+                world.addWall(x, y);
+            }
+        }
+        while (world.bugCount() < BUGS) {
+            int x = random.nextInt(SIDE), y = random.nextInt(SIDE);
+            if (!world.isWall(x, y) && world.bugAt(x, y) < 0) {
+                world.addBug(x, y, random.nextInt(BugWorld.WEST + 1),
+                        world.bugCount() % species);
+            }
+        }
+
+        for (int m = 0; m < MEASUREMENTS; m++) {
+            long start = System.nanoTime();
+            world.run(ROUNDS);
+            long nanos = System.nanoTime() - start;
+            if (m > 0) {
+                out.println(BUGS + " bugs on " + SIDE + "x" + SIDE + ": "
+                        + ((long) BUGS * ROUNDS * 1_000 / nanos)
+                        + " M bug-turns/s");
+            }
+        }
+        int[] counts = new int[species];
+        for (int b = 0; b < world.bugCount(); b++) {
+            counts[world.species(b)]++;
+        }
+        out.print("bugs per species after " + world.rounds() + " rounds:");
+        for (int count : counts) {
+            out.print(" " + count);
+        }
+        out.println();
+
+        out.close();
+    }
+
+}
@@ -0,0 +1,28 @@
+/**
+ * Source of the answers to the conditions tested by a running bug, such as
+ * whether the cell in front of it is empty. Implementations are called once
+ * for every conditional jump executed, so they should not allocate.
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public interface WorldSensor {
+
+    /**
+     * Reports whether the condition with ordinal {@code condition} holds for
+     * the bug being run. The condition is never {@code Condition.TRUE}, which
+     * the interpreter decides itself; {@code Condition.RANDOM} is left to the
+     * sensor so that callers control the source of randomness.
+     *
+     * @param condition
+     *            the ordinal of the {@code Condition} to test
+     * @return true iff the condition holds
+     * @requires <pre>
+     * 0 <= condition < [number of Conditions] and
+     * condition /= Condition.TRUE.ordinal()
+     * </pre>
+     * @ensures test = [the condition holds for the bug being run]
+     */
+    boolean test(int condition);
+
+}
@@ -0,0 +1,313 @@
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import components.map.Map;
+import components.program.Program;
+import components.program.Program1;
+import components.queue.Queue;
+import components.simplereader.SimpleReader;
+import components.simplereader.SimpleReader1L;
+import components.statement.Statement;
+import components.statement.Statement1;
+import components.statement.StatementKernel.Condition;
+import components.statement.StatementKernel.Kind;
+import components.utilities.Tokenizer;
+
+/**
+ * JUnit test fixture for {@code BLBinaryWriter} and {@code BLBinaryReader}.
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public class BLBinaryTest {
+
+    /**
+     * The name of a file containing a BL program.
+     */
+    private static final String FILE_NAME_1 = "data/program-sample.bl";
+    /**
+     * The name of a file containing a BL program.
+     */
+    private static final String FILE_NAME_2 = "data/program-test1.bl";
+    /**
+     * The name of a file containing a sequence of BL statements.
+     */
+    private static final String FILE_NAME_3 = "data/statement-sample.bl";
+
+    /**
+     * Creates and returns a {@code Program1} parsed by the library from the
+     * file with the given name.
+     *
+     * @param filename
+     *            the name of the file to be parsed to create the program
+     * @return the constructed program
+     * @ensures createFromFileRef = [the program as parsed from the file]
+     */
+    private static Program createFromFileRef(String filename) {
+        Program p = new Program1();
+        SimpleReader file = new SimpleReader1L(filename);
+        p.parse(file);
+        file.close();
+        return p;
+    }
+
+    /**
+     * Test round trip of a Program2.
+     */
+    @Test
+    public final void testRoundTripProgram2() {
+        /*
+         * Setup
+         */
+        Program pRef = createFromFileRef(FILE_NAME_1);
+        Program pOrig = new Program2();
+        SimpleReader file = new SimpleReader1L(FILE_NAME_1);
+        pOrig.parse(file);
+        file.close();
+        Program pTest = new Program2();
+
+        /*
+         * The call
+         */
+        BLBinaryReader.read(pTest, BLBinaryWriter.toBytes(pOrig));
+
+        /*
+         * Evaluation
+         */
+        assertEquals(pRef, pOrig);
+        assertEquals(pRef, pTest);
+    }
+
+    /**
+     * Test round trip from a Program1 to a Program3.
+     */
+    @Test
+    public final void testRoundTripProgram3() {
+        /*
+         * Setup
+         */
+        Program pRef = createFromFileRef(FILE_NAME_2);
+        Program pTest = new Program3();
+
+        /*
+         * The call
+         */
+        BLBinaryReader.read(pTest, BLBinaryWriter.toBytes(pRef));
+
+        /*
+         * Evaluation
+         */
+        assertEquals(createFromFileRef(FILE_NAME_2), pRef);
+        assertEquals(pRef, pTest);
+    }
+
+    /**
+     * Test round trip of a Statement2.
+     */
+    @Test
+    public final void testRoundTripStatement2() {
+        /*
+         * Setup
+         */
+        Statement sRef = new Statement1();
+        SimpleReader file = new SimpleReader1L(FILE_NAME_3);
+        Queue<String> tokens = Tokenizer.tokens(file);
+        sRef.parseBlock(tokens);
+        file.close();
+        Statement sTest = new Statement2();
+
+        /*
+         * The call
+         */
+        BLBinaryReader.readStatement(sTest, BLBinaryWriter.toBytes(sRef));
+
+        /*
+         * Evaluation
+         */
+        assertEquals(sRef, sTest);
+    }
+
+    /**
+     * Test that an encoding of another version is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public final void testReadOtherVersion() {
+        /*
+         * Setup
+         */
+        Program pRef = createFromFileRef(FILE_NAME_1);
+        byte[] bytes = BLBinaryWriter.toBytes(pRef);
+        final int versionOffset = 4;
+        bytes[versionOffset] = (byte) (BLBinaryWriter.VERSION + 1);
+
+        /*
+         * The call
+         */
+        BLBinaryReader.read(new Program2(), bytes);
+    }
+
+    /**
+     * Test that an encoding nesting WHILE statements far too deep is rejected
+     * as malformed instead of overflowing the stack.
+     *
+     * @throws IOException
+     *             never
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public final void testReadTooDeep() throws IOException {
+        /*
+         * Setup
+         */
+        final int levels = 100_000;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(BLBinaryWriter.MAGIC);
+        out.writeByte(BLBinaryWriter.VERSION);
+        out.writeByte(BLBinaryWriter.STATEMENT);
+        out.writeByte(0);
+        for (int i = 0; i < levels; i++) {
+            out.writeByte(Kind.BLOCK.ordinal() * BLBinaryWriter.KIND_SHIFT);
+            out.writeByte(1);
+            out.writeByte(Kind.WHILE.ordinal() * BLBinaryWriter.KIND_SHIFT);
+        }
+
+        /*
+         * The call
+         */
+        BLBinaryReader.readStatement(new Statement2(), bytes.toByteArray());
+    }
+
+    /**
+     * Test that an encoding defining an instruction named like a primitive
+     * instruction is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public final void testReadPrimitiveInstruction() {
+        /*
+         * Setup
+         */
+        Program pRef = new Program1();
+        pRef.setName("Test");
+        Map<String, Statement> context = pRef.newContext();
+        context.add("abcd", pRef.newBody());
+        pRef.swapContext(context);
+        byte[] bytes = BLBinaryWriter.toBytes(pRef);
+        String encoded = new String(bytes, StandardCharsets.ISO_8859_1);
+        int at = encoded.indexOf("abcd");
+        byte[] move = "move".getBytes(StandardCharsets.ISO_8859_1);
+        System.arraycopy(move, 0, bytes, at, move.length);
+
+        /*
+         * The call
+         */
+        BLBinaryReader.read(new Program2(), bytes);
+    }
+
+    /**
+     * Creates and returns a statement whose deepest node is nested
+     * {@code depth} deep, alternating BLOCK and WHILE nodes down to an empty
+     * BLOCK.
+     *
+     * @param depth
+     *            the nesting depth of the deepest node
+     * @return the statement
+     */
+    private static Statement createNested(int depth) {
+        Statement s = new Statement1();
+        for (int i = 0; i < depth; i++) {
+            Statement outer = s.newInstance();
+            if (s.kind() == Kind.BLOCK) {
+                outer.assembleWhile(Condition.NEXT_IS_EMPTY, s);
+            } else {
+                outer.addToBlock(0, s);
+            }
+            s = outer;
+        }
+        return s;
+    }
+
+    /**
+     * Test round trip of a statement nested exactly as deep as the encoding
+     * allows.
+     */
+    @Test
+    public final void testRoundTripMaxDepth() {
+        /*
+         * Setup
+         */
+        Statement sRef = createNested(BLBinaryWriter.MAX_DEPTH);
+        Statement sTest = new Statement2();
+
+        /*
+         * The call
+         */
+        BLBinaryReader.readStatement(sTest, BLBinaryWriter.toBytes(sRef));
+
+        /*
+         * Evaluation
+         */
+        assertEquals(sRef, sTest);
+    }
+
+    /**
+     * Test that a statement nested deeper than the encoding allows is
+     * rejected when written, rather than producing an unreadable encoding.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public final void testWriteTooDeep() {
+        /*
+         * Setup
+         */
+        Statement sRef = createNested(BLBinaryWriter.MAX_DEPTH + 1);
+
+        /*
+         * The call
+         */
+        BLBinaryWriter.toBytes(sRef);
+    }
+
+    /**
+     * Test that one lazy reader decodes the same body correctly into
+     * statements of two different dynamic types, one after the other.
+     */
+    @Test
+    public final void testReadBodyAtTwoTypes() {
+        /*
+         * Setup
+         */
+        Program pRef = createFromFileRef(FILE_NAME_1);
+        Statement bRef = pRef.newBody();
+        pRef.swapBody(bRef);
+        BLBinaryReader reader = BLBinaryReader
+                .ofProgram(ByteBuffer.wrap(BLBinaryWriter.toBytes(pRef)));
+        reader.nextIdentifier();
+        int count = reader.nextCount();
+        for (int i = 0; i < count; i++) {
+            reader.nextInstruction();
+            reader.skipBody();
+        }
+        int position = reader.skipBody();
+        Statement sTest1 = new Statement1();
+        Statement sTest2 = new Statement2();
+
+        /*
+         * The call
+         */
+        reader.readBodyAt(position, sTest1);
+        reader.readBodyAt(position, sTest2);
+
+        /*
+         * Evaluation
+         */
+        assertEquals(bRef, sTest1);
+        assertEquals(bRef, sTest2);
+    }
+
+}
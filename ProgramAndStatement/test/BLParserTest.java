@@ -0,0 +1,169 @@
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.Test;
+
+import components.program.Program;
+import components.program.Program1;
+import components.simplereader.SimpleReader;
+import components.simplereader.SimpleReader1L;
+
+/**
+ * JUnit test fixture for {@code BLParser}.
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public class BLParserTest {
+
+    /**
+     * The name of a file containing a BL program.
+     */
+    private static final String FILE_NAME_1 = "data/program-sample.bl";
+    /**
+     * The name of a file containing a BL program.
+     */
+    private static final String FILE_NAME_2 = "data/program-test1.bl";
+    /**
+     * The name of a file containing a BL program.
+     */
+    private static final String FILE_NAME_3 = "data/program-test2.bl";
+
+    /**
+     * Creates and returns a {@code Program1} parsed by the library from the
+     * file with the given name.
+     *
+     * @param filename
+     *            the name of the file to be parsed to create the program
+     * @return the constructed program
+     * @ensures createFromFileRef = [the program as parsed from the file]
+     */
+    private static Program createFromFileRef(String filename) {
+        Program p = new Program1();
+        SimpleReader file = new SimpleReader1L(filename);
+        p.parse(file);
+        file.close();
+        return p;
+    }
+
+    /**
+     * Test parsing a memory-mapped file into a Program2.
+     *
+     * @throws IOException
+     *             if the file cannot be read
+     */
+    @Test
+    public final void testParseMappedProgram2() throws IOException {
+        /*
+         * Setup
+         */
+        Program pRef = createFromFileRef(FILE_NAME_1);
+        Program pTest = new Program2();
+
+        /*
+         * The call
+         */
+        BLParser.parse(pTest, Paths.get(FILE_NAME_1));
+
+        /*
+         * Evaluation
+         */
+        assertEquals(pRef, pTest);
+    }
+
+    /**
+     * Test parsing a memory-mapped file into a Program3.
+     *
+     * @throws IOException
+     *             if the file cannot be read
+     */
+    @Test
+    public final void testParseMappedProgram3() throws IOException {
+        /*
+         * Setup
+         */
+        Program pRef = createFromFileRef(FILE_NAME_2);
+        Program pTest = new Program3();
+
+        /*
+         * The call
+         */
+        BLParser.parse(pTest, Paths.get(FILE_NAME_2));
+
+        /*
+         * Evaluation
+         */
+        assertEquals(pRef, pTest);
+    }
+
+    /**
+     * Test parsing from a channel.
+     *
+     * @throws IOException
+     *             if the file cannot be read
+     */
+    @Test
+    public final void testParseChannel() throws IOException {
+        /*
+         * Setup
+         */
+        Program pRef = createFromFileRef(FILE_NAME_3);
+        Program pTest = new Program3();
+        Path path = Paths.get(FILE_NAME_3);
+
+        /*
+         * The call
+         */
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+            BLParser.parse(pTest, in);
+        }
+
+        /*
+         * Evaluation
+         */
+        assertEquals(pRef, pTest);
+    }
+
+    /**
+     * Test that a channel returning no data before its end is rejected
+     * instead of being read again and again.
+     *
+     * @throws IOException
+     *             always, since the channel returns no data
+     */
+    @Test(expected = IOException.class)
+    public final void testParseChannelWithoutData() throws IOException {
+        /*
+         * Setup
+         */
+        Program pTest = new Program3();
+        ReadableByteChannel in = new ReadableByteChannel() {
+            @Override
+            public int read(ByteBuffer dst) {
+                return 0;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        /*
+         * The call
+         */
+        BLParser.parse(pTest, in);
+    }
+
+}
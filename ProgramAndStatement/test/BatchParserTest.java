@@ -0,0 +1,135 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import components.program.Program;
+
+/**
+ * JUnit test fixture for {@code BatchParser}.
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public class BatchParserTest {
+
+    /**
+     * Test that every program of the data directory is parsed as it is by
+     * itself, and that the statement files are reported as errors.
+     *
+     * @throws IOException
+     *             if a file cannot be read
+     */
+    @Test
+    public final void testDataDirectory() throws IOException {
+        /*
+         * Setup
+         */
+        List<Path> files = BatchParser.listFiles(Paths.get("data"));
+
+        /*
+         * The call
+         */
+        ForkJoinPool pool = new ForkJoinPool(2);
+        BatchParser.Result[] results = BatchParser.parse(files, new Program2(),
+                pool);
+        pool.shutdown();
+
+        /*
+         * Evaluation
+         */
+        assertEquals(files.size(), results.length);
+        for (int i = 0; i < results.length; i++) {
+            Path file = files.get(i);
+            assertEquals(file, results[i].file());
+            if (file.getFileName().toString().startsWith("program")) {
+                Program pRef = new Program2();
+                BLParser.parse(pRef, file);
+                assertTrue(results[i].succeeded());
+                assertEquals(pRef, results[i].program());
+            } else {
+                assertFalse(results[i].succeeded());
+                assertTrue(results[i]
+                        .error() instanceof IllegalArgumentException);
+            }
+        }
+    }
+
+    /**
+     * Test that a missing file is reported without stopping the others.
+     */
+    @Test
+    public final void testMissingFile() {
+        /*
+         * Setup
+         */
+        List<Path> files = Arrays.asList(Paths.get("data/program-sample.bl"),
+                Paths.get("data/no-such-file.bl"),
+                Paths.get("data/program-test1.bl"));
+
+        /*
+         * The call
+         */
+        BatchParser.Result[] results = BatchParser.parse(files);
+
+        /*
+         * Evaluation
+         */
+        assertTrue(results[0].succeeded());
+        assertFalse(results[1].succeeded());
+        assertTrue(results[1].error() instanceof IOException);
+        assertTrue(results[2].succeeded());
+    }
+
+    /**
+     * Test that a file nested too deeply for the parser's stack is reported
+     * without stopping the others.
+     *
+     * @throws IOException
+     *             if the file cannot be written
+     */
+    @Test
+    public final void testTooDeepFile() throws IOException {
+        /*
+         * Setup
+         */
+        final int depth = 100000;
+        StringBuilder text = new StringBuilder("PROGRAM Deep IS\nBEGIN\n");
+        for (int i = 0; i < depth; i++) {
+            text.append("IF next-is-empty THEN\n");
+        }
+        for (int i = 0; i < depth; i++) {
+            text.append("END IF\n");
+        }
+        text.append("END Deep\n");
+        Path deep = Files.createTempFile("deep", ".bl");
+        Files.write(deep, text.toString().getBytes(StandardCharsets.US_ASCII));
+        List<Path> files = Arrays.asList(Paths.get("data/program-sample.bl"),
+                deep, Paths.get("data/program-test1.bl"));
+
+        /*
+         * The call
+         */
+        BatchParser.Result[] results = BatchParser.parse(files);
+        Files.delete(deep);
+
+        /*
+         * Evaluation
+         */
+        assertTrue(results[0].succeeded());
+        assertFalse(results[1].succeeded());
+        assertTrue(results[1].error() instanceof StackOverflowError);
+        assertTrue(results[2].succeeded());
+    }
+
+}
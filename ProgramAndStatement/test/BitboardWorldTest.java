@@ -0,0 +1,225 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.Test;
+
+import components.program.Program;
+
+/**
+ * JUnit test fixture for {@code BitboardWorld}.
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public class BitboardWorldTest {
+
+    /**
+     * Returns the code generated for the program with main body
+     * {@code body} and no instructions.
+     *
+     * @param body
+     *            the BL statements of the main body
+     * @return the generated code
+     * @throws IOException
+     *             never
+     */
+    private static int[] codeOf(String body) throws IOException {
+        String source = "PROGRAM Test IS BEGIN " + body + " END Test";
+        Program p = new Program2();
+        BLParser.parse(p,
+                ByteBuffer.wrap(source.getBytes(StandardCharsets.US_ASCII)));
+        return p.generatedCode();
+    }
+
+    /**
+     * Test that the bulk masks are those read bug by bug, on a crowded grid
+     * whose rows do not fill whole words, as the bugs move and infect.
+     *
+     * @throws IOException
+     *             never
+     */
+    @Test
+    public final void testSenseMatchesSenseEach() throws IOException {
+        /*
+         * Setup
+         */
+        final int side = 37, bugs = 500;
+        BitboardWorld world = new BitboardWorld(side, side, bugs, 1);
+        String wanderer = "WHILE true DO IF next-is-empty THEN move"
+                + " ELSE IF next-is-enemy THEN infect"
+                + " ELSE IF random THEN turnleft ELSE turnright END IF"
+                + " END IF END IF END WHILE";
+        int species = 3;
+        for (int s = 0; s < species; s++) {
+            world.addSpecies(codeOf(wanderer));
+        }
+        Random random = new Random(0);
+        for (int i = 0; i < side * side / 8; i++) {
+            int x = random.nextInt(side), y = random.nextInt(side);
+            if (!world.isWall(x, y)) {
+                world.addWall(x, y);
+            }
+        }
+        while (world.bugCount() < bugs) {
+            int x = random.nextInt(side), y = random.nextInt(side);
+            if (!world.isWall(x, y) && world.bugAt(x, y) < 0) {
+                world.addBug(x, y, random.nextInt(BugWorld.WEST + 1),
+                        world.bugCount() % species);
+            }
+        }
+        int[] bulk = new int[bugs];
+        int[] scalar = new int[bugs];
+
+        for (int round = 0; round < 20; round++) {
+            /*
+             * The call
+             */
+            world.sense(bulk);
+            world.senseEach(scalar);
+
+            /*
+             * Evaluation
+             */
+            assertArrayEquals(scalar, bulk);
+            world.step();
+        }
+    }
+
+    /**
+     * Test the sensor facing a wall, a friend, an enemy and an empty cell.
+     *
+     * @throws IOException
+     *             never
+     */
+    @Test
+    public final void testSensor() throws IOException {
+        /*
+         * Setup
+         */
+        BitboardWorld world = new BitboardWorld(3, 3, 5, 0);
+        int s = world.addSpecies(codeOf("IF next-is-wall THEN turnleft"
+                + " ELSE IF next-is-friend THEN turnright"
+                + " ELSE IF next-is-not-enemy THEN turnright turnright"
+                + " END IF END IF END IF"));
+        int t = world.addSpecies(codeOf("skip"));
+        int wall = world.addBug(0, 0, BugWorld.NORTH, s);
+        int friend = world.addBug(1, 0, BugWorld.WEST, s);
+        int enemy = world.addBug(1, 2, BugWorld.WEST, s);
+        int empty = world.addBug(2, 2, BugWorld.NORTH, s);
+        world.addBug(0, 2, BugWorld.NORTH, t);
+
+        /*
+         * The call
+         */
+        world.step();
+
+        /*
+         * Evaluation
+         */
+        assertEquals(BugWorld.WEST, world.direction(wall));
+        assertEquals(BugWorld.NORTH, world.direction(friend));
+        assertEquals(BugWorld.WEST, world.direction(enemy));
+        assertEquals(BugWorld.EAST, world.direction(empty));
+    }
+
+    /**
+     * Test that a bug senses the grid as the bugs before it in the round left
+     * it, on a grid crowded enough for bulk sensing.
+     *
+     * @throws IOException
+     *             never
+     */
+    @Test
+    public final void testSequentialSensing() throws IOException {
+        /*
+         * Setup
+         */
+        BitboardWorld world = new BitboardWorld(4, 1, 3, 0);
+        int s = world.addSpecies(codeOf("IF next-is-empty THEN move"
+                + " ELSE turnleft END IF"));
+        int t = world.addSpecies(codeOf("skip"));
+        int first = world.addBug(0, 0, BugWorld.EAST, s);
+        int second = world.addBug(2, 0, BugWorld.WEST, s);
+        world.addBug(3, 0, BugWorld.WEST, t);
+
+        /*
+         * The call
+         */
+        world.step();
+
+        /*
+         * Evaluation
+         */
+        assertEquals(1, world.x(first));
+        assertEquals(2, world.x(second));
+        assertEquals(BugWorld.SOUTH, world.direction(second));
+    }
+
+    /**
+     * Test that the world runs the same game as a BugWorld set up the same
+     * way, on a grid crowded enough for bulk sensing and on a sparse one.
+     *
+     * @throws IOException
+     *             never
+     */
+    @Test
+    public final void testSameAsBugWorld() throws IOException {
+        final int side = 37, rounds = 50;
+        String wanderer = "WHILE true DO IF next-is-empty THEN move"
+                + " ELSE IF next-is-enemy THEN infect"
+                + " ELSE IF random THEN turnleft ELSE turnright END IF"
+                + " END IF END IF END WHILE";
+        int[] code = codeOf(wanderer);
+        int species = 3;
+        for (int bugs : new int[] { 800, 100 }) {
+            /*
+             * Setup
+             */
+            BitboardWorld world = new BitboardWorld(side, side, bugs, 1);
+            BugWorld reference = new BugWorld(side, side, bugs, 1);
+            for (int s = 0; s < species; s++) {
+                world.addSpecies(code);
+                reference.addSpecies(code);
+            }
+            Random random = new Random(0);
+            for (int i = 0; i < side * side / 8; i++) {
+                int x = random.nextInt(side), y = random.nextInt(side);
+                if (!world.isWall(x, y)) {
+                    world.addWall(x, y);
+                    reference.addWall(x, y);
+                }
+            }
+            while (world.bugCount() < bugs) {
+                int x = random.nextInt(side), y = random.nextInt(side);
+                if (!world.isWall(x, y) && world.bugAt(x, y) < 0) {
+                    int d = random.nextInt(BugWorld.WEST + 1);
+                    int s = world.bugCount() % species;
+                    world.addBug(x, y, d, s);
+                    reference.addBug(x, y, d, s);
+                }
+            }
+
+            /*
+             * The call
+             */
+            world.run(rounds);
+            reference.run(rounds);
+
+            /*
+             * Evaluation
+             */
+            for (int b = 0; b < bugs; b++) {
+                assertEquals(reference.x(b), world.x(b));
+                assertEquals(reference.y(b), world.y(b));
+                assertEquals(reference.direction(b), world.direction(b));
+                assertEquals(reference.species(b), world.species(b));
+            }
+        }
+    }
+
+}
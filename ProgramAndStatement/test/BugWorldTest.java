@@ -0,0 +1,140 @@
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import components.program.Program;
+
+/**
+ * JUnit test fixture for {@code BugWorld}.
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public class BugWorldTest {
+
+    /**
+     * Returns the code generated for the program with main body
+     * {@code body} and no instructions.
+     *
+     * @param body
+     *            the BL statements of the main body
+     * @return the generated code
+     * @throws IOException
+     *             never
+     */
+    private static int[] codeOf(String body) throws IOException {
+        String source = "PROGRAM Test IS BEGIN " + body + " END Test";
+        Program p = new Program2();
+        BLParser.parse(p,
+                ByteBuffer.wrap(source.getBytes(StandardCharsets.US_ASCII)));
+        return p.generatedCode();
+    }
+
+    /**
+     * Test that a bug moves until it reaches a wall, and then stays.
+     *
+     * @throws IOException
+     *             never
+     */
+    @Test
+    public final void testMoveToWall() throws IOException {
+        /*
+         * Setup
+         */
+        BugWorld world = new BugWorld(6, 3, 1, 0);
+        int s = world.addSpecies(codeOf("WHILE true DO move END WHILE"));
+        world.addWall(4, 1);
+        int b = world.addBug(0, 1, BugWorld.EAST, s);
+
+        /*
+         * The call
+         */
+        world.run(10);
+
+        /*
+         * Evaluation
+         */
+        assertEquals(3, world.x(b));
+        assertEquals(1, world.y(b));
+        assertEquals(b, world.bugAt(3, 1));
+        assertEquals(-1, world.bugAt(0, 1));
+        assertEquals(10, world.rounds());
+    }
+
+    /**
+     * Test the sensor facing a wall, a friend, an enemy and an empty cell.
+     *
+     * @throws IOException
+     *             never
+     */
+    @Test
+    public final void testSensor() throws IOException {
+        /*
+         * Setup
+         */
+        BugWorld world = new BugWorld(3, 3, 5, 0);
+        int s = world.addSpecies(codeOf("IF next-is-wall THEN turnleft"
+                + " ELSE IF next-is-friend THEN turnright"
+                + " ELSE IF next-is-not-enemy THEN turnright turnright"
+                + " END IF END IF END IF"));
+        int t = world.addSpecies(codeOf("skip"));
+        int wall = world.addBug(0, 0, BugWorld.NORTH, s);
+        int friend = world.addBug(1, 0, BugWorld.WEST, s);
+        int enemy = world.addBug(1, 2, BugWorld.WEST, s);
+        int empty = world.addBug(2, 2, BugWorld.NORTH, s);
+        world.addBug(0, 2, BugWorld.NORTH, t);
+
+        /*
+         * The call
+         */
+        world.step();
+
+        /*
+         * Evaluation
+         */
+        assertEquals(BugWorld.WEST, world.direction(wall));
+        assertEquals(BugWorld.NORTH, world.direction(friend));
+        assertEquals(BugWorld.WEST, world.direction(enemy));
+        assertEquals(BugWorld.EAST, world.direction(empty));
+    }
+
+    /**
+     * Test that an infected bug takes on the infecting species and starts
+     * its program from the beginning.
+     *
+     * @throws IOException
+     *             never
+     */
+    @Test
+    public final void testInfect() throws IOException {
+        /*
+         * Setup
+         */
+        BugWorld world = new BugWorld(2, 1, 2, 0);
+        int s = world.addSpecies(codeOf("infect turnleft"));
+        int t = world.addSpecies(codeOf("skip skip skip skip"));
+        int infector = world.addBug(0, 0, BugWorld.EAST, s);
+        int infected = world.addBug(1, 0, BugWorld.WEST, t);
+
+        /*
+         * The call
+         */
+        world.step();
+
+        /*
+         * Evaluation
+         */
+        assertEquals(s, world.species(infector));
+        assertEquals(s, world.species(infected));
+        assertEquals(BugWorld.EAST, world.direction(infector));
+        assertEquals(BugWorld.WEST, world.direction(infected));
+        world.step();
+        assertEquals(BugWorld.NORTH, world.direction(infector));
+        assertEquals(BugWorld.SOUTH, world.direction(infected));
+    }
+
+}
@@ -0,0 +1,152 @@
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import components.program.Program;
+import components.program.Program.Instruction;
+
+/**
+ * JUnit test fixture for {@code BytecodeVM}.
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public class BytecodeVMTest {
+
+    /**
+     * Step limit used by the tests.
+     */
+    private static final int STEP_LIMIT = 100;
+
+    /**
+     * Returns the code generated for the program with main body
+     * {@code body} and no instructions.
+     *
+     * @param body
+     *            the BL statements of the main body
+     * @return the generated code
+     * @throws IOException
+     *             never
+     */
+    private static int[] codeOf(String body) throws IOException {
+        String source = "PROGRAM Test IS BEGIN " + body + " END Test";
+        Program p = new Program2();
+        BLParser.parse(p,
+                ByteBuffer.wrap(source.getBytes(StandardCharsets.US_ASCII)));
+        return p.generatedCode();
+    }
+
+    /**
+     * Test that the opcodes are the byte codes of the instructions.
+     */
+    @Test
+    public final void testOpcodes() {
+        assertEquals(Instruction.BLOCKED.byteCode(), BytecodeVM.BLOCKED);
+        assertEquals(Instruction.MOVE.byteCode(), BytecodeVM.MOVE);
+        assertEquals(Instruction.TURNLEFT.byteCode(), BytecodeVM.TURNLEFT);
+        assertEquals(Instruction.TURNRIGHT.byteCode(), BytecodeVM.TURNRIGHT);
+        assertEquals(Instruction.INFECT.byteCode(), BytecodeVM.INFECT);
+        assertEquals(Instruction.SKIP.byteCode(), BytecodeVM.SKIP);
+        assertEquals(Instruction.HALT.byteCode(), BytecodeVM.HALT);
+        assertEquals(Instruction.JUMP.byteCode(), BytecodeVM.JUMP);
+        assertEquals(Instruction.JUMP_IF_NOT_NEXT_IS_EMPTY.byteCode(),
+                BytecodeVM.JUMP_IF_NOT_BASE);
+        assertEquals(Instruction.JUMP_IF_NOT_TRUE.byteCode(),
+                BytecodeVM.JUMP_IF_NOT_TRUE);
+    }
+
+    /**
+     * Test IF_ELSE with the condition true and false, then HALT.
+     *
+     * @throws IOException
+     *             never
+     */
+    @Test
+    public final void testIfElse() throws IOException {
+        /*
+         * Setup
+         */
+        int[] code = codeOf("IF next-is-empty THEN move ELSE turnleft END IF");
+
+        /*
+         * The call
+         */
+        long yes = BytecodeVM.run(code, 0, c -> true, STEP_LIMIT);
+        long no = BytecodeVM.run(code, 0, c -> false, STEP_LIMIT);
+        long halt = BytecodeVM.run(code, BytecodeVM.nextPc(yes), c -> true,
+                STEP_LIMIT);
+
+        /*
+         * Evaluation
+         */
+        assertEquals(BytecodeVM.MOVE, BytecodeVM.instruction(yes));
+        assertEquals(BytecodeVM.TURNLEFT, BytecodeVM.instruction(no));
+        assertEquals(2, BytecodeVM.steps(yes));
+        assertEquals(BytecodeVM.HALT, BytecodeVM.instruction(halt));
+        assertEquals(BytecodeVM.nextPc(halt),
+                BytecodeVM.nextPc(BytecodeVM.run(code,
+                        BytecodeVM.nextPc(halt), c -> true, STEP_LIMIT)));
+    }
+
+    /**
+     * Test that WHILE true repeats its body on every turn.
+     *
+     * @throws IOException
+     *             never
+     */
+    @Test
+    public final void testWhileTrue() throws IOException {
+        /*
+         * Setup
+         */
+        int[] code = codeOf("WHILE true DO skip infect END WHILE");
+        int pc = 0;
+        StringBuilder actions = new StringBuilder();
+
+        /*
+         * The call
+         */
+        for (int i = 0; i < 4; i++) {
+            long r = BytecodeVM.run(code, pc, c -> false, STEP_LIMIT);
+            actions.append(BytecodeVM.instruction(r));
+            pc = BytecodeVM.nextPc(r);
+        }
+
+        /*
+         * Evaluation
+         */
+        String expected = "" + BytecodeVM.SKIP + BytecodeVM.INFECT
+                + BytecodeVM.SKIP + BytecodeVM.INFECT;
+        assertEquals(expected, actions.toString());
+    }
+
+    /**
+     * Test that a turn with no primitive instruction stops at the step limit.
+     *
+     * @throws IOException
+     *             never
+     */
+    @Test
+    public final void testStepLimit() throws IOException {
+        /*
+         * Setup
+         */
+        int[] code = codeOf("WHILE true DO END WHILE");
+
+        /*
+         * The call
+         */
+        long r = BytecodeVM.run(code, 0, c -> true, STEP_LIMIT);
+
+        /*
+         * Evaluation
+         */
+        assertEquals(BytecodeVM.BLOCKED, BytecodeVM.instruction(r));
+        assertEquals(STEP_LIMIT, BytecodeVM.steps(r));
+    }
+
+}
@@ -0,0 +1,363 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import components.program.Program;
+import components.statement.StatementKernel.Condition;
+
+/**
+ * JUnit test fixture for {@code CodeOptimizer}: differential tests running
+ * the original and the optimized code of each program in identical worlds.
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public class CodeOptimizerTest {
+
+    /**
+     * The names of files containing BL programs.
+     */
+    private static final String[] FILE_NAMES = { "data/program-sample.bl",
+            "data/program-test1.bl", "data/program-test2.bl" };
+
+    /**
+     * Programs exercising IF true, WHILE true and runs of turns.
+     */
+    private static final String[] SOURCES = {
+            "PROGRAM Spin IS BEGIN WHILE true DO"
+                    + " IF true THEN turnleft turnleft turnleft turnleft END IF"
+                    + " IF next-is-empty THEN move"
+                    + " ELSE turnright turnright turnright END IF"
+                    + " IF next-is-enemy THEN infect END IF"
+                    + " END WHILE END Spin",
+            "PROGRAM Wander IS"
+                    + " INSTRUCTION around IS turnleft turnleft END around"
+                    + " INSTRUCTION step IS"
+                    + "  IF random THEN turnright ELSE turnleft turnright END IF"
+                    + "  IF next-is-not-wall THEN move ELSE around END IF"
+                    + " END step"
+                    + " BEGIN WHILE true DO"
+                    + "  step"
+                    + "  WHILE next-is-friend DO around turnleft END WHILE"
+                    + " END WHILE END Wander" };
+
+    /**
+     * Number of turns run in each world.
+     */
+    private static final int TURNS = 5_000;
+
+    /**
+     * Step limit of each turn.
+     */
+    private static final int STEP_LIMIT = 10_000;
+
+    /**
+     * Seeds of the worlds each program is run in.
+     */
+    private static final long[] SEEDS = { 1, 42, 20_230_401 };
+
+    /**
+     * Small walled grid with one bug, answering the bug's sensor tests from
+     * the cell in front of it and its RANDOM tests from a seeded stream.
+     */
+    private static final class World implements WorldSensor {
+
+        /**
+         * Side of the grid.
+         */
+        private static final int SIDE = 12;
+
+        /**
+         * Cell contents.
+         */
+        private static final int EMPTY = 0, WALL = 1, FRIEND = 2, ENEMY = 3;
+
+        /**
+         * Column and row offsets of the four directions, counterclockwise
+         * from north.
+         */
+        private static final int[] DX = { 0, -1, 0, 1 }, DY = { -1, 0, 1, 0 };
+
+        /**
+         * The conditions, indexed by ordinal.
+         */
+        private static final Condition[] CONDITIONS = Condition.values();
+
+        /**
+         * The cells, row by row.
+         */
+        private final int[] cells = new int[SIDE * SIDE];
+
+        /**
+         * The random stream state.
+         */
+        private long state;
+
+        /**
+         * The bug's column, row and direction.
+         */
+        private int x = SIDE / 2, y = SIDE / 2, direction = 0;
+
+        /**
+         * Constructor.
+         *
+         * @param seed
+         *            the seed of the layout and of the random stream
+         */
+        World(long seed) {
+            this.state = seed * 0x9E3779B97F4A7C15L + 1;
+            for (int r = 0; r < SIDE; r++) {
+                for (int c = 0; c < SIDE; c++) {
+                    int cell = EMPTY;
+                    int roll = (int) Long.remainderUnsigned(this.nextBits(),
+                            20);
+                    if (r == 0 || c == 0 || r == SIDE - 1 || c == SIDE - 1
+                            || roll < 3) {
+                        cell = WALL;
+                    } else if (roll < 5) {
+                        cell = FRIEND;
+                    } else if (roll < 8) {
+                        cell = ENEMY;
+                    }
+                    this.cells[r * SIDE + c] = cell;
+                }
+            }
+            this.cells[this.y * SIDE + this.x] = EMPTY;
+        }
+
+        /**
+         * Returns the next value of the random stream.
+         *
+         * @return the next value
+         */
+        private long nextBits() {
+            this.state ^= this.state << 13;
+            this.state ^= this.state >>> 7;
+            this.state ^= this.state << 17;
+            return this.state;
+        }
+
+        /**
+         * Returns the index of the cell in front of the bug.
+         *
+         * @return the index of the cell ahead
+         */
+        private int ahead() {
+            return (this.y + DY[this.direction]) * SIDE + this.x
+                    + DX[this.direction];
+        }
+
+        @Override
+        public boolean test(int condition) {
+            int next = this.cells[this.ahead()];
+            boolean result;
+            switch (CONDITIONS[condition]) {
+                case NEXT_IS_EMPTY:
+                    result = next == EMPTY;
+                    break;
+                case NEXT_IS_NOT_EMPTY:
+                    result = next != EMPTY;
+                    break;
+                case NEXT_IS_WALL:
+                    result = next == WALL;
+                    break;
+                case NEXT_IS_NOT_WALL:
+                    result = next != WALL;
+                    break;
+                case NEXT_IS_FRIEND:
+                    result = next == FRIEND;
+                    break;
+                case NEXT_IS_NOT_FRIEND:
+                    result = next != FRIEND;
+                    break;
+                case NEXT_IS_ENEMY:
+                    result = next == ENEMY;
+                    break;
+                case NEXT_IS_NOT_ENEMY:
+                    result = next != ENEMY;
+                    break;
+                default:
+                    result = this.nextBits() < 0;
+                    break;
+            }
+            return result;
+        }
+
+        /**
+         * Applies the bug's action.
+         *
+         * @param action
+         *            the opcode of the action
+         */
+        void perform(int action) {
+            int a = this.ahead();
+            if (action == BytecodeVM.MOVE && this.cells[a] == EMPTY) {
+                this.x += DX[this.direction];
+                this.y += DY[this.direction];
+            } else if (action == BytecodeVM.INFECT
+                    && this.cells[a] == ENEMY) {
+                this.cells[a] = FRIEND;
+            } else if (action == BytecodeVM.TURNLEFT) {
+                this.direction = (this.direction + 1) % DX.length;
+            } else if (action == BytecodeVM.TURNRIGHT) {
+                this.direction = (this.direction + DX.length - 1) % DX.length;
+            }
+        }
+
+        /**
+         * Returns a description of the bug's state.
+         *
+         * @return the description
+         */
+        String bug() {
+            return this.x + "," + this.y + "," + this.direction;
+        }
+
+    }
+
+    /**
+     * Runs {@code code} for {@code TURNS} turns in the world with seed
+     * {@code seed}, and returns the log of its actions; if {@code turns} is
+     * false, turns are left out of the log and every other action is logged
+     * with the bug's position and direction.
+     *
+     * @param code
+     *            the code to run
+     * @param seed
+     *            the seed of the world
+     * @param turns
+     *            whether to log turns
+     * @return the log
+     */
+    private static String run(int[] code, long seed, boolean turns) {
+        World world = new World(seed);
+        StringBuilder log = new StringBuilder();
+        int pc = 0;
+        for (int i = 0; i < TURNS; i++) {
+            long r = BytecodeVM.run(code, pc, world, STEP_LIMIT);
+            int action = BytecodeVM.instruction(r);
+            pc = BytecodeVM.nextPc(r);
+            world.perform(action);
+            if (turns) {
+                log.append(action);
+            } else if (action != BytecodeVM.TURNLEFT
+                    && action != BytecodeVM.TURNRIGHT) {
+                log.append(action).append('@').append(world.bug()).append(' ');
+            }
+        }
+        return log.toString();
+    }
+
+    /**
+     * Returns the code generated for each test program.
+     *
+     * @return the code of each program
+     * @throws IOException
+     *             if a file cannot be read
+     */
+    private static int[][] programs() throws IOException {
+        int[][] result = new int[FILE_NAMES.length + SOURCES.length][];
+        for (int i = 0; i < FILE_NAMES.length; i++) {
+            Program p = new Program2();
+            BLParser.parse(p, Paths.get(FILE_NAMES[i]));
+            result[i] = p.generatedCode();
+        }
+        for (int i = 0; i < SOURCES.length; i++) {
+            Program p = new Program2();
+            BLParser.parse(p, ByteBuffer
+                    .wrap(SOURCES[i].getBytes(StandardCharsets.US_ASCII)));
+            result[FILE_NAMES.length + i] = p.generatedCode();
+        }
+        return result;
+    }
+
+    /**
+     * Test that optimized code takes exactly the same actions.
+     *
+     * @throws IOException
+     *             if a file cannot be read
+     */
+    @Test
+    public final void testSameActions() throws IOException {
+        for (int[] code : programs()) {
+            /*
+             * The call
+             */
+            int[] optimized = CodeOptimizer.optimize(code);
+
+            /*
+             * Evaluation
+             */
+            assertTrue(optimized.length <= code.length);
+            for (long seed : SEEDS) {
+                assertEquals(run(code, seed, true),
+                        run(optimized, seed, true));
+            }
+        }
+    }
+
+    /**
+     * Test that code with folded turns reaches the same positions and
+     * directions for its other actions, in fewer or as many turns.
+     *
+     * @throws IOException
+     *             if a file cannot be read
+     */
+    @Test
+    public final void testFoldedTurns() throws IOException {
+        for (int[] code : programs()) {
+            /*
+             * The call
+             */
+            int[] optimized = CodeOptimizer.optimize(code, true);
+
+            /*
+             * Evaluation
+             */
+            for (long seed : SEEDS) {
+                String expected = run(code, seed, false);
+                String actual = run(optimized, seed, false);
+                assertTrue(actual.startsWith(expected));
+            }
+        }
+    }
+
+    /**
+     * Test that IF true and runs of four turns disappear.
+     *
+     * @throws IOException
+     *             never
+     */
+    @Test
+    public final void testFoldsSpin() throws IOException {
+        /*
+         * Setup
+         */
+        String source = "PROGRAM Test IS BEGIN"
+                + " IF true THEN turnleft turnright turnleft turnleft END IF"
+                + " move END Test";
+        Program p = new Program2();
+        BLParser.parse(p,
+                ByteBuffer.wrap(source.getBytes(StandardCharsets.US_ASCII)));
+
+        /*
+         * The call
+         */
+        int[] optimized = CodeOptimizer.optimize(p.generatedCode(), true);
+
+        /*
+         * Evaluation
+         */
+        int[] expected = { BytecodeVM.TURNLEFT, BytecodeVM.TURNLEFT,
+                BytecodeVM.MOVE, BytecodeVM.HALT };
+        assertEquals(Arrays.toString(expected), Arrays.toString(optimized));
+    }
+
+}
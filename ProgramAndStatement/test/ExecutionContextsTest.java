@@ -0,0 +1,163 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import components.program.Program;
+
+/**
+ * JUnit test fixture for {@code ExecutionContexts}.
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public class ExecutionContextsTest {
+
+    /**
+     * Step limit used by the tests.
+     */
+    private static final int STEP_LIMIT = 100;
+
+    /**
+     * Returns the code generated for the program with main body
+     * {@code body} and no instructions.
+     *
+     * @param body
+     *            the BL statements of the main body
+     * @return the generated code
+     * @throws IOException
+     *             never
+     */
+    private static int[] codeOf(String body) throws IOException {
+        String source = "PROGRAM Test IS BEGIN " + body + " END Test";
+        Program p = new Program2();
+        BLParser.parse(p,
+                ByteBuffer.wrap(source.getBytes(StandardCharsets.US_ASCII)));
+        return p.generatedCode();
+    }
+
+    /**
+     * Test that interleaved contexts of the same program, more than the
+     * initial capacity, each resume after their own last primitive.
+     *
+     * @throws IOException
+     *             never
+     */
+    @Test
+    public final void testResume() throws IOException {
+        /*
+         * Setup
+         */
+        ExecutionContexts contexts = new ExecutionContexts(1);
+        int p = contexts.addProgram(codeOf("move turnleft infect"));
+        int n = 20;
+        for (int c = 0; c < n; c++) {
+            contexts.add(p);
+        }
+
+        /*
+         * The call
+         */
+        int[] actions = new int[n];
+        for (int c = 0; c < n; c++) {
+            for (int i = 0; i <= c % 4; i++) {
+                actions[c] = contexts.resume(c, x -> true, STEP_LIMIT);
+            }
+        }
+
+        /*
+         * Evaluation
+         */
+        int[] expected = { BytecodeVM.MOVE, BytecodeVM.TURNLEFT,
+                BytecodeVM.INFECT, BytecodeVM.HALT };
+        assertEquals(n, contexts.size());
+        for (int c = 0; c < n; c++) {
+            assertEquals(expected[c % 4], actions[c]);
+            assertEquals(c % 4 + 1, contexts.turns(c));
+            assertEquals(c % 4 / 3, contexts.idleTurns(c));
+        }
+    }
+
+    /**
+     * Test that a context given a new program runs it from its beginning
+     * and keeps its turn counters.
+     *
+     * @throws IOException
+     *             never
+     */
+    @Test
+    public final void testSetProgram() throws IOException {
+        /*
+         * Setup
+         */
+        ExecutionContexts contexts = new ExecutionContexts();
+        int p = contexts.addProgram(codeOf("skip skip"));
+        int q = contexts.addProgram(codeOf("turnright skip"));
+        int c = contexts.add(p);
+        contexts.resume(c, x -> true, STEP_LIMIT);
+
+        /*
+         * The call
+         */
+        contexts.setProgram(c, q);
+
+        /*
+         * Evaluation
+         */
+        assertEquals(q, contexts.program(c));
+        assertEquals(0, contexts.pc(c));
+        assertEquals(1, contexts.turns(c));
+        assertEquals(BytecodeVM.TURNRIGHT,
+                contexts.resume(c, x -> true, STEP_LIMIT));
+    }
+
+    /**
+     * Test that programs registered past the initial capacity keep their
+     * numbers and code.
+     *
+     * @throws IOException
+     *             never
+     */
+    @Test
+    public final void testManyPrograms() throws IOException {
+        /*
+         * Setup
+         */
+        final int count = 40;
+        ExecutionContexts contexts = new ExecutionContexts();
+        int[] move = codeOf("move");
+        int[] infect = codeOf("infect");
+
+        /*
+         * The call
+         */
+        for (int i = 0; i < count; i++) {
+            int[] code = move;
+            if (i % 2 == 1) {
+                code = infect;
+            }
+            assertEquals(i, contexts.addProgram(code));
+        }
+
+        /*
+         * Evaluation
+         */
+        assertEquals(count, contexts.programCount());
+        for (int i = 0; i < count; i++) {
+            int c = contexts.add(i);
+            int[] code = move;
+            int expected = BytecodeVM.MOVE;
+            if (i % 2 == 1) {
+                code = infect;
+                expected = BytecodeVM.INFECT;
+            }
+            assertSame(code, contexts.code(i));
+            assertEquals(expected, contexts.resume(c, x -> true, STEP_LIMIT));
+        }
+    }
+
+}
@@ -0,0 +1,154 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import org.junit.Test;
+
+import components.program.Program;
+
+/**
+ * JUnit test fixture for {@code IncrementalParser}.
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public class IncrementalParserTest {
+
+    /**
+     * Returns the program read from {@code text}.
+     *
+     * @param text
+     *            the BL source text
+     * @return the program
+     * @throws IOException
+     *             never
+     */
+    private static Program parse(String text) throws IOException {
+        Program p = new Program2();
+        BLParser.parse(p,
+                ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII)));
+        return p;
+    }
+
+    /**
+     * Replaces the first occurrence of {@code target} in the text of
+     * {@code parser} with {@code replacement}, and checks that the program
+     * is then the one read from the whole new text.
+     *
+     * @param parser
+     *            the incremental parser
+     * @param target
+     *            the text to replace
+     * @param replacement
+     *            the new text
+     * @return the part of the text reparsed
+     * @throws IOException
+     *             never
+     */
+    private static IncrementalParser.Scope replace(IncrementalParser parser,
+            String target, String replacement) throws IOException {
+        int offset = parser.text().indexOf(target);
+        IncrementalParser.Scope scope = parser.edit(offset, target.length(),
+                replacement);
+        assertEquals(parse(parser.text()), parser.program());
+        return scope;
+    }
+
+    /**
+     * Returns an incremental parser of the sample program.
+     *
+     * @return the parser
+     * @throws IOException
+     *             if the sample program cannot be read
+     */
+    private static IncrementalParser sample() throws IOException {
+        String source = new String(
+                Files.readAllBytes(Paths.get("data/program-sample.bl")),
+                StandardCharsets.US_ASCII);
+        return new IncrementalParser(new Program2(), source);
+    }
+
+    /**
+     * Test that edits inside blocks and instructions are reparsed at the
+     * smallest scope and give the program of the whole text.
+     *
+     * @throws IOException
+     *             if the sample program cannot be read
+     */
+    @Test
+    public final void testEdits() throws IOException {
+        /*
+         * Setup
+         */
+        IncrementalParser parser = sample();
+
+        /*
+         * The call and evaluation
+         */
+        assertEquals(IncrementalParser.Scope.STATEMENTS, replace(parser,
+                "two\n    one", "two\n    turnright\n    one"));
+        assertEquals(IncrementalParser.Scope.STATEMENTS,
+                replace(parser, "turnleft\n    turnleft",
+                        "turnleft\n    IF next-is-empty THEN\n"
+                                + "      turnleft\n    END IF"));
+        assertEquals(IncrementalParser.Scope.STATEMENTS,
+                replace(parser, "next-is-empty", "random"));
+        assertEquals(IncrementalParser.Scope.STATEMENTS,
+                replace(parser, "      turnleft\n    END IF",
+                        "      turnleft\n    ELSE\n      move\n    END IF"));
+        assertEquals(IncrementalParser.Scope.STATEMENTS,
+                replace(parser, "ELSE\n      move", "ELSE\n      infect"));
+        assertEquals(IncrementalParser.Scope.INSTRUCTION,
+                replace(parser, "INSTRUCTION one IS\n     move\n  END one",
+                        "INSTRUCTION three IS\n     move\n  END three"));
+        assertEquals(IncrementalParser.Scope.STATEMENTS,
+                replace(parser, "    turnright\n", ""));
+    }
+
+    /**
+     * Test that an edit giving an invalid program leaves the program as it
+     * was, and that the next edit reparses it.
+     *
+     * @throws IOException
+     *             if the sample program cannot be read
+     */
+    @Test
+    public final void testInvalidEdits() throws IOException {
+        /*
+         * Setup
+         */
+        IncrementalParser parser = sample();
+        Program pRef = parse(parser.text());
+
+        /*
+         * The call and evaluation
+         */
+        try {
+            replace(parser, "INSTRUCTION one", "INSTRUCTION three");
+            fail("an instruction with two names was accepted");
+        } catch (IllegalArgumentException e) {
+            assertEquals(pRef, parser.program());
+        }
+        assertEquals(IncrementalParser.Scope.PROGRAM,
+                replace(parser, "END one", "END three"));
+        pRef = parse(parser.text());
+        try {
+            replace(parser, "INSTRUCTION three IS\n     move\n  END three",
+                    "INSTRUCTION two IS\n     move\n  END two");
+            fail("an instruction defined twice was accepted");
+        } catch (IllegalArgumentException e) {
+            assertEquals(pRef, parser.program());
+        }
+        assertEquals(IncrementalParser.Scope.PROGRAM,
+                replace(parser, "INSTRUCTION two IS\n     move\n  END two",
+                        "INSTRUCTION one IS\n     move\n  END one"));
+        assertEquals(IncrementalParser.Scope.STATEMENTS,
+                replace(parser, "     move", "     move move"));
+    }
+
+}
@@ -0,0 +1,128 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+
+import org.junit.Test;
+
+import components.map.Map;
+import components.program.Program;
+import components.statement.Statement;
+
+/**
+ * JUnit test fixture for {@code Inliner}.
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public class InlinerTest {
+
+    /**
+     * The names of files containing BL programs.
+     */
+    private static final String[] FILE_NAMES = { "data/program-sample.bl",
+            "data/program-test1.bl", "data/program-test2.bl" };
+
+    /**
+     * Returns the program parsed from {@code source}.
+     *
+     * @param source
+     *            the BL source
+     * @return the program
+     * @throws IOException
+     *             never
+     */
+    private static Program createFromString(String source)
+            throws IOException {
+        Program p = new Program2();
+        BLParser.parse(p,
+                ByteBuffer.wrap(source.getBytes(StandardCharsets.US_ASCII)));
+        return p;
+    }
+
+    /**
+     * Test that inlining with an unlimited budget keeps the name, the
+     * context and the generated code, and removes every CALL of a
+     * user-defined instruction from the body.
+     *
+     * @throws IOException
+     *             if a file cannot be read
+     */
+    @Test
+    public final void testDataPrograms() throws IOException {
+        for (String filename : FILE_NAMES) {
+            /*
+             * Setup
+             */
+            Program pTest = new Program2();
+            BLParser.parse(pTest, Paths.get(filename));
+            Program pRef = new Program2();
+            BLParser.parse(pRef, Paths.get(filename));
+            int[] code = pRef.generatedCode();
+
+            /*
+             * The call
+             */
+            Inliner.inline(pTest, Integer.MAX_VALUE);
+
+            /*
+             * Evaluation
+             */
+            assertEquals(pRef.name(), pTest.name());
+            Map<String, Statement> cRef = pRef.newContext();
+            pRef.swapContext(cRef);
+            Map<String, Statement> cTest = pTest.newContext();
+            pTest.swapContext(cTest);
+            assertEquals(cRef.size(), cTest.size());
+            for (Map.Pair<String, Statement> instruction : cRef) {
+                assertTrue(cTest.hasKey(instruction.key()));
+            }
+            pRef.swapContext(cRef);
+            pTest.swapContext(cTest);
+            assertArrayEquals(code, pTest.generatedCode());
+            assertEquals(0, new ProgramImage(pTest).maxCallDepth());
+        }
+    }
+
+    /**
+     * Test that the budget and recursion limit what is inlined.
+     *
+     * @throws IOException
+     *             never
+     */
+    @Test
+    public final void testBudgetAndRecursion() throws IOException {
+        /*
+         * Setup
+         */
+        String source = "PROGRAM Test IS"
+                + " INSTRUCTION small IS turnleft END small"
+                + " INSTRUCTION large IS small small small END large"
+                + " INSTRUCTION loop IS IF random THEN small loop END IF"
+                + " END loop"
+                + " BEGIN small large loop END Test";
+        Program pTest = createFromString(source);
+        Program pRef = createFromString("PROGRAM Test IS"
+                + " INSTRUCTION small IS turnleft END small"
+                + " INSTRUCTION large IS turnleft turnleft turnleft END large"
+                + " INSTRUCTION loop IS IF random THEN turnleft loop END IF"
+                + " END loop"
+                + " BEGIN turnleft large loop END Test");
+
+        /*
+         * The call
+         */
+        int count = Inliner.inline(pTest, 2);
+
+        /*
+         * Evaluation
+         */
+        assertEquals(5, count);
+        assertEquals(pRef, pTest);
+    }
+
+}
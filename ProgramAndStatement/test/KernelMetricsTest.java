@@ -0,0 +1,117 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.Attribute;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+import org.junit.Test;
+
+import components.program.Program;
+import components.statement.Statement;
+
+/**
+ * JUnit test fixture for {@code KernelMetrics}.
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public class KernelMetricsTest {
+
+    /**
+     * Test that the kernel methods of Statement2 and Program2 are counted
+     * only while measuring is on, and only when called by the client, not by
+     * the assertions of other kernel methods.
+     */
+    @Test
+    public final void testCounts() {
+        /*
+         * Setup
+         */
+        Statement block = new Statement2();
+        Statement call = new Statement2();
+        Program p = new Program2();
+        Statement body = p.newBody();
+        KernelMetrics.reset();
+
+        /*
+         * The call
+         */
+        KernelMetrics.setEnabled(true);
+        for (int i = 0; i < 3; i++) {
+            call.assembleCall("move");
+            block.addToBlock(0, call);
+        }
+        block.removeFromBlock(1);
+        p.setName("Test");
+        KernelMetrics.setEnabled(false);
+        block.removeFromBlock(0);
+        p.swapBody(body);
+
+        /*
+         * Evaluation
+         */
+        assertEquals(3, KernelMetrics
+                .calls(KernelMetrics.Operation.STATEMENT_ASSEMBLE_CALL));
+        assertEquals(3, KernelMetrics
+                .calls(KernelMetrics.Operation.STATEMENT_ADD_TO_BLOCK));
+        assertEquals(1, KernelMetrics
+                .calls(KernelMetrics.Operation.STATEMENT_REMOVE_FROM_BLOCK));
+        assertEquals(1,
+                KernelMetrics.calls(KernelMetrics.Operation.PROGRAM_SET_NAME));
+        assertEquals(0,
+                KernelMetrics.calls(KernelMetrics.Operation.PROGRAM_SWAP_BODY));
+        assertEquals(0,
+                KernelMetrics.calls(KernelMetrics.Operation.STATEMENT_KIND));
+        assertEquals(0, KernelMetrics
+                .calls(KernelMetrics.Operation.STATEMENT_LENGTH_OF_BLOCK));
+        assertTrue(KernelMetrics.nanos(
+                KernelMetrics.Operation.STATEMENT_ADD_TO_BLOCK) > 0);
+        assertTrue(!KernelMetrics.isAllocationTracked()
+                || KernelMetrics.allocatedBytes(
+                        KernelMetrics.Operation.STATEMENT_ASSEMBLE_CALL) > 0);
+    }
+
+    /**
+     * Test that the MBean reports and resets the totals.
+     *
+     * @throws JMException
+     *             if the MBean cannot be reached
+     */
+    @Test
+    public final void testMBean() throws JMException {
+        /*
+         * Setup
+         */
+        KernelMetrics.registerMBean();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(KernelMetrics.MBEAN_NAME);
+        server.invoke(name, "reset", null, null);
+        Statement call = new Statement2();
+
+        /*
+         * The call
+         */
+        server.setAttribute(name, new Attribute("Enabled", true));
+        call.assembleCall("move");
+        call.assembleCall("skip");
+        server.setAttribute(name, new Attribute("Enabled", false));
+        TabularData counts = (TabularData) server.getAttribute(name,
+                "CallCounts");
+
+        /*
+         * Evaluation
+         */
+        assertEquals(1, counts.size());
+        CompositeData row = counts
+                .get(new Object[] { "Statement2.assembleCall" });
+        assertEquals(2L, row.get("value"));
+        assertEquals(false, KernelMetrics.isEnabled());
+    }
+
+}
@@ -0,0 +1,140 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import components.program.Program;
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+import components.statement.Statement;
+
+/**
+ * JUnit test fixture for {@code PrettyPrinter}.
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public class PrettyPrinterTest {
+
+    /**
+     * Returns the bytes {@code s.prettyPrint(out, offset)} writes.
+     *
+     * @param s
+     *            the statement
+     * @param offset
+     *            the number of spaces to indent
+     * @return the bytes
+     * @throws IOException
+     *             if the scratch file cannot be used
+     */
+    private static byte[] prettyPrint(Statement s, int offset)
+            throws IOException {
+        File file = File.createTempFile("pretty-printer-test", ".bl");
+        file.deleteOnExit();
+        SimpleWriter out = new SimpleWriter1L(file.getPath());
+        s.prettyPrint(out, offset);
+        out.close();
+        return Files.readAllBytes(file.toPath());
+    }
+
+    /**
+     * Returns the bytes {@code p.prettyPrint(out)} writes.
+     *
+     * @param p
+     *            the program
+     * @return the bytes
+     * @throws IOException
+     *             if the scratch file cannot be used
+     */
+    private static byte[] prettyPrint(Program p) throws IOException {
+        File file = File.createTempFile("pretty-printer-test", ".bl");
+        file.deleteOnExit();
+        SimpleWriter out = new SimpleWriter1L(file.getPath());
+        p.prettyPrint(out);
+        out.close();
+        return Files.readAllBytes(file.toPath());
+    }
+
+    /**
+     * Test that the programs of the data directory print as with
+     * prettyPrint, twice in a row with the same printer.
+     *
+     * @throws IOException
+     *             if a file cannot be read
+     */
+    @Test
+    public final void testDataPrograms() throws IOException {
+        PrettyPrinter printer = new PrettyPrinter();
+        for (String name : new String[] { "program-sample.bl",
+                "program-test1.bl", "program-test2.bl" }) {
+            /*
+             * Setup
+             */
+            Program p = new Program2();
+            BLParser.parse(p, Paths.get("data", name));
+            byte[] expected = prettyPrint(p);
+
+            /*
+             * The call
+             */
+            for (int i = 0; i < 2; i++) {
+                printer.clear();
+                printer.print(p);
+
+                /*
+                 * Evaluation
+                 */
+                assertArrayEquals(expected,
+                        Arrays.copyOf(printer.buffer(), printer.length()));
+            }
+        }
+    }
+
+    /**
+     * Test that a deep Statement2 printed through a channel, with a buffer
+     * that fills several times, prints as with prettyPrint.
+     *
+     * @throws IOException
+     *             if the scratch file cannot be used
+     */
+    @Test
+    public final void testDeepStatementToChannel() throws IOException {
+        /*
+         * Setup
+         */
+        Statement s = new Statement2();
+        Benchmark.fillBlock(s, 8, 4);
+        Statement sRef = new Statement2();
+        Benchmark.fillBlock(sRef, 8, 4);
+        byte[] expected = prettyPrint(s, 3);
+        Path file = File.createTempFile("pretty-printer-test", ".bl")
+                .toPath();
+        file.toFile().deleteOnExit();
+
+        /*
+         * The call
+         */
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.WRITE)) {
+            PrettyPrinter printer = new PrettyPrinter(channel);
+            printer.print(s, 3);
+            printer.flush();
+        }
+
+        /*
+         * Evaluation
+         */
+        assertArrayEquals(expected, Files.readAllBytes(file));
+        assertEquals(sRef, s);
+    }
+
+}
@@ -0,0 +1,19 @@
+import components.program.Program;
+import components.program.Program1;
+
+/**
+ * Customized JUnit test fixture for {@code Program3}.
+ */
+public class Program3Test extends ProgramTest {
+
+    @Override
+    protected final Program constructorTest() {
+        return new Program3();
+    }
+
+    @Override
+    protected final Program constructorRef() {
+        return new Program1();
+    }
+
+}
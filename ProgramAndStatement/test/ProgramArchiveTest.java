@@ -0,0 +1,218 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import components.map.Map;
+import components.program.Program;
+import components.program.Program1;
+import components.simplereader.SimpleReader;
+import components.simplereader.SimpleReader1L;
+import components.statement.Statement;
+
+/**
+ * JUnit test fixture for {@code ProgramArchive} and {@code ArchivedProgram}.
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public class ProgramArchiveTest {
+
+    /**
+     * The names of files containing BL programs.
+     */
+    private static final String[] FILE_NAMES = { "data/program-sample.bl",
+            "data/program-test1.bl", "data/program-test2.bl" };
+
+    /**
+     * Creates and returns a {@code Program1} parsed by the library from the
+     * file with the given name.
+     *
+     * @param filename
+     *            the name of the file to be parsed to create the program
+     * @return the constructed program
+     * @ensures createFromFileRef = [the program as parsed from the file]
+     */
+    private static Program createFromFileRef(String filename) {
+        Program p = new Program1();
+        SimpleReader file = new SimpleReader1L(filename);
+        p.parse(file);
+        file.close();
+        return p;
+    }
+
+    /**
+     * Writes an archive of the programs in {@code FILE_NAMES} to a temporary
+     * file and returns its path.
+     *
+     * @param programs
+     *            the list to which the archived programs are appended
+     * @return the path of the archive
+     * @throws IOException
+     *             if the archive cannot be written
+     */
+    private static Path createArchive(List<Program> programs)
+            throws IOException {
+        for (String name : FILE_NAMES) {
+            programs.add(createFromFileRef(name));
+        }
+        File file = File.createTempFile("program-archive", ".blar");
+        file.deleteOnExit();
+        ProgramArchive.write(file.toPath(), programs);
+        return file.toPath();
+    }
+
+    /**
+     * Test copying every program out of an archive.
+     *
+     * @throws IOException
+     *             if the archive cannot be written or read
+     */
+    @Test
+    public final void testCopyTo() throws IOException {
+        /*
+         * Setup
+         */
+        List<Program> refs = new ArrayList<>();
+        Path file = createArchive(refs);
+
+        /*
+         * The call
+         */
+        ProgramArchive archive = ProgramArchive.open(file, new Program2());
+
+        /*
+         * Evaluation
+         */
+        assertEquals(refs.size(), archive.size());
+        for (int i = 0; i < refs.size(); i++) {
+            Program pTest = new Program2();
+            archive.program(i).copyTo(pTest);
+            assertEquals(refs.get(i), pTest);
+        }
+    }
+
+    /**
+     * Test that instruction bodies are decoded one at a time, on demand.
+     *
+     * @throws IOException
+     *             if the archive cannot be written or read
+     */
+    @Test
+    public final void testLazyInstructionBody() throws IOException {
+        /*
+         * Setup
+         */
+        List<Program> refs = new ArrayList<>();
+        Path file = createArchive(refs);
+        ProgramArchive archive = ProgramArchive.open(file, new Program3());
+        Program pRef = refs.get(0);
+        Map<String, Statement> cRef = pRef.newContext();
+        pRef.swapContext(cRef);
+        Map.Pair<String, Statement> instruction = cRef.iterator().next();
+
+        /*
+         * The call
+         */
+        ArchivedProgram pTest = archive.program(0);
+        int decodedBefore = pTest.decodedCount();
+        Statement body = pTest.instructionBody(instruction.key());
+
+        /*
+         * Evaluation
+         */
+        assertEquals(pRef.name(), pTest.name());
+        assertEquals(cRef.size(), pTest.instructionCount());
+        assertEquals(0, decodedBefore);
+        assertEquals(1, pTest.decodedCount());
+        assertEquals(instruction.value(), body);
+        assertSame(body, pTest.instructionBody(instruction.key()));
+        assertSame(pTest, archive.program(0));
+        pRef.swapContext(cRef);
+    }
+
+    /**
+     * Writes an archive of one program, whose context defines instructions
+     * {@code abcd} and {@code abce}, to a temporary file, replaces the name
+     * {@code abce} in the encoding by {@code replacement}, and returns the
+     * path of the archive.
+     *
+     * @param replacement
+     *            the four-character name replacing {@code abce}
+     * @return the path of the corrupted archive
+     * @throws IOException
+     *             if the archive cannot be written
+     */
+    private static Path createCorruptedArchive(String replacement)
+            throws IOException {
+        Program p = new Program1();
+        p.setName("Test");
+        Map<String, Statement> context = p.newContext();
+        context.add("abcd", p.newBody());
+        context.add("abce", p.newBody());
+        p.swapContext(context);
+        File file = File.createTempFile("program-archive", ".blar");
+        file.deleteOnExit();
+        List<Program> programs = new ArrayList<>();
+        programs.add(p);
+        ProgramArchive.write(file.toPath(), programs);
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        String encoded = new String(bytes, StandardCharsets.ISO_8859_1);
+        int at = encoded.indexOf("abce");
+        byte[] name = replacement.getBytes(StandardCharsets.ISO_8859_1);
+        System.arraycopy(name, 0, bytes, at, name.length);
+        Files.write(file.toPath(), bytes);
+        return file.toPath();
+    }
+
+    /**
+     * Test that an archived program defining an instruction twice is
+     * rejected instead of keeping only the last definition.
+     *
+     * @throws IOException
+     *             if the archive cannot be written or read
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public final void testDuplicateInstruction() throws IOException {
+        /*
+         * Setup
+         */
+        Path file = createCorruptedArchive("abcd");
+        ProgramArchive archive = ProgramArchive.open(file, new Program2());
+
+        /*
+         * The call
+         */
+        archive.program(0);
+    }
+
+    /**
+     * Test that an archived program defining an instruction named like a
+     * primitive instruction is rejected.
+     *
+     * @throws IOException
+     *             if the archive cannot be written or read
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public final void testPrimitiveInstruction() throws IOException {
+        /*
+         * Setup
+         */
+        Path file = createCorruptedArchive("move");
+        ProgramArchive archive = ProgramArchive.open(file, new Program2());
+
+        /*
+         * The call
+         */
+        archive.program(0);
+    }
+
+}
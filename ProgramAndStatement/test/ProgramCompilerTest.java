@@ -0,0 +1,173 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import org.junit.Test;
+
+import components.program.Program;
+import components.statement.Statement;
+
+/**
+ * JUnit test fixture for {@code ProgramCompiler}: differential tests running
+ * compiled programs and {@code BytecodeVM} from every instruction with the
+ * same sensor answers.
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public class ProgramCompilerTest {
+
+    /**
+     * The names of files containing BL programs.
+     */
+    private static final String[] FILE_NAMES = { "data/program-sample.bl",
+            "data/program-test1.bl", "data/program-test2.bl" };
+
+    /**
+     * Step limits each turn is run with.
+     */
+    private static final int[] STEP_LIMITS = { 1, 2, 3, 5, 1_000 };
+
+    /**
+     * Number of sensor streams each turn is run with.
+     */
+    private static final int STREAMS = 8;
+
+    /**
+     * Sensor answering every test with the next bit of an xorshift stream.
+     */
+    private static final class StreamSensor implements WorldSensor {
+
+        /**
+         * The generator state.
+         */
+        private long state;
+
+        /**
+         * Constructor.
+         *
+         * @param seed
+         *            the seed of the stream
+         */
+        StreamSensor(long seed) {
+            this.state = seed * 0x9E3779B97F4A7C15L + 1;
+        }
+
+        @Override
+        public boolean test(int condition) {
+            this.state ^= this.state << 13;
+            this.state ^= this.state >>> 7;
+            this.state ^= this.state << 17;
+            return this.state < 0;
+        }
+
+    }
+
+    /**
+     * Returns the program with a synthetic body of {@code width} statements
+     * nested {@code depth} levels deep.
+     *
+     * @param width
+     *            the number of statements in each block
+     * @param depth
+     *            the nesting depth
+     * @return the program
+     */
+    private static Program synthetic(int width, int depth) {
+        Program p = new Program2();
+        Statement body = p.newBody();
+        Benchmark.fillBlock(body, width, depth);
+        p.swapBody(body);
+        return p;
+    }
+
+    /**
+     * Checks that {@code compiled} runs {@code code} exactly as
+     * {@code BytecodeVM} from every instruction.
+     *
+     * @param code
+     *            the code
+     * @param compiled
+     *            the compiled code
+     */
+    private static void assertSameResults(int[] code,
+            CompiledProgram compiled) {
+        int pc = 0;
+        while (pc < code.length) {
+            for (int limit : STEP_LIMITS) {
+                for (int seed = 0; seed < STREAMS; seed++) {
+                    assertEquals(
+                            BytecodeVM.run(code, pc, new StreamSensor(seed),
+                                    limit),
+                            compiled.run(pc, new StreamSensor(seed), limit));
+                }
+            }
+            int op = code[pc];
+            if (op == BytecodeVM.JUMP || op >= BytecodeVM.JUMP_IF_NOT_BASE) {
+                pc += 2;
+            } else {
+                pc++;
+            }
+        }
+    }
+
+    /**
+     * Test that the data programs and a synthetic program just small enough
+     * to compile compile to JVM code with the results of BytecodeVM.
+     *
+     * @throws IOException
+     *             if a file cannot be read
+     */
+    @Test
+    public final void testSameResults() throws IOException {
+        Program[] programs = new Program[FILE_NAMES.length + 1];
+        for (int i = 0; i < FILE_NAMES.length; i++) {
+            programs[i] = new Program2();
+            BLParser.parse(programs[i], Paths.get(FILE_NAMES[i]));
+        }
+        programs[FILE_NAMES.length] = synthetic(2, 3);
+        for (Program p : programs) {
+            /*
+             * Setup
+             */
+            int[] code = p.generatedCode();
+
+            /*
+             * The call
+             */
+            CompiledProgram compiled = ProgramCompiler.compile(p);
+
+            /*
+             * Evaluation
+             */
+            assertTrue(ProgramCompiler.isCompiled(compiled));
+            assertSameResults(code, compiled);
+        }
+    }
+
+    /**
+     * Test that a program just too large to compile runs BytecodeVM.
+     */
+    @Test
+    public final void testLargeProgram() {
+        /*
+         * Setup
+         */
+        int[] code = synthetic(3, 2).generatedCode();
+
+        /*
+         * The call
+         */
+        CompiledProgram compiled = ProgramCompiler.compile(code);
+
+        /*
+         * Evaluation
+         */
+        assertFalse(ProgramCompiler.isCompiled(compiled));
+        assertSameResults(code, compiled);
+    }
+
+}
@@ -1,5 +1,15 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.junit.Test;
+
+import components.queue.Queue;
+import components.simplereader.SimpleReader;
+import components.simplereader.SimpleReader1L;
 import components.statement.Statement;
 import components.statement.Statement1;
+import components.statement.StatementKernel.Condition;
+import components.utilities.Tokenizer;
 
 /**
  * Customized JUnit test fixture for {@code Statement2}.
@@ -16,4 +26,165 @@ public class Statement2Test extends StatementTest {
         return new Statement1();
     }
 
+    /**
+     * Returns the Statement2 block parsed from the file with the given name.
+     *
+     * @param filename
+     *            the name of the file
+     * @return the block
+     */
+    private static Statement createFromFile(String filename) {
+        Statement s = new Statement2();
+        SimpleReader file = new SimpleReader1L(filename);
+        Queue<String> tokens = Tokenizer.tokens(file);
+        s.parseBlock(tokens);
+        file.close();
+        return s;
+    }
+
+    /**
+     * Test that the structural hash is the same however a block was built.
+     */
+    @Test
+    public final void testHashAfterEdits() {
+        /*
+         * Setup
+         */
+        Statement sRef = createFromFile("data/statement-sample.bl");
+        Statement sTest = createFromFile("data/statement-sample.bl");
+        int length = sTest.lengthOfBlock();
+
+        /*
+         * The call
+         */
+        Statement first = sTest.removeFromBlock(0);
+        Statement middle = sTest.removeFromBlock(length / 2);
+        Statement last = sTest.removeFromBlock(length - 3);
+        sTest.addToBlock(length - 3, last);
+        sTest.addToBlock(length / 2, middle);
+        sTest.addToBlock(0, first);
+
+        /*
+         * Evaluation
+         */
+        assertEquals(sRef.hashCode(), sTest.hashCode());
+        assertEquals(sRef, sTest);
+    }
+
+    /**
+     * Test that a Statement2 and an equal Statement1 have the same hash code.
+     */
+    @Test
+    public final void testHashCodeAcrossImplementations() {
+        /*
+         * Setup
+         */
+        Statement sRef = new Statement1();
+        SimpleReader file = new SimpleReader1L("data/statement-sample.bl");
+        sRef.parseBlock(Tokenizer.tokens(file));
+        file.close();
+
+        /*
+         * The call
+         */
+        Statement sTest = createFromFile("data/statement-sample.bl");
+
+        /*
+         * Evaluation
+         */
+        assertEquals(sRef, sTest);
+        assertEquals(sRef.hashCode(), sTest.hashCode());
+    }
+
+    /**
+     * Test that statements differing deep inside are not equal.
+     */
+    @Test
+    public final void testNotEqualDeep() {
+        /*
+         * Setup
+         */
+        Statement sRef = createFromFile("data/statement-test1.bl");
+        Statement sTest = createFromFile("data/statement-test1.bl");
+        Statement block = sTest.newInstance();
+        block.addToBlock(0, sTest.removeFromBlock(0));
+        Statement s = sTest.newInstance();
+        s.assembleWhile(Condition.RANDOM, block);
+
+        /*
+         * The call
+         */
+        sTest.addToBlock(0, s);
+
+        /*
+         * Evaluation
+         */
+        assertFalse(sRef.equals(sTest));
+        assertFalse(sTest.equals(sRef));
+    }
+
+    /**
+     * Test the debug string of a small statement.
+     */
+    @Test
+    public final void testDebugString() {
+        /*
+         * Setup
+         */
+        Statement2 sTest = new Statement2();
+        Statement2 call = new Statement2();
+        call.assembleCall("move");
+        Statement2 block = new Statement2();
+        block.addToBlock(0, call);
+        Statement2 s = new Statement2();
+        s.assembleIf(Condition.NEXT_IS_EMPTY, block);
+        sTest.addToBlock(0, s);
+        s.assembleWhile(Condition.TRUE, block);
+        sTest.addToBlock(1, s);
+
+        /*
+         * The call
+         */
+        String text = sTest.debugString();
+
+        /*
+         * Evaluation
+         */
+        assertEquals("(BLOCK,?,?)((IF,NEXT_IS_EMPTY,?)((BLOCK,?,?)"
+                + "((CALL,?,move))),(WHILE,TRUE,?)((BLOCK,?,?)))", text);
+    }
+
+    /**
+     * Test that the debug string follows edits and is the same however a
+     * block was built.
+     */
+    @Test
+    public final void testDebugStringAfterEdits() {
+        /*
+         * Setup
+         */
+        Statement2 sRef = (Statement2) createFromFile(
+                "data/statement-sample.bl");
+        Statement2 sTest = (Statement2) createFromFile(
+                "data/statement-sample.bl");
+        String before = sTest.debugString();
+
+        /*
+         * The call
+         */
+        Statement2 first = (Statement2) sTest.removeFromBlock(0);
+        String removed = sTest.debugString();
+        String firstText = first.debugString();
+        sTest.addToBlock(0, first);
+
+        /*
+         * Evaluation
+         */
+        assertFalse(before.equals(removed));
+        assertEquals(before.length(),
+                removed.length() + firstText.length() + 1);
+        assertEquals(before, sTest.debugString());
+        assertEquals(sRef.debugString(), sTest.debugString());
+    }
+
 }
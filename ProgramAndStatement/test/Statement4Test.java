@@ -0,0 +1,133 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import components.queue.Queue;
+import components.simplereader.SimpleReader;
+import components.simplereader.SimpleReader1L;
+import components.statement.Statement;
+import components.statement.Statement1;
+import components.statement.StatementKernel.Condition;
+import components.utilities.Tokenizer;
+
+/**
+ * Customized JUnit test fixture for {@code Statement4}.
+ */
+public class Statement4Test extends StatementTest {
+
+    @Override
+    protected final Statement constructorTest() {
+        return new Statement4();
+    }
+
+    @Override
+    protected final Statement constructorRef() {
+        return new Statement1();
+    }
+
+    /**
+     * Returns the Statement4 block parsed from the file with the given name.
+     *
+     * @param filename
+     *            the name of the file
+     * @return the block
+     */
+    private static Statement createFromFile(String filename) {
+        Statement s = new Statement4();
+        SimpleReader file = new SimpleReader1L(filename);
+        Queue<String> tokens = Tokenizer.tokens(file);
+        s.parseBlock(tokens);
+        file.close();
+        return s;
+    }
+
+    /**
+     * Test that a statement identical to one already built adds no node to
+     * the pool.
+     */
+    @Test
+    public final void testSharedNodes() {
+        /*
+         * Setup
+         */
+        Statement sRef = createFromFile("data/statement-test2.bl");
+        int before = Statement4.poolSize();
+
+        /*
+         * The call
+         */
+        Statement sTest = createFromFile("data/statement-test2.bl");
+
+        /*
+         * Evaluation
+         */
+        assertTrue(Statement4.poolSize() <= before);
+        assertEquals(sRef.hashCode(), sTest.hashCode());
+        assertEquals(sRef, sTest);
+    }
+
+    /**
+     * Test that building a block one statement at a time pools none of its
+     * prefixes, and that the block then equals the same block once pooled.
+     */
+    @Test
+    public final void testBlockPrefixesNotPooled() {
+        /*
+         * Setup
+         */
+        final int count = 50;
+        int before = Statement4.poolSize();
+        Statement sTest = new Statement4();
+        Statement sRef = new Statement4();
+        Statement call = new Statement4();
+        for (int i = 0; i < count; i++) {
+            call.assembleCall("unpooled" + i);
+            sTest.addToBlock(i, call);
+            call.assembleCall("unpooled" + i);
+            sRef.addToBlock(i, call);
+        }
+        Statement loop = new Statement4();
+
+        /*
+         * The call
+         */
+        loop.assembleWhile(Condition.TRUE, sRef);
+        loop.disassembleWhile(sRef);
+
+        /*
+         * Evaluation
+         */
+        assertTrue(Statement4.poolSize() <= before + count + 2);
+        assertEquals(sRef, sTest);
+        assertEquals(sTest, sRef);
+    }
+
+    /**
+     * Test that a Statement4 has the hash code of an equal statement of
+     * another implementation.
+     */
+    @Test
+    public final void testHashCodeAcrossImplementations() {
+        /*
+         * Setup
+         */
+        Statement sRef = new Statement1();
+        SimpleReader file = new SimpleReader1L("data/statement-test2.bl");
+        Queue<String> tokens = Tokenizer.tokens(file);
+        sRef.parseBlock(tokens);
+        file.close();
+
+        /*
+         * The call
+         */
+        Statement sTest = createFromFile("data/statement-test2.bl");
+
+        /*
+         * Evaluation
+         */
+        assertEquals(sRef, sTest);
+        assertEquals(sRef.hashCode(), sTest.hashCode());
+    }
+
+}
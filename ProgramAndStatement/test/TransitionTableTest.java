@@ -0,0 +1,228 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+
+import org.junit.Test;
+
+import components.program.Program;
+import components.statement.Statement;
+
+/**
+ * JUnit test fixture for {@code TransitionTable}: differential tests running
+ * tables and {@code BytecodeVM} from every instruction with the same sensor
+ * answers.
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public class TransitionTableTest {
+
+    /**
+     * The names of files containing BL programs.
+     */
+    private static final String[] FILE_NAMES = { "data/program-sample.bl",
+            "data/program-test1.bl", "data/program-test2.bl" };
+
+    /**
+     * Programs with loops that test only the sensor, or only RANDOM, and
+     * never reach a primitive instruction.
+     */
+    private static final String[] SOURCES = {
+            "PROGRAM Stuck IS BEGIN WHILE true DO"
+                    + " WHILE next-is-wall DO END WHILE"
+                    + " IF next-is-not-enemy THEN move ELSE infect END IF"
+                    + " END WHILE END Stuck",
+            "PROGRAM Dice IS BEGIN WHILE true DO"
+                    + " WHILE random DO END WHILE"
+                    + " IF random THEN IF random THEN turnleft END IF"
+                    + " ELSE IF next-is-friend THEN turnright ELSE skip END IF"
+                    + " END IF END WHILE END Dice" };
+
+    /**
+     * Step limits each turn is run with.
+     */
+    private static final int[] STEP_LIMITS = { 1, 2, 3, 5, 1_000 };
+
+    /**
+     * Number of random streams each turn is run with.
+     */
+    private static final int STREAMS = 8;
+
+    /**
+     * Ordinal of {@code Condition.RANDOM}.
+     */
+    private static final int RANDOM = 8;
+
+    /**
+     * Sensor answering the conditions on the cell in front of the bug from a
+     * mask, and RANDOM with the next bit of an xorshift stream.
+     */
+    private static final class MaskSensor implements WorldSensor {
+
+        /**
+         * The mask, or -1 if only RANDOM may be tested.
+         */
+        private int mask;
+
+        /**
+         * The generator state.
+         */
+        private long state;
+
+        /**
+         * Constructor.
+         *
+         * @param mask
+         *            the mask, or -1 if only RANDOM may be tested
+         * @param seed
+         *            the seed of the stream
+         */
+        MaskSensor(int mask, long seed) {
+            this.mask = mask;
+            this.state = seed * 0x9E3779B97F4A7C15L + 1;
+        }
+
+        @Override
+        public boolean test(int condition) {
+            boolean result;
+            if (condition == RANDOM) {
+                this.state ^= this.state << 13;
+                this.state ^= this.state >>> 7;
+                this.state ^= this.state << 17;
+                result = this.state < 0;
+            } else {
+                assertTrue(this.mask >= 0);
+                boolean bit = (this.mask & (1 << (condition / 2))) != 0;
+                result = bit == (condition % 2 == 0);
+            }
+            return result;
+        }
+
+    }
+
+    /**
+     * Returns the code of each test program.
+     *
+     * @return the code of each program
+     * @throws IOException
+     *             if a file cannot be read
+     */
+    private static int[][] programs() throws IOException {
+        int[][] result = new int[FILE_NAMES.length + SOURCES.length + 1][];
+        for (int i = 0; i < FILE_NAMES.length; i++) {
+            Program p = new Program2();
+            BLParser.parse(p, Paths.get(FILE_NAMES[i]));
+            result[i] = p.generatedCode();
+        }
+        for (int i = 0; i < SOURCES.length; i++) {
+            Program p = new Program2();
+            BLParser.parse(p, ByteBuffer
+                    .wrap(SOURCES[i].getBytes(StandardCharsets.US_ASCII)));
+            result[FILE_NAMES.length + i] = p.generatedCode();
+        }
+        Program p = new Program2();
+        Statement body = p.newBody();
+        Benchmark.fillBlock(body, 4, 2);
+        p.swapBody(body);
+        result[result.length - 1] = p.generatedCode();
+        return result;
+    }
+
+    /**
+     * Test that tables give the results of BytecodeVM from every instruction,
+     * for every mask of one bit, twice so the second run uses memoized
+     * transitions.
+     *
+     * @throws IOException
+     *             if a file cannot be read
+     */
+    @Test
+    public final void testSameResults() throws IOException {
+        for (int[] code : programs()) {
+            /*
+             * Setup
+             */
+            TransitionTable table = new TransitionTable(code);
+
+            for (int round = 0; round < 2; round++) {
+                int pc = 0;
+                while (pc < code.length) {
+                    for (int mask = 1; mask < TransitionTable.MASKS;
+                            mask *= 2) {
+                        for (int limit : STEP_LIMITS) {
+                            for (int seed = 0; seed < STREAMS; seed++) {
+                                /*
+                                 * The call
+                                 */
+                                long actual = table.run(pc, mask,
+                                        new MaskSensor(-1, seed), limit);
+
+                                /*
+                                 * Evaluation
+                                 */
+                                assertEquals(BytecodeVM.run(code, pc,
+                                        new MaskSensor(mask, seed), limit),
+                                        actual);
+                            }
+                        }
+                    }
+                    int op = code[pc];
+                    if (op == BytecodeVM.JUMP
+                            || op >= BytecodeVM.JUMP_IF_NOT_BASE) {
+                        pc += 2;
+                    } else {
+                        pc++;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Test that a context resumed through its table by mask takes the same
+     * actions as one resumed through BytecodeVM by sensor.
+     *
+     * @throws IOException
+     *             if a file cannot be read
+     */
+    @Test
+    public final void testResumeByMask() throws IOException {
+        /*
+         * Setup
+         */
+        ExecutionContexts contexts = new ExecutionContexts();
+        for (int[] code : programs()) {
+            int p = contexts.addProgram(code);
+            contexts.add(p);
+            contexts.add(p);
+        }
+        MaskSensor tableSensor = new MaskSensor(-1, 0);
+        MaskSensor vmSensor = new MaskSensor(0, 0);
+
+        for (int turn = 0; turn < 1_000; turn++) {
+            for (int c = 0; c < contexts.size(); c += 2) {
+                int mask = 1 << ((turn + c) % 4);
+                vmSensor.mask = mask;
+
+                /*
+                 * The call
+                 */
+                int byMask = contexts.resume(c, mask, tableSensor,
+                        BugWorld.STEP_LIMIT);
+                int bySensor = contexts.resume(c + 1, vmSensor,
+                        BugWorld.STEP_LIMIT);
+
+                /*
+                 * Evaluation
+                 */
+                assertEquals(bySensor, byMask);
+                assertEquals(contexts.pc(c + 1), contexts.pc(c));
+            }
+        }
+    }
+
+}
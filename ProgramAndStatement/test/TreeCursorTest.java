@@ -0,0 +1,140 @@
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+
+import org.junit.Test;
+
+import components.program.Program;
+
+/**
+ * JUnit test fixture for {@code ProgramImage} and {@code TreeCursor}.
+ *
+ * @author Layan Abdallah & Oak Hodous
+ *
+ */
+public class TreeCursorTest {
+
+    /**
+     * The names of files containing BL programs.
+     */
+    private static final String[] FILE_NAMES = { "data/program-sample.bl",
+            "data/program-test1.bl", "data/program-test2.bl" };
+
+    /**
+     * Number of turns compared.
+     */
+    private static final int TURNS = 2_000;
+
+    /**
+     * Step limit of each turn.
+     */
+    private static final int STEP_LIMIT = 10_000;
+
+    /**
+     * Sensor answering every test with the next bit of a fixed xorshift
+     * stream.
+     */
+    private static final class RandomSensor implements WorldSensor {
+
+        /**
+         * The generator state.
+         */
+        private long state = 0x2545F4914F6CDD1DL;
+
+        @Override
+        public boolean test(int condition) {
+            this.state ^= this.state << 13;
+            this.state ^= this.state >>> 7;
+            this.state ^= this.state << 17;
+            return this.state < 0;
+        }
+
+    }
+
+    /**
+     * Returns the program parsed from the file with the given name.
+     *
+     * @param filename
+     *            the name of the file
+     * @return the program
+     * @throws IOException
+     *             if the file cannot be read
+     */
+    private static Program createFromFile(String filename) throws IOException {
+        Program p = new Program2();
+        BLParser.parse(p, Paths.get(filename));
+        return p;
+    }
+
+    /**
+     * Test that the cursor takes the same actions as the bytecode of the
+     * program, and that building the image leaves the program unchanged.
+     *
+     * @throws IOException
+     *             if a file cannot be read
+     */
+    @Test
+    public final void testMatchesBytecode() throws IOException {
+        for (String filename : FILE_NAMES) {
+            /*
+             * Setup
+             */
+            Program pTest = createFromFile(filename);
+            Program pRef = createFromFile(filename);
+            int[] code = pTest.generatedCode();
+            StringBuilder expected = new StringBuilder();
+            WorldSensor sensor = new RandomSensor();
+            int pc = 0;
+            for (int i = 0; i < TURNS; i++) {
+                long r = BytecodeVM.run(code, pc, sensor, STEP_LIMIT);
+                expected.append(BytecodeVM.instruction(r));
+                pc = BytecodeVM.nextPc(r);
+            }
+
+            /*
+             * The call
+             */
+            TreeCursor cursor = new TreeCursor(new ProgramImage(pTest));
+            StringBuilder actions = new StringBuilder();
+            sensor = new RandomSensor();
+            for (int i = 0; i < TURNS; i++) {
+                actions.append(cursor.nextAction(sensor, STEP_LIMIT));
+            }
+
+            /*
+             * Evaluation
+             */
+            assertEquals(pRef, pTest);
+            assertEquals(expected.toString(), actions.toString());
+        }
+    }
+
+    /**
+     * Test that recursive instructions are rejected.
+     *
+     * @throws IOException
+     *             never
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public final void testRecursive() throws IOException {
+        /*
+         * Setup
+         */
+        String source = "PROGRAM Test IS"
+                + " INSTRUCTION one IS IF random THEN two END IF END one"
+                + " INSTRUCTION two IS move one END two"
+                + " BEGIN one END Test";
+        Program p = new Program2();
+        BLParser.parse(p,
+                ByteBuffer.wrap(source.getBytes(StandardCharsets.US_ASCII)));
+
+        /*
+         * The call
+         */
+        new ProgramImage(p);
+    }
+
+}